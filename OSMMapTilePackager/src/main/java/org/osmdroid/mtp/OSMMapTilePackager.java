@@ -2,18 +2,24 @@
 package org.osmdroid.mtp;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
 import org.osmdroid.mtp.adt.OSMTileInfo;
+import org.osmdroid.mtp.download.DownloadJournal;
 import org.osmdroid.mtp.download.DownloadManager;
+import org.osmdroid.mtp.download.ITileSink;
 import org.osmdroid.mtp.ui.OSMMapTilePackagerUI;
 import org.osmdroid.mtp.util.DbCreator;
+import org.osmdroid.mtp.util.DbTileWriter;
 import org.osmdroid.mtp.util.FolderDeleter;
 import org.osmdroid.mtp.util.FolderFileCounter;
 import org.osmdroid.mtp.util.FolderZipper;
+import org.osmdroid.mtp.util.GEMFTileWriter;
 import org.osmdroid.mtp.util.Util;
+import org.osmdroid.mtp.util.ZipTileWriter;
 import org.osmdroid.util.GEMFFile;
 
 public class OSMMapTilePackager {
@@ -186,17 +192,22 @@ public class OSMMapTilePackager {
           final int pMinZoom, final int pMaxZoom, final double pNorth, final double pSouth,
           final double pEast, final double pWest, final ProgressNotification callbackNotification) {
           System.out.println("---------------------------");
-          runDownloading(pServerURL, pTempFolder, pThreadCount, pFileAppendix, pMinZoom, pMaxZoom, pNorth, pSouth, pEast, pWest, callbackNotification);
+          if (pServerURL == null) {
+               // nothing to download: archive the tiles already in the temp folder
+               if (pDestinationFile.endsWith(".zip")) {
+                    runZipToFile(pTempFolder, pDestinationFile);
+               } else if (pDestinationFile.endsWith(".gemf")) {
+                    runCreateGEMFFile(pTempFolder, pDestinationFile);
+               } else {
+                    runCreateDb(pTempFolder, pDestinationFile);
+               }
+          } else {
+               // the tiles are written directly into the archive, without going through the temp folder
+               runDownloading(pServerURL, pDestinationFile, pTempFolder, pThreadCount, pFileAppendix, pMinZoom, pMaxZoom, pNorth, pSouth, pEast, pWest, callbackNotification);
+          }
           System.out.println("---------------------------");
           if (callbackNotification != null) {
-               callbackNotification.updateProgress("Download complete, creating archive");
-          }
-          if (pDestinationFile.endsWith(".zip")) {
-               runZipToFile(pTempFolder, pDestinationFile);
-          } else if (pDestinationFile.endsWith(".gemf")) {
-               runCreateGEMFFile(pTempFolder, pDestinationFile);
-          } else {
-               runCreateDb(pTempFolder, pDestinationFile);
+               callbackNotification.updateProgress("Download complete, archive created");
           }
 
           System.out.println("---------------------------");
@@ -288,22 +299,64 @@ public class OSMMapTilePackager {
 
           /* deleteDirecto*/
           System.out.print("Deleting temp folder ...");
-          FolderDeleter.deleteFolder(new File(pTempFolder));
+          if (new File(pTempFolder).exists()) {
+               FolderDeleter.deleteFolder(new File(pTempFolder));
+          }
+          getJournalFile(pTempFolder).delete();
           System.out.println(" done.");
      }
 
-     private static void runDownloading(final String pBaseURL, final String pTempFolder, final int pThreadCount,
+     private static void runDownloading(final String pBaseURL, final String pDestinationFile, final String pTempFolder, final int pThreadCount,
           final String pFileAppendix, final int pMinZoom, final int pMaxZoom, final double pNorth,
           final double pSouth, final double pEast, final double pWest, final ProgressNotification callbackNotification) {
-          final String pTempBaseURL = pTempFolder
-               + File.separator + "%d"
-               + File.separator + "%d"
-               + File.separator + "%d"
-               + pBaseURL.substring(pBaseURL.lastIndexOf('.'))
-               + pFileAppendix
-               .replace(File.separator + File.separator, File.separator);
+          final String provider = new File(pTempFolder).getName();
+          final String tileNameFormat = "%d/%d/%d" + pBaseURL.substring(pBaseURL.lastIndexOf('.')) + pFileAppendix;
+
+          /* Only the database can be reopened to add the missing tiles: zip and GEMF files start from scratch. */
+          final File journalFile = getJournalFile(pTempFolder);
+          final boolean resumable = !pDestinationFile.endsWith(".zip") && !pDestinationFile.endsWith(".gemf");
+          final boolean resume = resumable && journalFile.exists() && new File(pDestinationFile).exists();
+          if (!resume) {
+               journalFile.delete();
+          }
+
+          final ITileSink sink;
+          try {
+               if (pDestinationFile.endsWith(".zip")) {
+                    System.out.println("Writing tiles to " + pDestinationFile);
+                    sink = new ZipTileWriter(new File(pDestinationFile), provider + "/" + tileNameFormat);
+               } else if (pDestinationFile.endsWith(".gemf")) {
+                    System.out.println("Writing tiles to GEMF archive " + pDestinationFile);
+                    final List<GEMFTileWriter.Range> ranges = new ArrayList<GEMFTileWriter.Range>();
+                    for (int z = pMinZoom; z <= pMaxZoom; z++) {
+                         final OSMTileInfo upperLeft = Util.getMapTileFromCoordinates(pNorth, pWest, z);
+                         final OSMTileInfo lowerRight = Util.getMapTileFromCoordinates(pSouth, pEast, z);
+                         ranges.add(new GEMFTileWriter.Range(z, upperLeft.x, lowerRight.x, upperLeft.y, lowerRight.y));
+                    }
+                    sink = new GEMFTileWriter(pDestinationFile, provider, ranges);
+               } else {
+                    System.out.println("Putting tiles into db : " + pDestinationFile);
+                    sink = new DbTileWriter(new File(pDestinationFile), provider, resume);
+               }
+          } catch (final IOException e) {
+               e.printStackTrace();
+               return;
+          }
 
-          final DownloadManager dm = new DownloadManager(pBaseURL, pTempBaseURL, pThreadCount);
+          DownloadJournal journal = null;
+          if (resumable) {
+               try {
+                    journal = new DownloadJournal(journalFile);
+                    if (journal.getPreviouslyCompletedCount() > 0) {
+                         System.out.println("Resuming: " + journal.getPreviouslyCompletedCount() + " tiles already downloaded");
+                    }
+               } catch (final IOException e) {
+                    System.err.println("Cannot open the download journal, the download won't be resumable: " + e);
+               }
+          }
+          final DownloadManager dm = new DownloadManager(pBaseURL, sink, journal, pThreadCount,
+                    Math.min(pThreadCount, DownloadManager.DEFAULT_MAX_CONNECTIONS_PER_HOST));
+          dm.setExpectedCount(runFileExpecter(pMinZoom, pMaxZoom, pNorth, pSouth, pEast, pWest));
 
           /* For each zoomLevel. */
           for (int z = pMinZoom; z <= pMaxZoom; z++) {
@@ -320,12 +373,7 @@ public class OSMMapTilePackager {
                          dm.add(new OSMTileInfo(x, y, z));
                     }
                }
-               try {
-                    dm.waitEmpty();
-                    System.out.println(" done.");
-               } catch (final InterruptedException e) {
-                    e.printStackTrace();
-               }
+               System.out.println(" queued.");
           }
           try {
                System.out.print("Awaiting termination of all threads ...");
@@ -333,9 +381,22 @@ public class OSMMapTilePackager {
                System.out.println(" done.");
           } catch (final InterruptedException e) {
                e.printStackTrace();
+          } finally {
+               try {
+                    sink.close();
+               } catch (final IOException e) {
+                    e.printStackTrace();
+               }
           }
      }
 
+     /**
+      * The journal is next to the temp folder, not inside, as the archive creators walk the whole folder
+      */
+     private static File getJournalFile(final String pTempFolder) {
+          return new File(new File(pTempFolder).getAbsolutePath() + ".journal");
+     }
+
      public static int runFileExpecter(final int pMinZoom, final int pMaxZoom, final double pNorth, final double pSouth, final double pEast, final double pWest) {
           /* Calculate file-count. */
           int fileCnt = 0;
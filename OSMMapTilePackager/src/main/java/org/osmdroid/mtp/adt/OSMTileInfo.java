@@ -37,6 +37,14 @@ public class OSMTileInfo {
 	// Getter & Setter
 	// ===========================================================
 
+	/**
+	 * @return a unique index for this tile, as used by the {@link org.osmdroid.mtp.download.DownloadJournal}
+	 * @since 6.0.2
+	 */
+	public long getIndex(){
+		return (((long) this.zoom) << 58) | (((long) this.x) << 29) | this.y;
+	}
+
 	public OSMTileInfo getParentTile(){
 		return new OSMTileInfo(this.x / 2, this.y / 2, this.zoom - 1);
 	}
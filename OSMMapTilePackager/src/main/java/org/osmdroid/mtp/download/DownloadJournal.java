@@ -0,0 +1,142 @@
+package org.osmdroid.mtp.download;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.osmdroid.tileprovider.util.StreamUtils;
+
+/**
+ * Persistent list of the tiles already downloaded, so that an interrupted run can be resumed.
+ * The file is a plain sequence of tile indices (see {@link org.osmdroid.mtp.adt.OSMTileInfo#getIndex()}),
+ * only appended to. A record truncated by a crash is ignored when the journal is read again.
+ * <p>
+ * New entries are kept in memory until {@link #write(long[])}, so that the {@link DownloadManager}
+ * can write them only once the {@link ITileSink} has made the matching tiles durable.
+ * @since 6.0.2
+ */
+public class DownloadJournal {
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	/** Sorted indices of the tiles downloaded by the previous runs */
+	private final long[] mPreviouslyCompleted;
+
+	private final DataOutputStream mOutput;
+
+	private long[] mPending = new long[1024];
+	private int mPendingCount;
+
+	// ===========================================================
+	// Constructors
+	// ===========================================================
+
+	public DownloadJournal(final File pFile) throws IOException {
+		this.mPreviouslyCompleted = read(pFile);
+		truncate(pFile, this.mPreviouslyCompleted.length * 8L);
+		this.mOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pFile, true), StreamUtils.IO_BUFFER_SIZE));
+	}
+
+	// ===========================================================
+	// Getter & Setter
+	// ===========================================================
+
+	/**
+	 * @return the number of tiles downloaded by the previous runs
+	 */
+	public int getPreviouslyCompletedCount() {
+		return this.mPreviouslyCompleted.length;
+	}
+
+	/**
+	 * @return true if the tile was downloaded by a previous run
+	 */
+	public boolean contains(final long pIndex) {
+		return Arrays.binarySearch(this.mPreviouslyCompleted, pIndex) >= 0;
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	/**
+	 * Records a downloaded tile, in memory only
+	 */
+	public synchronized void add(final long pIndex) {
+		if (this.mPendingCount == this.mPending.length) {
+			this.mPending = Arrays.copyOf(this.mPending, this.mPending.length * 2);
+		}
+		this.mPending[this.mPendingCount++] = pIndex;
+	}
+
+	/**
+	 * @return the entries recorded since the last call
+	 */
+	public synchronized long[] takePending() {
+		final long[] result = Arrays.copyOf(this.mPending, this.mPendingCount);
+		this.mPendingCount = 0;
+		return result;
+	}
+
+	/**
+	 * Appends entries to the file
+	 */
+	public synchronized void write(final long[] pEntries) throws IOException {
+		for (final long index : pEntries) {
+			this.mOutput.writeLong(index);
+		}
+		this.mOutput.flush();
+	}
+
+	public synchronized void close() throws IOException {
+		this.mOutput.close();
+	}
+
+	/**
+	 * Removes a record truncated by a crash, that would shift all the next ones
+	 */
+	private static void truncate(final File pFile, final long pLength) throws IOException {
+		if (!pFile.exists() || pFile.length() == pLength) {
+			return;
+		}
+		final RandomAccessFile file = new RandomAccessFile(pFile, "rw");
+		try {
+			file.setLength(pLength);
+		} finally {
+			file.close();
+		}
+	}
+
+	private static long[] read(final File pFile) throws IOException {
+		if (!pFile.exists()) {
+			return new long[0];
+		}
+		long[] result = new long[(int) Math.min(Integer.MAX_VALUE, pFile.length() / 8)];
+		int count = 0;
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(pFile), StreamUtils.IO_BUFFER_SIZE));
+		try {
+			while (count < result.length) {
+				result[count++] = in.readLong();
+			}
+		} catch (final EOFException e) {
+			count--;
+		} finally {
+			StreamUtils.closeStream(in);
+		}
+		if (count < result.length) {
+			result = Arrays.copyOf(result, count);
+		}
+		Arrays.sort(result);
+		return result;
+	}
+}
@@ -1,81 +1,223 @@
 // Created by plusminus on 9:34:16 PM - Mar 5, 2009
 package org.osmdroid.mtp.download;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.Queue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.osmdroid.mtp.adt.OSMTileInfo;
 import org.osmdroid.tileprovider.util.StreamUtils;
 
+/**
+ * Downloads tiles with a fixed number of threads, and hands them to an {@link ITileSink}.
+ * <ul>
+ * <li>the number of simultaneous connections to the same host is limited</li>
+ * <li>failed downloads are retried with an exponential backoff, up to {@link #MAX_RETRIES} times</li>
+ * <li>{@link #add(OSMTileInfo)} blocks when too many tiles are pending, so that huge areas don't fill the memory</li>
+ * <li>with a {@link DownloadJournal}, the tiles downloaded by an interrupted run are not downloaded again</li>
+ * <li>the throughput and the estimated remaining time are printed periodically</li>
+ * </ul>
+ */
 public class DownloadManager {
 	// ===========================================================
 	// Constants
 	// ===========================================================
 
+	public static final int MAX_RETRIES = 5;
+
+	/**
+	 * Default maximum number of simultaneous connections to the same host,
+	 * as most tile servers ask for (e.g. the OpenStreetMap tile usage policy)
+	 * @since 6.0.2
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 2;
+	private static final long RETRY_BASE_DELAY = 1000;
+	private static final long RETRY_MAX_DELAY = 60000;
+
+	private static final int CONNECT_TIMEOUT = 15000;
+	private static final int READ_TIMEOUT = 30000;
+
+	/** Maximum number of tiles waiting or being downloaded, per thread */
+	private static final int PENDING_TILES_PER_THREAD = 256;
+
+	/** Delay between two progress reports, and between two journal checkpoints */
+	private static final long REPORT_INTERVAL = 10000;
+
 	// ===========================================================
 	// Fields
 	// ===========================================================
 
-	private final ExecutorService mThreadPool;
-
-	private final Queue<OSMTileInfo> mQueue = new LinkedBlockingQueue<OSMTileInfo>();
-
 	private final String mBaseURL;
-	private final String mDestinationURL;
+	private final ITileSink mSink;
+	private final DownloadJournal mJournal;
+
+	private final DownloadRunner[] mRunners;
+	private final DelayQueue<DownloadTask> mQueue = new DelayQueue<DownloadTask>();
+	private final Semaphore mPendingCapacity;
+	private final int mMaxConnectionsPerHost;
+	private final Map<String, Semaphore> mHostConnections = new HashMap<String, Semaphore>();
+	private final Random mRandom = new Random();
+	private final Object mCheckpointLock = new Object();
+
+	/** Number of tiles added and not done yet, guarded by this */
+	private int mPendingCount;
+
+	private final long mStartTime = System.currentTimeMillis();
+	private final AtomicLong mLastReport = new AtomicLong(mStartTime);
+	private volatile long mExpectedCount;
+	private final AtomicInteger mDownloadedCount = new AtomicInteger();
+	private final AtomicInteger mSkippedCount = new AtomicInteger();
+	private final AtomicInteger mFailedCount = new AtomicInteger();
+	private final AtomicInteger mRetryCount = new AtomicInteger();
+	private final AtomicLong mDownloadedBytes = new AtomicLong();
 
 	// ===========================================================
 	// Constructors
 	// ===========================================================
 
 	public DownloadManager(final String pBaseURL, final String pDestinationURL, final int mThreads) {
+		this(pBaseURL, new FolderTileSink(pDestinationURL), null, mThreads,
+				Math.min(mThreads, DEFAULT_MAX_CONNECTIONS_PER_HOST));
+	}
+
+	/**
+	 * @param pBaseURL the tile URL pattern, with the zoom, x and y as "%d"
+	 * @param pSink where the tiles go
+	 * @param pJournal the tiles already downloaded, may be null
+	 * @param pThreads number of download threads
+	 * @param pMaxConnectionsPerHost maximum number of simultaneous connections to the same host
+	 * @since 6.0.2
+	 */
+	public DownloadManager(final String pBaseURL, final ITileSink pSink, final DownloadJournal pJournal,
+						   final int pThreads, final int pMaxConnectionsPerHost) {
 		this.mBaseURL = pBaseURL;
-		this.mDestinationURL = pDestinationURL;
-		this.mThreadPool = Executors.newFixedThreadPool(mThreads);
+		this.mSink = pSink;
+		this.mJournal = pJournal;
+		this.mMaxConnectionsPerHost = Math.max(1, pMaxConnectionsPerHost);
+		this.mPendingCapacity = new Semaphore(Math.max(1, pThreads) * PENDING_TILES_PER_THREAD);
+		this.mRunners = new DownloadRunner[Math.max(1, pThreads)];
+		for (int i = 0; i < this.mRunners.length; i++) {
+			this.mRunners[i] = new DownloadRunner();
+			final Thread thread = new Thread(this.mRunners[i], "DownloadManager-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			this.mRunners[i].mThread = thread;
+		}
 	}
 
 	// ===========================================================
 	// Getter & Setter
 	// ===========================================================
 
-	public synchronized void add(final OSMTileInfo pTileInfo){
-		this.mQueue.add(pTileInfo);
-		spawnNewThread();
+	/**
+	 * @param pExpectedCount the total number of tiles that will be added, for the remaining time estimate
+	 * @since 6.0.2
+	 */
+	public void setExpectedCount(final long pExpectedCount) {
+		this.mExpectedCount = pExpectedCount;
 	}
 
-	private synchronized OSMTileInfo getNext(){
-		final OSMTileInfo tile = this.mQueue.poll();
+	/** @since 6.0.2 */
+	public int getDownloadedCount() {
+		return this.mDownloadedCount.get();
+	}
 
-		final int remaining = this.mQueue.size();
-		if(remaining % 10 == 0 && remaining > 0) {
-			System.out.print("(" + remaining +")");
-		} else {
-			System.out.print(".");
+	/**
+	 * @return the number of tiles not downloaded because a previous run already did
+	 * @since 6.0.2
+	 */
+	public int getSkippedCount() {
+		return this.mSkippedCount.get();
+	}
+
+	/**
+	 * @return the number of tiles given up after {@link #MAX_RETRIES} retries, or not found
+	 * @since 6.0.2
+	 */
+	public int getFailedCount() {
+		return this.mFailedCount.get();
+	}
+
+	/** @since 6.0.2 */
+	public long getDownloadedBytes() {
+		return this.mDownloadedBytes.get();
+	}
+
+	/**
+	 * @return the number of tiles downloaded per second since the start
+	 * @since 6.0.2
+	 */
+	public double getTilesPerSecond() {
+		final long elapsed = System.currentTimeMillis() - this.mStartTime;
+		return elapsed <= 0 ? 0 : this.mDownloadedCount.get() * 1000d / elapsed;
+	}
+
+	/**
+	 * @return the estimated remaining time in milliseconds, or -1 if unknown
+	 * @since 6.0.2
+	 */
+	public long getEstimatedRemainingTime() {
+		final double tilesPerSecond = getTilesPerSecond();
+		if (this.mExpectedCount <= 0 || tilesPerSecond <= 0) {
+			return -1;
 		}
+		final long done = this.mDownloadedCount.get() + this.mSkippedCount.get() + this.mFailedCount.get();
+		return (long) (Math.max(0, this.mExpectedCount - done) * 1000 / tilesPerSecond);
+	}
 
-		this.notify();
-		return tile;
+	/**
+	 * Adds a tile to download; blocks while too many tiles are pending
+	 */
+	public void add(final OSMTileInfo pTileInfo){
+		if (this.mJournal != null && this.mJournal.contains(pTileInfo.getIndex())) {
+			this.mSkippedCount.incrementAndGet();
+			return;
+		}
+		this.mPendingCapacity.acquireUninterruptibly();
+		synchronized (this) {
+			this.mPendingCount++;
+		}
+		this.mQueue.add(new DownloadTask(pTileInfo));
 	}
 
 	public synchronized void waitEmpty() throws InterruptedException {
-		while(this.mQueue.size() > 0){
+		while(this.mPendingCount > 0){
 			this.wait();
 		}
 	}
 
+	/**
+	 * Waits for all the tiles, stops the threads, and flushes the sink and the journal
+	 */
 	public void waitFinished() throws InterruptedException {
 		waitEmpty();
-		this.mThreadPool.shutdown();
-		this.mThreadPool.awaitTermination(6, TimeUnit.HOURS);
+		// one end marker per thread, due now: they are taken once the queue is empty
+		for (int i = 0; i < this.mRunners.length; i++) {
+			this.mQueue.add(new DownloadTask(null));
+		}
+		for (final DownloadRunner runner : this.mRunners) {
+			runner.mThread.join();
+		}
+		try {
+			checkpoint();
+			if (this.mJournal != null) {
+				this.mJournal.close();
+			}
+		} catch (final IOException e) {
+			System.err.println("Error writing the download journal: " + e);
+		}
+		printProgress();
 	}
 
 	// ===========================================================
@@ -86,61 +228,180 @@ public class DownloadManager {
 	// Methods
 	// ===========================================================
 
-	private void spawnNewThread() {
-		this.mThreadPool.execute(new DownloadRunner());
+	private synchronized void onDone() {
+		this.mPendingCapacity.release();
+		this.mPendingCount--;
+		if (this.mPendingCount == 0) {
+			this.notifyAll();
+		}
 	}
 
-	// ===========================================================
-	// Inner and Anonymous Classes
-	// ===========================================================
+	private Semaphore getHostConnections(final String pHost) {
+		synchronized (this.mHostConnections) {
+			Semaphore result = this.mHostConnections.get(pHost);
+			if (result == null) {
+				result = new Semaphore(this.mMaxConnectionsPerHost);
+				this.mHostConnections.put(pHost, result);
+			}
+			return result;
+		}
+	}
 
+	/**
+	 * @return true if a download that failed with this HTTP status code may succeed later:
+	 * server errors, "request timeout" and "too many requests". Other client errors won't go away.
+	 * @since 6.0.2
+	 */
+	public static boolean isRetryable(final int pResponseCode) {
+		return pResponseCode >= 500 || pResponseCode == 408 || pResponseCode == 429;
+	}
 
-	private class DownloadRunner implements Runnable {
+	private void retryOrFail(final DownloadTask pTask, final String pURL, final String pError, final boolean pRetry) {
+		if (pRetry && pTask.mAttempt < MAX_RETRIES) {
+			pTask.mAttempt++;
+			final long backoff = Math.min(RETRY_MAX_DELAY, RETRY_BASE_DELAY << (pTask.mAttempt - 1));
+			final long jitter;
+			synchronized (this.mRandom) {
+				jitter = (long) (this.mRandom.nextDouble() * backoff / 2);
+			}
+			pTask.mDueTime = System.currentTimeMillis() + backoff + jitter;
+			this.mRetryCount.incrementAndGet();
+			this.mQueue.add(pTask);
+			return;
+		}
+		System.err.println("Error downloading: '" + pTask.mTileInfo + "' from URL: " + pURL + " : " + pError);
+		this.mFailedCount.incrementAndGet();
+		onDone();
+	}
 
-		private OSMTileInfo mTileInfo;
-		private File mDestinationFile;
+	/**
+	 * Makes the tiles downloaded so far durable in the sink, then records them in the journal
+	 */
+	private void checkpoint() throws IOException {
+		synchronized (this.mCheckpointLock) {
+			final long[] entries = this.mJournal == null ? null : this.mJournal.takePending();
+			this.mSink.flush();
+			if (entries != null) {
+				this.mJournal.write(entries);
+			}
+		}
+	}
 
-		public DownloadRunner() {
+	private void checkpointIfNeeded() {
+		final long now = System.currentTimeMillis();
+		final long lastReport = this.mLastReport.get();
+		if (now - lastReport < REPORT_INTERVAL || !this.mLastReport.compareAndSet(lastReport, now)) {
+			return;
+		}
+		try {
+			checkpoint();
+		} catch (final IOException e) {
+			System.err.println("Error writing the download journal: " + e);
 		}
+		printProgress();
+	}
+
+	private void printProgress() {
+		final long remaining = getEstimatedRemainingTime();
+		System.out.println(String.format("Downloaded: %d (%d KB), skipped: %d, failed: %d, retries: %d, %.1f tiles/s%s",
+				this.mDownloadedCount.get(), this.mDownloadedBytes.get() / 1024, this.mSkippedCount.get(),
+				this.mFailedCount.get(), this.mRetryCount.get(), getTilesPerSecond(),
+				remaining < 0 ? "" : ", remaining: " + formatDuration(remaining)));
+	}
+
+	private static String formatDuration(final long pMillis) {
+		final long seconds = pMillis / 1000;
+		return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+	}
+
+	// ===========================================================
+	// Inner and Anonymous Classes
+	// ===========================================================
+
+	private static class DownloadTask implements Delayed {
 
-		private void init(final OSMTileInfo pTileInfo) {
+		private final OSMTileInfo mTileInfo;
+		private int mAttempt;
+		private long mDueTime;
+
+		private DownloadTask(final OSMTileInfo pTileInfo) {
 			this.mTileInfo = pTileInfo;
-			/* Create destination file. */
-			final String filename = String.format(DownloadManager.this.mDestinationURL, this.mTileInfo.zoom, this.mTileInfo.x, this.mTileInfo.y);
-			this.mDestinationFile = new File(filename);
+		}
 
-			final File parent = this.mDestinationFile.getParentFile();
-			parent.mkdirs();
+		@Override
+		public long getDelay(final TimeUnit pUnit) {
+			return pUnit.convert(this.mDueTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
 		}
 
 		@Override
-		public void run() {
-			InputStream in = null;
-			OutputStream out = null;
+		public int compareTo(final Delayed pOther) {
+			final long diff = this.mDueTime - ((DownloadTask) pOther).mDueTime;
+			return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+		}
+	}
 
-			init(DownloadManager.this.getNext());
+	private class DownloadRunner implements Runnable {
 
-			if (mDestinationFile.exists()) {
-				return; // TODO issue 70 - make this an option
-			}
+		private Thread mThread;
+		private final ByteArrayOutputStream mBuffer = new ByteArrayOutputStream(StreamUtils.IO_BUFFER_SIZE * 4);
 
-			final String finalURL = String.format(DownloadManager.this.mBaseURL, this.mTileInfo.zoom, this.mTileInfo.x, this.mTileInfo.y);
+		@Override
+		public void run() {
+			while (true) {
+				final DownloadTask task;
+				try {
+					task = DownloadManager.this.mQueue.take();
+				} catch (final InterruptedException e) {
+					return;
+				}
+				if (task.mTileInfo == null) { // end marker
+					return;
+				}
+				download(task);
+				checkpointIfNeeded();
+			}
+		}
 
+		private void download(final DownloadTask pTask) {
+			final OSMTileInfo tileInfo = pTask.mTileInfo;
+			final String finalURL = String.format(DownloadManager.this.mBaseURL, tileInfo.zoom, tileInfo.x, tileInfo.y);
+			Semaphore hostConnections = null;
+			HttpURLConnection connection = null;
+			InputStream in = null;
 			try {
-				in = new BufferedInputStream(new URL(finalURL).openStream(), StreamUtils.IO_BUFFER_SIZE);
-
-				final FileOutputStream fileOut = new FileOutputStream(this.mDestinationFile);
-				out = new BufferedOutputStream(fileOut, StreamUtils.IO_BUFFER_SIZE);
-
-				StreamUtils.copy(in, out);
-
-				out.flush();
+				final URL url = new URL(finalURL);
+				hostConnections = getHostConnections(url.getHost());
+				hostConnections.acquireUninterruptibly();
+				connection = (HttpURLConnection) url.openConnection();
+				connection.setConnectTimeout(CONNECT_TIMEOUT);
+				connection.setReadTimeout(READ_TIMEOUT);
+				final int responseCode = connection.getResponseCode();
+				if (responseCode != HttpURLConnection.HTTP_OK) {
+					StreamUtils.closeStream(connection.getErrorStream());
+					retryOrFail(pTask, finalURL, "HTTP " + responseCode, isRetryable(responseCode));
+					return;
+				}
+				this.mBuffer.reset();
+				in = connection.getInputStream();
+				StreamUtils.copy(in, this.mBuffer);
+				hostConnections.release();
+				hostConnections = null;
+
+				final byte[] data = this.mBuffer.toByteArray();
+				DownloadManager.this.mSink.putTile(tileInfo, data, data.length);
+				if (DownloadManager.this.mJournal != null) {
+					DownloadManager.this.mJournal.add(tileInfo.getIndex());
+				}
+				DownloadManager.this.mDownloadedCount.incrementAndGet();
+				DownloadManager.this.mDownloadedBytes.addAndGet(data.length);
+				onDone();
 			} catch (final Exception e) {
-				System.err.println("Error downloading: '" + this.mTileInfo + "' from URL: " + finalURL + " : " + e);
-				DownloadManager.this.add(this.mTileInfo); // try again later
+				retryOrFail(pTask, finalURL, e.toString(), true);
 			} finally {
 				StreamUtils.closeStream(in);
-				StreamUtils.closeStream(out);
+				if (hostConnections != null) {
+					hostConnections.release();
+				}
 			}
 		}
 	}
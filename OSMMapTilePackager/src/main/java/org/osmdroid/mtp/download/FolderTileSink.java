@@ -0,0 +1,58 @@
+package org.osmdroid.mtp.download;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.osmdroid.mtp.adt.OSMTileInfo;
+
+/**
+ * {@link ITileSink} that writes each tile in its own file, e.g. "temp/%d/%d/%d.png" (zoom, x, y)
+ * @since 6.0.2
+ */
+public class FolderTileSink implements ITileSink {
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private final String mDestinationURL;
+
+	// ===========================================================
+	// Constructors
+	// ===========================================================
+
+	/**
+	 * @param pDestinationURL the file name pattern, with the zoom, x and y as "%d"
+	 */
+	public FolderTileSink(final String pDestinationURL) {
+		this.mDestinationURL = pDestinationURL;
+	}
+
+	// ===========================================================
+	// Methods from SuperClass/Interfaces
+	// ===========================================================
+
+	@Override
+	public void putTile(final OSMTileInfo pTileInfo, final byte[] pData, final int pLength) throws IOException {
+		final File destinationFile = new File(String.format(this.mDestinationURL, pTileInfo.zoom, pTileInfo.x, pTileInfo.y));
+		destinationFile.getParentFile().mkdirs();
+		final FileOutputStream out = new FileOutputStream(destinationFile);
+		try {
+			out.write(pData, 0, pLength);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * The files are closed as soon as they are written: nothing to do
+	 */
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,28 @@
+package org.osmdroid.mtp.download;
+
+import java.io.IOException;
+
+import org.osmdroid.mtp.adt.OSMTileInfo;
+
+/**
+ * Where the {@link DownloadManager} stores the downloaded tiles: a folder tree, or directly an archive.
+ * Implementations are called by all the download threads at the same time.
+ * @since 6.0.2
+ */
+public interface ITileSink {
+
+	/**
+	 * Stores a downloaded tile
+	 * @param pData the tile content, that the sink must not keep as the array is reused
+	 * @param pLength the length of the tile content in the array
+	 */
+	void putTile(final OSMTileInfo pTileInfo, final byte[] pData, final int pLength) throws IOException;
+
+	/**
+	 * Makes all the tiles stored so far survive a crash of the process:
+	 * the {@link DownloadJournal} is only written after this call
+	 */
+	void flush() throws IOException;
+
+	void close() throws IOException;
+}
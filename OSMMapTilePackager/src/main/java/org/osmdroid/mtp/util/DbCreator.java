@@ -12,6 +12,14 @@ import java.sql.Statement;
 
 public class DbCreator {
 
+     /**
+      * @return the key of a tile in the database, as osmdroid computes it
+      * @since 6.0.2
+      */
+     public static long getIndex(final long pZoom, final long pX, final long pY) {
+          return (((pZoom << pZoom) + pX) << pZoom) + pY;
+     }
+
      public static void putFolderToDb(final File pDestinationFile, final File pFolderToPut) throws ClassNotFoundException, SQLException, FileNotFoundException, IOException {
           pDestinationFile.delete();
           Class.forName("org.sqlite.JDBC");
@@ -38,7 +46,7 @@ public class DbCreator {
                                         final long z = Long.parseLong(s[s.length - 3]);
                                         final long x = Long.parseLong(s[s.length - 2]);
                                         final long y = Long.parseLong(s[s.length - 1].split(".png")[0]);
-                                        final long index = (((z << z) + x) << z) + y;
+                                        final long index = getIndex(z, x, y);
                                         prep.setLong(1, index);
                                         final String provider = s[s.length - 4];
                                         prep.setString(2, provider);
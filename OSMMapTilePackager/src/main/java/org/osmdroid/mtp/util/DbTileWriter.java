@@ -0,0 +1,104 @@
+package org.osmdroid.mtp.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.osmdroid.mtp.adt.OSMTileInfo;
+import org.osmdroid.mtp.download.ITileSink;
+
+/**
+ * Writes the tiles into a SQLite database (same schema as {@link DbCreator}) as they arrive,
+ * by batches of {@link #BATCH_SIZE} tiles per transaction.
+ * As each {@link #flush()} commits, an existing database can be reopened to resume a download.
+ * @since 6.0.2
+ */
+public class DbTileWriter implements ITileSink {
+
+	public static final int BATCH_SIZE = 500;
+
+	private final String mProvider;
+	private final Connection mConnection;
+	private final PreparedStatement mInsert;
+	private int mBatchCount;
+
+	/**
+	 * @param pDestinationFile the database
+	 * @param pProvider the provider name of the tiles
+	 * @param pResume true to add tiles to an existing database, false to start from scratch
+	 */
+	public DbTileWriter(final File pDestinationFile, final String pProvider, final boolean pResume) throws IOException {
+		this.mProvider = pProvider;
+		if (!pResume) {
+			pDestinationFile.delete();
+		}
+		try {
+			Class.forName("org.sqlite.JDBC");
+			this.mConnection = DriverManager.getConnection("jdbc:sqlite:" + pDestinationFile);
+			final Statement stat = this.mConnection.createStatement();
+			stat.execute("CREATE TABLE IF NOT EXISTS tiles (key INTEGER PRIMARY KEY, provider TEXT, tile BLOB)");
+			stat.close();
+			this.mConnection.setAutoCommit(false);
+			this.mInsert = this.mConnection.prepareStatement("INSERT OR REPLACE INTO tiles VALUES (?, ?, ?)");
+		} catch (final ClassNotFoundException e) {
+			throw new IOException(e);
+		} catch (final SQLException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void putTile(final OSMTileInfo pTileInfo, final byte[] pData, final int pLength) throws IOException {
+		final byte[] tile;
+		if (pLength == pData.length) {
+			tile = pData;
+		} else {
+			tile = new byte[pLength];
+			System.arraycopy(pData, 0, tile, 0, pLength);
+		}
+		try {
+			this.mInsert.setLong(1, DbCreator.getIndex(pTileInfo.zoom, pTileInfo.x, pTileInfo.y));
+			this.mInsert.setString(2, this.mProvider);
+			this.mInsert.setBytes(3, tile);
+			this.mInsert.addBatch();
+			if (++this.mBatchCount >= BATCH_SIZE) {
+				commit();
+			}
+		} catch (final SQLException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		try {
+			commit();
+		} catch (final SQLException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			commit();
+			this.mInsert.close();
+			this.mConnection.close();
+		} catch (final SQLException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void commit() throws SQLException {
+		if (this.mBatchCount == 0) {
+			return;
+		}
+		this.mInsert.executeBatch();
+		this.mConnection.commit();
+		this.mBatchCount = 0;
+	}
+}
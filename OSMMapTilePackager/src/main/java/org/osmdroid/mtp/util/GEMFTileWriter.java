@@ -0,0 +1,267 @@
+package org.osmdroid.mtp.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import org.osmdroid.mtp.adt.OSMTileInfo;
+import org.osmdroid.mtp.download.ITileSink;
+import org.osmdroid.tileprovider.util.StreamUtils;
+
+/**
+ * Writes a GEMF archive (see {@link org.osmdroid.util.GEMFFile}) in a single pass, as the tiles arrive.
+ * <p>
+ * The ranges are known beforehand, so the header size is too: the tiles are appended right after the
+ * room left for the header, the tile index is kept in memory (12 bytes per tile), and the header is
+ * written on {@link #close()}. The archive is only valid once closed.
+ * @since 6.0.2
+ */
+public class GEMFTileWriter implements ITileSink {
+	// ===========================================================
+	// Constants
+	// ===========================================================
+
+	private static final long FILE_SIZE_LIMIT = 1 * 1024 * 1024 * 1024; // 1GB, as GEMFFile
+
+	private static final int VERSION = 4;
+	private static final int TILE_SIZE = 256;
+
+	private static final int U32_SIZE = 4;
+	private static final int U64_SIZE = 8;
+	private static final int RANGE_SIZE = U32_SIZE * 6 + U64_SIZE;
+	private static final int TILE_RECORD_SIZE = U64_SIZE + U32_SIZE;
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private final String mLocation;
+	private final String mSourceName;
+	private final Range[] mRanges;
+	private final long mHeaderSize;
+	private final long mFileSizeLimit;
+
+	private final RandomAccessFile mBaseFile;
+	private RandomAccessFile mPartFile;
+	private OutputStream mOutput;
+	private int mPartIndex;
+	private long mPartSize;
+
+	/** Offset of the next tile, counted from the beginning of the first file */
+	private long mOffset;
+
+	// ===========================================================
+	// Constructors
+	// ===========================================================
+
+	/**
+	 * @param pLocation the first file of the archive; the next ones get the suffixes "-1", "-2"...
+	 * @param pSourceName the name of the single source of the archive
+	 * @param pRanges all the tiles that may be written
+	 */
+	public GEMFTileWriter(final String pLocation, final String pSourceName, final List<Range> pRanges) throws IOException {
+		this(pLocation, pSourceName, pRanges, FILE_SIZE_LIMIT);
+	}
+
+	/**
+	 * @param pFileSizeLimit the maximum size of each file of the archive, unless a single tile is bigger
+	 */
+	GEMFTileWriter(final String pLocation, final String pSourceName, final List<Range> pRanges, final long pFileSizeLimit) throws IOException {
+		this.mLocation = pLocation;
+		this.mFileSizeLimit = pFileSizeLimit;
+		this.mSourceName = pSourceName;
+		this.mRanges = pRanges.toArray(new Range[pRanges.size()]);
+
+		long offset = U32_SIZE * 4 + U32_SIZE * 2 + pSourceName.getBytes().length + this.mRanges.length * RANGE_SIZE;
+		for (final Range range : this.mRanges) {
+			range.mOffset = offset;
+			offset += (long) range.mDataOffsets.length * TILE_RECORD_SIZE;
+		}
+		this.mHeaderSize = offset;
+
+		deleteParts();
+		this.mBaseFile = new RandomAccessFile(pLocation, "rw");
+		openPart(this.mBaseFile, this.mHeaderSize);
+		this.mOffset = this.mHeaderSize;
+	}
+
+	// ===========================================================
+	// Methods from SuperClass/Interfaces
+	// ===========================================================
+
+	@Override
+	public synchronized void putTile(final OSMTileInfo pTileInfo, final byte[] pData, final int pLength) throws IOException {
+		final Range range = getRange(pTileInfo);
+		if (range == null) {
+			throw new IOException("Tile outside of the archive ranges: " + pTileInfo);
+		}
+		if (this.mPartSize + pLength > this.mFileSizeLimit && this.mPartSize > (this.mPartIndex == 0 ? this.mHeaderSize : 0)) {
+			this.mOutput.flush();
+			if (this.mPartFile != this.mBaseFile) {
+				this.mPartFile.close();
+			}
+			this.mPartIndex++;
+			openPart(new RandomAccessFile(this.mLocation + "-" + this.mPartIndex, "rw"), 0);
+		}
+		this.mOutput.write(pData, 0, pLength);
+		final int index = range.getIndex(pTileInfo.x, pTileInfo.y);
+		range.mDataOffsets[index] = this.mOffset;
+		range.mDataLengths[index] = pLength;
+		this.mOffset += pLength;
+		this.mPartSize += pLength;
+	}
+
+	/**
+	 * Writes the buffered tiles; the archive can't be resumed anyway, as the index is in memory
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		this.mOutput.flush();
+	}
+
+	/**
+	 * Writes the header and closes the files
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		this.mOutput.flush();
+		if (this.mPartFile != this.mBaseFile) {
+			this.mPartFile.close();
+		}
+		try {
+			writeHeader();
+		} finally {
+			this.mBaseFile.close();
+		}
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	private void openPart(final RandomAccessFile pFile, final long pPosition) throws IOException {
+		final FileChannel channel = pFile.getChannel();
+		channel.position(pPosition);
+		this.mPartFile = pFile;
+		this.mOutput = new BufferedOutputStream(Channels.newOutputStream(channel), StreamUtils.IO_BUFFER_SIZE * 8);
+		this.mPartSize = pPosition;
+	}
+
+	private void deleteParts() {
+		new File(this.mLocation).delete();
+		for (int i = 1; new File(this.mLocation + "-" + i).delete(); i++) {
+			// the parts of a previous archive
+		}
+	}
+
+	private Range getRange(final OSMTileInfo pTileInfo) {
+		for (final Range range : this.mRanges) {
+			if (range.contains(pTileInfo)) {
+				return range;
+			}
+		}
+		return null;
+	}
+
+	private void writeHeader() throws IOException {
+		final FileChannel channel = this.mBaseFile.getChannel();
+		final ByteBuffer buffer = ByteBuffer.allocate(StreamUtils.IO_BUFFER_SIZE * 8);
+		long position = 0;
+
+		final byte[] sourceName = this.mSourceName.getBytes();
+		buffer.putInt(VERSION);
+		buffer.putInt(TILE_SIZE);
+		buffer.putInt(1);
+		buffer.putInt(0);
+		buffer.putInt(sourceName.length);
+		buffer.put(sourceName);
+		buffer.putInt(this.mRanges.length);
+		for (final Range range : this.mRanges) {
+			if (buffer.remaining() < RANGE_SIZE) {
+				position = write(channel, buffer, position);
+			}
+			buffer.putInt(range.mZoom);
+			buffer.putInt(range.mXMin);
+			buffer.putInt(range.mXMax);
+			buffer.putInt(range.mYMin);
+			buffer.putInt(range.mYMax);
+			buffer.putInt(0);
+			buffer.putLong(range.mOffset);
+		}
+		for (final Range range : this.mRanges) {
+			for (int i = 0; i < range.mDataOffsets.length; i++) {
+				if (buffer.remaining() < TILE_RECORD_SIZE) {
+					position = write(channel, buffer, position);
+				}
+				buffer.putLong(range.mDataOffsets[i]);
+				buffer.putInt(range.mDataLengths[i]);
+			}
+		}
+		position = write(channel, buffer, position);
+		if (position != this.mHeaderSize) {
+			throw new IOException("Unexpected GEMF header size: " + position + " instead of " + this.mHeaderSize);
+		}
+	}
+
+	private static long write(final FileChannel pChannel, final ByteBuffer pBuffer, final long pPosition) throws IOException {
+		pBuffer.flip();
+		long position = pPosition;
+		while (pBuffer.hasRemaining()) {
+			position += pChannel.write(pBuffer, position);
+		}
+		pBuffer.clear();
+		return position;
+	}
+
+	// ===========================================================
+	// Inner and Anonymous Classes
+	// ===========================================================
+
+	/**
+	 * A rectangle of tiles of the same zoom level
+	 */
+	public static class Range {
+
+		private final int mZoom;
+		private final int mXMin;
+		private final int mXMax;
+		private final int mYMin;
+		private final int mYMax;
+		private final long[] mDataOffsets;
+		private final int[] mDataLengths;
+		private long mOffset;
+
+		public Range(final int pZoom, final int pXMin, final int pXMax, final int pYMin, final int pYMax) {
+			this.mZoom = pZoom;
+			this.mXMin = pXMin;
+			this.mXMax = pXMax;
+			this.mYMin = pYMin;
+			this.mYMax = pYMax;
+			final long count = (long) (pXMax - pXMin + 1) * (pYMax - pYMin + 1);
+			if (count > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Too many tiles for zoom " + pZoom + ": " + count);
+			}
+			this.mDataOffsets = new long[(int) count];
+			this.mDataLengths = new int[(int) count];
+		}
+
+		private boolean contains(final OSMTileInfo pTileInfo) {
+			return pTileInfo.zoom == this.mZoom
+					&& pTileInfo.x >= this.mXMin && pTileInfo.x <= this.mXMax
+					&& pTileInfo.y >= this.mYMin && pTileInfo.y <= this.mYMax;
+		}
+
+		/**
+		 * @return the index of the tile record, in the GEMF order (by column)
+		 */
+		private int getIndex(final int pX, final int pY) {
+			return (pX - this.mXMin) * (this.mYMax - this.mYMin + 1) + (pY - this.mYMin);
+		}
+	}
+}
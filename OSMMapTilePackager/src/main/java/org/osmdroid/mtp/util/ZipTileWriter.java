@@ -0,0 +1,61 @@
+package org.osmdroid.mtp.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.osmdroid.mtp.adt.OSMTileInfo;
+import org.osmdroid.mtp.download.ITileSink;
+import org.osmdroid.tileprovider.util.StreamUtils;
+
+/**
+ * Writes the tiles into a zip file as they arrive, with the same entry names as {@link FolderZipper}
+ * ("provider/zoom/x/y.png"). The tile images are already compressed, so they are stored as is.
+ * The zip central directory is written on {@link #close()}: the archive is only valid once closed.
+ * @since 6.0.2
+ */
+public class ZipTileWriter implements ITileSink {
+
+	private final ZipOutputStream mOutput;
+	private final String mEntryNameFormat;
+	private final CRC32 mCrc = new CRC32();
+
+	/**
+	 * @param pEntryNameFormat the entry name pattern, with the zoom, x and y as "%d", e.g. "Mapnik/%d/%d/%d.png"
+	 */
+	public ZipTileWriter(final File pDestinationFile, final String pEntryNameFormat) throws IOException {
+		this.mOutput = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(pDestinationFile), StreamUtils.IO_BUFFER_SIZE * 8));
+		this.mEntryNameFormat = pEntryNameFormat;
+	}
+
+	@Override
+	public synchronized void putTile(final OSMTileInfo pTileInfo, final byte[] pData, final int pLength) throws IOException {
+		final ZipEntry entry = new ZipEntry(String.format(this.mEntryNameFormat, pTileInfo.zoom, pTileInfo.x, pTileInfo.y));
+		this.mCrc.reset();
+		this.mCrc.update(pData, 0, pLength);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(pLength);
+		entry.setCompressedSize(pLength);
+		entry.setCrc(this.mCrc.getValue());
+		this.mOutput.putNextEntry(entry);
+		this.mOutput.write(pData, 0, pLength);
+		this.mOutput.closeEntry();
+	}
+
+	/**
+	 * Writes the buffered tiles; the archive can't be resumed anyway, as the central directory is in memory
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		this.mOutput.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		this.mOutput.close();
+	}
+}
@@ -0,0 +1,98 @@
+package org.osmdroid.mtp.download;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osmdroid.mtp.adt.OSMTileInfo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Unit tests related to {@link DownloadJournal}
+ * @since 6.0.2
+ */
+
+public class DownloadJournalTest {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final File file = File.createTempFile("download", ".journal");
+        file.delete();
+        try {
+            final Set<Long> written = new HashSet<Long>();
+            DownloadJournal journal = new DownloadJournal(file);
+            Assert.assertEquals(0, journal.getPreviouslyCompletedCount());
+            for (int i = 0; i < 3000; i++) {
+                final long index = getRandomTile().getIndex();
+                journal.add(index);
+                written.add(index);
+            }
+            // not written yet: lost if the run is interrupted now
+            final long notWritten = getRandomTile().getIndex();
+            final long[] pending = journal.takePending();
+            Assert.assertEquals(3000, pending.length);
+            Assert.assertEquals(0, journal.takePending().length);
+            journal.write(pending);
+            journal.add(notWritten);
+            journal.close();
+
+            journal = new DownloadJournal(file);
+            Assert.assertEquals(3000, journal.getPreviouslyCompletedCount());
+            for (final long index : written) {
+                Assert.assertTrue(journal.contains(index));
+            }
+            if (!written.contains(notWritten)) {
+                Assert.assertFalse(journal.contains(notWritten));
+            }
+            journal.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * A record truncated by a crash is ignored, and does not shift the next records
+     */
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        final File file = File.createTempFile("download", ".journal");
+        file.delete();
+        try {
+            final OSMTileInfo first = new OSMTileInfo(3, 5, 4);
+            final OSMTileInfo second = new OSMTileInfo(1000, 2000, 12);
+            DownloadJournal journal = new DownloadJournal(file);
+            journal.write(new long[]{first.getIndex()});
+            journal.close();
+
+            final FileOutputStream output = new FileOutputStream(file, true);
+            output.write(new byte[]{1, 2, 3});
+            output.close();
+
+            journal = new DownloadJournal(file);
+            Assert.assertEquals(1, journal.getPreviouslyCompletedCount());
+            Assert.assertTrue(journal.contains(first.getIndex()));
+            journal.write(new long[]{second.getIndex()});
+            journal.close();
+            Assert.assertEquals(16, file.length());
+
+            journal = new DownloadJournal(file);
+            Assert.assertEquals(2, journal.getPreviouslyCompletedCount());
+            Assert.assertTrue(journal.contains(first.getIndex()));
+            Assert.assertTrue(journal.contains(second.getIndex()));
+            journal.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    private OSMTileInfo getRandomTile() {
+        final int zoom = random.nextInt(20);
+        return new OSMTileInfo(random.nextInt(1 << zoom), random.nextInt(1 << zoom), zoom);
+    }
+}
@@ -0,0 +1,22 @@
+package org.osmdroid.mtp.download;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests related to {@link DownloadManager}
+ * @since 6.0.2
+ */
+
+public class DownloadManagerTest {
+
+    @Test
+    public void testRetryable() {
+        for (final int code : new int[]{408, 429, 500, 502, 503, 504}) {
+            Assert.assertTrue("" + code, DownloadManager.isRetryable(code));
+        }
+        for (final int code : new int[]{301, 304, 400, 401, 403, 404, 410}) {
+            Assert.assertFalse("" + code, DownloadManager.isRetryable(code));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.osmdroid.mtp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osmdroid.mtp.adt.OSMTileInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests related to {@link DbTileWriter}
+ * @since 6.0.2
+ */
+
+public class DbTileWriterTest {
+
+    private static final Random random = new Random();
+
+    private static final String PROVIDER = "Mapnik";
+
+    /**
+     * Reopening the database to resume a download keeps the tiles already written
+     */
+    @Test
+    public void testResume() throws IOException, SQLException {
+        final File file = File.createTempFile("tiles", ".sqlite");
+        try {
+            final Map<Long, byte[]> expected = new HashMap<Long, byte[]>();
+            DbTileWriter writer = new DbTileWriter(file, PROVIDER, false);
+            putTiles(writer, 3, DbTileWriter.BATCH_SIZE + 10, expected); // more than a batch
+            writer.close();
+            check(file, expected);
+
+            writer = new DbTileWriter(file, PROVIDER, true);
+            putTiles(writer, 4, 20, expected);
+            writer.flush(); // committed: visible to another connection
+            check(file, expected);
+            writer.close();
+            check(file, expected);
+
+            // not resuming: from scratch
+            writer = new DbTileWriter(file, PROVIDER, false);
+            writer.close();
+            expected.clear();
+            check(file, expected);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private void putTiles(final DbTileWriter pWriter, final int pZoom, final int pCount,
+                          final Map<Long, byte[]> pExpected) throws IOException {
+        for (int i = 0; i < pCount; i++) {
+            final OSMTileInfo tile = new OSMTileInfo(random.nextInt(1 << pZoom), random.nextInt(1 << pZoom), pZoom);
+            final int length = 1 + random.nextInt(100);
+            final byte[] data = new byte[length + random.nextInt(10)];
+            random.nextBytes(data);
+            pWriter.putTile(tile, data, length);
+            final byte[] tileData = new byte[length];
+            System.arraycopy(data, 0, tileData, 0, length);
+            pExpected.put(DbCreator.getIndex(tile.zoom, tile.x, tile.y), tileData);
+        }
+    }
+
+    private void check(final File pFile, final Map<Long, byte[]> pExpected) throws SQLException {
+        final Connection connection = DriverManager.getConnection("jdbc:sqlite:" + pFile);
+        try {
+            final PreparedStatement statement = connection.prepareStatement("SELECT key, provider, tile FROM tiles");
+            final ResultSet resultSet = statement.executeQuery();
+            int count = 0;
+            while (resultSet.next()) {
+                count++;
+                Assert.assertEquals(PROVIDER, resultSet.getString(2));
+                Assert.assertArrayEquals(pExpected.get(resultSet.getLong(1)), resultSet.getBytes(3));
+            }
+            resultSet.close();
+            statement.close();
+            Assert.assertEquals(pExpected.size(), count);
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.osmdroid.mtp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osmdroid.mtp.adt.OSMTileInfo;
+import org.osmdroid.util.GEMFFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests related to {@link GEMFTileWriter}, read back with {@link GEMFFile}
+ * @since 6.0.2
+ */
+
+public class GEMFTileWriterTest {
+
+    private static final Random random = new Random();
+
+    private static final String SOURCE = "Mapnik";
+    private static final int TILE_LENGTH = 100;
+
+    /**
+     * Every tile written is read back, a missing tile is not found,
+     * and a tile that starts exactly at the end of a part is read from the next part
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        final File file = File.createTempFile("tiles", ".gemf");
+        try {
+            final List<GEMFTileWriter.Range> ranges = new ArrayList<GEMFTileWriter.Range>();
+            ranges.add(new GEMFTileWriter.Range(3, 1, 3, 2, 4));
+            ranges.add(new GEMFTileWriter.Range(4, 5, 6, 7, 7));
+            final List<OSMTileInfo> tiles = new ArrayList<OSMTileInfo>();
+            for (int x = 1; x <= 3; x++) {
+                for (int y = 2; y <= 4; y++) {
+                    tiles.add(new OSMTileInfo(x, y, 3));
+                }
+            }
+            tiles.add(new OSMTileInfo(5, 7, 4));
+            tiles.add(new OSMTileInfo(6, 7, 4));
+            final int count = tiles.size();
+            final OSMTileInfo missing = tiles.remove(random.nextInt(count));
+            Collections.shuffle(tiles, random); // the download threads don't keep the order
+
+            final long headerSize = 4 * 4 + 4 * 2 + SOURCE.length() + ranges.size() * (4 * 6 + 8) + count * (8 + 4);
+            // the first part holds exactly 3 tiles: the 4th one starts at the part size, in the second part
+            final GEMFTileWriter writer = new GEMFTileWriter(file.getPath(), SOURCE, ranges, headerSize + 3 * TILE_LENGTH);
+            final Map<OSMTileInfo, byte[]> written = new HashMap<OSMTileInfo, byte[]>();
+            for (final OSMTileInfo tile : tiles) {
+                final byte[] data = new byte[TILE_LENGTH + 10];
+                random.nextBytes(data);
+                writer.putTile(tile, data, TILE_LENGTH); // not the whole array
+                final byte[] expected = new byte[TILE_LENGTH];
+                System.arraycopy(data, 0, expected, 0, TILE_LENGTH);
+                written.put(tile, expected);
+            }
+            writer.close();
+            Assert.assertEquals(headerSize + 3 * TILE_LENGTH, file.length());
+            Assert.assertTrue(new File(file.getPath() + "-1").exists());
+
+            final GEMFFile gemfFile = new GEMFFile(file);
+            try {
+                Assert.assertEquals(SOURCE, gemfFile.getSources().values().iterator().next());
+                for (final Map.Entry<OSMTileInfo, byte[]> entry : written.entrySet()) {
+                    final OSMTileInfo tile = entry.getKey();
+                    final InputStream inputStream = gemfFile.getInputStream(tile.x, tile.y, tile.zoom);
+                    Assert.assertNotNull(inputStream);
+                    Assert.assertArrayEquals(entry.getValue(), read(inputStream));
+                }
+                Assert.assertNull(gemfFile.getInputStream(missing.x, missing.y, missing.zoom));
+                Assert.assertNull(gemfFile.getInputStream(0, 0, 3)); // outside of the ranges
+            } finally {
+                gemfFile.close();
+            }
+        } finally {
+            deleteParts(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOutsideOfRanges() throws IOException {
+        final File file = File.createTempFile("tiles", ".gemf");
+        try {
+            final List<GEMFTileWriter.Range> ranges = new ArrayList<GEMFTileWriter.Range>();
+            ranges.add(new GEMFTileWriter.Range(3, 1, 3, 2, 4));
+            final GEMFTileWriter writer = new GEMFTileWriter(file.getPath(), SOURCE, ranges);
+            try {
+                writer.putTile(new OSMTileInfo(4, 2, 3), new byte[TILE_LENGTH], TILE_LENGTH);
+            } finally {
+                writer.close();
+            }
+        } finally {
+            deleteParts(file);
+        }
+    }
+
+    private byte[] read(final InputStream pInputStream) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[64];
+        int read;
+        while ((read = pInputStream.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+        pInputStream.close();
+        return result.toByteArray();
+    }
+
+    private void deleteParts(final File pFile) {
+        pFile.delete();
+        for (int i = 1; new File(pFile.getPath() + "-" + i).delete(); i++) {
+            // the next parts
+        }
+    }
+}
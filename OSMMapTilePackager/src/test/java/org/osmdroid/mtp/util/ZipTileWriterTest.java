@@ -0,0 +1,98 @@
+package org.osmdroid.mtp.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osmdroid.mtp.adt.OSMTileInfo;
+import org.osmdroid.mtp.download.FolderTileSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Unit tests related to {@link ZipTileWriter}
+ * @since 6.0.2
+ */
+
+public class ZipTileWriterTest {
+
+    private static final Random random = new Random();
+
+    private static final String PROVIDER = "Mapnik";
+    private static final String TILE_NAME_FORMAT = "%d/%d/%d.png";
+
+    /**
+     * Same entries as a folder of downloaded tiles zipped by {@link FolderZipper}
+     */
+    @Test
+    public void testSameEntriesAsFolderZipper() throws IOException {
+        final File folder = File.createTempFile("tiles", "");
+        folder.delete();
+        final File providerFolder = new File(folder, PROVIDER);
+        final File folderZip = File.createTempFile("folder", ".zip");
+        final File streamedZip = File.createTempFile("streamed", ".zip");
+        try {
+            final FolderTileSink folderSink = new FolderTileSink(
+                    providerFolder.getPath() + File.separator + TILE_NAME_FORMAT);
+            final ZipTileWriter zipWriter = new ZipTileWriter(streamedZip, PROVIDER + "/" + TILE_NAME_FORMAT);
+            final Set<String> done = new HashSet<String>();
+            for (int i = 0; i < 30; i++) {
+                final int zoom = random.nextInt(6);
+                final OSMTileInfo tile = new OSMTileInfo(random.nextInt(1 << zoom), random.nextInt(1 << zoom), zoom);
+                if (!done.add(String.format(TILE_NAME_FORMAT, tile.zoom, tile.x, tile.y))) {
+                    continue; // each tile is downloaded once
+                }
+                final byte[] data = new byte[1 + random.nextInt(200)];
+                random.nextBytes(data);
+                folderSink.putTile(tile, data, data.length);
+                zipWriter.putTile(tile, data, data.length);
+            }
+            zipWriter.close();
+            FolderZipper.zipFolderToFile(folderZip, providerFolder);
+
+            final Map<String, byte[]> expected = readEntries(folderZip);
+            Assert.assertFalse(expected.isEmpty());
+            final Map<String, byte[]> actual = readEntries(streamedZip);
+            Assert.assertEquals(expected.keySet(), actual.keySet());
+            for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                Assert.assertArrayEquals(entry.getValue(), actual.get(entry.getKey()));
+            }
+        } finally {
+            FolderDeleter.deleteFolder(folder);
+            folderZip.delete();
+            streamedZip.delete();
+        }
+    }
+
+    private Map<String, byte[]> readEntries(final File pFile) throws IOException {
+        final Map<String, byte[]> result = new HashMap<String, byte[]>();
+        final ZipFile zipFile = new ZipFile(pFile);
+        try {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                final InputStream inputStream = zipFile.getInputStream(entry);
+                final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[256];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    content.write(buffer, 0, read);
+                }
+                inputStream.close();
+                result.put(entry.getName(), content.toByteArray());
+            }
+        } finally {
+            zipFile.close();
+        }
+        return result;
+    }
+}
@@ -40,6 +40,7 @@ public class DefaultConfigurationProvider implements IConfigurationProvider {
     protected String userAgentHttpHeader = "User-Agent";
     private final Map<String, String> mAdditionalHttpRequestProperties = new HashMap<>();
     protected short cacheMapTileCount = 9;
+    protected long cacheMapTileMaxBytes = 0;
     protected short tileDownloadThreads = 2;
     protected short tileFileSystemThreads = 8;
     protected short tileDownloadMaxQueueSize = 40;
@@ -150,6 +151,16 @@ public class DefaultConfigurationProvider implements IConfigurationProvider {
         this.cacheMapTileCount = cacheMapTileCount;
     }
 
+    @Override
+    public long getCacheMapTileMaxBytes() {
+        return cacheMapTileMaxBytes;
+    }
+
+    @Override
+    public void setCacheMapTileMaxBytes(long cacheMapTileMaxBytes) {
+        this.cacheMapTileMaxBytes = cacheMapTileMaxBytes;
+    }
+
     @Override
     public short getTileDownloadThreads() {
         return tileDownloadThreads;
@@ -326,6 +337,7 @@ public class DefaultConfigurationProvider implements IConfigurationProvider {
             setAnimationSpeedDefault(prefs.getInt("osmdroid.ZoomSpeedDefault", animationSpeedDefault));
             setAnimationSpeedShort(prefs.getInt("osmdroid.animationSpeedShort", animationSpeedShort));
             setCacheMapTileOvershoot((short)(prefs.getInt("osmdroid.cacheTileOvershoot", cacheTileOvershoot)));
+            setCacheMapTileMaxBytes(prefs.getLong("osmdroid.cacheMapTileMaxBytes", cacheMapTileMaxBytes));
 
             if (prefs.contains("osmdroid.ExpirationOverride")) {
                 expirationOverride = prefs.getLong("osmdroid.ExpirationOverride",-1);
@@ -386,6 +398,7 @@ public class DefaultConfigurationProvider implements IConfigurationProvider {
         edit.putInt("osmdroid.animationSpeedShort", animationSpeedShort);
         edit.putBoolean("osmdroid.mapViewRecycler", mapViewRecycler);
         edit.putInt("osmdroid.cacheTileOvershoot", cacheTileOvershoot);
+        edit.putLong("osmdroid.cacheMapTileMaxBytes", cacheMapTileMaxBytes);
         commit(edit);
     }
 
@@ -144,6 +144,23 @@ public interface IConfigurationProvider {
      */
     void setCacheMapTileCount(short cacheMapTileCount);
 
+    /**
+     * In memory tile cache size, in bytes of bitmaps. If greater than 0, the tile providers use
+     * a {@link org.osmdroid.tileprovider.StripedLRUMapTileCache} with that capacity instead of
+     * a {@link MapTileCache} sized with {@link #getCacheMapTileCount()}.
+     * Default is 0.
+     *
+     * @since 6.0.2
+     * @see MapTileProviderBase#createTileCache()
+     */
+    long getCacheMapTileMaxBytes();
+
+    /**
+     * @since 6.0.2
+     * @see #getCacheMapTileMaxBytes()
+     */
+    void setCacheMapTileMaxBytes(long cacheMapTileMaxBytes);
+
     /**
      * number of tile download threads, conforming to OSM policy:
      * http://wiki.openstreetmap.org/wiki/Tile_usage_policy
@@ -1,6 +1,5 @@
 package org.osmdroid.tileprovider;
 
-import java.util.LinkedList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -11,10 +10,32 @@ import android.graphics.drawable.Drawable;
 import android.os.Build;
 
 import org.osmdroid.tileprovider.modules.ConfigurablePriorityThreadFactory;
+import org.osmdroid.tileprovider.util.Counters;
 
+/**
+ * Pool of reusable bitmaps.
+ * Bitmaps are kept in buckets of the same width, height and {@link Bitmap.Config},
+ * each bucket having a capacity in bytes, so that obtaining and returning a bitmap
+ * are constant time operations.
+ * When a new size is needed and all buckets are in use, the least recently used bucket is evicted.
+ * Hits, misses and evictions are counted in {@link Counters}.
+ */
 public class BitmapPool {
 
-	private final LinkedList<Bitmap> mPool = new LinkedList<>();
+	/**
+	 * @since 6.0.2
+	 */
+	public static final int DEFAULT_MAX_BUCKETS = 4;
+
+	/**
+	 * @since 6.0.2
+	 */
+	public static final long DEFAULT_MAX_BYTES_PER_BUCKET = 8 * 1024 * 1024;
+
+	private final Object mLock = new Object();
+	private Bucket[] mBuckets = new Bucket[DEFAULT_MAX_BUCKETS];
+	private long mMaxBytesPerBucket = DEFAULT_MAX_BYTES_PER_BUCKET;
+	private long mClock;
 	private final ExecutorService mExecutor = Executors.newFixedThreadPool(1,
 			new ConfigurablePriorityThreadFactory(Thread.MIN_PRIORITY, getClass().getName()));
 
@@ -28,14 +49,60 @@ public class BitmapPool {
 	}
 	//singleton: end
 
+	/**
+	 * @param pMaxBuckets maximum number of different (width, height, config) kept in the pool
+	 * @param pMaxBytesPerBucket maximum number of bitmap bytes kept for each (width, height, config)
+	 * @since 6.0.2
+	 */
+	public void setCapacity(final int pMaxBuckets, final long pMaxBytesPerBucket) {
+		synchronized (mLock) {
+			if (pMaxBuckets != mBuckets.length) {
+				final Bucket[] buckets = new Bucket[pMaxBuckets];
+				for (int i = 0 ; i < mBuckets.length ; i ++) {
+					if (i < pMaxBuckets) {
+						buckets[i] = mBuckets[i];
+					} else {
+						evict(mBuckets[i]);
+					}
+				}
+				mBuckets = buckets;
+			}
+			mMaxBytesPerBucket = pMaxBytesPerBucket;
+			for (final Bucket bucket : mBuckets) {
+				if (bucket != null) {
+					bucket.trim(mMaxBytesPerBucket);
+				}
+			}
+		}
+	}
+
 	public void returnDrawableToPool(ReusableBitmapDrawable drawable) {
 		Bitmap b = drawable.tryRecycle();
-		if (b != null && b.isMutable())
-			synchronized (mPool) {
-				mPool.addLast(b);
+		if (b != null && b.isMutable()) {
+			returnBitmapToPool(b);
+		}
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	public void returnBitmapToPool(final Bitmap pBitmap) {
+		if (pBitmap.isRecycled()) {
+			return;
+		}
+		synchronized (mLock) {
+			final Bucket bucket = getBucket(pBitmap.getWidth(), pBitmap.getHeight(), pBitmap.getConfig(), true);
+			if (!bucket.push(pBitmap, mMaxBytesPerBucket)) {
+				Counters.bitmapPoolEviction++;
+				pBitmap.recycle();
 			}
+		}
 	}
 
+	/**
+	 * The pooled bitmap may not fit the decoded image (size, config), which fails on older devices:
+	 * use {@link #applyReusableOptions(BitmapFactory.Options, int, int, Bitmap.Config)} when the size is known
+	 */
 	public void applyReusableOptions(final BitmapFactory.Options aBitmapOptions) {
 		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
 			aBitmapOptions.inBitmap = obtainBitmapFromPool();
@@ -44,48 +111,104 @@ public class BitmapPool {
 		}
 	}
 
+	/**
+	 * @since 6.0.2
+	 */
+	public void applyReusableOptions(final BitmapFactory.Options aBitmapOptions,
+									 final int pWidth, final int pHeight, final Bitmap.Config pConfig) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			aBitmapOptions.inBitmap = obtainSizedBitmapFromPool(pWidth, pHeight, pConfig);
+			aBitmapOptions.inSampleSize = 1;
+			aBitmapOptions.inMutable = true;
+		}
+	}
+
+	/**
+	 * @return a bitmap of any size, from the most recently used bucket
+	 */
 	public Bitmap obtainBitmapFromPool() {
-		synchronized (mPool) {
-			if (mPool.isEmpty()) {
-				return null;
-			} else {
-				final Bitmap bitmap = mPool.removeFirst();
-				if (bitmap.isRecycled()) {
-					return obtainBitmapFromPool(); // recurse
-				} else {
-					return bitmap;
+		synchronized (mLock) {
+			Bucket best = null;
+			for (final Bucket bucket : mBuckets) {
+				if (bucket != null && bucket.mSize > 0 && (best == null || bucket.mLastUsed > best.mLastUsed)) {
+					best = bucket;
 				}
 			}
+			return pop(best);
 		}
 	}
 
+	/**
+	 * @return an {@link Bitmap.Config#ARGB_8888} bitmap of that size, or null
+	 */
 	public Bitmap obtainSizedBitmapFromPool(final int aWidth, final int aHeight) {
-		synchronized (mPool) {
-			if (mPool.isEmpty()) {
-				return null;
-			} else {
-				for (final Bitmap bitmap : mPool) {
-					if (bitmap.isRecycled()) {
-						mPool.remove(bitmap);
-						return obtainSizedBitmapFromPool(aWidth, aHeight); // recurse to prevent ConcurrentModificationException
-					} else if (bitmap.getWidth() == aWidth && bitmap.getHeight() == aHeight) {
-						mPool.remove(bitmap);
-						return bitmap;
+		return obtainSizedBitmapFromPool(aWidth, aHeight, Bitmap.Config.ARGB_8888);
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	public Bitmap obtainSizedBitmapFromPool(final int aWidth, final int aHeight, final Bitmap.Config pConfig) {
+		synchronized (mLock) {
+			return pop(getBucket(aWidth, aHeight, pConfig, false));
+		}
+	}
+
+	public void clearBitmapPool() {
+		synchronized (mLock) {
+			for (int i = 0 ; i < mBuckets.length ; i ++) {
+				final Bucket bucket = mBuckets[i];
+				if (bucket != null) {
+					while (bucket.mSize > 0) {
+						bucket.pop().recycle();
 					}
+					mBuckets[i] = null;
 				}
 			}
 		}
+	}
 
-		return null;
+	/**
+	 * @since 6.0.2
+	 * @return the number of bitmaps currently in the pool
+	 */
+	public int getSize() {
+		synchronized (mLock) {
+			int result = 0;
+			for (final Bucket bucket : mBuckets) {
+				if (bucket != null) {
+					result += bucket.mSize;
+				}
+			}
+			return result;
+		}
 	}
 
-	public void clearBitmapPool() {
-		synchronized (sInstance.mPool) {
-			while (!sInstance.mPool.isEmpty()) {
-				Bitmap bitmap = sInstance.mPool.remove();
-				bitmap.recycle();
+	/**
+	 * @since 6.0.2
+	 * @return the number of bytes of the bitmaps currently in the pool
+	 */
+	public long getBytes() {
+		synchronized (mLock) {
+			long result = 0;
+			for (final Bucket bucket : mBuckets) {
+				if (bucket != null) {
+					result += bucket.mBytes;
+				}
 			}
+			return result;
+		}
+	}
+
+	/**
+	 * @since 6.0.2
+	 * @return the size in memory of a bitmap
+	 */
+	public static int getByteCount(final Bitmap pBitmap) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+			return pBitmap.getByteCount();
 		}
+		return pBitmap.getRowBytes() * pBitmap.getHeight();
 	}
 
 	/**
@@ -123,4 +246,131 @@ public class BitmapPool {
 			returnDrawableToPool((ReusableBitmapDrawable) pDrawable);
 		}
 	}
+
+	/**
+	 * To be called while holding the pool lock
+	 * @since 6.0.2
+	 */
+	private Bitmap pop(final Bucket pBucket) {
+		if (pBucket != null) {
+			pBucket.mLastUsed = ++ mClock;
+			while (pBucket.mSize > 0) {
+				final Bitmap bitmap = pBucket.pop();
+				if (!bitmap.isRecycled()) {
+					Counters.bitmapPoolHit++;
+					return bitmap;
+				}
+			}
+		}
+		Counters.bitmapPoolMiss++;
+		return null;
+	}
+
+	/**
+	 * To be called while holding the pool lock
+	 * @param pCreate if true and there's no such bucket yet, the least recently used bucket is replaced
+	 * @since 6.0.2
+	 */
+	private Bucket getBucket(final int pWidth, final int pHeight, final Bitmap.Config pConfig,
+							 final boolean pCreate) {
+		int oldest = -1;
+		for (int i = 0 ; i < mBuckets.length ; i ++) {
+			final Bucket bucket = mBuckets[i];
+			if (bucket != null
+					&& bucket.mWidth == pWidth && bucket.mHeight == pHeight && bucket.mConfig == pConfig) {
+				return bucket;
+			}
+			if (oldest == -1 || isOlder(bucket, mBuckets[oldest])) {
+				oldest = i;
+			}
+		}
+		if (!pCreate || oldest == -1) {
+			return null;
+		}
+		evict(mBuckets[oldest]);
+		final Bucket bucket = new Bucket(pWidth, pHeight, pConfig);
+		bucket.mLastUsed = ++ mClock;
+		mBuckets[oldest] = bucket;
+		return bucket;
+	}
+
+	/**
+	 * An empty slot is considered older than any bucket
+	 * @since 6.0.2
+	 */
+	private static boolean isOlder(final Bucket pBucket, final Bucket pReference) {
+		if (pReference == null) {
+			return false;
+		}
+		return pBucket == null || pBucket.mLastUsed < pReference.mLastUsed;
+	}
+
+	/**
+	 * To be called while holding the pool lock
+	 * @since 6.0.2
+	 */
+	private void evict(final Bucket pBucket) {
+		if (pBucket == null) {
+			return;
+		}
+		while (pBucket.mSize > 0) {
+			pBucket.pop().recycle();
+			Counters.bitmapPoolEviction++;
+		}
+	}
+
+	/**
+	 * Stack of bitmaps of the same width, height and config
+	 * @since 6.0.2
+	 */
+	private static class Bucket {
+		private final int mWidth;
+		private final int mHeight;
+		private final Bitmap.Config mConfig;
+		private Bitmap[] mBitmaps = new Bitmap[4];
+		private int mSize;
+		private int mBytesPerBitmap;
+		private long mBytes;
+		private long mLastUsed;
+
+		private Bucket(final int pWidth, final int pHeight, final Bitmap.Config pConfig) {
+			mWidth = pWidth;
+			mHeight = pHeight;
+			mConfig = pConfig;
+		}
+
+		/**
+		 * @return false if the bucket is full
+		 */
+		private boolean push(final Bitmap pBitmap, final long pMaxBytes) {
+			if (mBytesPerBitmap == 0) {
+				mBytesPerBitmap = getByteCount(pBitmap);
+			}
+			if (mBytes + mBytesPerBitmap > pMaxBytes) {
+				return false;
+			}
+			if (mSize == mBitmaps.length) {
+				final Bitmap[] tmp = new Bitmap[mSize * 2];
+				System.arraycopy(mBitmaps, 0, tmp, 0, mSize);
+				mBitmaps = tmp;
+			}
+			mBitmaps[mSize ++] = pBitmap;
+			mBytes += mBytesPerBitmap;
+			return true;
+		}
+
+		private Bitmap pop() {
+			final Bitmap bitmap = mBitmaps[-- mSize];
+			mBitmaps[mSize] = null;
+			mBytes -= mBytesPerBitmap;
+			return bitmap;
+		}
+
+		private void trim(final long pMaxBytes) {
+			while (mBytes > pMaxBytes && mSize > 0) {
+				pop().recycle();
+				Counters.bitmapPoolEviction++;
+			}
+		}
+	}
 }
@@ -0,0 +1,17 @@
+package org.osmdroid.tileprovider;
+
+/**
+ * A {@link IMapTileProviderCallback} that can be told that a request was dropped on purpose,
+ * e.g. because the tile is not displayed anymore: unlike a failure, nothing is to be cached or displayed.
+ * @since 6.0.2
+ */
+public interface IMapTileProviderCancelCallback extends IMapTileProviderCallback {
+
+	/**
+	 * The map tile request has been cancelled.
+	 *
+	 * @param aState
+	 *            a state object
+	 */
+	void mapTileRequestCancelled(MapTileRequestState aState);
+}
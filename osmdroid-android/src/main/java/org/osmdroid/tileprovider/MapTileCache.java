@@ -116,17 +116,11 @@ public class MapTileCache {
 		if (toBeRemoved <= 0) {
 			return;
 		}
-		mAdditionalMapTileList.clear();
-		for (final MapTileListComputer computer : mComputers) {
-			computer.computeFromSource(mMapTileList, mAdditionalMapTileList);
-		}
+		refreshProtectedTiles();
 		populateSyncCachedTiles(mGC);
 		for (int i = 0; i < mGC.getSize() ; i ++) {
 			final long index = mGC.get(i);
-			if (mMapTileList.contains(index)) {
-				continue;
-			}
-			if (mAdditionalMapTileList.contains(index)) {
+			if (isProtectedTile(index)) {
 				continue;
 			}
 			remove(index);
@@ -136,6 +130,26 @@ public class MapTileCache {
 		}
 	}
 
+	/**
+	 * Computes the tiles neighbouring the displayed tiles, using the protected tile computers
+	 * @since 6.0.2
+	 */
+	protected void refreshProtectedTiles() {
+		mAdditionalMapTileList.clear();
+		for (final MapTileListComputer computer : mComputers) {
+			computer.computeFromSource(mMapTileList, mAdditionalMapTileList);
+		}
+	}
+
+	/**
+	 * @return true if the tile is displayed or is a neighbour of a displayed tile,
+	 * as computed by the latest call to {@link #refreshProtectedTiles()}
+	 * @since 6.0.2
+	 */
+	protected boolean isProtectedTile(final long pMapTileIndex) {
+		return mMapTileList.contains(pMapTileIndex) || mAdditionalMapTileList.contains(pMapTileIndex);
+	}
+
 	/**
 	 * @since 6.0.0
 	 */
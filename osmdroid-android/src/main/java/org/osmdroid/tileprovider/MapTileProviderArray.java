@@ -2,7 +2,6 @@ package org.osmdroid.tileprovider;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 
 import org.osmdroid.config.Configuration;
@@ -15,6 +14,7 @@ import android.util.Log;
 
 import org.osmdroid.api.IMapView;
 import org.osmdroid.tileprovider.constants.OpenStreetMapTileProviderConstants;
+import org.osmdroid.util.ConcurrentLongHashSet;
 import org.osmdroid.util.MapTileIndex;
 
 /**
@@ -33,9 +33,19 @@ import org.osmdroid.util.MapTileIndex;
  * @author Marc Kurtz
  *
  */
-public class MapTileProviderArray extends MapTileProviderBase {
+public class MapTileProviderArray extends MapTileProviderBase implements IMapTileProviderCancelCallback {
 
-	private final HashSet<Long> mWorking = new HashSet<>();
+	/**
+	 * Maximum number of request states kept for reuse
+	 * @since 6.0.2
+	 */
+	private static final int MAX_POOLED_REQUEST_STATES = 64;
+
+	/**
+	 * The tiles in the request chain; checked for each tile of each frame, hence lock-free
+	 */
+	private final ConcurrentLongHashSet mWorking = new ConcurrentLongHashSet();
+	private final List<MapTileRequestState> mRequestStatePool = new ArrayList<>();
 	private IRegisterReceiver mRegisterReceiver=null;
 	protected final List<MapTileModuleProviderBase> mTileProviderList;
 
@@ -76,8 +86,9 @@ public class MapTileProviderArray extends MapTileProviderBase {
 
 			}
 		}
-		synchronized (mWorking) {
-			mWorking.clear();
+		mWorking.clear();
+		synchronized (mRequestStatePool) {
+			mRequestStatePool.clear();
 		}
 		if (mRegisterReceiver!=null) {
 			mRegisterReceiver.destroy();
@@ -113,18 +124,14 @@ public class MapTileProviderArray extends MapTileProviderBase {
 					+ MapTileIndex.toString(pMapTileIndex));
 		}
 
-		synchronized (mWorking) {
-			// Check again
-			if (mWorking.contains(pMapTileIndex)) {
-				return tile;
-			}
-			mWorking.add(pMapTileIndex);
+		if (!mWorking.add(pMapTileIndex)) { // started in the meantime
+			return tile;
 		}
 
-		final MapTileRequestState state = new MapTileRequestState(pMapTileIndex, mTileProviderList, MapTileProviderArray.this);
+		final MapTileRequestState state = obtainRequestState(pMapTileIndex);
 		final MapTileModuleProviderBase provider = findNextAppropriateProvider(state);
 		if (provider != null) {
-			provider.loadMapTileAsync(state);
+			loadMapTileAsync(provider, state);
 		} else {
 			mapTileRequestFailed(state);
 		}
@@ -132,6 +139,17 @@ public class MapTileProviderArray extends MapTileProviderBase {
 		return tile;
 	}
 
+	/**
+	 * Sends the request to the provider, which will rank it with this provider's scheduler
+	 * @since 6.0.2
+	 */
+	private void loadMapTileAsync(final MapTileModuleProviderBase pProvider, final MapTileRequestState pState) {
+		if (pProvider.getTileRequestScheduler() != mTileRequestScheduler) {
+			pProvider.setTileRequestScheduler(mTileRequestScheduler);
+		}
+		pProvider.loadMapTileAsync(pState);
+	}
+
 	/**
 	 * @since 6.0.0
 	 */
@@ -139,20 +157,53 @@ public class MapTileProviderArray extends MapTileProviderBase {
 		mWorking.remove(pMapTileIndex);
 	}
 
+	/**
+	 * @since 6.0.2
+	 */
+	private MapTileRequestState obtainRequestState(final long pMapTileIndex) {
+		synchronized (mRequestStatePool) {
+			final int size = mRequestStatePool.size();
+			if (size > 0) {
+				final MapTileRequestState state = mRequestStatePool.remove(size - 1);
+				state.init(pMapTileIndex, mTileProviderList, this);
+				return state;
+			}
+		}
+		return new MapTileRequestState(pMapTileIndex, mTileProviderList, this);
+	}
+
+	/**
+	 * Puts back the state of a request that went through the whole chain.
+	 * The module providers have removed it from their queues before calling us back.
+	 * @since 6.0.2
+	 */
+	private void recycleRequestState(final MapTileRequestState pState) {
+		if (pState.getCallback() != this) {
+			return;
+		}
+		synchronized (mRequestStatePool) {
+			if (mRequestStatePool.size() < MAX_POOLED_REQUEST_STATES) {
+				mRequestStatePool.add(pState);
+			}
+		}
+	}
+
 	@Override
 	public void mapTileRequestCompleted(final MapTileRequestState aState, final Drawable aDrawable) {
 		remove(aState.getMapTile());
 		super.mapTileRequestCompleted(aState, aDrawable);
+		recycleRequestState(aState);
 	}
 
 	@Override
 	public void mapTileRequestFailed(final MapTileRequestState aState) {
 		final MapTileModuleProviderBase nextProvider = findNextAppropriateProvider(aState);
 		if (nextProvider != null) {
-			nextProvider.loadMapTileAsync(aState);
+			loadMapTileAsync(nextProvider, aState);
 		} else {
 			remove(aState.getMapTile());
 			super.mapTileRequestFailed(aState);
+			recycleRequestState(aState);
 		}
 	}
 	
@@ -160,6 +211,18 @@ public class MapTileProviderArray extends MapTileProviderBase {
 	public void mapTileRequestFailedExceedsMaxQueueSize(final MapTileRequestState aState) {
 		remove(aState.getMapTile());
 		super.mapTileRequestFailed(aState);
+		recycleRequestState(aState);
+	}
+
+	/**
+	 * The tile is just forgotten: the request state goes back to the pool,
+	 * and a later request for the same tile will go through the provider chain again
+	 * @since 6.0.2
+	 */
+	@Override
+	public void mapTileRequestCancelled(final MapTileRequestState aState) {
+		remove(aState.getMapTile());
+		recycleRequestState(aState);
 	}
 
 	@Override
@@ -171,9 +234,10 @@ public class MapTileProviderArray extends MapTileProviderBase {
 		// Continue through the provider chain
 		final MapTileModuleProviderBase nextProvider = findNextAppropriateProvider(aState);
 		if (nextProvider != null) {
-			nextProvider.loadMapTileAsync(aState);
+			loadMapTileAsync(nextProvider, aState);
 		} else {
 			remove(aState.getMapTile());
+			recycleRequestState(aState);
 		}
 	}
 
@@ -184,9 +248,7 @@ public class MapTileProviderArray extends MapTileProviderBase {
 
 	@Override
 	public long getQueueSize() {
-		if (mWorking!=null)
-			return mWorking.size();
-		return -1;
+		return mWorking.size();
 	}
 
 	/**
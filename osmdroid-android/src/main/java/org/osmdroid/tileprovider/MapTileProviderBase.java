@@ -8,13 +8,16 @@ import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Handler;
+import android.os.Message;
 import android.util.Log;
 
 import org.osmdroid.api.IMapView;
 import org.osmdroid.config.Configuration;
+import org.osmdroid.tileprovider.modules.ConfigurablePriorityThreadFactory;
 import org.osmdroid.tileprovider.modules.IFilesystemCache;
 import org.osmdroid.tileprovider.modules.MapTileApproximater;
 import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.util.Counters;
 import org.osmdroid.util.MapTileIndex;
 import org.osmdroid.util.PointL;
 import org.osmdroid.util.RectL;
@@ -22,7 +25,14 @@ import org.osmdroid.util.TileLooper;
 import org.osmdroid.util.TileSystem;
 import org.osmdroid.views.Projection;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This is an abstract class. The tile provider is responsible for:
@@ -44,12 +54,23 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 	public static final int MAPTILE_FAIL_ID = MAPTILE_SUCCESS_ID + 1;
 
 	protected final MapTileCache mTileCache;
+	/**
+	 * @since 6.0.2
+	 */
+	protected final MapTileRequestScheduler mTileRequestScheduler = new MapTileRequestScheduler();
 	protected Handler mTileRequestCompleteHandler;
 	protected boolean mUseDataConnection = true;
 	protected Drawable mTileNotFoundImage = null;
 
 	private ITileSource mTileSource;
 
+	/**
+	 * Incremented by each rescale, so that the rescale in progress knows it's obsolete
+	 * @since 6.0.2
+	 */
+	private final AtomicInteger mRescaleGeneration = new AtomicInteger();
+	private ExecutorService mRescaleExecutor;
+
 	/**
 	 * Attempts to get a Drawable that represents a {@link MapTileIndex}. If the tile is not immediately
 	 * available this will return null and attempt to get the tile from known tile sources for
@@ -66,6 +87,7 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 	 * Updated 5.2+
 	 */
 	public void detach(){
+		stopRescaling();
 		BitmapPool.getInstance().asyncRecycle(mTileNotFoundImage);
 		mTileNotFoundImage=null;
 		clearTileCache();
@@ -107,8 +129,14 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 
 	/**
 	 * Creates a {@link MapTileCache} to be used to cache tiles in memory.
+	 * A {@link StripedLRUMapTileCache} is created if a byte capacity is configured,
+	 * cf. {@link org.osmdroid.config.IConfigurationProvider#getCacheMapTileMaxBytes()}
 	 */
 	public MapTileCache createTileCache() {
+		final long maxBytes = Configuration.getInstance().getCacheMapTileMaxBytes();
+		if (maxBytes > 0) {
+			return new StripedLRUMapTileCache(maxBytes);
+		}
 		return new MapTileCache();
 	}
 
@@ -150,9 +178,7 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 		putTileIntoCache(pState.getMapTile(), pDrawable, ExpirableBitmapDrawable.UP_TO_DATE);
 
 		// tell our caller we've finished and it should update its view
-		if (mTileRequestCompleteHandler != null) {
-			mTileRequestCompleteHandler.sendEmptyMessage(MAPTILE_SUCCESS_ID);
-		}
+		sendTileRequestCompleteMessage(MAPTILE_SUCCESS_ID, pState.getMapTile());
 
 		if (Configuration.getInstance().isDebugTileProviders()) {
                Log.d(IMapView.LOGTAG,"MapTileProviderBase.mapTileRequestCompleted(): " + MapTileIndex.toString(pState.getMapTile()));
@@ -171,13 +197,9 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 
 		if (mTileNotFoundImage!=null) {
 			putTileIntoCache(pState.getMapTile(), mTileNotFoundImage, ExpirableBitmapDrawable.NOT_FOUND);
-			if (mTileRequestCompleteHandler != null) {
-				mTileRequestCompleteHandler.sendEmptyMessage(MAPTILE_SUCCESS_ID);
-			}
+			sendTileRequestCompleteMessage(MAPTILE_SUCCESS_ID, pState.getMapTile());
 		} else {
-			if (mTileRequestCompleteHandler != null) {
-				mTileRequestCompleteHandler.sendEmptyMessage(MAPTILE_FAIL_ID);
-			}
+			sendTileRequestCompleteMessage(MAPTILE_FAIL_ID, pState.getMapTile());
 		}
 		if (Configuration.getInstance().isDebugTileProviders()) {
 			Log.d(IMapView.LOGTAG,"MapTileProviderBase.mapTileRequestFailed(): " + MapTileIndex.toString(pState.getMapTile()));
@@ -211,15 +233,33 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 		putTileIntoCache(pState.getMapTile(), pDrawable, ExpirableBitmapDrawable.getState(pDrawable));
 
 		// tell our caller we've finished and it should update its view
-		if (mTileRequestCompleteHandler != null) {
-			mTileRequestCompleteHandler.sendEmptyMessage(MAPTILE_SUCCESS_ID);
-		}
+		sendTileRequestCompleteMessage(MAPTILE_SUCCESS_ID, pState.getMapTile());
 
 		if (Configuration.getInstance().isDebugTileProviders()) {
 			Log.d(IMapView.LOGTAG,"MapTileProviderBase.mapTileRequestExpiredTile(): " + MapTileIndex.toString(pState.getMapTile()));
 		}
 	}
 
+	/**
+	 * Sends a message to the tile request complete handler, with the tile index in the arguments
+	 * (see {@link #getMapTileIndex(Message)}) so that only the area of that tile can be redrawn
+	 * @since 6.0.2
+	 */
+	protected void sendTileRequestCompleteMessage(final int pWhat, final long pMapTileIndex) {
+		final Handler handler = mTileRequestCompleteHandler;
+		if (handler != null) {
+			handler.sendMessage(handler.obtainMessage(pWhat, (int) (pMapTileIndex >>> 32), (int) pMapTileIndex));
+		}
+	}
+
+	/**
+	 * @return the index of the tile a MAPTILE_SUCCESS_ID or MAPTILE_FAIL_ID message is about
+	 * @since 6.0.2
+	 */
+	public static long getMapTileIndex(final Message pMessage) {
+		return (((long) pMessage.arg1) << 32) | (pMessage.arg2 & 0xFFFFFFFFL);
+	}
+
 	/**
 	 *
 	 * @since 5.6.5
@@ -262,6 +302,14 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 		return mTileCache;
 	}
 
+	/**
+	 * @since 6.0.2
+	 * @return the scheduler that ranks the pending tile requests according to the viewport
+	 */
+	public MapTileRequestScheduler getTileRequestScheduler() {
+		return mTileRequestScheduler;
+	}
+
 	/**
 	 * purges the cache of all tiles (default is the in memory cache)
 	 */
@@ -290,6 +338,10 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 
 	/**
 	 * Recreate the cache using scaled versions of the tiles currently in it
+	 * <p>
+	 * Only the list of tiles to scale is computed on the calling (UI) thread. The scaled tiles are
+	 * then computed in the background, starting from the center of the view port, and each one is
+	 * put into the cache as soon as it's ready. A new call cancels the rescaling in progress.
 	 * @param pNewZoomLevel the zoom level that we need now
 	 * @param pOldZoomLevel the previous zoom level that we should get the tiles to rescale
 	 * @param pViewPort the view port we need tiles for
@@ -297,11 +349,12 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 	public void rescaleCache(final Projection pProjection, final double pNewZoomLevel,
 			final double pOldZoomLevel, final Rect pViewPort) {
 
+		final int generation = mRescaleGeneration.incrementAndGet();
+
 		if (pNewZoomLevel == pOldZoomLevel) {
 			return;
 		}
 
-		final long startMs = System.currentTimeMillis();
 		if (Configuration.getInstance().isDebugTileProviders())
 			Log.i(IMapView.LOGTAG,"rescale tile cache from "+ pOldZoomLevel + " to " + pNewZoomLevel);
 
@@ -315,18 +368,60 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 				? new ZoomInTileLooper()
 				: new ZoomOutTileLooper();
 		tileLooper.loop(pNewZoomLevel, viewPortMercator, pOldZoomLevel, getTileSource().getTileSizePixels());
+		if (tileLooper.mScaledTiles.isEmpty()) {
+			return;
+		}
+		tileLooper.mGeneration = generation;
+		synchronized (mRescaleGeneration) {
+			if (mRescaleExecutor == null) {
+				mRescaleExecutor = Executors.newSingleThreadExecutor(
+						new ConfigurablePriorityThreadFactory(Thread.NORM_PRIORITY, getClass().getName() + "-rescale"));
+			}
+			try {
+				mRescaleExecutor.execute(tileLooper);
+			} catch (final RejectedExecutionException e) {
+				tileLooper.release();
+			}
+		}
+	}
 
-		final long endMs = System.currentTimeMillis();
-		if (Configuration.getInstance().isDebugTileProviders())
-			Log.i(IMapView.LOGTAG,"Finished rescale in " + (endMs - startMs) + "ms");
+	/**
+	 * Cancels the rescaling in progress and stops its thread
+	 * @since 6.0.2
+	 */
+	protected void stopRescaling() {
+		mRescaleGeneration.incrementAndGet();
+		synchronized (mRescaleGeneration) {
+			if (mRescaleExecutor != null) {
+				mRescaleExecutor.shutdown();
+				mRescaleExecutor = null;
+			}
+		}
+	}
+
+	/**
+	 * A tile to compute from tiles of the previous zoom level
+	 * @since 6.0.2
+	 */
+	private static class ScaledTile {
+		private final long mMapTileIndex;
+		private final long mSquaredDistance;
+		private final Drawable[] mSources;
+
+		private ScaledTile(final long pMapTileIndex, final long pSquaredDistance, final Drawable[] pSources) {
+			mMapTileIndex = pMapTileIndex;
+			mSquaredDistance = pSquaredDistance;
+			mSources = pSources;
+		}
 	}
 
-	private abstract class ScaleTileLooper extends TileLooper {
+	/**
+	 * Lists the tiles to scale on the UI thread (with the source tiles they need, that can therefore
+	 * not be recycled meanwhile), then computes them when run in the background
+	 */
+	private abstract class ScaleTileLooper extends TileLooper implements Runnable {
 
-		/** new (scaled) tiles to add to cache
-		  * NB first generate all and then put all in cache,
-		  * otherwise the ones we need will be pushed out */
-		protected final HashMap<Long, Bitmap> mNewTiles = new HashMap<>();
+		protected final List<ScaledTile> mScaledTiles = new ArrayList<>();
 
 		protected int mOldTileZoomLevel;
 		protected int mTileSize;
@@ -336,6 +431,9 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 		protected Rect mDestRect;
 		protected Paint mDebugPaint;
 		private boolean isWorth;
+		private int mGeneration;
+		private int mCenterX;
+		private int mCenterY;
 
 		public void loop(final double pZoomLevel, final RectL pViewPortMercator, final double pOldZoomLevel, final int pTileSize) {
 			mSrcRect = new Rect();
@@ -352,6 +450,8 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 			mDiff = Math.abs(mTileZoomLevel - mOldTileZoomLevel);
 			mTileSize_2 = mTileSize >> mDiff;
 			isWorth = mDiff != 0;
+			mCenterX = (mTiles.left + mTiles.right) / 2;
+			mCenterY = (mTiles.top + mTiles.bottom) / 2;
 		}
 
 		@Override
@@ -366,25 +466,113 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 			// and now we'll create a scaled version until the request completes.
 			final Drawable requestedTile = getMapTile(pMapTileIndex);
 			if (requestedTile == null) {
-				try {
-					computeTile(pMapTileIndex, pX, pY);
-				} catch(final OutOfMemoryError e) {
-					Log.e(IMapView.LOGTAG,"OutOfMemoryError rescaling cache");
+				final Drawable[] sources = getSources(pMapTileIndex);
+				if (sources != null) {
+					final long dx = pX - mCenterX;
+					final long dy = pY - mCenterY;
+					mScaledTiles.add(new ScaledTile(pMapTileIndex, dx * dx + dy * dy, sources));
 				}
 			}
 		}
 
 		@Override
 		public void finaliseLoop() {
-			// now add the new ones, pushing out the old ones
-			while (!mNewTiles.isEmpty()) {
-				final long index = mNewTiles.keySet().iterator().next();
-				final Bitmap bitmap = mNewTiles.remove(index);
-				putScaledTileIntoCache(index, bitmap);
+			// the center of the view port first
+			Collections.sort(mScaledTiles, new Comparator<ScaledTile>() {
+				@Override
+				public int compare(final ScaledTile pTile1, final ScaledTile pTile2) {
+					return pTile1.mSquaredDistance < pTile2.mSquaredDistance ? -1
+							: pTile1.mSquaredDistance > pTile2.mSquaredDistance ? 1 : 0;
+				}
+			});
+		}
+
+		@Override
+		public void run() {
+			final long startMs = System.currentTimeMillis();
+			int done = 0;
+			boolean cancelled = false;
+			try {
+				for (final ScaledTile scaledTile : mScaledTiles) {
+					if (mGeneration != mRescaleGeneration.get()) {
+						cancelled = true;
+						break;
+					}
+					if (mTileCache.getMapTile(scaledTile.mMapTileIndex) != null) {
+						continue; // loaded meanwhile
+					}
+					final Bitmap bitmap;
+					try {
+						bitmap = computeTile(scaledTile);
+					} catch(final OutOfMemoryError e) {
+						Log.e(IMapView.LOGTAG,"OutOfMemoryError rescaling cache");
+						Counters.countOOM++;
+						break;
+					}
+					if (bitmap != null) {
+						putScaledTileIntoCache(scaledTile.mMapTileIndex, bitmap);
+						done++;
+						sendTileRequestCompleteMessage(MAPTILE_SUCCESS_ID, scaledTile.mMapTileIndex);
+					}
+				}
+			} finally {
+				release();
+			}
+
+			final long durationMs = System.currentTimeMillis() - startMs;
+			Counters.rescaleCount++;
+			Counters.rescaleMillis += durationMs;
+			if (cancelled) {
+				Counters.rescaleCancelled++;
+			}
+			if (Configuration.getInstance().isDebugTileProviders())
+				Log.i(IMapView.LOGTAG,(cancelled ? "Cancelled" : "Finished") + " rescale in " + durationMs + "ms"
+						+ " (" + done + " scaled tiles out of " + mScaledTiles.size() + ")");
+		}
+
+		/**
+		 * Releases the source tiles
+		 */
+		private void release() {
+			for (final ScaledTile scaledTile : mScaledTiles) {
+				for (final Drawable source : scaledTile.mSources) {
+					if (source instanceof ReusableBitmapDrawable) {
+						((ReusableBitmapDrawable) source).finishUsingDrawable();
+					}
+				}
 			}
+			mScaledTiles.clear();
 		}
 
-		protected abstract void computeTile(final long pMapTileIndex, final int pX, final int pY);
+		/**
+		 * @return the cached tile, protected against recycling until {@link #release()}, or null
+		 */
+		protected Drawable acquireCachedTile(final long pMapTileIndex) {
+			final Drawable drawable = mTileCache.getMapTile(pMapTileIndex);
+			if (!(drawable instanceof BitmapDrawable)) {
+				return null;
+			}
+			if (drawable instanceof ReusableBitmapDrawable) {
+				final ReusableBitmapDrawable reusable = (ReusableBitmapDrawable) drawable;
+				reusable.beginUsingDrawable();
+				if (!reusable.isBitmapValid()) {
+					reusable.finishUsingDrawable();
+					return null;
+				}
+			}
+			return drawable;
+		}
+
+		/**
+		 * Called on the UI thread
+		 * @return the tiles from the previous zoom level needed to compute this tile, or null if none
+		 */
+		protected abstract Drawable[] getSources(final long pMapTileIndex);
+
+		/**
+		 * Called in the background
+		 */
+		protected abstract Bitmap computeTile(final ScaledTile pScaledTile);
 
 		/**
 		 *
@@ -392,33 +580,31 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 		 */
 		protected void putScaledTileIntoCache(final long pMapTileIndex, final Bitmap pBitmap) {
 			final ReusableBitmapDrawable drawable = new ReusableBitmapDrawable(pBitmap);
-			putTileIntoCache(pMapTileIndex, drawable, ExpirableBitmapDrawable.SCALED);
 			if (Configuration.getInstance().isDebugMode()) {
 				Log.d(IMapView.LOGTAG, "Created scaled tile: " + MapTileIndex.toString(pMapTileIndex));
 				mDebugPaint.setTextSize(40);
 				final Canvas canvas = new Canvas(pBitmap);
 				canvas.drawText("scaled", 50, 50, mDebugPaint);
 			}
+			putTileIntoCache(pMapTileIndex, drawable, ExpirableBitmapDrawable.SCALED);
 		}
 	}
 
 	private class ZoomInTileLooper extends ScaleTileLooper {
 
 		@Override
-		public void computeTile(final long pMapTileIndex, final int pX, final int pY) {
-			// get the correct fraction of the tile from cache and scale up
-
+		protected Drawable[] getSources(final long pMapTileIndex) {
 			final long oldTile = MapTileIndex.getTileIndex(mOldTileZoomLevel,
 					MapTileIndex.getX(pMapTileIndex) >> mDiff, MapTileIndex.getY(pMapTileIndex) >> mDiff);
-			final Drawable oldDrawable = mTileCache.getMapTile(oldTile);
+			final Drawable oldDrawable = acquireCachedTile(oldTile);
+			return oldDrawable == null ? null : new Drawable[] {oldDrawable};
+		}
 
-			if (oldDrawable instanceof BitmapDrawable) {
-				final Bitmap bitmap = MapTileApproximater.approximateTileFromLowerZoom(
-						(BitmapDrawable)oldDrawable, pMapTileIndex, mDiff);
-				if (bitmap != null) {
-					mNewTiles.put(pMapTileIndex, bitmap);
-				}
-			}
+		@Override
+		public Bitmap computeTile(final ScaledTile pScaledTile) {
+			// get the correct fraction of the tile from cache and scale up
+			return MapTileApproximater.approximateTileFromLowerZoom(
+					(BitmapDrawable) pScaledTile.mSources[0], pScaledTile.mMapTileIndex, mDiff);
 		}
 	}
 
@@ -426,43 +612,61 @@ public abstract class MapTileProviderBase implements IMapTileProviderCallback {
 		private static final int MAX_ZOOM_OUT_DIFF = 4;
 
 		@Override
-		protected void computeTile(final long pMapTileIndex, final int pX, final int pY) {
+		protected Drawable[] getSources(final long pMapTileIndex) {
 
 			if (mDiff >= MAX_ZOOM_OUT_DIFF){
-				return;
+				return null;
 			}
 
 			// get many tiles from cache and make one tile from them
 			final int xx = MapTileIndex.getX(pMapTileIndex) << mDiff;
 			final int yy = MapTileIndex.getY(pMapTileIndex) << mDiff;
 			final int numTiles = 1 << mDiff;
-			Bitmap bitmap = null;
-			Canvas canvas = null;
+			Drawable[] sources = null;
 			for(int x = 0; x < numTiles; x++) {
 				for(int y = 0; y < numTiles; y++) {
 					final long oldTile = MapTileIndex.getTileIndex(mOldTileZoomLevel, xx + x, yy + y);
-					final Drawable oldDrawable = mTileCache.getMapTile(oldTile);
-					if (oldDrawable instanceof BitmapDrawable) {
-						final Bitmap oldBitmap = ((BitmapDrawable)oldDrawable).getBitmap();
-						if (oldBitmap != null) {
-							if (bitmap == null) {
-								bitmap = MapTileApproximater.getTileBitmap(mTileSize);
-								canvas = new Canvas(bitmap);
-								canvas.drawColor(Color.LTGRAY);
-							}
-							mDestRect.set(
-									x * mTileSize_2, y * mTileSize_2,
-									(x + 1) * mTileSize_2, (y + 1) * mTileSize_2);
-							canvas.drawBitmap(oldBitmap, null, mDestRect, null);
-							mTileCache.remove(oldTile);
+					final Drawable oldDrawable = acquireCachedTile(oldTile);
+					if (oldDrawable != null) {
+						if (sources == null) {
+							sources = new Drawable[numTiles * numTiles];
 						}
+						sources[x * numTiles + y] = oldDrawable;
 					}
 				}
 			}
+			return sources;
+		}
 
-			if (bitmap != null) {
-				mNewTiles.put(pMapTileIndex, bitmap);
+		@Override
+		protected Bitmap computeTile(final ScaledTile pScaledTile) {
+			final int xx = MapTileIndex.getX(pScaledTile.mMapTileIndex) << mDiff;
+			final int yy = MapTileIndex.getY(pScaledTile.mMapTileIndex) << mDiff;
+			final int numTiles = 1 << mDiff;
+			Bitmap bitmap = null;
+			Canvas canvas = null;
+			for(int x = 0; x < numTiles; x++) {
+				for(int y = 0; y < numTiles; y++) {
+					final Drawable oldDrawable = pScaledTile.mSources[x * numTiles + y];
+					if (oldDrawable == null) {
+						continue;
+					}
+					final Bitmap oldBitmap = ((BitmapDrawable)oldDrawable).getBitmap();
+					if (oldBitmap != null) {
+						if (bitmap == null) {
+							bitmap = MapTileApproximater.getTileBitmap(mTileSize);
+							canvas = new Canvas(bitmap);
+							canvas.drawColor(Color.LTGRAY);
+						}
+						mDestRect.set(
+								x * mTileSize_2, y * mTileSize_2,
+								(x + 1) * mTileSize_2, (y + 1) * mTileSize_2);
+						canvas.drawBitmap(oldBitmap, null, mDestRect, null);
+						mTileCache.remove(MapTileIndex.getTileIndex(mOldTileZoomLevel, xx + x, yy + y));
+					}
+				}
 			}
+			return bitmap;
 		}
 	}
 
@@ -0,0 +1,167 @@
+package org.osmdroid.tileprovider;
+
+import org.osmdroid.util.MapTileIndex;
+
+/**
+ * Ranks tile requests according to the current viewport, so that the tile providers
+ * load first the visible tiles closest to the screen center, then the tiles just around the screen,
+ * and then the tiles of the neighbouring zoom levels.
+ * Requests for tiles that are far from the viewport, or for zoom levels the user has left, are stale:
+ * they are not worth loading anymore.
+ * <p>
+ * The viewport is set by the {@link org.osmdroid.views.overlay.TilesOverlay} each time it's drawn;
+ * the priorities are computed by {@link org.osmdroid.tileprovider.modules.MapTileModuleProviderBase}
+ * each time a worker thread needs a new tile to load.
+ * As long as no viewport is set, all requests have the same priority.
+ * @since 6.0.2
+ */
+public class MapTileRequestScheduler {
+
+	/**
+	 * Priority of a request that is not worth loading anymore
+	 */
+	public static final long STALE = Long.MAX_VALUE;
+
+	private static final long NOT_VISIBLE_PENALTY = 1L << 40;
+	private static final long ZOOM_PENALTY = 1L << 50;
+	private static final int DISTANCE_PRECISION = 1024;
+
+	/**
+	 * Number of tiles around the viewport that are still worth loading
+	 */
+	private int mMarginTiles = 1;
+
+	/**
+	 * Maximum zoom level difference with the viewport that is still worth loading
+	 */
+	private int mMaxZoomDelta = 1;
+
+	private volatile Viewport mViewport;
+	private volatile int mViewportVersion;
+
+	/**
+	 * @param pZoom zoom level of the displayed tiles
+	 * @param pLeft leftmost displayed tile X, not wrapped around the world
+	 * @param pTop topmost displayed tile Y, not wrapped around the world
+	 * @param pRight rightmost displayed tile X, not wrapped around the world
+	 * @param pBottom bottommost displayed tile Y, not wrapped around the world
+	 */
+	public void setViewport(final int pZoom, final int pLeft, final int pTop, final int pRight, final int pBottom) {
+		final Viewport viewport = mViewport;
+		if (viewport != null && viewport.mZoom == pZoom
+				&& viewport.mLeft == pLeft && viewport.mTop == pTop
+				&& viewport.mRight == pRight && viewport.mBottom == pBottom) {
+			return;
+		}
+		mViewport = new Viewport(pZoom, pLeft, pTop, pRight, pBottom);
+		mViewportVersion++;
+	}
+
+	/**
+	 * Forget about the viewport: all the requests get the same priority again
+	 */
+	public void clearViewport() {
+		mViewport = null;
+		mViewportVersion++;
+	}
+
+	/**
+	 * @return a number that changes each time the viewport changes, and therefore the priorities
+	 */
+	public int getViewportVersion() {
+		return mViewportVersion;
+	}
+
+	public boolean hasViewport() {
+		return mViewport != null;
+	}
+
+	public int getMarginTiles() {
+		return mMarginTiles;
+	}
+
+	public void setMarginTiles(final int pMarginTiles) {
+		mMarginTiles = pMarginTiles;
+	}
+
+	public int getMaxZoomDelta() {
+		return mMaxZoomDelta;
+	}
+
+	public void setMaxZoomDelta(final int pMaxZoomDelta) {
+		mMaxZoomDelta = pMaxZoomDelta;
+	}
+
+	/**
+	 * @return the priority of a tile request: the lower the sooner,
+	 * or {@link #STALE} if the tile is not worth loading anymore
+	 */
+	public long getPriority(final long pMapTileIndex) {
+		final Viewport viewport = mViewport;
+		if (viewport == null) {
+			return 0;
+		}
+		final int zoomDelta = MapTileIndex.getZoom(pMapTileIndex) - viewport.mZoom;
+		final int absZoomDelta = Math.abs(zoomDelta);
+		if (absZoomDelta > mMaxZoomDelta) {
+			return STALE;
+		}
+
+		// tile center and half size, in tiles of the viewport zoom level
+		final double scale = zoomDelta >= 0 ? 1. / (1 << zoomDelta) : 1 << -zoomDelta;
+		final double halfSize = scale / 2;
+		final double dx = wrap(MapTileIndex.getX(pMapTileIndex) * scale + halfSize - viewport.mCenterX,
+				viewport.mWorldSize);
+		final double dy = wrap(MapTileIndex.getY(pMapTileIndex) * scale + halfSize - viewport.mCenterY,
+				viewport.mWorldSize);
+		final double overlapX = Math.abs(dx) - halfSize - viewport.mHalfWidth;
+		final double overlapY = Math.abs(dy) - halfSize - viewport.mHalfHeight;
+		if (overlapX >= mMarginTiles || overlapY >= mMarginTiles) {
+			return STALE;
+		}
+
+		long result = absZoomDelta * ZOOM_PENALTY;
+		if (overlapX >= 0 || overlapY >= 0) {
+			result += NOT_VISIBLE_PENALTY;
+		}
+		result += (long) ((dx * dx + dy * dy) * DISTANCE_PRECISION);
+		return result;
+	}
+
+	/**
+	 * @return the shortest signed distance, considering that the world wraps around
+	 */
+	private static double wrap(final double pDelta, final double pWorldSize) {
+		return pDelta - pWorldSize * Math.floor(pDelta / pWorldSize + .5);
+	}
+
+	/**
+	 * Immutable snapshot of the displayed tiles, so that the UI thread can replace it
+	 * while the worker threads are reading it
+	 */
+	private static class Viewport {
+		private final int mZoom;
+		private final int mLeft;
+		private final int mTop;
+		private final int mRight;
+		private final int mBottom;
+		private final double mCenterX;
+		private final double mCenterY;
+		private final double mHalfWidth;
+		private final double mHalfHeight;
+		private final double mWorldSize;
+
+		private Viewport(final int pZoom, final int pLeft, final int pTop, final int pRight, final int pBottom) {
+			mZoom = pZoom;
+			mLeft = pLeft;
+			mTop = pTop;
+			mRight = pRight;
+			mBottom = pBottom;
+			mCenterX = (pLeft + pRight + 1) / 2.;
+			mCenterY = (pTop + pBottom + 1) / 2.;
+			mHalfWidth = (pRight - pLeft + 1) / 2.;
+			mHalfHeight = (pBottom - pTop + 1) / 2.;
+			mWorldSize = 1 << pZoom;
+		}
+	}
+}
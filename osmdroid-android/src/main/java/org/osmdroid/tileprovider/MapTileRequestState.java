@@ -9,9 +9,9 @@ import java.util.List;
 
 public class MapTileRequestState {
 
-	private final List<MapTileModuleProviderBase> mProviderQueue;
-	private final long mMapTileIndex;
-	private final IMapTileProviderCallback mCallback;
+	private List<MapTileModuleProviderBase> mProviderQueue;
+	private long mMapTileIndex;
+	private IMapTileProviderCallback mCallback;
 	private int index;
 	private MapTileModuleProviderBase mCurrentProvider;
 
@@ -34,9 +34,22 @@ public class MapTileRequestState {
 	public MapTileRequestState(final long pMapTileIndex,
 							   final List<MapTileModuleProviderBase> providers,
 							   final IMapTileProviderCallback callback) {
+		init(pMapTileIndex, providers, callback);
+	}
+
+	/**
+	 * Makes the state as new, for another request: used by {@link MapTileProviderArray}'s pool,
+	 * once the previous request is over
+	 * @since 6.0.2
+	 */
+	void init(final long pMapTileIndex,
+			  final List<MapTileModuleProviderBase> providers,
+			  final IMapTileProviderCallback callback) {
 		mProviderQueue = providers;
 		mMapTileIndex = pMapTileIndex;
 		mCallback = callback;
+		index = 0;
+		mCurrentProvider = null;
 	}
 
 	/**
@@ -0,0 +1,448 @@
+package org.osmdroid.tileprovider;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+
+import org.osmdroid.api.IMapView;
+import org.osmdroid.config.Configuration;
+import org.osmdroid.util.MapTileIndex;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In memory cache of tiles, with a capacity in bytes instead of a number of tiles.
+ * <ul>
+ * <li>keys are primitive longs, stored in open addressing hash tables (no boxing)</li>
+ * <li>the tiles are split into independently locked stripes, so that the download,
+ * file system and UI threads don't compete for a single lock</li>
+ * <li>each stripe keeps its tiles in access order; {@link #garbageCollection()} merges
+ * the stripes in order to evict the least recently used tiles first</li>
+ * <li>the size of a tile is the byte count of its bitmap</li>
+ * </ul>
+ * Displayed tiles and their neighbours (see {@link #getProtectedTileComputers()}) are never evicted.
+ * To be used, override {@link MapTileProviderBase#createTileCache()} or set
+ * {@link org.osmdroid.config.IConfigurationProvider#setCacheMapTileMaxBytes(long)}
+ * @since 6.0.2
+ */
+public class StripedLRUMapTileCache extends MapTileCache {
+
+	// ===========================================================
+	// Constants
+	// ===========================================================
+
+	private static final int STRIPES = 16; // must be a power of 2
+	private static final int STRIPE_SHIFT = 64 - 4; // log2(STRIPES)
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private final Stripe[] mStripes = new Stripe[STRIPES];
+	private final AtomicLong mClock = new AtomicLong();
+	private final AtomicLong mBytes = new AtomicLong();
+	private final AtomicInteger mCount = new AtomicInteger();
+	private volatile long mMaxBytes;
+
+	/**
+	 * Eviction candidates, one per stripe, only used during garbage collection
+	 */
+	private final Entry[] mCandidates = new Entry[STRIPES];
+	private final long[] mCandidateStamps = new long[STRIPES];
+
+	// ===========================================================
+	// Constructors
+	// ===========================================================
+
+	/**
+	 * @param pMaxBytes Maximum amount of bitmap bytes to be hold within
+	 */
+	public StripedLRUMapTileCache(final long pMaxBytes) {
+		super();
+		for (int i = 0 ; i < STRIPES ; i ++) {
+			mStripes[i] = new Stripe();
+		}
+		mMaxBytes = pMaxBytes;
+	}
+
+	// ===========================================================
+	// Getter & Setter
+	// ===========================================================
+
+	public long getMaxBytes() {
+		return mMaxBytes;
+	}
+
+	public void setMaxBytes(final long pMaxBytes) {
+		if (mMaxBytes != pMaxBytes) {
+			Log.i(IMapView.LOGTAG, "Tile cache byte capacity changed from " + mMaxBytes + " to " + pMaxBytes);
+			mMaxBytes = pMaxBytes;
+		}
+	}
+
+	/**
+	 * @return the sum of the sizes of the cached tiles, in bytes
+	 */
+	public long getBytes() {
+		return mBytes.get();
+	}
+
+	// ===========================================================
+	// Methods from SuperClass/Interfaces
+	// ===========================================================
+
+	@Override
+	public Drawable getMapTile(final long pMapTileIndex) {
+		final int hash = hash(pMapTileIndex);
+		final Stripe stripe = getStripe(pMapTileIndex);
+		synchronized (stripe) {
+			final Entry entry = stripe.get(pMapTileIndex, hash);
+			if (entry == null) {
+				return null;
+			}
+			stripe.moveToHead(entry);
+			entry.mStamp = mClock.incrementAndGet();
+			return entry.mDrawable;
+		}
+	}
+
+	@Override
+	public void putTile(final long pMapTileIndex, final Drawable aDrawable) {
+		if (aDrawable == null) {
+			return;
+		}
+		final int bytes = getByteSize(aDrawable);
+		final int hash = hash(pMapTileIndex);
+		final Stripe stripe = getStripe(pMapTileIndex);
+		synchronized (stripe) {
+			Entry entry = stripe.get(pMapTileIndex, hash);
+			if (entry == null) {
+				entry = new Entry(pMapTileIndex, hash);
+				stripe.insert(entry);
+				mCount.incrementAndGet();
+			} else {
+				stripe.unlink(entry);
+				mBytes.addAndGet(-entry.mBytes);
+			}
+			entry.mDrawable = aDrawable;
+			entry.mBytes = bytes;
+			entry.mStamp = mClock.incrementAndGet();
+			stripe.linkAtHead(entry);
+			mBytes.addAndGet(bytes);
+		}
+	}
+
+	@Override
+	public boolean containsTile(final long pMapTileIndex) {
+		final Stripe stripe = getStripe(pMapTileIndex);
+		synchronized (stripe) {
+			return stripe.get(pMapTileIndex, hash(pMapTileIndex)) != null;
+		}
+	}
+
+	/**
+	 * Removes from the memory cache the least recently used tiles,
+	 * until the size of the cache fits in the byte capacity.
+	 * Displayed tiles and their neighbours are not removed.
+	 */
+	@Override
+	public void garbageCollection() {
+		long toBeFreed = mBytes.get() - mMaxBytes;
+		if (toBeFreed <= 0) {
+			return;
+		}
+		synchronized (mCandidates) {
+			refreshProtectedTiles();
+			for (int i = 0 ; i < STRIPES ; i ++) {
+				final Stripe stripe = mStripes[i];
+				synchronized (stripe) {
+					setCandidate(i, stripe.mTail);
+				}
+			}
+			while (toBeFreed > 0) {
+				final int oldest = getOldestCandidate();
+				if (oldest == -1) {
+					break;
+				}
+				final Stripe stripe = mStripes[oldest];
+				final Entry candidate = mCandidates[oldest];
+				final Drawable removed;
+				synchronized (stripe) {
+					if (candidate.mRemoved || candidate.mStamp != mCandidateStamps[oldest]) {
+						// accessed or removed in the meantime: restart from the least recently used
+						removed = null;
+						setCandidate(oldest, stripe.mTail);
+					} else {
+						final Entry newer = candidate.mNewer;
+						removed = stripe.remove(candidate);
+						toBeFreed -= candidate.mBytes;
+						setCandidate(oldest, newer);
+					}
+				}
+				if (removed != null) {
+					onTileRemoved(candidate.mKey, removed);
+					if (Configuration.getInstance().isDebugMode()) {
+						Log.d(IMapView.LOGTAG, "LRU Remove old tile: " + MapTileIndex.toString(candidate.mKey));
+					}
+				}
+			}
+			for (int i = 0 ; i < STRIPES ; i ++) {
+				mCandidates[i] = null;
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (final Stripe stripe : mStripes) {
+			while (true) {
+				final Entry entry;
+				final Drawable removed;
+				synchronized (stripe) {
+					entry = stripe.mTail;
+					if (entry == null) {
+						break;
+					}
+					removed = stripe.remove(entry);
+				}
+				onTileRemoved(entry.mKey, removed);
+			}
+		}
+	}
+
+	@Override
+	public void remove(final long pMapTileIndex) {
+		final Stripe stripe = getStripe(pMapTileIndex);
+		Drawable removed = null;
+		synchronized (stripe) {
+			final Entry entry = stripe.get(pMapTileIndex, hash(pMapTileIndex));
+			if (entry != null) {
+				removed = stripe.remove(entry);
+			}
+		}
+		onTileRemoved(pMapTileIndex, removed);
+	}
+
+	@Override
+	public int getSize() {
+		return mCount.get();
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	/**
+	 * @return the size in bytes taken in memory by a tile
+	 */
+	protected int getByteSize(final Drawable pDrawable) {
+		if (pDrawable instanceof BitmapDrawable) {
+			final Bitmap bitmap = ((BitmapDrawable) pDrawable).getBitmap();
+			if (bitmap != null) {
+				return BitmapPool.getByteCount(bitmap);
+			}
+		}
+		final int width = pDrawable.getIntrinsicWidth();
+		final int height = pDrawable.getIntrinsicHeight();
+		if (width > 0 && height > 0) {
+			return width * height * 4; // ARGB_8888
+		}
+		return 1;
+	}
+
+	private void onTileRemoved(final long pMapTileIndex, final Drawable pDrawable) {
+		if (getTileRemovedListener() != null) {
+			getTileRemovedListener().onTileRemoved(pMapTileIndex);
+		}
+		BitmapPool.getInstance().asyncRecycle(pDrawable);
+	}
+
+	/**
+	 * Sets as candidate for the stripe the least recently used tile that is not protected,
+	 * starting from pEntry and going to the most recently used ones.
+	 * To be called while holding the stripe lock
+	 */
+	private void setCandidate(final int pStripe, Entry pEntry) {
+		while (pEntry != null && isProtectedTile(pEntry.mKey)) {
+			pEntry = pEntry.mNewer;
+		}
+		mCandidates[pStripe] = pEntry;
+		mCandidateStamps[pStripe] = pEntry == null ? 0 : pEntry.mStamp;
+	}
+
+	private int getOldestCandidate() {
+		int result = -1;
+		for (int i = 0 ; i < STRIPES ; i ++) {
+			if (mCandidates[i] == null) {
+				continue;
+			}
+			if (result == -1 || mCandidateStamps[i] < mCandidateStamps[result]) {
+				result = i;
+			}
+		}
+		return result;
+	}
+
+	private Stripe getStripe(final long pMapTileIndex) {
+		return mStripes[(int) (mix(pMapTileIndex) >>> STRIPE_SHIFT)];
+	}
+
+	private static int hash(final long pMapTileIndex) {
+		return (int) mix(pMapTileIndex);
+	}
+
+	/**
+	 * MurmurHash3 64-bit finalizer, as tile indices are far from being uniformly distributed
+	 */
+	private static long mix(long pKey) {
+		pKey ^= pKey >>> 33;
+		pKey *= 0xff51afd7ed558ccdL;
+		pKey ^= pKey >>> 33;
+		pKey *= 0xc4ceb9fe1a85ec53L;
+		pKey ^= pKey >>> 33;
+		return pKey;
+	}
+
+	// ===========================================================
+	// Inner and Anonymous Classes
+	// ===========================================================
+
+	private static class Entry {
+		private final long mKey;
+		private final int mHash;
+		private Drawable mDrawable;
+		private int mBytes;
+		private long mStamp;
+		private boolean mRemoved;
+		private Entry mNewer;
+		private Entry mOlder;
+
+		private Entry(final long pKey, final int pHash) {
+			mKey = pKey;
+			mHash = pHash;
+		}
+	}
+
+	/**
+	 * Open addressing hash table of entries, with linear probing,
+	 * and a doubly linked list of the same entries in access order.
+	 * All methods must be called while holding the stripe lock.
+	 */
+	private class Stripe {
+		private Entry[] mTable = new Entry[16];
+		private int mSize;
+		private Entry mHead; // most recently used
+		private Entry mTail; // least recently used
+
+		private Entry get(final long pKey, final int pHash) {
+			final int mask = mTable.length - 1;
+			int index = pHash & mask;
+			Entry entry;
+			while ((entry = mTable[index]) != null) {
+				if (entry.mKey == pKey) {
+					return entry;
+				}
+				index = (index + 1) & mask;
+			}
+			return null;
+		}
+
+		private void insert(final Entry pEntry) {
+			if ((mSize + 1) * 2 > mTable.length) {
+				resize();
+			}
+			place(mTable, pEntry);
+			mSize ++;
+		}
+
+		private Drawable remove(final Entry pEntry) {
+			final int mask = mTable.length - 1;
+			int index = pEntry.mHash & mask;
+			while (mTable[index] != pEntry) {
+				index = (index + 1) & mask;
+			}
+			// backward shift deletion, in order to keep the probe sequences without holes
+			int next = index;
+			while (true) {
+				next = (next + 1) & mask;
+				final Entry entry = mTable[next];
+				if (entry == null) {
+					break;
+				}
+				final int ideal = entry.mHash & mask;
+				final boolean shift = next > index
+						? (ideal <= index || ideal > next)
+						: (ideal <= index && ideal > next);
+				if (shift) {
+					mTable[index] = entry;
+					index = next;
+				}
+			}
+			mTable[index] = null;
+			mSize --;
+			unlink(pEntry);
+			pEntry.mRemoved = true;
+			mCount.decrementAndGet();
+			mBytes.addAndGet(-pEntry.mBytes);
+			final Drawable drawable = pEntry.mDrawable;
+			pEntry.mDrawable = null;
+			return drawable;
+		}
+
+		private void resize() {
+			final Entry[] table = new Entry[mTable.length * 2];
+			for (final Entry entry : mTable) {
+				if (entry != null) {
+					place(table, entry);
+				}
+			}
+			mTable = table;
+		}
+
+		private void place(final Entry[] pTable, final Entry pEntry) {
+			final int mask = pTable.length - 1;
+			int index = pEntry.mHash & mask;
+			while (pTable[index] != null) {
+				index = (index + 1) & mask;
+			}
+			pTable[index] = pEntry;
+		}
+
+		private void moveToHead(final Entry pEntry) {
+			if (mHead == pEntry) {
+				return;
+			}
+			unlink(pEntry);
+			linkAtHead(pEntry);
+		}
+
+		private void linkAtHead(final Entry pEntry) {
+			pEntry.mOlder = mHead;
+			pEntry.mNewer = null;
+			if (mHead != null) {
+				mHead.mNewer = pEntry;
+			}
+			mHead = pEntry;
+			if (mTail == null) {
+				mTail = pEntry;
+			}
+		}
+
+		private void unlink(final Entry pEntry) {
+			if (pEntry.mNewer != null) {
+				pEntry.mNewer.mOlder = pEntry.mOlder;
+			} else {
+				mHead = pEntry.mOlder;
+			}
+			if (pEntry.mOlder != null) {
+				pEntry.mOlder.mNewer = pEntry.mNewer;
+			} else {
+				mTail = pEntry.mNewer;
+			}
+			pEntry.mNewer = null;
+			pEntry.mOlder = null;
+		}
+	}
+}
@@ -15,34 +15,45 @@ import org.osmdroid.api.IMapView;
 import org.osmdroid.config.Configuration;
 import org.osmdroid.tileprovider.MapTileProviderBase;
 import org.osmdroid.tileprovider.constants.OpenStreetMapTileProviderConstants;
+import org.osmdroid.tileprovider.modules.HttpUrlConnectionTransport;
 import org.osmdroid.tileprovider.modules.IFilesystemCache;
+import org.osmdroid.tileprovider.modules.IHttpTransport;
+import org.osmdroid.tileprovider.modules.MapTileDownloader;
+import org.osmdroid.tileprovider.modules.IRevalidatingFilesystemCache;
+import org.osmdroid.tileprovider.modules.TileValidators;
 import org.osmdroid.tileprovider.tilesource.ITileSource;
 import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
 import org.osmdroid.tileprovider.util.Counters;
-import org.osmdroid.tileprovider.util.StreamUtils;
 import org.osmdroid.util.BoundingBox;
 import org.osmdroid.util.GeoPoint;
+import org.osmdroid.util.MapTileCoverage;
 import org.osmdroid.util.MapTileIndex;
-import org.osmdroid.util.MyMath;
-import org.osmdroid.util.TileSystem;
-import org.osmdroid.util.constants.GeoConstants;
+import org.osmdroid.util.MapTileIndexIterator;
 import org.osmdroid.views.MapView;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 ;
 
@@ -74,6 +85,28 @@ public class CacheManager {
     protected final int mMaxZoomLevel;
     protected Set<CacheManagerTask> mPendingTasks = new HashSet<>();
     protected boolean verifyCancel = true;
+    /**
+     * @since 6.0.2
+     */
+    protected volatile IHttpTransport mHttpTransport = new HttpUrlConnectionTransport();
+    /**
+     * Number of threads of a {@link CacheManagerTask}
+     * @since 6.0.2
+     */
+    protected volatile int mThreadCount = 1;
+    /**
+     * @since 6.0.2
+     */
+    protected volatile int mMaxConcurrentDownloadsPerHost = 2;
+    private final Map<String, HostThrottle> mHostThrottles = new HashMap<>();
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int MAX_THROTTLED_ATTEMPTS = 5;
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 5000;
+    private static final long MAX_RETRY_AFTER_MILLIS = 10 * 60 * 1000;
+    private static final int DOWNLOAD_OK = 0;
+    private static final int DOWNLOAD_ERROR = 1;
+    private static final int DOWNLOAD_THROTTLED = 2;
 
     public CacheManager(final MapView mapView) {
         this(mapView, mapView.getTileProvider().getTileWriter());
@@ -114,9 +147,7 @@ public class CacheManager {
     }
 
     public static Point getMapTileFromCoordinates(final double aLat, final double aLon, final int zoom) {
-        final int y = (int) Math.floor((1 - Math.log(Math.tan(aLat * Math.PI / 180) + 1 / Math.cos(aLat * Math.PI / 180)) / Math.PI) / 2 * (1 << zoom));
-        final int x = (int) Math.floor((aLon + 180) / 360 * (1 << zoom));
-        return new Point(x, y);
+        return new Point(MapTileAreaCoverage.getTileX(aLon, zoom), MapTileAreaCoverage.getTileY(aLat, zoom));
     }
 
     public static GeoPoint getCoordinatesFromMapTile(final int x, final int y, final int zoom) {
@@ -151,74 +182,97 @@ public class CacheManager {
     }
 
     /**
-     * Actual tile download, regardless of the tile being already present in the cache
+     * Actual tile download, regardless of the tile being already present in the cache.
+     * The concurrent downloads from the same host are limited, and paused when the server answers
+     * "429 Too Many Requests" or "503 Service Unavailable", as long as its "Retry-After" header says;
+     * the tile is then downloaded again, a few times at most.
      *
      * @return true if success, false if error
      * @since 5.6.5
      */
     public boolean forceLoadTile(final OnlineTileSourceBase tileSource, final long pMapTileIndex) {
-        InputStream in = null;
-        HttpURLConnection c=null;
-
-        try {
-
+        final String tileURLString = tileSource.getTileURLString(pMapTileIndex);
 
-            final String tileURLString = tileSource.getTileURLString(pMapTileIndex);
+        if (Configuration.getInstance().isDebugMode()) {
+            Log.d(IMapView.LOGTAG,"Downloading Maptile from url: " + tileURLString);
+        }
 
-            if (Configuration.getInstance().isDebugMode()) {
-                Log.d(IMapView.LOGTAG,"Downloading Maptile from url: " + tileURLString);
-            }
+        if (TextUtils.isEmpty(tileURLString)) {
+            return false;
+        }
 
-            if (TextUtils.isEmpty(tileURLString)) {
+        final HostThrottle throttle = getHostThrottle(tileURLString);
+        for (int attempt = 0 ; attempt < MAX_THROTTLED_ATTEMPTS ; attempt ++) {
+            try {
+                throttle.acquire();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
                 return false;
             }
-
-            c = (HttpURLConnection) new URL(tileURLString).openConnection();
-            c.setUseCaches(true);
-            c.setRequestProperty(Configuration.getInstance().getUserAgentHttpHeader(),Configuration.getInstance().getUserAgentValue());
-            for (final Map.Entry<String, String> entry : Configuration.getInstance().getAdditionalHttpRequestProperties().entrySet()) {
-                c.setRequestProperty(entry.getKey(), entry.getValue());
+            final int result = downloadTile(tileSource, pMapTileIndex, tileURLString, throttle);
+            if (result != DOWNLOAD_THROTTLED) {
+                return result == DOWNLOAD_OK;
             }
-            c.connect();
+        }
+        Counters.tileDownloadErrors++;
+        Log.w(IMapView.LOGTAG, "Giving up downloading MapTile: " + MapTileIndex.toString(pMapTileIndex) + " the server keeps throttling");
+        return false;
+    }
 
+    /**
+     * Downloads a tile once, the throttle being acquired, and releases the throttle
+     * @return DOWNLOAD_OK, DOWNLOAD_ERROR or DOWNLOAD_THROTTLED
+     * @since 6.0.2
+     */
+    private int downloadTile(final OnlineTileSourceBase tileSource, final long pMapTileIndex,
+                             final String tileURLString, final HostThrottle pThrottle) {
+        IHttpTransport.Response response = null;
+        int result = DOWNLOAD_ERROR;
+        long retryAfter = 0;
 
-            // Check to see if we got success
+        try {
 
-            if (c.getResponseCode() != 200) {
-                Log.w(IMapView.LOGTAG, "Problem downloading MapTile: " + MapTileIndex.toString(pMapTileIndex) + " HTTP response: " + c.getResponseMessage());
-                Counters.tileDownloadErrors++;
-                return false;
-            }
+            // if we already have this tile, only ask for it if it changed
+            final TileValidators validators = MapTileDownloader.getValidators(mTileWriter, tileSource, pMapTileIndex);
+            response = mHttpTransport.get(tileURLString, MapTileDownloader.getConditionalRequestProperties(validators));
 
 
-            in = c.getInputStream();
+            // Check to see if we got success
+            final int responseCode = response.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && validators != null) {
+                ((IRevalidatingFilesystemCache) mTileWriter).refreshExpirationTimestamp(tileSource, pMapTileIndex,
+                        MapTileDownloader.getExpirationTime(response.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_EXPIRES_HEADER)));
+                Counters.tileDownloadNotModified++;
+                result = DOWNLOAD_OK;
+                return result;
+            }
 
-            //default is 1 week from now
-            Long expirationTime = null;
-            Long override=Configuration.getInstance().getExpirationOverrideDuration();
-            if (override!=null) {
-                expirationTime = System.currentTimeMillis() + override;
-            } else {
-                expirationTime = System.currentTimeMillis() + OpenStreetMapTileProviderConstants.DEFAULT_MAXIMUM_CACHED_FILE_AGE + Configuration.getInstance().getExpirationExtendedDuration();
-                final String expires = c.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_EXPIRES_HEADER);
-                if (expires != null && expires.length() > 0) {
-                    try {
-                        final Date dateExpires = Configuration.getInstance().getHttpHeaderDateTimeFormat().parse(expires);
-                        expirationTime = dateExpires.getTime() + Configuration.getInstance().getExpirationExtendedDuration();
-                    } catch (Exception ex) {
-                        if (Configuration.getInstance().isDebugMapTileDownloader())
-                            Log.d(IMapView.LOGTAG, "Unable to parse expiration tag for tile, using default, server returned " + expires, ex);
-                    }
-                }
+            if (responseCode == HTTP_TOO_MANY_REQUESTS || responseCode == HttpURLConnection.HTTP_UNAVAILABLE) {
+                Counters.tileDownloadThrottled++;
+                retryAfter = getRetryAfterMillis(response.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_RETRY_AFTER_HEADER));
+                result = DOWNLOAD_THROTTLED;
+                return result;
             }
-            // Save the data to the filesystem cache
-            mTileWriter.saveFile(tileSource, pMapTileIndex, in, expirationTime);
-            return true;
+
+            if (responseCode != 200) {
+                Log.w(IMapView.LOGTAG, "Problem downloading MapTile: " + MapTileIndex.toString(pMapTileIndex) + " HTTP response: " + response.getResponseMessage());
+                Counters.tileDownloadErrors++;
+                return result;
+            }
+
+            final Long expirationTime = MapTileDownloader.getExpirationTime(response.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_EXPIRES_HEADER));
+            // Save the data to the filesystem cache, streamed from the connection
+            MapTileDownloader.saveFile(mTileWriter, tileSource, pMapTileIndex, response.getInputStream(), expirationTime,
+                    TileValidators.get(
+                            response.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_ETAG_HEADER),
+                            response.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_LAST_MODIFIED_HEADER)));
+            result = DOWNLOAD_OK;
+            return result;
         } catch (final UnknownHostException e) {
             // no network connection so empty the queue
             Log.w(IMapView.LOGTAG,"UnknownHostException downloading MapTile: " + MapTileIndex.toString(pMapTileIndex) + " : " + e);
             Counters.tileDownloadErrors++;
-            return false;
+            return result;
         } catch (final FileNotFoundException e) {
             Counters.tileDownloadErrors++;
             Log.w(IMapView.LOGTAG,"Tile not found: " + MapTileIndex.toString(pMapTileIndex) + " : " + e);
@@ -229,15 +283,118 @@ public class CacheManager {
             Counters.tileDownloadErrors++;
             Log.e(IMapView.LOGTAG,"Error downloading MapTile: " + MapTileIndex.toString(pMapTileIndex), e);
         } finally {
-            StreamUtils.closeStream(in);
-            if (c!=null)
-            try{
-                c.disconnect();
-            } catch (Exception ex){
-                Log.d(IMapView.LOGTAG,"Error downloading MapTile: " + MapTileIndex.toString(pMapTileIndex), ex);
+            // the connection is kept alive for the next tile
+            if (response != null) {
+                response.close();
+            }
+            switch (result) {
+                case DOWNLOAD_OK:
+                    pThrottle.onSuccess();
+                    break;
+                case DOWNLOAD_THROTTLED:
+                    pThrottle.onThrottled(retryAfter);
+                    break;
+                default:
+                    pThrottle.onFailure();
             }
         }
-        return false;
+        return result;
+    }
+
+    /**
+     * @return the throttle shared by all the downloads from the host of that url
+     * @since 6.0.2
+     */
+    private HostThrottle getHostThrottle(final String pUrl) {
+        String host;
+        try {
+            host = new URL(pUrl).getHost();
+        } catch (final MalformedURLException e) {
+            host = "";
+        }
+        synchronized (mHostThrottles) {
+            HostThrottle throttle = mHostThrottles.get(host);
+            if (throttle == null) {
+                throttle = new HostThrottle(mMaxConcurrentDownloadsPerHost);
+                mHostThrottles.put(host, throttle);
+            }
+            return throttle;
+        }
+    }
+
+    /**
+     * @param pRetryAfter value of a "Retry-After" header: a number of seconds, or an HTTP date
+     * @return how long to wait, in milliseconds
+     * @since 6.0.2
+     */
+    public static long getRetryAfterMillis(final String pRetryAfter) {
+        if (TextUtils.isEmpty(pRetryAfter)) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+        final String value = pRetryAfter.trim();
+        long result;
+        try {
+            result = Long.parseLong(value) * 1000;
+        } catch (final NumberFormatException e) {
+            try {
+                // not the shared format from Configuration, as we may be on several threads
+                final Date date = new SimpleDateFormat(
+                        OpenStreetMapTileProviderConstants.HTTP_EXPIRES_HEADER_FORMAT, Locale.US).parse(value);
+                result = date.getTime() - System.currentTimeMillis();
+            } catch (final Exception ex) {
+                return DEFAULT_RETRY_AFTER_MILLIS;
+            }
+        }
+        return Math.max(0, Math.min(MAX_RETRY_AFTER_MILLIS, result));
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    public IHttpTransport getHttpTransport() {
+        return mHttpTransport;
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    public void setHttpTransport(final IHttpTransport pHttpTransport) {
+        mHttpTransport = pHttpTransport;
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    public int getThreadCount() {
+        return mThreadCount;
+    }
+
+    /**
+     * Sets the number of threads of the tasks executed afterwards (default 1).
+     * Take care about the usage policy of the tile server before going parallel.
+     * @since 6.0.2
+     */
+    public void setThreadCount(final int pThreadCount) {
+        mThreadCount = Math.max(1, pThreadCount);
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    public int getMaxConcurrentDownloadsPerHost() {
+        return mMaxConcurrentDownloadsPerHost;
+    }
+
+    /**
+     * Sets the maximum number of concurrent downloads from the same host (default 2),
+     * whatever the number of threads. The actual limit gets lower if the server throttles us.
+     * @since 6.0.2
+     */
+    public void setMaxConcurrentDownloadsPerHost(final int pMaxConcurrentDownloadsPerHost) {
+        mMaxConcurrentDownloadsPerHost = Math.max(1, pMaxConcurrentDownloadsPerHost);
+        synchronized (mHostThrottles) {
+            mHostThrottles.clear();
+        }
     }
 
     public boolean deleteTile(final long pMapTileIndex) {
@@ -265,15 +422,11 @@ public class CacheManager {
     /**
      * Computes the theoretical tiles covered by the bounding box
      * @return list of tiles, sorted by ascending zoom level
+     * @see MapTileAreaCoverage for large areas, as the tiles are then enumerated lazily
      */
     public static List<Long> getTilesCoverage(final BoundingBox pBB,
                                                  final int pZoomMin, final int pZoomMax) {
-        final List<Long> result = new ArrayList<>();
-        for (int zoomLevel = pZoomMin; zoomLevel <= pZoomMax; zoomLevel++) {
-            final Collection<Long> resultForZoom = getTilesCoverage(pBB, zoomLevel);
-            result.addAll(resultForZoom);
-        }
-        return result;
+        return toList(new MapTileAreaCoverage(pBB, pZoomMin, pZoomMax));
     }
 
     /**
@@ -281,26 +434,17 @@ public class CacheManager {
      * @return list of tiles for that zoom level, without any specific order
      */
     public static Collection<Long> getTilesCoverage(final BoundingBox pBB, final int pZoomLevel){
-        final Set<Long> result = new HashSet<>();
-        final int mapTileUpperBound = 1 << pZoomLevel;
-        final Point lowerRight = getMapTileFromCoordinates(
-                pBB.getLatSouth(), pBB.getLonEast(), pZoomLevel);
-        final Point upperLeft = getMapTileFromCoordinates(
-                pBB.getLatNorth(), pBB.getLonWest(), pZoomLevel);
-        int width = lowerRight.x - upperLeft.x + 1; // handling the modulo
-        if (width <= 0) {
-            width += mapTileUpperBound;
-        }
-        int height = lowerRight.y - upperLeft.y + 1; // handling the modulo
-        if (height <= 0) {
-            height += mapTileUpperBound;
-        }
-        for (int i = 0 ; i < width ; i ++) {
-            for (int j = 0 ; j < height ; j ++) {
-                final int x = MyMath.mod(upperLeft.x + i, mapTileUpperBound);
-                final int y = MyMath.mod(upperLeft.y + j, mapTileUpperBound);
-                result.add(MapTileIndex.getTileIndex(pZoomLevel, x, y));
-            }
+        return toList(new MapTileAreaCoverage(pBB, pZoomLevel, pZoomLevel));
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    private static List<Long> toList(final MapTileCoverage pCoverage) {
+        final List<Long> result = new ArrayList<>((int) Math.min(Integer.MAX_VALUE, pCoverage.getSize()));
+        final MapTileIndexIterator iterator = pCoverage.iterator();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
         }
         return result;
     }
@@ -308,113 +452,74 @@ public class CacheManager {
     /**
      * Computes the theoretical tiles covered by the list of points
      * @return list of tiles, sorted by ascending zoom level
+     * @see MapTileRouteCoverage for long routes, as the tiles are then enumerated lazily
      */
     public static List<Long> getTilesCoverage(final ArrayList<GeoPoint> pGeoPoints,
                                               final int pZoomMin, final int pZoomMax) {
-        final List<Long> result = new ArrayList<>();
-        for (int zoomLevel = pZoomMin; zoomLevel <= pZoomMax; zoomLevel++) {
-            final Collection<Long> resultForZoom = getTilesCoverage(pGeoPoints, zoomLevel);
-            result.addAll(resultForZoom);
-        }
-        return result;
+        return toList(new MapTileRouteCoverage(pGeoPoints, pZoomMin, pZoomMax));
     }
 
     /**
-     * Computes the theoretical tiles covered by the list of points
-     * Calculation done based on http://www.movable-type.co.uk/scripts/latlong.html
+     * Computes the theoretical tiles covered by the list of points,
+     * id est the tiles the route goes through
+     * @see MapTileRouteCoverage
      */
     public static Collection<Long> getTilesCoverage(final ArrayList<GeoPoint> pGeoPoints,
                                                     final int pZoomLevel) {
-        final Set<Long> result = new HashSet<>();
-
-        GeoPoint prevPoint = null;
-        Point tile, prevTile = null;
-
-        final int mapTileUpperBound = 1 << pZoomLevel;
-        for (GeoPoint geoPoint : pGeoPoints) {
-
-            final double d = TileSystem.GroundResolution(geoPoint.getLatitude(), pZoomLevel);
-
-            if (result.size() != 0) {
-
-                if (prevPoint != null) {
-
-                    final double leadCoef = (geoPoint.getLatitude() - prevPoint.getLatitude()) / (geoPoint.getLongitude() - prevPoint.getLongitude());
-                    final double brng;
-                    if (geoPoint.getLongitude() > prevPoint.getLongitude()) {
-                        brng = Math.PI / 2 - Math.atan(leadCoef);
-                    } else {
-                        brng = 3 * Math.PI / 2 - Math.atan(leadCoef);
-                    }
-
-                    final GeoPoint wayPoint = new GeoPoint(prevPoint.getLatitude(), prevPoint.getLongitude());
-
-                    while ((((geoPoint.getLatitude() > prevPoint.getLatitude()) && (wayPoint.getLatitude() < geoPoint.getLatitude())) ||
-                            (geoPoint.getLatitude() < prevPoint.getLatitude()) && (wayPoint.getLatitude() > geoPoint.getLatitude())) &&
-                            (((geoPoint.getLongitude() > prevPoint.getLongitude()) && (wayPoint.getLongitude() < geoPoint.getLongitude())) ||
-                                    ((geoPoint.getLongitude() < prevPoint.getLongitude()) && (wayPoint.getLongitude() > geoPoint.getLongitude())))) {
-
-                        final double prevLatRad = wayPoint.getLatitude() * Math.PI / 180.0;
-                        final double prevLonRad = wayPoint.getLongitude() * Math.PI / 180.0;
-
-                        final double latRad = Math.asin(Math.sin(prevLatRad) * Math.cos(d / GeoConstants.RADIUS_EARTH_METERS) + Math.cos(prevLatRad) * Math.sin(d / GeoConstants.RADIUS_EARTH_METERS) * Math.cos(brng));
-                        final double lonRad = prevLonRad + Math.atan2(Math.sin(brng) * Math.sin(d / GeoConstants.RADIUS_EARTH_METERS) * Math.cos(prevLatRad), Math.cos(d / GeoConstants.RADIUS_EARTH_METERS) - Math.sin(prevLatRad) * Math.sin(latRad));
-
-                        wayPoint.setLatitude(((latRad * 180.0 / Math.PI)));
-                        wayPoint.setLongitude(((lonRad * 180.0 / Math.PI)));
-
-                        tile = getMapTileFromCoordinates(wayPoint.getLatitude(), wayPoint.getLongitude(), pZoomLevel);
-
-                        if (!tile.equals(prevTile)) {
-//Log.d(Constants.APP_TAG, "New Tile lat " + tile.x + " lon " + tile.y);
-                            int ofsx = tile.x >= 0 ? 0 : -tile.x;
-                            int ofsy = tile.y >= 0 ? 0 : -tile.y;
-                            for (int xAround = tile.x + ofsx; xAround <= tile.x + 1 + ofsx; xAround++) {
-                                for (int yAround = tile.y + ofsy; yAround <= tile.y + 1 + ofsy; yAround++) {
-                                    final int tileY = MyMath.mod(yAround, mapTileUpperBound);
-                                    final int tileX = MyMath.mod(xAround, mapTileUpperBound);
-                                    result.add(MapTileIndex.getTileIndex(pZoomLevel, tileX, tileY));
-                                }
-                            }
-
-                            prevTile = tile;
-                        }
-                    }
-                }
-
-            } else {
-                tile = getMapTileFromCoordinates(geoPoint.getLatitude(), geoPoint.getLongitude(), pZoomLevel);
-                prevTile = tile;
-
-                int ofsx = tile.x >= 0 ? 0 : -tile.x;
-                int ofsy = tile.y >= 0 ? 0 : -tile.y;
-                for (int xAround = tile.x + ofsx; xAround <= tile.x + 1 + ofsx; xAround++) {
-                    for (int yAround = tile.y + ofsy; yAround <= tile.y + 1 + ofsy; yAround++) {
-                        final int tileY = MyMath.mod(yAround, mapTileUpperBound);
-                        final int tileX = MyMath.mod(xAround, mapTileUpperBound);
-                        result.add(MapTileIndex.getTileIndex(pZoomLevel, tileX, tileY));
-                    }
-                }
-            }
-
-            prevPoint = geoPoint;
-        }
-        return result;
+        return toList(new MapTileRouteCoverage(pGeoPoints, pZoomLevel, pZoomLevel));
     }
 
     /**
      * @return the theoretical number of tiles in the specified area
      */
     public int possibleTilesInArea(final BoundingBox pBB, final int pZoomMin, final int pZoomMax) {
-        return getTilesCoverage(pBB, pZoomMin, pZoomMax).size();
+        return toInt(new MapTileAreaCoverage(pBB, pZoomMin, pZoomMax).getSize());
+    }
+
+    /**
+     * @return the theoretical number of tiles covered by the polygon
+     * @since 6.0.2
+     */
+    public long possibleTilesInPolygon(final List<GeoPoint> pPolygon, final int pZoomMin, final int pZoomMax) {
+        return new MapTilePolygonCoverage(pPolygon, pZoomMin, pZoomMax).getSize();
+    }
+
+    /**
+     * @return a number of tiles, capped for the APIs that use an int
+     * @since 6.0.2
+     */
+    private static int toInt(final long pSize) {
+        return (int) Math.min(Integer.MAX_VALUE, pSize);
     }
     /**
      * @return the theoretical number of tiles covered by the list of points
-     * Calculation done based on http://www.movable-type.co.uk/scripts/latlong.html
      */
     public int possibleTilesCovered(final ArrayList<GeoPoint> pGeoPoints,
                                     final int pZoomMin, final int pZoomMax) {
-        return getTilesCoverage(pGeoPoints, pZoomMin, pZoomMax).size();
+        return toInt(new MapTileRouteCoverage(pGeoPoints, pZoomMin, pZoomMax).getSize());
+    }
+
+    /**
+     * @return the theoretical number of tiles covered by the route corridor
+     * @param pBufferMeters width of the corridor on each side of the route
+     * @since 6.0.2
+     */
+    public long possibleTilesCovered(final List<GeoPoint> pRoute, final double pBufferMeters,
+                                     final int pZoomMin, final int pZoomMax) {
+        return getRouteCoverage(pRoute, pBufferMeters, pZoomMin, pZoomMax).getSize();
+    }
+
+    /**
+     * @param pBufferMeters width of the corridor on each side of the route
+     * @return the tiles of the route corridor, to be used e.g. with
+     * {@link #downloadAreaAsync(Context, MapTileCoverage, int, int)}
+     * @since 6.0.2
+     */
+    public static MapTileRouteCoverage getRouteCoverage(final List<GeoPoint> pRoute, final double pBufferMeters,
+                                                        final int pZoomMin, final int pZoomMax) {
+        final MapTileRouteCoverage result = new MapTileRouteCoverage(pRoute, pZoomMin, pZoomMax);
+        result.setBufferMeters(pBufferMeters);
+        return result;
     }
 
     public CacheManagerTask execute(final CacheManagerTask pTask) {
@@ -511,6 +616,21 @@ public class CacheManager {
         return task;
     }
 
+    /**
+     * Download in background all tiles of the specified area in osmdroid cache without a user interface,
+     * resuming from the progress saved in the file by a previous execution of the same job, if any.
+     *
+     * @param pProgressFile where the progress is saved while downloading; deleted once all tiles are downloaded
+     * @since 6.0.2
+     */
+    public CacheManagerTask downloadAreaAsyncNoUI(Context ctx, BoundingBox bb, final int zoomMin, final int zoomMax,
+                                                  final CacheManagerCallback callback, final File pProgressFile) {
+        final CacheManagerTask task = new CacheManagerTask(this, getDownloadingAction(), bb, zoomMin, zoomMax);
+        task.setProgressFile(pProgressFile);
+        task.addCallback(callback);
+        return execute(task);
+    }
+
     /**
      * cancels all tasks
      * @since 5.6.3
@@ -537,6 +657,32 @@ public class CacheManager {
         task.addCallback(getDownloadingDialog(ctx, task));
         return execute(task);
     }
+
+    /**
+     * Download in background all tiles of the specified coverage in osmdroid cache,
+     * the tiles being enumerated lazily.
+     *
+     * @param pCoverage e.g. a {@link MapTileAreaCoverage} or a {@link MapTilePolygonCoverage}
+     * @since 6.0.2
+     */
+    public CacheManagerTask downloadAreaAsync(Context ctx, MapTileCoverage pCoverage, final int zoomMin, final int zoomMax) {
+        final CacheManagerTask task = new CacheManagerTask(this, getDownloadingAction(), pCoverage, zoomMin, zoomMax);
+        task.addCallback(getDownloadingDialog(ctx, task));
+        return execute(task);
+    }
+
+    /**
+     * Download in background all tiles of the specified coverage in osmdroid cache without a user interface.
+     *
+     * @param pCoverage e.g. a {@link MapTileAreaCoverage} or a {@link MapTilePolygonCoverage}
+     * @since 6.0.2
+     */
+    public CacheManagerTask downloadAreaAsyncNoUI(Context ctx, MapTileCoverage pCoverage, final int zoomMin, final int zoomMax,
+                                                  final CacheManagerCallback callback) {
+        final CacheManagerTask task = new CacheManagerTask(this, getDownloadingAction(), pCoverage, zoomMin, zoomMax);
+        task.addCallback(callback);
+        return execute(task);
+    }
     
      /*
      * verifyCancel decides wether user has to confirm the cancel action via a alert
@@ -590,6 +736,21 @@ public class CacheManager {
         public void onTaskFailed(int errors);
     }
 
+    /**
+     * A {@link CacheManagerCallback} that is also told about the download speed
+     * @since 6.0.2
+     */
+    public interface CacheManagerThroughputCallback extends CacheManagerCallback {
+
+        /**
+         * fired with {@link #updateProgress(int, int, int, int)}
+         *
+         * @param tilesPerSecond tiles processed per second since the task started
+         * @param remainingMillis estimated time to completion, or -1 if unknown yet
+         */
+        public void updateThroughput(double tilesPerSecond, long remainingMillis);
+    }
+
     public static abstract class CacheManagerDialog implements CacheManagerCallback {
 
         private final CacheManagerTask mTask;
@@ -674,6 +835,52 @@ public class CacheManager {
         }
     }
 
+    /**
+     * A list of tiles seen as a {@link MapTileCoverage}, for compatibility
+     * @since 6.0.2
+     */
+    private static class MapTileListCoverage implements MapTileCoverage {
+
+        private final List<Long> mTiles;
+
+        MapTileListCoverage(final List<Long> pTiles) {
+            mTiles = pTiles;
+        }
+
+        @Override
+        public long getSize() {
+            return mTiles.size();
+        }
+
+        /**
+         * No defining parameters here: the tiles are enumerated
+         */
+        @Override
+        public String getSignature() {
+            long hash = 17;
+            for (final Long tile : mTiles) {
+                hash = hash * 31 + tile;
+            }
+            return "list/" + mTiles.size() + "/" + Long.toHexString(hash);
+        }
+
+        @Override
+        public MapTileIndexIterator iterator() {
+            final Iterator<Long> iterator = mTiles.iterator();
+            return new MapTileIndexIterator() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public long next() {
+                    return iterator.next();
+                }
+            };
+        }
+    }
+
     /**
      * generic class for common code related to AsyncTask management
      * - performing an action
@@ -684,14 +891,44 @@ public class CacheManager {
     public static class CacheManagerTask extends AsyncTask<Object, Integer, Integer> {
         private final CacheManager mManager;
         private final CacheManagerAction mAction;
-        private final List<Long> mTiles;
+        private final MapTileCoverage mTiles;
         private final int mZoomMin;
         private final int mZoomMax;
         private final ArrayList<CacheManagerCallback> mCallbacks = new ArrayList<>();
+        /**
+         * Progress persistence, for resumable tasks
+         * @since 6.0.2
+         */
+        private File mProgressFile;
+        private CacheManagerProgress mProgress;
+        private int mInitialDoneCount;
+        private final AtomicLong mLastProgressSave = new AtomicLong();
+        private static final long PROGRESS_SAVE_INTERVAL_MILLIS = 5000;
+        /**
+         * Shared by the worker threads
+         * @since 6.0.2
+         */
+        private MapTileIndexIterator mIterator;
+        private final int[] mRanks = new int[MapTileIndex.mMaxZoomLevel + 1];
+        private final AtomicInteger mTileCounter = new AtomicInteger();
+        private final AtomicInteger mErrors = new AtomicInteger();
+        private final AtomicInteger mActioned = new AtomicInteger();
+        private final AtomicInteger mSkipped = new AtomicInteger();
+        private volatile long mStartTime;
 
         public CacheManagerTask(final CacheManager pManager, final CacheManagerAction pAction,
                                 final List<Long> pTiles,
                                 final int pZoomMin, final int pZoomMax) {
+            this(pManager, pAction, new MapTileListCoverage(pTiles), pZoomMin, pZoomMax);
+        }
+
+        /**
+         * @param pTiles tiles enumerated lazily, so that a large area doesn't need to fit in memory
+         * @since 6.0.2
+         */
+        public CacheManagerTask(final CacheManager pManager, final CacheManagerAction pAction,
+                                final MapTileCoverage pTiles,
+                                final int pZoomMin, final int pZoomMax) {
             mManager = pManager;
             mAction = pAction;
             mTiles = pTiles;
@@ -702,13 +939,13 @@ public class CacheManager {
         public CacheManagerTask(final CacheManager pManager,  final CacheManagerAction pAction,
                                 final ArrayList<GeoPoint> pGeoPoints,
                                 final int pZoomMin, final int pZoomMax) {
-            this(pManager, pAction, getTilesCoverage(pGeoPoints, pZoomMin, pZoomMax), pZoomMin, pZoomMax);
+            this(pManager, pAction, new MapTileRouteCoverage(pGeoPoints, pZoomMin, pZoomMax), pZoomMin, pZoomMax);
         }
 
         public CacheManagerTask(final CacheManager pManager,  final CacheManagerAction pAction,
                                 final BoundingBox pBB,
                                 final int pZoomMin, final int pZoomMax) {
-            this(pManager, pAction, getTilesCoverage(pBB, pZoomMin, pZoomMax), pZoomMin, pZoomMax);
+            this(pManager, pAction, new MapTileAreaCoverage(pBB, pZoomMin, pZoomMax), pZoomMin, pZoomMax);
         }
 
         public void addCallback(final CacheManagerCallback pCallback) {
@@ -717,9 +954,20 @@ public class CacheManager {
             }
         }
 
+        /**
+         * Makes the task resumable: the processed tiles are regularly saved in the file, and skipped
+         * by the next task of the same job (same tile source, zoom levels and tiles) using this file.
+         * The file is deleted when the task completes without errors.
+         * To be called before the execution.
+         * @since 6.0.2
+         */
+        public void setProgressFile(final File pProgressFile) {
+            mProgressFile = pProgressFile;
+        }
+
         @Override
         protected void onPreExecute(){
-            final int total = mTiles.size();
+            final int total = toInt(mTiles.getSize());
             for (final CacheManagerCallback callback : mCallbacks) {
                 try {
                     callback.setPossibleTilesInArea(total);
@@ -738,9 +986,18 @@ public class CacheManager {
         @Override
         protected void onProgressUpdate(final Integer... count) {
             //count[0] = tile counter, count[1] = current zoom level
+            final long elapsed = System.currentTimeMillis() - mStartTime;
+            final int actioned = mActioned.get();
+            final double tilesPerSecond = elapsed <= 0 ? 0 : actioned * 1000. / elapsed;
+            // the tiles already done in a previous execution will be skipped quickly
+            final long remaining = mTiles.getSize() - count[0] - Math.max(0, mInitialDoneCount - mSkipped.get());
+            final long remainingMillis = tilesPerSecond == 0 ? -1 : (long) (Math.max(0, remaining) * 1000 / tilesPerSecond);
             for (final CacheManagerCallback callback : mCallbacks) {
                 try {
                     callback.updateProgress(count[0], count[1], mZoomMin, mZoomMax);
+                    if (callback instanceof CacheManagerThroughputCallback) {
+                        ((CacheManagerThroughputCallback) callback).updateThroughput(tilesPerSecond, remainingMillis);
+                    }
                 } catch (Throwable t) {
                     logFaultyCallback(t);
                 }
@@ -768,32 +1025,135 @@ public class CacheManager {
             }
         }
 
+        /**
+         * The tiles are processed by {@link CacheManager#getThreadCount()} threads
+         */
         @Override
         protected Integer doInBackground(Object... params) {
             if (!mAction.preCheck()) {
                 return 0;
             }
+            if (mProgressFile != null) {
+                final String signature = getSignature();
+                mProgress = CacheManagerProgress.load(mProgressFile, signature);
+                if (mProgress == null) {
+                    mProgress = new CacheManagerProgress(signature);
+                }
+                mInitialDoneCount = mProgress.getDoneCount();
+            }
+            mIterator = mTiles.iterator();
+            mStartTime = System.currentTimeMillis();
+            mLastProgressSave.set(mStartTime);
 
-            int tileCounter = 0;
-            int errors = 0;
+            final int threadCount = mManager.getThreadCount();
+            if (threadCount <= 1) {
+                processTiles();
+            } else {
+                final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+                final List<Callable<Void>> workers = new ArrayList<>(threadCount);
+                for (int i = 0 ; i < threadCount ; i ++) {
+                    workers.add(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            processTiles();
+                            return null;
+                        }
+                    });
+                }
+                try {
+                    executor.invokeAll(workers);
+                } catch (final InterruptedException e) {
+                    // cancelled
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+            saveProgress(true);
+            return mErrors.get();
+        }
 
-            for (final long tile : mTiles) {
+        /**
+         * Processes the next tiles until there's none left or the task is cancelled.
+         * Run by each worker thread.
+         * @since 6.0.2
+         */
+        private void processTiles() {
+            final long[] next = new long[2];
+            while (!isCancelled() && nextTile(next)) {
+                final long tile = next[0];
+                final int rank = (int) next[1];
                 final int zoom = MapTileIndex.getZoom(tile);
                 if (zoom >= mZoomMin && zoom <= mZoomMax) {
-                    if (mAction.tileAction(tile)) {
-                        errors++;
+                    if (mProgress != null && mProgress.isDone(zoom, rank)) {
+                        mSkipped.incrementAndGet();
+                    } else {
+                        if (mAction.tileAction(tile)) {
+                            mErrors.incrementAndGet();
+                        } else if (mProgress != null) {
+                            mProgress.setDone(zoom, rank);
+                        }
+                        mActioned.incrementAndGet();
                     }
                 }
-                tileCounter++;
+                final int tileCounter = mTileCounter.incrementAndGet();
                 if (tileCounter % mAction.getProgressModulo() == 0) {
-                    if (isCancelled()) {
-                        return errors;
-                    }
-                    publishProgress(tileCounter, MapTileIndex.getZoom(tile));
+                    publishProgress(tileCounter, zoom);
+                    saveProgress(false);
                 }
+            }
+        }
 
+        /**
+         * @param pResult the next tile and its rank among the tiles of the same zoom level
+         * @return false if there are no more tiles
+         * @since 6.0.2
+         */
+        private boolean nextTile(final long[] pResult) {
+            synchronized (mRanks) {
+                if (!mIterator.hasNext()) {
+                    return false;
+                }
+                final long tile = mIterator.next();
+                pResult[0] = tile;
+                pResult[1] = mRanks[MapTileIndex.getZoom(tile)]++;
+                return true;
             }
-            return errors;
+        }
+
+        /**
+         * @param pFinal true at the end of the task, false for a periodic save
+         * @since 6.0.2
+         */
+        private void saveProgress(final boolean pFinal) {
+            if (mProgress == null) {
+                return;
+            }
+            if (!pFinal) {
+                final long now = System.currentTimeMillis();
+                final long last = mLastProgressSave.get();
+                if (now - last < PROGRESS_SAVE_INTERVAL_MILLIS || !mLastProgressSave.compareAndSet(last, now)) {
+                    return;
+                }
+            } else if (!isCancelled() && mErrors.get() == 0) {
+                // the job is done
+                if (mProgressFile.exists() && !mProgressFile.delete()) {
+                    Log.w(IMapView.LOGTAG, "Could not delete " + mProgressFile);
+                }
+                return;
+            }
+            try {
+                mProgress.save(mProgressFile);
+            } catch (final IOException e) {
+                Log.w(IMapView.LOGTAG, "Could not save the cache manager progress in " + mProgressFile, e);
+            }
+        }
+
+        /**
+         * @return an identifier of the job, so that the progress of another job is never used
+         * @since 6.0.2
+         */
+        private String getSignature() {
+            return mManager.mTileSource.name() + "/" + mZoomMin + "-" + mZoomMax + "/" + mTiles.getSignature();
         }
     }
 
@@ -928,6 +1288,16 @@ public class CacheManager {
         return execute(task);
     }
 
+    /**
+     * Remove all cached tiles of the specified coverage.
+     * @since 6.0.2
+     */
+    public CacheManagerTask cleanAreaAsync(Context ctx, MapTileCoverage pCoverage, int zoomMin, int zoomMax) {
+        final CacheManagerTask task = new CacheManagerTask(this, getCleaningAction(), pCoverage, zoomMin, zoomMax);
+        task.addCallback(getCleaningDialog(ctx, task));
+        return execute(task);
+    }
+
     /**
      *
      */
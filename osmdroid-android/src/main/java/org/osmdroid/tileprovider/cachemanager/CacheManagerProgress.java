@@ -0,0 +1,146 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The tiles already processed by a {@link CacheManager.CacheManagerTask}, so that a bulk download
+ * can resume where it stopped, even after the app was killed.
+ * Stored as one bitmap per zoom level, indexed by the rank of the tile among the tiles of the same
+ * zoom level in the task: one bit per tile, that is 25KB for 200k tiles.
+ * The signature identifies the job (tile source, tile list), so that the progress of a job is never
+ * applied to a different job.
+ * Thread-safe.
+ * @since 6.0.2
+ */
+public class CacheManagerProgress {
+
+    private static final int MAGIC = 0x6f736d70; // "osmp"
+    private static final int VERSION = 1;
+
+    private final String mSignature;
+    private final long[][] mBits = new long[MapTileIndex.mMaxZoomLevel + 1][];
+    private int mDoneCount;
+
+    public CacheManagerProgress(final String pSignature) {
+        mSignature = pSignature;
+    }
+
+    public String getSignature() {
+        return mSignature;
+    }
+
+    public synchronized boolean isDone(final int pZoom, final int pRank) {
+        final long[] bits = mBits[pZoom];
+        final int word = pRank >>> 6;
+        return bits != null && word < bits.length && (bits[word] & (1L << pRank)) != 0;
+    }
+
+    public synchronized void setDone(final int pZoom, final int pRank) {
+        long[] bits = mBits[pZoom];
+        final int word = pRank >>> 6;
+        if (bits == null || word >= bits.length) {
+            final long[] grown = new long[Math.max(word + 1, bits == null ? 16 : bits.length * 2)];
+            if (bits != null) {
+                System.arraycopy(bits, 0, grown, 0, bits.length);
+            }
+            bits = grown;
+            mBits[pZoom] = bits;
+        }
+        final long mask = 1L << pRank;
+        if ((bits[word] & mask) == 0) {
+            bits[word] |= mask;
+            mDoneCount++;
+        }
+    }
+
+    /**
+     * @return the number of tiles marked as done
+     */
+    public synchronized int getDoneCount() {
+        return mDoneCount;
+    }
+
+    /**
+     * Writes the progress in a temporary file first, then renames it, so that a crash while saving
+     * doesn't lose the previous progress
+     */
+    public synchronized void save(final File pFile) throws IOException {
+        final File temp = new File(pFile.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(mSignature);
+            for (int zoom = 0; zoom < mBits.length; zoom++) {
+                final long[] bits = mBits[zoom];
+                if (bits == null) {
+                    continue;
+                }
+                out.writeByte(zoom);
+                out.writeInt(bits.length);
+                for (final long word : bits) {
+                    out.writeLong(word);
+                }
+            }
+            out.writeByte(-1);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(pFile)) {
+            // some file systems don't replace an existing file
+            if (!pFile.delete() || !temp.renameTo(pFile)) {
+                throw new IOException("Could not rename " + temp + " to " + pFile);
+            }
+        }
+    }
+
+    /**
+     * @return the progress stored in the file, or null if there's no such file,
+     * if it's corrupted or if it's about another job
+     */
+    public static CacheManagerProgress load(final File pFile, final String pSignature) {
+        if (!pFile.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(pFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !pSignature.equals(in.readUTF())) {
+                return null;
+            }
+            final CacheManagerProgress result = new CacheManagerProgress(pSignature);
+            int zoom;
+            while ((zoom = in.readByte()) != -1) {
+                if (zoom < 0 || zoom > MapTileIndex.mMaxZoomLevel) {
+                    return null;
+                }
+                final long[] bits = new long[in.readInt()];
+                for (int i = 0; i < bits.length; i++) {
+                    bits[i] = in.readLong();
+                    result.mDoneCount += Long.bitCount(bits[i]);
+                }
+                result.mBits[zoom] = bits;
+            }
+            return result;
+        } catch (final IOException e) {
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (final IOException e) {
+                    //NO OP
+                }
+            }
+        }
+    }
+}
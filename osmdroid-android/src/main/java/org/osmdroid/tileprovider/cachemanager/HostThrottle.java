@@ -0,0 +1,86 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+/**
+ * Limits the number of concurrent downloads from a tile server, and adapts that limit to the
+ * server's answers: when the server says "too many requests" the limit is halved and the downloads
+ * are paused for the "Retry-After" duration; then the limit grows again by one after each series of
+ * successful downloads, up to the configured maximum (additive increase, multiplicative decrease).
+ * Thread-safe.
+ * @since 6.0.2
+ */
+class HostThrottle {
+
+    /**
+     * Number of consecutive successful downloads before increasing the concurrency by one
+     */
+    static final int SUCCESSES_BEFORE_INCREASE = 20;
+
+    private final int mMaxConcurrency;
+    private int mConcurrency;
+    private int mInFlight;
+    private long mPausedUntil;
+    private int mSuccesses;
+
+    HostThrottle(final int pMaxConcurrency) {
+        mMaxConcurrency = Math.max(1, pMaxConcurrency);
+        mConcurrency = mMaxConcurrency;
+    }
+
+    /**
+     * Waits until a download is allowed
+     */
+    synchronized void acquire() throws InterruptedException {
+        while (true) {
+            final long pause = mPausedUntil - System.currentTimeMillis();
+            if (pause > 0) {
+                wait(pause);
+            } else if (mInFlight < mConcurrency) {
+                mInFlight++;
+                return;
+            } else {
+                wait();
+            }
+        }
+    }
+
+    /**
+     * Ends a successful download
+     */
+    synchronized void onSuccess() {
+        mInFlight--;
+        mSuccesses++;
+        if (mSuccesses >= SUCCESSES_BEFORE_INCREASE && mConcurrency < mMaxConcurrency) {
+            mConcurrency++;
+            mSuccesses = 0;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Ends a download that failed for reasons unrelated to throttling
+     */
+    synchronized void onFailure() {
+        mInFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Ends a download that the server refused because of the request rate
+     * @param pRetryAfterMillis how long the server wants us to wait
+     */
+    synchronized void onThrottled(final long pRetryAfterMillis) {
+        mInFlight--;
+        mSuccesses = 0;
+        mConcurrency = Math.max(1, mConcurrency / 2);
+        mPausedUntil = Math.max(mPausedUntil, System.currentTimeMillis() + pRetryAfterMillis);
+        notifyAll();
+    }
+
+    synchronized int getConcurrency() {
+        return mConcurrency;
+    }
+
+    synchronized long getPausedUntil() {
+        return mPausedUntil;
+    }
+}
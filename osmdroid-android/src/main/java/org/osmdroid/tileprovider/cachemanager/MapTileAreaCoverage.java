@@ -0,0 +1,155 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.MapTileCoverage;
+import org.osmdroid.util.MapTileIndex;
+import org.osmdroid.util.MapTileIndexIterator;
+import org.osmdroid.util.MyMath;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The theoretical tiles covered by a bounding box over a range of zoom levels, enumerated lazily.
+ * For each zoom level the tiles make a rectangle, possibly crossing the antimeridian,
+ * which means that the number of tiles is computed without enumerating them.
+ * @since 6.0.2
+ */
+public class MapTileAreaCoverage implements MapTileCoverage {
+
+    private final int mZoomMin;
+    private final int mZoomMax;
+    /** Per zoom level, indexed by zoom - mZoomMin */
+    private final int[] mLeft;
+    private final int[] mTop;
+    private final int[] mWidth;
+    private final int[] mHeight;
+
+    public MapTileAreaCoverage(final BoundingBox pBB, final int pZoomMin, final int pZoomMax) {
+        mZoomMin = pZoomMin;
+        mZoomMax = pZoomMax;
+        final int count = Math.max(0, pZoomMax - pZoomMin + 1);
+        mLeft = new int[count];
+        mTop = new int[count];
+        mWidth = new int[count];
+        mHeight = new int[count];
+        for (int i = 0; i < count; i++) {
+            final int zoom = pZoomMin + i;
+            final int mapTileUpperBound = 1 << zoom;
+            final int left = getTileX(pBB.getLonWest(), zoom);
+            final int right = getTileX(pBB.getLonEast(), zoom);
+            int width = right - left + 1; // handling the modulo
+            if (width <= 0) {
+                width += mapTileUpperBound;
+            }
+            // no vertical wrap: latitudes beyond the Mercator limits are on the first or last row
+            final int top = clip(getTileY(pBB.getLatNorth(), zoom), mapTileUpperBound);
+            final int bottom = clip(getTileY(pBB.getLatSouth(), zoom), mapTileUpperBound);
+            mLeft[i] = MyMath.mod(left, mapTileUpperBound);
+            mTop[i] = top;
+            mWidth[i] = Math.min(width, mapTileUpperBound); // e.g. from -180 to 180
+            mHeight[i] = Math.max(0, bottom - top + 1);
+        }
+    }
+
+    /**
+     * @return the tile x of a longitude, as in {@link CacheManager#getMapTileFromCoordinates(double, double, int)}
+     */
+    static int getTileX(final double pLongitude, final int pZoom) {
+        return (int) Math.floor((pLongitude + 180) / 360 * (1 << pZoom));
+    }
+
+    /**
+     * @return the tile y of a latitude, as in {@link CacheManager#getMapTileFromCoordinates(double, double, int)}
+     */
+    static int getTileY(final double pLatitude, final int pZoom) {
+        final double radians = pLatitude * Math.PI / 180;
+        return (int) Math.floor((1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2 * (1 << pZoom));
+    }
+
+    private static int clip(final int pValue, final int pMapTileUpperBound) {
+        return Math.max(0, Math.min(pMapTileUpperBound - 1, pValue));
+    }
+
+    public int getZoomMin() {
+        return mZoomMin;
+    }
+
+    public int getZoomMax() {
+        return mZoomMax;
+    }
+
+    /**
+     * @return the number of tiles for that zoom level
+     */
+    public long getSize(final int pZoomLevel) {
+        if (pZoomLevel < mZoomMin || pZoomLevel > mZoomMax) {
+            return 0;
+        }
+        final int index = pZoomLevel - mZoomMin;
+        return (long) mWidth[index] * mHeight[index];
+    }
+
+    @Override
+    public long getSize() {
+        long result = 0;
+        for (int zoom = mZoomMin; zoom <= mZoomMax; zoom++) {
+            result += getSize(zoom);
+        }
+        return result;
+    }
+
+    @Override
+    public String getSignature() {
+        return "area/" + mZoomMin + "-" + mZoomMax + "/" + getSize()
+                + "/" + Integer.toHexString(Arrays.hashCode(mLeft))
+                + "." + Integer.toHexString(Arrays.hashCode(mTop))
+                + "." + Integer.toHexString(Arrays.hashCode(mWidth))
+                + "." + Integer.toHexString(Arrays.hashCode(mHeight));
+    }
+
+    @Override
+    public MapTileIndexIterator iterator() {
+        return new MapTileIndexIterator() {
+
+            private int mIndex;
+            private int mI;
+            private int mJ;
+
+            {
+                skipEmptyZoomLevels();
+            }
+
+            private void skipEmptyZoomLevels() {
+                while (mIndex < mWidth.length && (mWidth[mIndex] == 0 || mHeight[mIndex] == 0)) {
+                    mIndex++;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return mIndex < mWidth.length;
+            }
+
+            @Override
+            public long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final int zoom = mZoomMin + mIndex;
+                final int mapTileUpperBound = 1 << zoom;
+                final int x = (mLeft[mIndex] + mI) % mapTileUpperBound;
+                final long result = MapTileIndex.getTileIndex(zoom, x, mTop[mIndex] + mJ);
+                if (++mJ == mHeight[mIndex]) {
+                    mJ = 0;
+                    if (++mI == mWidth[mIndex]) {
+                        mI = 0;
+                        mIndex++;
+                        skipEmptyZoomLevels();
+                    }
+                }
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,235 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.util.MapTileCoverage;
+import org.osmdroid.util.MapTileIndex;
+import org.osmdroid.util.MapTileIndexIterator;
+import org.osmdroid.util.TileSystem;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The theoretical tiles covered by a polygon over a range of zoom levels, enumerated lazily,
+ * so that an irregular area is not rounded up to its bounding box.
+ * <p>
+ * The tiles are computed row by row, by scanline rasterisation in Mercator tile coordinates.
+ * Each connected part of the polygon within a row of tiles is bounded by pieces of the polygon edges
+ * and by pieces of the row borders that are inside the polygon. Therefore the columns covered in that row
+ * are the union of the x ranges of the edges clipped to the row, and of the inside intervals
+ * on the top and bottom borders of the row (even-odd rule).
+ * Any tile that intersects the polygon is included, even if only on its border.
+ * The polygon is not supposed to cross the antimeridian.
+ * @since 6.0.2
+ */
+public class MapTilePolygonCoverage implements MapTileCoverage {
+
+    private final int mZoomMin;
+    private final int mZoomMax;
+    /** Vertices in "01" coordinates (cf. {@link TileSystem#getX01FromLongitude(double, boolean)}) */
+    private final double[] mX01;
+    private final double[] mY01;
+    private final double mMinY01;
+    private final double mMaxY01;
+    private long mSize = -1;
+
+    /**
+     * @param pPolygon the vertices of the polygon; it is closed implicitly
+     */
+    public MapTilePolygonCoverage(final List<GeoPoint> pPolygon, final int pZoomMin, final int pZoomMax) {
+        mZoomMin = pZoomMin;
+        mZoomMax = pZoomMax;
+        final int size = pPolygon.size();
+        mX01 = new double[size];
+        mY01 = new double[size];
+        double minY01 = Double.MAX_VALUE;
+        double maxY01 = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            final GeoPoint geoPoint = pPolygon.get(i);
+            mX01[i] = TileSystem.getX01FromLongitude(geoPoint.getLongitude(), true);
+            mY01[i] = TileSystem.getY01FromLatitude(geoPoint.getLatitude(), true);
+            minY01 = Math.min(minY01, mY01[i]);
+            maxY01 = Math.max(maxY01, mY01[i]);
+        }
+        mMinY01 = minY01;
+        mMaxY01 = maxY01;
+    }
+
+    @Override
+    public synchronized long getSize() {
+        if (mSize == -1) {
+            long result = 0;
+            final MapTileRowRuns row = new MapTileRowRuns();
+            for (int zoom = mZoomMin; zoom <= mZoomMax; zoom++) {
+                final int last = getLastRow(zoom);
+                for (int y = getFirstRow(zoom); y <= last; y++) {
+                    computeRow(zoom, y, row);
+                    result += row.getSize();
+                }
+            }
+            mSize = result;
+        }
+        return mSize;
+    }
+
+    @Override
+    public String getSignature() {
+        return "polygon/" + mZoomMin + "-" + mZoomMax + "/" + mX01.length
+                + "/" + Integer.toHexString(Arrays.hashCode(mX01))
+                + "." + Integer.toHexString(Arrays.hashCode(mY01));
+    }
+
+    @Override
+    public MapTileIndexIterator iterator() {
+        return new MapTileIndexIterator() {
+
+            private final MapTileRowRuns mRow = new MapTileRowRuns();
+            private int mZoom = mZoomMin;
+            private int mY;
+            private int mRun;
+            private int mX;
+            private boolean mHasNext;
+
+            {
+                if (mX01.length > 0 && mZoom <= mZoomMax) {
+                    mY = getFirstRow(mZoom) - 1;
+                    mHasNext = nextRow();
+                }
+            }
+
+            /**
+             * Moves to the next row that has tiles
+             */
+            private boolean nextRow() {
+                while (mZoom <= mZoomMax) {
+                    mY++;
+                    if (mY > getLastRow(mZoom)) {
+                        mZoom++;
+                        if (mZoom <= mZoomMax) {
+                            mY = getFirstRow(mZoom) - 1;
+                        }
+                        continue;
+                    }
+                    computeRow(mZoom, mY, mRow);
+                    if (mRow.getCount() > 0) {
+                        mRun = 0;
+                        mX = mRow.getFirst(0);
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return mHasNext;
+            }
+
+            @Override
+            public long next() {
+                if (!mHasNext) {
+                    throw new NoSuchElementException();
+                }
+                final long result = MapTileIndex.getTileIndex(mZoom, mX, mY);
+                if (mX < mRow.getLast(mRun)) {
+                    mX++;
+                } else if (++mRun < mRow.getCount()) {
+                    mX = mRow.getFirst(mRun);
+                } else {
+                    mHasNext = nextRow();
+                }
+                return result;
+            }
+        };
+    }
+
+    private int getFirstRow(final int pZoom) {
+        return clip((int) Math.floor(mMinY01 * (1 << pZoom)), pZoom);
+    }
+
+    private int getLastRow(final int pZoom) {
+        return clip((int) Math.floor(mMaxY01 * (1 << pZoom)), pZoom);
+    }
+
+    private static int clip(final int pTile, final int pZoom) {
+        return Math.max(0, Math.min((1 << pZoom) - 1, pTile));
+    }
+
+    /**
+     * Computes the runs of columns covered by the polygon on a row of tiles
+     */
+    private void computeRow(final int pZoom, final int pY, final MapTileRowRuns pRow) {
+        pRow.clear();
+        final double mapSize = 1 << pZoom;
+        final double top = pY;
+        final double bottom = pY + 1;
+        final int size = mX01.length;
+        for (int i = 0; i < size; i++) {
+            final int j = (i + 1) % size;
+            final double x1 = mX01[i] * mapSize;
+            final double y1 = mY01[i] * mapSize;
+            final double x2 = mX01[j] * mapSize;
+            final double y2 = mY01[j] * mapSize;
+            if (Math.max(y1, y2) < top || Math.min(y1, y2) > bottom) {
+                continue;
+            }
+            if (y1 == y2) {
+                addInterval(Math.min(x1, x2), Math.max(x1, x2), pZoom, pRow);
+                continue;
+            }
+            // the edge clipped to the row
+            final double xa = getX(x1, y1, x2, y2, Math.max(Math.min(y1, y2), top));
+            final double xb = getX(x1, y1, x2, y2, Math.min(Math.max(y1, y2), bottom));
+            addInterval(Math.min(xa, xb), Math.max(xa, xb), pZoom, pRow);
+        }
+        addInsideIntervals(top, mapSize, pZoom, pRow);
+        addInsideIntervals(bottom, mapSize, pZoom, pRow);
+        pRow.merge();
+    }
+
+    /**
+     * Adds the intervals of a horizontal line that are inside the polygon
+     */
+    private void addInsideIntervals(final double pLineY, final double pMapSize, final int pZoom, final MapTileRowRuns pRow) {
+        final int size = mX01.length;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            final int j = (i + 1) % size;
+            final double y1 = mY01[i] * pMapSize;
+            final double y2 = mY01[j] * pMapSize;
+            if ((y1 <= pLineY && pLineY < y2) || (y2 <= pLineY && pLineY < y1)) {
+                pRow.mScratch = ensureCapacity(pRow.mScratch, count + 1);
+                pRow.mScratch[count++] = getX(mX01[i] * pMapSize, y1, mX01[j] * pMapSize, y2, pLineY);
+            }
+        }
+        if (count < 2) {
+            return;
+        }
+        Arrays.sort(pRow.mScratch, 0, count);
+        for (int i = 0; i + 1 < count; i += 2) {
+            addInterval(pRow.mScratch[i], pRow.mScratch[i + 1], pZoom, pRow);
+        }
+    }
+
+    private static double getX(final double pX1, final double pY1, final double pX2, final double pY2,
+                               final double pY) {
+        return pX1 + (pY - pY1) * (pX2 - pX1) / (pY2 - pY1);
+    }
+
+    private static void addInterval(final double pMinX, final double pMaxX, final int pZoom,
+                                    final MapTileRowRuns pRuns) {
+        final int first = clip((int) Math.floor(pMinX), pZoom);
+        final int last = clip(Math.max(first, (int) Math.ceil(pMaxX) - 1), pZoom);
+        pRuns.add(first, last);
+    }
+
+    private static double[] ensureCapacity(final double[] pArray, final int pCapacity) {
+        if (pArray.length >= pCapacity) {
+            return pArray;
+        }
+        final double[] result = new double[Math.max(pCapacity, pArray.length * 2)];
+        System.arraycopy(pArray, 0, result, 0, pArray.length);
+        return result;
+    }
+}
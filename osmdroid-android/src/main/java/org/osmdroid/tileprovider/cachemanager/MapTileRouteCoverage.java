@@ -0,0 +1,347 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.util.MapTileCoverage;
+import org.osmdroid.util.MapTileIndex;
+import org.osmdroid.util.MapTileIndexIterator;
+import org.osmdroid.util.MyMath;
+import org.osmdroid.util.TileSystem;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The theoretical tiles covered by a route corridor over a range of zoom levels, enumerated lazily.
+ * <p>
+ * For each zoom level the route is rasterised in Mercator tile coordinates with a supercover line
+ * algorithm: each segment gets all the tiles it goes through, both neighbours included when it goes
+ * exactly through a tile corner. Each of those tiles is then extended by a buffer, in tiles or in meters,
+ * in all directions. The segments take the shortest way, possibly across the antimeridian.
+ * <p>
+ * The tiles of a zoom level are computed when the iteration reaches that zoom level, and only the
+ * tiles of the rasterised route are stored, as sorted primitive longs, not the tiles of the buffer.
+ * @since 6.0.2
+ */
+public class MapTileRouteCoverage implements MapTileCoverage {
+
+    private final int mZoomMin;
+    private final int mZoomMax;
+    /** Vertices in "01" coordinates (cf. {@link TileSystem#getX01FromLongitude(double, boolean)}) */
+    private final double[] mX01;
+    private final double[] mY01;
+    /** The highest absolute latitude, where the tiles are the smallest on the ground */
+    private final double mMaxAbsLatitude;
+    private int mBufferTiles;
+    private double mBufferMeters;
+    private long mSize = -1;
+
+    public MapTileRouteCoverage(final List<GeoPoint> pRoute, final int pZoomMin, final int pZoomMax) {
+        mZoomMin = pZoomMin;
+        mZoomMax = pZoomMax;
+        final int size = pRoute.size();
+        mX01 = new double[size];
+        mY01 = new double[size];
+        double maxAbsLatitude = 0;
+        for (int i = 0; i < size; i++) {
+            final GeoPoint geoPoint = pRoute.get(i);
+            mX01[i] = TileSystem.getX01FromLongitude(geoPoint.getLongitude(), true);
+            mY01[i] = TileSystem.getY01FromLatitude(geoPoint.getLatitude(), true);
+            maxAbsLatitude = Math.max(maxAbsLatitude, Math.abs(geoPoint.getLatitude()));
+        }
+        mMaxAbsLatitude = Math.min(maxAbsLatitude, TileSystem.MaxLatitude);
+    }
+
+    /**
+     * Sets the buffer around the route as a number of tiles, whatever the zoom level (default 0).
+     * To be called before the iteration.
+     */
+    public synchronized void setBufferTiles(final int pBufferTiles) {
+        // beyond the map size at the highest zoom level, the buffer covers the whole map anyway
+        mBufferTiles = Math.max(0, Math.min(pBufferTiles, 1 << mZoomMax));
+        mBufferMeters = 0;
+        mSize = -1;
+    }
+
+    /**
+     * Sets the buffer around the route in meters, converted into a number of tiles for each zoom level,
+     * at the highest latitude of the route. To be called before the iteration.
+     */
+    public synchronized void setBufferMeters(final double pBufferMeters) {
+        mBufferMeters = Math.max(0, pBufferMeters);
+        mBufferTiles = 0;
+        mSize = -1;
+    }
+
+    /**
+     * @return the buffer in tiles for that zoom level
+     */
+    public synchronized int getBufferTiles(final int pZoomLevel) {
+        if (mBufferMeters == 0) {
+            return mBufferTiles;
+        }
+        final double tileMeters = TileSystem.GroundResolution(mMaxAbsLatitude, pZoomLevel) * TileSystem.getTileSize();
+        return (int) Math.min(Math.ceil(mBufferMeters / tileMeters), 1 << pZoomLevel);
+    }
+
+    @Override
+    public synchronized long getSize() {
+        if (mSize == -1) {
+            long result = 0;
+            final MapTileRowRuns row = new MapTileRowRuns();
+            for (int zoom = mZoomMin; zoom <= mZoomMax; zoom++) {
+                final long[] cells = computeCells(zoom);
+                final int buffer = getBufferTiles(zoom);
+                int y = getNextRow(cells, 0, zoom, buffer);
+                while (y != -1) {
+                    computeRow(cells, y, zoom, buffer, row);
+                    result += row.getSize();
+                    y = getNextRow(cells, y + 1, zoom, buffer);
+                }
+            }
+            mSize = result;
+        }
+        return mSize;
+    }
+
+    @Override
+    public synchronized String getSignature() {
+        return "route/" + mZoomMin + "-" + mZoomMax + "/" + mX01.length
+                + "/" + Integer.toHexString(Arrays.hashCode(mX01))
+                + "." + Integer.toHexString(Arrays.hashCode(mY01))
+                + "/" + mBufferTiles + "/" + mBufferMeters;
+    }
+
+    @Override
+    public MapTileIndexIterator iterator() {
+        return new MapTileIndexIterator() {
+
+            private final MapTileRowRuns mRow = new MapTileRowRuns();
+            private int mZoom = mZoomMin - 1;
+            private long[] mCells = new long[0];
+            private int mBuffer;
+            private int mY = -1;
+            private int mRun;
+            private int mX;
+            private boolean mHasNext = nextRow();
+
+            /**
+             * Moves to the next row that has tiles, possibly on the next zoom levels
+             */
+            private boolean nextRow() {
+                int y;
+                while ((y = getNextRow(mCells, mY + 1, mZoom, mBuffer)) == -1) {
+                    if (++mZoom > mZoomMax) {
+                        return false;
+                    }
+                    mCells = computeCells(mZoom);
+                    mBuffer = getBufferTiles(mZoom);
+                    mY = -1;
+                }
+                mY = y;
+                computeRow(mCells, mY, mZoom, mBuffer, mRow);
+                mRun = 0;
+                mX = mRow.getFirst(0);
+                return true;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return mHasNext;
+            }
+
+            @Override
+            public long next() {
+                if (!mHasNext) {
+                    throw new NoSuchElementException();
+                }
+                final long result = MapTileIndex.getTileIndex(mZoom, mX, mY);
+                if (mX < mRow.getLast(mRun)) {
+                    mX++;
+                } else if (++mRun < mRow.getCount()) {
+                    mX = mRow.getFirst(mRun);
+                } else {
+                    mHasNext = nextRow();
+                }
+                return result;
+            }
+        };
+    }
+
+    private static long getKey(final int pY, final int pX) {
+        return ((long) pY << 32) | pX;
+    }
+
+    private static int getRow(final long pKey) {
+        return (int) (pKey >>> 32);
+    }
+
+    private static int getColumn(final long pKey) {
+        return (int) pKey;
+    }
+
+    /**
+     * @return the index of the first cell whose row is at or after that row
+     */
+    private static int getFirstIndex(final long[] pCells, final int pRow) {
+        if (pRow <= 0) {
+            return 0;
+        }
+        final int index = Arrays.binarySearch(pCells, getKey(pRow, 0));
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return the first row at or after that row that has tiles, the buffer included, or -1
+     */
+    private static int getNextRow(final long[] pCells, final int pRow, final int pZoom, final int pBuffer) {
+        final int index = getFirstIndex(pCells, pRow - pBuffer);
+        if (index == pCells.length) {
+            return -1;
+        }
+        final int row = Math.max(pRow, getRow(pCells[index]) - pBuffer);
+        return row < 1 << pZoom ? row : -1;
+    }
+
+    /**
+     * Computes the runs of a row: the tiles of the route on that row and on the rows of the buffer
+     * around it, extended by the buffer
+     */
+    private static void computeRow(final long[] pCells, final int pY, final int pZoom, final int pBuffer,
+                                   final MapTileRowRuns pRow) {
+        pRow.clear();
+        final int mapTileUpperBound = 1 << pZoom;
+        final int end = getFirstIndex(pCells, pY + pBuffer + 1);
+        for (int index = getFirstIndex(pCells, pY - pBuffer); index < end; index++) {
+            final int x = getColumn(pCells[index]);
+            if (pBuffer >= mapTileUpperBound / 2) { // 2 * buffer + 1 tiles cover the whole row
+                pRow.add(0, mapTileUpperBound - 1);
+                continue;
+            }
+            final int first = x - pBuffer;
+            final int last = x + pBuffer;
+            if (first < 0) { // across the antimeridian
+                pRow.add(first + mapTileUpperBound, mapTileUpperBound - 1);
+                pRow.add(0, last);
+            } else if (last >= mapTileUpperBound) {
+                pRow.add(first, mapTileUpperBound - 1);
+                pRow.add(0, last - mapTileUpperBound);
+            } else {
+                pRow.add(first, last);
+            }
+        }
+        pRow.merge();
+    }
+
+    /**
+     * @return the sorted distinct keys (row, column) of the rasterised route for that zoom level,
+     * without the buffer
+     */
+    private long[] computeCells(final int pZoom) {
+        final Cells cells = new Cells(pZoom);
+        final double mapSize = 1 << pZoom;
+        final int size = mX01.length;
+        if (size == 1) {
+            cells.add(MyMath.floorToInt(mX01[0] * mapSize), MyMath.floorToInt(mY01[0] * mapSize));
+        }
+        for (int i = 1; i < size; i++) {
+            double x1 = mX01[i];
+            final double x0 = mX01[i - 1];
+            // the shortest way, possibly across the antimeridian
+            if (x1 - x0 > .5) {
+                x1 -= 1;
+            } else if (x0 - x1 > .5) {
+                x1 += 1;
+            }
+            rasterise(x0 * mapSize, mY01[i - 1] * mapSize, x1 * mapSize, mY01[i] * mapSize, cells);
+        }
+        return cells.toSortedArray();
+    }
+
+    /**
+     * Supercover rasterisation of a segment: all the tiles the segment goes through
+     */
+    private static void rasterise(final double pX0, final double pY0, final double pX1, final double pY1,
+                                  final Cells pCells) {
+        int x = MyMath.floorToInt(pX0);
+        int y = MyMath.floorToInt(pY0);
+        final int endX = MyMath.floorToInt(pX1);
+        final int endY = MyMath.floorToInt(pY1);
+        final double dx = pX1 - pX0;
+        final double dy = pY1 - pY0;
+        final int stepX = dx > 0 ? 1 : -1;
+        final int stepY = dy > 0 ? 1 : -1;
+        // "t" is the position on the segment, from 0 to 1
+        final double deltaTX = dx == 0 ? Double.POSITIVE_INFINITY : 1 / Math.abs(dx);
+        final double deltaTY = dy == 0 ? Double.POSITIVE_INFINITY : 1 / Math.abs(dy);
+        double nextTX = dx == 0 ? Double.POSITIVE_INFINITY : (dx > 0 ? x + 1 - pX0 : pX0 - x) * deltaTX;
+        double nextTY = dy == 0 ? Double.POSITIVE_INFINITY : (dy > 0 ? y + 1 - pY0 : pY0 - y) * deltaTY;
+        pCells.add(x, y);
+        while (x != endX || y != endY) {
+            // the end tile is reached in a finite number of steps, whatever the rounding errors
+            if (y == endY || (x != endX && nextTX < nextTY)) {
+                x += stepX;
+                nextTX += deltaTX;
+            } else if (x == endX || nextTY < nextTX) {
+                y += stepY;
+                nextTY += deltaTY;
+            } else { // exactly through a corner: both neighbours are touched
+                pCells.add(x + stepX, y);
+                pCells.add(x, y + stepY);
+                x += stepX;
+                y += stepY;
+                nextTX += deltaTX;
+                nextTY += deltaTY;
+            }
+            pCells.add(x, y);
+        }
+    }
+
+    /**
+     * The tiles of the rasterised route as primitive longs
+     */
+    private static class Cells {
+
+        private final int mMapTileUpperBound;
+        private long[] mKeys = new long[64];
+        private int mCount;
+
+        Cells(final int pZoom) {
+            mMapTileUpperBound = 1 << pZoom;
+        }
+
+        void add(final int pX, final int pY) {
+            final int x = MyMath.mod(pX, mMapTileUpperBound);
+            final int y = Math.max(0, Math.min(mMapTileUpperBound - 1, pY));
+            final long key = getKey(y, x);
+            // avoiding the obvious duplicates of consecutive tiles
+            if (mCount > 0 && mKeys[mCount - 1] == key) {
+                return;
+            }
+            ensureCapacity(mCount + 1);
+            mKeys[mCount++] = key;
+        }
+
+        private void ensureCapacity(final int pCapacity) {
+            if (mKeys.length >= pCapacity) {
+                return;
+            }
+            final long[] keys = new long[Math.max(pCapacity, mKeys.length * 2)];
+            System.arraycopy(mKeys, 0, keys, 0, mCount);
+            mKeys = keys;
+        }
+
+        long[] toSortedArray() {
+            Arrays.sort(mKeys, 0, mCount);
+            int distinct = 0;
+            for (int i = 0; i < mCount; i++) {
+                if (distinct == 0 || mKeys[i] != mKeys[distinct - 1]) {
+                    mKeys[distinct++] = mKeys[i];
+                }
+            }
+            final long[] result = new long[distinct];
+            System.arraycopy(mKeys, 0, result, 0, distinct);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+import java.util.Arrays;
+
+/**
+ * Runs of columns covered on a row of tiles, each run being stored as a long:
+ * first column in the high bits, last column in the low bits
+ * @since 6.0.2
+ */
+class MapTileRowRuns {
+
+    private long[] mRuns = new long[16];
+    private int mCount;
+    /** Scratch buffer for the computation of the runs, in order not to allocate for each row */
+    double[] mScratch = new double[16];
+
+    void clear() {
+        mCount = 0;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    int getFirst(final int pIndex) {
+        return (int) (mRuns[pIndex] >>> 32);
+    }
+
+    int getLast(final int pIndex) {
+        return (int) mRuns[pIndex];
+    }
+
+    /**
+     * @return the number of tiles of all runs
+     */
+    long getSize() {
+        long result = 0;
+        for (int i = 0; i < mCount; i++) {
+            result += getLast(i) - getFirst(i) + 1;
+        }
+        return result;
+    }
+
+    /**
+     * @param pFirst non-negative
+     * @param pLast non-negative, not less than pFirst
+     */
+    void add(final int pFirst, final int pLast) {
+        if (mCount == mRuns.length) {
+            final long[] runs = new long[mCount * 2];
+            System.arraycopy(mRuns, 0, runs, 0, mCount);
+            mRuns = runs;
+        }
+        mRuns[mCount++] = ((long) pFirst << 32) | pLast;
+    }
+
+    /**
+     * Sorts the runs and merges the overlapping or contiguous ones
+     */
+    void merge() {
+        if (mCount <= 1) {
+            return;
+        }
+        Arrays.sort(mRuns, 0, mCount);
+        int merged = 0;
+        for (int i = 1; i < mCount; i++) {
+            if (getFirst(i) <= getLast(merged) + 1) {
+                if (getLast(i) > getLast(merged)) {
+                    mRuns[merged] = ((long) getFirst(merged) << 32) | getLast(i);
+                }
+            } else {
+                mRuns[++merged] = mRuns[i];
+            }
+        }
+        mCount = merged + 1;
+    }
+}
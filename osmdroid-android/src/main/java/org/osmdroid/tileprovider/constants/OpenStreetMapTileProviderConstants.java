@@ -39,4 +39,20 @@ public class OpenStreetMapTileProviderConstants {
 	 * @since 5.1
 	 */
 	public static final String HTTP_EXPIRES_HEADER_FORMAT = "EEE, dd MMM yyyy HH:mm:ss z";
+
+	/**
+	 * validator headers sent by the tile server, stored with the tile so that an expired tile
+	 * can be revalidated with a conditional request instead of being downloaded again
+	 * @since 6.0.2
+	 */
+	public static final String HTTP_ETAG_HEADER = "ETag";
+	public static final String HTTP_LAST_MODIFIED_HEADER = "Last-Modified";
+	public static final String HTTP_IF_NONE_MATCH_HEADER = "If-None-Match";
+	public static final String HTTP_IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+
+	/**
+	 * header sent by a server that refuses requests (429, 503) to tell when to try again
+	 * @since 6.0.2
+	 */
+	public static final String HTTP_RETRY_AFTER_HEADER = "Retry-After";
 }
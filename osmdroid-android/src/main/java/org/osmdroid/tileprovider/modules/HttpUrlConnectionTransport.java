@@ -0,0 +1,121 @@
+package org.osmdroid.tileprovider.modules;
+
+import org.osmdroid.config.Configuration;
+import org.osmdroid.tileprovider.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * {@link IHttpTransport} based on {@link HttpURLConnection}.
+ * The connections are never explicitly disconnected: the response bodies are fully read and closed
+ * instead, so that the platform keeps the connections alive and reuses them for the next requests
+ * to the same host (see the "http.keepAlive" and "http.maxConnections" system properties).
+ * @since 6.0.2
+ */
+public class HttpUrlConnectionTransport implements IHttpTransport {
+
+	/**
+	 * If more than this is left unread in a response, draining it is not worth it:
+	 * the connection is closed instead
+	 */
+	private static final int MAX_DRAINED_BYTES = 64 * 1024;
+
+	@Override
+	public Response get(final String pUrl, final Map<String, String> pRequestProperties) throws IOException {
+		final HttpURLConnection connection;
+		if (Configuration.getInstance().getHttpProxy() != null) {
+			connection = (HttpURLConnection) new URL(pUrl).openConnection(Configuration.getInstance().getHttpProxy());
+		} else {
+			connection = (HttpURLConnection) new URL(pUrl).openConnection();
+		}
+		connection.setUseCaches(true);
+		connection.setRequestProperty(Configuration.getInstance().getUserAgentHttpHeader(), Configuration.getInstance().getUserAgentValue());
+		for (final Map.Entry<String, String> entry : Configuration.getInstance().getAdditionalHttpRequestProperties().entrySet()) {
+			connection.setRequestProperty(entry.getKey(), entry.getValue());
+		}
+		if (pRequestProperties != null) {
+			for (final Map.Entry<String, String> entry : pRequestProperties.entrySet()) {
+				connection.setRequestProperty(entry.getKey(), entry.getValue());
+			}
+		}
+		try {
+			connection.connect();
+		} catch (final IOException e) {
+			connection.disconnect();
+			throw e;
+		}
+		return new HttpUrlConnectionResponse(connection);
+	}
+
+	private static class HttpUrlConnectionResponse implements Response {
+
+		private final HttpURLConnection mConnection;
+		private InputStream mInputStream;
+
+		private HttpUrlConnectionResponse(final HttpURLConnection pConnection) {
+			mConnection = pConnection;
+		}
+
+		@Override
+		public int getResponseCode() throws IOException {
+			return mConnection.getResponseCode();
+		}
+
+		@Override
+		public String getResponseMessage() throws IOException {
+			return mConnection.getResponseMessage();
+		}
+
+		@Override
+		public String getHeaderField(final String pName) {
+			return mConnection.getHeaderField(pName);
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			if (mInputStream == null) {
+				mInputStream = mConnection.getInputStream();
+			}
+			return mInputStream;
+		}
+
+		/**
+		 * Reads what's left of the body (or of the error body), so that the connection goes back to the pool
+		 */
+		@Override
+		public void close() {
+			InputStream inputStream = mInputStream;
+			if (inputStream == null) {
+				try {
+					inputStream = mConnection.getInputStream();
+				} catch (final IOException e) {
+					inputStream = mConnection.getErrorStream();
+				}
+			}
+			if (inputStream == null) {
+				return;
+			}
+			boolean drained = false;
+			try {
+				final byte[] buffer = new byte[StreamUtils.IO_BUFFER_SIZE];
+				int total = 0;
+				int read;
+				while (total <= MAX_DRAINED_BYTES && (read = inputStream.read(buffer)) != -1) {
+					total += read;
+				}
+				drained = total <= MAX_DRAINED_BYTES;
+			} catch (final IOException e) {
+				// the connection cannot be reused
+			} finally {
+				StreamUtils.closeStream(inputStream);
+				if (!drained) {
+					mConnection.disconnect();
+				}
+			}
+		}
+	}
+}
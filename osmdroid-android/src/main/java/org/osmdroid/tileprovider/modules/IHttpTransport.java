@@ -0,0 +1,56 @@
+package org.osmdroid.tileprovider.modules;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * The way tiles are fetched from a tile server, used by {@link MapTileDownloader} and by the
+ * {@link org.osmdroid.tileprovider.cachemanager.CacheManager}.
+ * The default implementation, {@link HttpUrlConnectionTransport}, keeps the connections alive
+ * between requests to the same host. Applications that ship an HTTP/2 client can plug it here,
+ * so that a worker can multiplex many tile requests over a single connection.
+ * <p>
+ * Implementations are used by several threads at the same time.
+ * @since 6.0.2
+ */
+public interface IHttpTransport {
+
+	/**
+	 * Sends a GET request.
+	 * The user agent and the additional request properties of the
+	 * {@link org.osmdroid.config.IConfigurationProvider} are expected to be sent too.
+	 *
+	 * @param pUrl the tile URL
+	 * @param pRequestProperties additional request headers for this request only, may be null
+	 * @return the response, that must be closed so that the connection can be reused
+	 */
+	Response get(final String pUrl, final Map<String, String> pRequestProperties) throws IOException;
+
+	/**
+	 * @since 6.0.2
+	 */
+	interface Response extends Closeable {
+
+		int getResponseCode() throws IOException;
+
+		String getResponseMessage() throws IOException;
+
+		/**
+		 * @return the value of a response header, or null
+		 */
+		String getHeaderField(final String pName);
+
+		/**
+		 * @return the response body
+		 */
+		InputStream getInputStream() throws IOException;
+
+		/**
+		 * Releases the response; the underlying connection can then be reused for the next request
+		 */
+		@Override
+		void close();
+	}
+}
@@ -0,0 +1,40 @@
+package org.osmdroid.tileprovider.modules;
+
+import java.io.InputStream;
+
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+
+/**
+ * A {@link IFilesystemCache} that stores the HTTP validators of the tiles, so that an expired tile
+ * can be revalidated with a conditional request instead of being downloaded again.
+ * Optional: the downloaders check whether the cache implements it.
+ *
+ * @since 6.0.2
+ */
+public interface IRevalidatingFilesystemCache extends IFilesystemCache {
+
+	/**
+	 * Save an InputStream as the specified tile, with the HTTP validators sent by the server
+	 *
+	 * @param pValidators the ETag/Last-Modified of the tile, or null
+	 * @see #saveFile(ITileSource, long, InputStream, Long)
+	 */
+	boolean saveFile(final ITileSource pTileSourceInfo, final long pMapTileIndex,
+					 final InputStream pStream, final Long pExpirationTime, final TileValidators pValidators);
+
+	/**
+	 * Gets the HTTP validators stored with a tile
+	 *
+	 * @return null if the server did not send any or if the tile is not cached
+	 */
+	TileValidators getValidators(final ITileSource pTileSource, final long pMapTileIndex);
+
+	/**
+	 * Extends the expiration of a cached tile without rewriting it,
+	 * typically after the server answered "304 Not Modified"
+	 *
+	 * @param pExpirationTime the new expiration sent by the server, or null for the default policy
+	 * @return true if the tile is cached and its expiration was updated
+	 */
+	boolean refreshExpirationTimestamp(final ITileSource pTileSource, final long pMapTileIndex, final Long pExpirationTime);
+}
@@ -1,5 +1,7 @@
 package org.osmdroid.tileprovider.modules;
 
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.text.TextUtils;
 import android.util.Log;
@@ -14,20 +16,17 @@ import org.osmdroid.tileprovider.tilesource.BitmapTileSourceBase.LowMemoryExcept
 import org.osmdroid.tileprovider.tilesource.ITileSource;
 import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
 import org.osmdroid.tileprovider.util.Counters;
-import org.osmdroid.tileprovider.util.StreamUtils;
+import org.osmdroid.tileprovider.util.ReusableByteArrayOutputStream;
 import org.osmdroid.util.MapTileIndex;
 
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.UnknownHostException;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -56,6 +55,18 @@ public class MapTileDownloader extends MapTileModuleProviderBase {
 
 	private final INetworkAvailablityCheck mNetworkAvailablityCheck;
 
+	/**
+	 * @since 6.0.2
+	 */
+	private volatile IHttpTransport mHttpTransport = new HttpUrlConnectionTransport();
+
+	/**
+	 * Returned by the tile loader when the server confirmed that the cached tile is still valid:
+	 * nothing to decode, the tile will be read again from the filesystem cache
+	 * @since 6.0.2
+	 */
+	private final Drawable mNotModifiedTile = new ColorDrawable(Color.TRANSPARENT);
+
 	// ===========================================================
 	// Constructors
 	// ===========================================================
@@ -95,6 +106,20 @@ public class MapTileDownloader extends MapTileModuleProviderBase {
 		return mTileSource.get();
 	}
 
+	/**
+	 * @since 6.0.2
+	 */
+	public IHttpTransport getHttpTransport() {
+		return mHttpTransport;
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	public void setHttpTransport(final IHttpTransport pHttpTransport) {
+		mHttpTransport = pHttpTransport;
+	}
+
 	// ===========================================================
 	// Methods from SuperClass/Interfaces
 	// ===========================================================
@@ -150,12 +175,90 @@ public class MapTileDownloader extends MapTileModuleProviderBase {
 		}
 	}
 
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	/**
+	 * @return the validators stored with the tile, or null if the cache doesn't store validators
+	 * @since 6.0.2
+	 */
+	public static TileValidators getValidators(final IFilesystemCache pCache,
+											   final ITileSource pTileSource, final long pMapTileIndex) {
+		if (pCache instanceof IRevalidatingFilesystemCache) {
+			return ((IRevalidatingFilesystemCache) pCache).getValidators(pTileSource, pMapTileIndex);
+		}
+		return null;
+	}
+
+	/**
+	 * Saves a tile with its validators, if the cache stores validators
+	 * @since 6.0.2
+	 */
+	public static boolean saveFile(final IFilesystemCache pCache,
+								   final ITileSource pTileSource, final long pMapTileIndex,
+								   final InputStream pStream, final Long pExpirationTime,
+								   final TileValidators pValidators) {
+		if (pCache instanceof IRevalidatingFilesystemCache) {
+			return ((IRevalidatingFilesystemCache) pCache).saveFile(
+					pTileSource, pMapTileIndex, pStream, pExpirationTime, pValidators);
+		}
+		return pCache.saveFile(pTileSource, pMapTileIndex, pStream, pExpirationTime);
+	}
+
+	/**
+	 * @since 6.0.2
+	 * @return the If-None-Match / If-Modified-Since headers matching the validators, or null
+	 */
+	public static Map<String, String> getConditionalRequestProperties(final TileValidators pValidators) {
+		if (pValidators == null) {
+			return null;
+		}
+		final Map<String, String> result = new HashMap<String, String>();
+		if (pValidators.getETag() != null) {
+			result.put(OpenStreetMapTileProviderConstants.HTTP_IF_NONE_MATCH_HEADER, pValidators.getETag());
+		}
+		if (pValidators.getLastModified() != null) {
+			result.put(OpenStreetMapTileProviderConstants.HTTP_IF_MODIFIED_SINCE_HEADER, pValidators.getLastModified());
+		}
+		return result;
+	}
+
+	/**
+	 * @since 6.0.2
+	 * @param pExpiresHeader value of the HTTP Expires header, or null
+	 * @return the expiration time of a downloaded tile, default is 1 week from now
+	 */
+	public static Long getExpirationTime(final String pExpiresHeader) {
+		final Long override=Configuration.getInstance().getExpirationOverrideDuration();
+		if (override!=null) {
+			return System.currentTimeMillis() + override;
+		}
+		Long expirationTime = System.currentTimeMillis() + OpenStreetMapTileProviderConstants.DEFAULT_MAXIMUM_CACHED_FILE_AGE + Configuration.getInstance().getExpirationExtendedDuration();
+		if (pExpiresHeader != null && pExpiresHeader.length() > 0) {
+			try {
+				final Date dateExpires = Configuration.getInstance().getHttpHeaderDateTimeFormat().parse(pExpiresHeader);
+				expirationTime = dateExpires.getTime() + Configuration.getInstance().getExpirationExtendedDuration();
+			} catch (Exception ex) {
+				if (Configuration.getInstance().isDebugMapTileDownloader())
+					Log.d(IMapView.LOGTAG, "Unable to parse expiration tag for tile, using default, server returned " + pExpiresHeader, ex);
+			}
+		}
+		return expirationTime;
+	}
+
 	// ===========================================================
 	// Inner and Anonymous Classes
 	// ===========================================================
 
 	protected class TileLoader extends MapTileModuleProviderBase.TileLoader {
 
+		/**
+		 * A tile loader is run by a single thread: its buffer is reused for all the tiles it downloads
+		 * @since 6.0.2
+		 */
+		private final ReusableByteArrayOutputStream mBuffer = new ReusableByteArrayOutputStream();
+
 		@Override
 		public Drawable loadTile(final long pMapTileIndex) throws CantContinueException {
 
@@ -164,9 +267,7 @@ public class MapTileDownloader extends MapTileModuleProviderBase {
 				return null;
 			}
 
-			InputStream in = null;
-			OutputStream out = null;
-			HttpURLConnection c=null;
+			IHttpTransport.Response response = null;
 
 			try {
 
@@ -188,23 +289,25 @@ public class MapTileDownloader extends MapTileModuleProviderBase {
 					return null;
 				}
 
-				if (Configuration.getInstance().getHttpProxy() != null) {
-					c = (HttpURLConnection) new URL(tileURLString).openConnection(Configuration.getInstance().getHttpProxy());
-				} else {
-					c = (HttpURLConnection) new URL(tileURLString).openConnection();
-				}
-				c.setUseCaches(true);
-				c.setRequestProperty(Configuration.getInstance().getUserAgentHttpHeader(),Configuration.getInstance().getUserAgentValue());
-				for (final Map.Entry<String, String> entry : Configuration.getInstance().getAdditionalHttpRequestProperties().entrySet()) {
-					c.setRequestProperty(entry.getKey(), entry.getValue());
-				}
-				c.connect();
-                                
+				// if we already have this tile, only ask for it if it changed
+				final TileValidators validators = getValidators(mFilesystemCache, tileSource, pMapTileIndex);
+				response = mHttpTransport.get(tileURLString, getConditionalRequestProperties(validators));
 
 				// Check to see if we got success
-				
-				if (c.getResponseCode() != 200) {
-					Log.w(IMapView.LOGTAG, "Problem downloading MapTile: " + MapTileIndex.toString(pMapTileIndex) + " HTTP response: " + c.getResponseMessage());
+				final int responseCode = response.getResponseCode();
+				if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && validators != null) {
+					// the cached tile is still valid: just extend its expiration
+					((IRevalidatingFilesystemCache) mFilesystemCache).refreshExpirationTimestamp(tileSource, pMapTileIndex,
+							getExpirationTime(response.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_EXPIRES_HEADER)));
+					Counters.tileDownloadNotModified++;
+					if (Configuration.getInstance().isDebugMapTileDownloader()) {
+						Log.d(IMapView.LOGTAG, tileURLString + " not modified");
+					}
+					return mNotModifiedTile;
+				}
+
+				if (responseCode != 200) {
+					Log.w(IMapView.LOGTAG, "Problem downloading MapTile: " + MapTileIndex.toString(pMapTileIndex) + " HTTP response: " + response.getResponseMessage());
 					if (Configuration.getInstance().isDebugMapTileDownloader()) {
 						Log.d(IMapView.LOGTAG, tileURLString);
 					}
@@ -214,40 +317,20 @@ public class MapTileDownloader extends MapTileModuleProviderBase {
 				if (Configuration.getInstance().isDebugMapTileDownloader()) {
 					Log.d(IMapView.LOGTAG, tileURLString + " success");
 				}
-				
-				in = c.getInputStream();
-
-				final ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
-				out = new BufferedOutputStream(dataStream, StreamUtils.IO_BUFFER_SIZE);
-				//default is 1 week from now
-				//Date dateExpires;
-				Long override=Configuration.getInstance().getExpirationOverrideDuration();
-				Long expirationTime = null;
-				if (override!=null) {
-					expirationTime = System.currentTimeMillis() + override;
-				} else {
-					expirationTime = System.currentTimeMillis() + OpenStreetMapTileProviderConstants.DEFAULT_MAXIMUM_CACHED_FILE_AGE + Configuration.getInstance().getExpirationExtendedDuration();
-					final String expires = c.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_EXPIRES_HEADER);
-					if (expires != null && expires.length() > 0) {
-						try {
-							final Date dateExpires = Configuration.getInstance().getHttpHeaderDateTimeFormat().parse(expires);
-							expirationTime = dateExpires.getTime() + Configuration.getInstance().getExpirationExtendedDuration();
-						} catch (Exception ex) {
-							if (Configuration.getInstance().isDebugMapTileDownloader())
-								Log.d(IMapView.LOGTAG, "Unable to parse expiration tag for tile, using default, server returned " + expires, ex);
-						}
-					}
-				}
-				StreamUtils.copy(in, out);
-				out.flush();
-				final byte[] data = dataStream.toByteArray();
-				final ByteArrayInputStream byteStream = new ByteArrayInputStream(data);
+
+				final Long expirationTime = getExpirationTime(response.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_EXPIRES_HEADER));
+				// the body is read once into the loader's buffer, then read from there by the cache and the decoder
+				mBuffer.readFrom(response.getInputStream());
+				final ByteArrayInputStream byteStream = mBuffer.getInputStream();
 
 				// Save the data to the cache
 				//this is the only point in which we insert tiles to the db or local file system.
 
 				if (mFilesystemCache != null) {
-					mFilesystemCache.saveFile(tileSource, pMapTileIndex, byteStream, expirationTime);
+					saveFile(mFilesystemCache, tileSource, pMapTileIndex, byteStream, expirationTime,
+							TileValidators.get(
+									response.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_ETAG_HEADER),
+									response.getHeaderField(OpenStreetMapTileProviderConstants.HTTP_LAST_MODIFIED_HEADER)));
 					byteStream.reset();
 				}
 				final Drawable result = tileSource.getDrawable(byteStream);
@@ -273,11 +356,11 @@ public class MapTileDownloader extends MapTileModuleProviderBase {
 				Counters.tileDownloadErrors++;
 				Log.e(IMapView.LOGTAG,"Error downloading MapTile: " + MapTileIndex.toString(pMapTileIndex), e);
 			} finally {
-				StreamUtils.closeStream(in);
-				StreamUtils.closeStream(out);
-				try{
-					c.disconnect();
-				} catch (Exception ex){}
+				// the connection is kept alive for the next tile
+				if (response != null) {
+					response.close();
+				}
+				mBuffer.reset();
 			}
 
 			return null;
@@ -290,6 +373,9 @@ public class MapTileDownloader extends MapTileModuleProviderBase {
 			// this prevent flickering when a load of delayed downloads complete for tiles
 			// that we might not even be interested in any more
 			pState.getCallback().mapTileRequestCompleted(pState, null);
+			if (pDrawable == mNotModifiedTile) {
+				return;
+			}
 			// We want to return the Bitmap to the BitmapPool if applicable
 			BitmapPool.getInstance().asyncRecycle(pDrawable);
 		}
@@ -1,15 +1,22 @@
 package org.osmdroid.tileprovider.modules;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 
 import org.osmdroid.config.Configuration;
 import org.osmdroid.tileprovider.ExpirableBitmapDrawable;
+import org.osmdroid.tileprovider.IMapTileProviderCallback;
+import org.osmdroid.tileprovider.IMapTileProviderCancelCallback;
+import org.osmdroid.tileprovider.MapTileRequestScheduler;
 import org.osmdroid.tileprovider.MapTileRequestState;
 import org.osmdroid.tileprovider.tilesource.ITileSource;
 
@@ -84,6 +91,29 @@ public abstract class MapTileModuleProviderBase {
 	protected final Object mQueueLockObject = new Object();
 	protected final HashMap<Long, MapTileRequestState> mWorking;
 	protected final LinkedHashMap<Long, MapTileRequestState> mPending;
+	private volatile MapTileRequestScheduler mScheduler;
+	/**
+	 * The pending tiles sorted by priority, when there's a scheduler with a viewport.
+	 * Entries are invalidated lazily: an entry is valid as long as it's the one in {@link #mPendingEntries}.
+	 * Guarded by {@link #mQueueLockObject}
+	 * @since 6.0.2
+	 */
+	private final PriorityQueue<PendingTile> mPendingHeap = new PriorityQueue<>(16, new Comparator<PendingTile>() {
+		@Override
+		public int compare(final PendingTile pLeft, final PendingTile pRight) {
+			if (pLeft.mPriority != pRight.mPriority) {
+				return pLeft.mPriority < pRight.mPriority ? -1 : 1;
+			}
+			// ties: the most recently accessed first
+			return pLeft.mSequence > pRight.mSequence ? -1 : pLeft.mSequence == pRight.mSequence ? 0 : 1;
+		}
+	});
+	private final HashMap<Long, PendingTile> mPendingEntries = new HashMap<>();
+	private long mPendingSequence;
+	/**
+	 * Viewport version of the priorities in {@link #mPendingHeap}, or null if the heap is not maintained
+	 */
+	private Integer mPendingHeapVersion;
 
 	public MapTileModuleProviderBase(int pThreadPoolSize, final int pPendingQueueSize) {
 		if (pPendingQueueSize < pThreadPoolSize) {
@@ -103,17 +133,8 @@ public abstract class MapTileModuleProviderBase {
 			protected boolean removeEldestEntry(
 					final Map.Entry<Long, MapTileRequestState> pEldest) {
 				if (size() > pPendingQueueSize) {
-					Long result = null;
-
-					// get the oldest tile that isn't in the mWorking queue
-					Iterator<Long> iterator = mPending.keySet().iterator();
-
-					while (result == null && iterator.hasNext()) {
-						final Long mapTileIndex = iterator.next();
-						if (!mWorking.containsKey(mapTileIndex)) {
-							result = mapTileIndex;
-						}
-					}
+					// get the least relevant tile that isn't in the mWorking queue
+					final Long result = findLeastRelevantPendingTile();
 
 					if (result != null) {
 						MapTileRequestState state = mPending.get(result);
@@ -126,6 +147,49 @@ public abstract class MapTileModuleProviderBase {
 		};
 	}
 
+	/**
+	 * @since 6.0.2
+	 */
+	public MapTileRequestScheduler getTileRequestScheduler() {
+		return mScheduler;
+	}
+
+	/**
+	 * Sets the scheduler used to pick the next pending tile to load.
+	 * Without scheduler, the most recently requested tile is loaded first.
+	 * @since 6.0.2
+	 */
+	public void setTileRequestScheduler(final MapTileRequestScheduler pScheduler) {
+		mScheduler = pScheduler;
+	}
+
+	/**
+	 * @return the pending tile that is not being processed and is the least worth loading,
+	 * or null if there's none. To be called while holding {@link #mQueueLockObject}
+	 * @since 6.0.2
+	 */
+	private Long findLeastRelevantPendingTile() {
+		final MapTileRequestScheduler scheduler = mScheduler;
+		final boolean useScheduler = scheduler != null && scheduler.hasViewport();
+		Long result = null;
+		long worstPriority = Long.MIN_VALUE;
+		// by default, get the oldest tile
+		for (final Long mapTileIndex : mPending.keySet()) {
+			if (mWorking.containsKey(mapTileIndex)) {
+				continue;
+			}
+			if (!useScheduler) {
+				return mapTileIndex;
+			}
+			final long priority = scheduler.getPriority(mapTileIndex);
+			if (result == null || priority > worstPriority) {
+				result = mapTileIndex;
+				worstPriority = priority;
+			}
+		}
+		return result;
+	}
+
 	public void loadMapTileAsync(final MapTileRequestState pState) {
 		// Make sure we're not detached
 		if (mExecutor.isShutdown())
@@ -144,6 +208,14 @@ public abstract class MapTileModuleProviderBase {
 			// this will put the tile in the queue, or move it to the front of
 			// the queue if it's already present
 			mPending.put(pState.getMapTile(), pState);
+			if (mPendingHeapVersion != null && mPending.containsKey(pState.getMapTile())) {
+				final MapTileRequestScheduler scheduler = mScheduler;
+				if (scheduler == null || scheduler.getViewportVersion() != mPendingHeapVersion) {
+					clearPendingHeap(); // to be rebuilt
+				} else {
+					pushPendingTile(pState.getMapTile(), scheduler.getPriority(pState.getMapTile()));
+				}
+			}
 		}
 		try {
 			mExecutor.execute(getTileLoader());
@@ -156,6 +228,73 @@ public abstract class MapTileModuleProviderBase {
 		synchronized (mQueueLockObject) {
 			mPending.clear();
 			mWorking.clear();
+			clearPendingHeap();
+		}
+	}
+
+	/**
+	 * To be called while holding {@link #mQueueLockObject}
+	 * @since 6.0.2
+	 */
+	private void pushPendingTile(final long pMapTileIndex, final long pPriority) {
+		final PendingTile entry = new PendingTile(pMapTileIndex, pPriority, mPendingSequence++);
+		mPendingEntries.put(pMapTileIndex, entry);
+		mPendingHeap.add(entry);
+	}
+
+	/**
+	 * To be called while holding {@link #mQueueLockObject}
+	 * @since 6.0.2
+	 */
+	private void clearPendingHeap() {
+		mPendingHeap.clear();
+		mPendingEntries.clear();
+		mPendingHeapVersion = null;
+	}
+
+	/**
+	 * Computes again the priorities of all the pending tiles, e.g. after a viewport change.
+	 * The tiles are pushed in their access order, so that the most recently accessed wins the ties.
+	 * To be called while holding {@link #mQueueLockObject}
+	 * @since 6.0.2
+	 */
+	private void rebuildPendingHeap(final MapTileRequestScheduler pScheduler) {
+		mPendingHeap.clear();
+		mPendingEntries.clear();
+		mPendingHeapVersion = pScheduler.getViewportVersion();
+		for (final Long mapTileIndex : mPending.keySet()) {
+			if (!mWorking.containsKey(mapTileIndex)) {
+				pushPendingTile(mapTileIndex, pScheduler.getPriority(mapTileIndex));
+			}
+		}
+	}
+
+	/**
+	 * A pending tile and its priority in {@link #mPendingHeap}
+	 * @since 6.0.2
+	 */
+	private static class PendingTile {
+		private final long mMapTileIndex;
+		private final long mPriority;
+		private final long mSequence;
+
+		private PendingTile(final long pMapTileIndex, final long pPriority, final long pSequence) {
+			mMapTileIndex = pMapTileIndex;
+			mPriority = pPriority;
+			mSequence = pSequence;
+		}
+	}
+
+	/**
+	 * Drops a request on purpose, without reporting a failure (that would display the "not found" tile)
+	 * @since 6.0.2
+	 */
+	private static void cancel(final MapTileRequestState pState) {
+		final IMapTileProviderCallback callback = pState.getCallback();
+		if (callback instanceof IMapTileProviderCancelCallback) {
+			((IMapTileProviderCancelCallback) callback).mapTileRequestCancelled(pState);
+		} else {
+			callback.mapTileRequestFailedExceedsMaxQueueSize(pState);
 		}
 	}
 
@@ -176,6 +315,7 @@ public abstract class MapTileModuleProviderBase {
 			}
 			mPending.remove(pMapTileIndex);
 			mWorking.remove(pMapTileIndex);
+			mPendingEntries.remove(pMapTileIndex);
 		}
 	}
 
@@ -212,6 +352,10 @@ public abstract class MapTileModuleProviderBase {
 		}
 
 		protected MapTileRequestState nextTile() {
+			final MapTileRequestScheduler scheduler = mScheduler;
+			if (scheduler != null && scheduler.hasViewport()) {
+				return nextTile(scheduler);
+			}
 
 			synchronized (mQueueLockObject) {
 				Long result = null;
@@ -245,6 +389,66 @@ public abstract class MapTileModuleProviderBase {
 			}
 		}
 
+		/**
+		 * Gets the pending tile with the best priority, and cancels the stale ones.
+		 * The pending tiles are kept in a heap, whose priorities are computed again
+		 * only when the viewport changes.
+		 * Ties are resolved in favor of the most recently accessed tile.
+		 * @since 6.0.2
+		 */
+		private MapTileRequestState nextTile(final MapTileRequestScheduler pScheduler) {
+			List<MapTileRequestState> stale = null;
+			MapTileRequestState result = null;
+			long priority = MapTileRequestScheduler.STALE;
+			synchronized (mQueueLockObject) {
+				if (mPendingHeapVersion == null || mPendingHeapVersion != pScheduler.getViewportVersion()
+						|| mPendingHeap.size() > 2 * mPending.size() + 16) { // too many invalid entries
+					rebuildPendingHeap(pScheduler);
+				}
+				PendingTile entry;
+				while ((entry = mPendingHeap.poll()) != null) {
+					final Long mapTileIndex = entry.mMapTileIndex;
+					if (mPendingEntries.get(mapTileIndex) != entry) {
+						continue; // obsolete entry
+					}
+					mPendingEntries.remove(mapTileIndex);
+					final MapTileRequestState state = mPending.get(mapTileIndex);
+					if (state == null || mWorking.containsKey(mapTileIndex)) {
+						continue;
+					}
+					if (entry.mPriority == MapTileRequestScheduler.STALE) {
+						if (stale == null) {
+							stale = new ArrayList<>();
+						}
+						stale.add(state);
+						mPending.remove(mapTileIndex);
+						continue;
+					}
+					result = state;
+					priority = entry.mPriority;
+					break;
+				}
+				if (result != null) {
+					if (Configuration.getInstance().isDebugTileProviders()) {
+						Log.d(IMapView.LOGTAG,"TileLoader.nextTile() on provider: " + getName()
+								+ " adding tile to working queue: " + MapTileIndex.toString(result.getMapTile())
+								+ " with priority " + priority);
+					}
+					mWorking.put(result.getMapTile(), result);
+				}
+			}
+			if (stale != null) {
+				for (final MapTileRequestState state : stale) {
+					if (Configuration.getInstance().isDebugTileProviders()) {
+						Log.d(IMapView.LOGTAG,"TileLoader.nextTile() on provider: " + getName()
+								+ " cancelling stale tile: " + MapTileIndex.toString(state.getMapTile()));
+					}
+					cancel(state);
+				}
+			}
+			return result;
+		}
+
 		/**
 		 * A tile has loaded.
 		 */
@@ -0,0 +1,363 @@
+package org.osmdroid.tileprovider.modules;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The write-behind queue of {@link SqlTileWriter}: downloaded tiles and tile reads are queued,
+ * and a single daemon thread writes them by batches, in insertion order.
+ * The thread is started by the first queued tile, and stopped by {@link #stop()} once the queue is empty;
+ * it's started again by the next queued tile, unless {@link #shutdown(Runnable)} was called.
+ * <p>
+ * don't use android classes here, so that the queue can be unit tested
+ * @since 6.0.2
+ */
+abstract class SqlTileWriteBehind {
+
+    private final int mQueueSize;
+    private final int mBatchSize;
+    private final long mAccessFlushDelay;
+    private final ConfigurablePriorityThreadFactory mThreadFactory =
+            new ConfigurablePriorityThreadFactory(Thread.NORM_PRIORITY, "SqlTileWriter");
+
+    /**
+     * Tiles waiting to be written by the writer thread, in insertion order
+     */
+    private final LinkedHashMap<String, PendingTile> mPendingTiles = new LinkedHashMap<>();
+    /**
+     * Held by the writer thread while it writes a batch, and by the methods that delete or update tiles,
+     * so that a deleted tile cannot be written back by a batch in progress
+     */
+    private final Object mWriteLock = new Object();
+    private Thread mWriterThread;
+    private boolean mWriterStopping;
+    /**
+     * No more writer thread once true; guarded by the queue lock
+     */
+    private boolean mShutdown;
+    /**
+     * Run by the writer thread once it has written everything, after {@link #shutdown(Runnable)}
+     */
+    private Runnable mOnShutdown;
+    /**
+     * Tiles read since the last access time batch, guarded by the queue lock
+     */
+    private final HashMap<String, TileAccess> mAccessedTiles = new HashMap<>();
+    private long mFirstAccessTime;
+
+    /**
+     * @param pQueueSize maximum number of queued tiles; {@link #enqueue(PendingTile)} waits beyond that
+     * @param pBatchSize maximum number of tiles written by {@link #writeBatch(List, List)}
+     * @param pAccessFlushDelay maximum delay before the tile reads are written
+     */
+    SqlTileWriteBehind(final int pQueueSize, final int pBatchSize, final long pAccessFlushDelay) {
+        mQueueSize = pQueueSize;
+        mBatchSize = pBatchSize;
+        mAccessFlushDelay = pAccessFlushDelay;
+    }
+
+    /**
+     * Writes tiles and access times, called by the writer thread while holding the {@link #getWriteLock() write lock}
+     */
+    protected abstract void writeBatch(final List<PendingTile> pBatch, final List<TileAccess> pAccesses);
+
+    /**
+     * Called by the writer thread after a batch of tiles was written, without any lock
+     */
+    protected abstract void onTilesWritten();
+
+    /**
+     * To be held around the deletes and updates, with the corresponding changes of the queue
+     */
+    Object getWriteLock() {
+        return mWriteLock;
+    }
+
+    /**
+     * Queues a tile for the writer thread, waiting if the queue is full
+     * @return false if the queue is being stopped
+     */
+    boolean enqueue(final PendingTile pTile) throws InterruptedException {
+        synchronized (mPendingTiles) {
+            if (!startWriterIfNeeded()) {
+                return false;
+            }
+            while (mPendingTiles.size() >= mQueueSize && !mWriterStopping) {
+                mPendingTiles.wait();
+            }
+            mPendingTiles.put(getKey(pTile.mProvider, pTile.mIndex), pTile);
+            mPendingTiles.notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * Records that a tile was read; the access times are written later, by batches
+     */
+    void recordAccess(final String pProvider, final long pIndex) {
+        final long now = System.currentTimeMillis();
+        synchronized (mPendingTiles) {
+            if (!startWriterIfNeeded()) {
+                return;
+            }
+            if (mAccessedTiles.isEmpty()) {
+                mFirstAccessTime = now;
+            }
+            mAccessedTiles.put(getKey(pProvider, pIndex), new TileAccess(pProvider, pIndex, now));
+            if (mAccessedTiles.size() >= mBatchSize) {
+                mPendingTiles.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return the queued version of a tile, or null
+     */
+    PendingTile get(final String pProvider, final long pIndex) {
+        synchronized (mPendingTiles) {
+            if (mPendingTiles.isEmpty()) {
+                return null;
+            }
+            return mPendingTiles.get(getKey(pProvider, pIndex));
+        }
+    }
+
+    /**
+     * Removes a queued tile; to be called while holding the {@link #getWriteLock() write lock}
+     */
+    void remove(final String pProvider, final long pIndex) {
+        synchronized (mPendingTiles) {
+            mPendingTiles.remove(getKey(pProvider, pIndex));
+            mPendingTiles.notifyAll();
+        }
+    }
+
+    /**
+     * Removes the queued tiles of a provider, or all of them if null;
+     * to be called while holding the {@link #getWriteLock() write lock}
+     */
+    void removeAll(final String pProvider) {
+        synchronized (mPendingTiles) {
+            if (pProvider == null) {
+                mPendingTiles.clear();
+            } else {
+                final Iterator<PendingTile> iterator = mPendingTiles.values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().mProvider.equals(pProvider)) {
+                        iterator.remove();
+                    }
+                }
+            }
+            mPendingTiles.notifyAll();
+        }
+    }
+
+    /**
+     * Changes the expiration of a queued tile; to be called while holding the {@link #getWriteLock() write lock}
+     * @return false if the tile is not queued
+     */
+    boolean setExpires(final String pProvider, final long pIndex, final Long pExpires) {
+        synchronized (mPendingTiles) {
+            final String key = getKey(pProvider, pIndex);
+            final PendingTile pending = mPendingTiles.get(key);
+            if (pending == null) {
+                return false;
+            }
+            mPendingTiles.put(key, new PendingTile(pending.mProvider, pIndex, pending.mBits, pExpires, pending.mValidators));
+            return true;
+        }
+    }
+
+    /**
+     * Waits until all the queued tiles are written
+     */
+    void flush() throws InterruptedException {
+        synchronized (mPendingTiles) {
+            while (!mPendingTiles.isEmpty() && mWriterThread != null && mWriterThread.isAlive()) {
+                mPendingTiles.wait();
+            }
+        }
+    }
+
+    /**
+     * Waits for the writer thread to write all the queued tiles and to stop.
+     * Tiles queued after that start a new writer thread.
+     */
+    void stop() throws InterruptedException {
+        final Thread writerThread;
+        synchronized (mPendingTiles) {
+            writerThread = mWriterThread;
+            if (writerThread == null) {
+                return;
+            }
+            mWriterStopping = true;
+            mPendingTiles.notifyAll();
+        }
+        if (writerThread != Thread.currentThread()) {
+            writerThread.join();
+        }
+    }
+
+    /**
+     * Stops the writer thread for good, without waiting: the queued tiles are written first,
+     * then the writer thread runs the callback. Tiles can no longer be queued.
+     * @param pOnStopped run by the writer thread once it has stopped,
+     *                   or by the calling thread if there is no writer thread
+     */
+    void shutdown(final Runnable pOnStopped) {
+        synchronized (mPendingTiles) {
+            mShutdown = true;
+            if (mWriterThread != null) {
+                mWriterStopping = true;
+                mOnShutdown = pOnStopped;
+                mPendingTiles.notifyAll();
+                return;
+            }
+        }
+        pOnStopped.run();
+    }
+
+    static String getKey(final String pProvider, final long pIndex) {
+        return pIndex + "/" + pProvider;
+    }
+
+    /**
+     * To be called while holding the queue lock
+     */
+    private boolean startWriterIfNeeded() {
+        if (mWriterStopping || mShutdown) {
+            return false;
+        }
+        if (mWriterThread == null) {
+            mWriterThread = mThreadFactory.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    runWriter();
+                }
+            });
+            // the queue must not keep a JVM alive
+            mWriterThread.setDaemon(true);
+            mWriterThread.start();
+        }
+        return true;
+    }
+
+    /**
+     * Writer thread loop: writes the queued tiles and access times by batches,
+     * until {@link #stop()} is called and the queue is empty
+     */
+    private void runWriter() {
+        final List<PendingTile> batch = new ArrayList<>(mBatchSize);
+        final List<TileAccess> accesses = new ArrayList<>();
+        while (true) {
+            boolean stopped = false;
+            Runnable onShutdown = null;
+            synchronized (mPendingTiles) {
+                while (mPendingTiles.isEmpty() && !mWriterStopping) {
+                    try {
+                        if (mAccessedTiles.isEmpty()) {
+                            mPendingTiles.wait();
+                            continue;
+                        }
+                        final long delay = mFirstAccessTime + mAccessFlushDelay - System.currentTimeMillis();
+                        if (delay <= 0 || mAccessedTiles.size() >= mBatchSize) {
+                            break;
+                        }
+                        mPendingTiles.wait(delay);
+                    } catch (InterruptedException e) {
+                        // keep on writing until stopped
+                    }
+                }
+                if (mPendingTiles.isEmpty() && mAccessedTiles.isEmpty()) {
+                    // stopped: the next queued tile starts a new writer, unless shut down
+                    mWriterThread = null;
+                    mWriterStopping = false;
+                    onShutdown = mOnShutdown;
+                    mOnShutdown = null;
+                    mPendingTiles.notifyAll();
+                    stopped = true;
+                }
+            }
+            if (stopped) {
+                if (onShutdown != null) {
+                    onShutdown.run();
+                }
+                return;
+            }
+            synchronized (mWriteLock) {
+                synchronized (mPendingTiles) {
+                    for (final PendingTile tile : mPendingTiles.values()) {
+                        if (batch.size() == mBatchSize) {
+                            break;
+                        }
+                        batch.add(tile);
+                    }
+                    accesses.addAll(mAccessedTiles.values());
+                    mAccessedTiles.clear();
+                }
+                writeBatch(batch, accesses);
+                synchronized (mPendingTiles) {
+                    for (final PendingTile tile : batch) {
+                        final String key = getKey(tile.mProvider, tile.mIndex);
+                        // a newer version of the same tile may have been queued in the meantime
+                        if (mPendingTiles.get(key) == tile) {
+                            mPendingTiles.remove(key);
+                        }
+                    }
+                    mPendingTiles.notifyAll();
+                }
+            }
+            final boolean inserted = !batch.isEmpty();
+            batch.clear();
+            accesses.clear();
+            if (inserted) {
+                onTilesWritten();
+            }
+        }
+    }
+
+    /**
+     * A downloaded tile that is not written yet
+     */
+    static class PendingTile {
+        final String mProvider;
+        final long mIndex;
+        final byte[] mBits;
+        final Long mExpires;
+        final TileValidators mValidators;
+
+        PendingTile(final String pProvider, final long pIndex, final byte[] pBits,
+                    final Long pExpires, final TileValidators pValidators) {
+            mProvider = pProvider;
+            mIndex = pIndex;
+            mBits = pBits;
+            mExpires = pExpires;
+            mValidators = pValidators;
+        }
+
+        /**
+         * @return the expiration, with the same default as a null column
+         */
+        long getExpires() {
+            return mExpires == null ? 0 : mExpires;
+        }
+    }
+
+    /**
+     * A tile read, whose access time is not written yet
+     */
+    static class TileAccess {
+        final String mProvider;
+        final long mIndex;
+        final long mTime;
+
+        TileAccess(final String pProvider, final long pIndex, final long pTime) {
+            mProvider = pProvider;
+            mIndex = pIndex;
+            mTime = pTime;
+        }
+    }
+}
@@ -4,12 +4,16 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteFullException;
+import android.database.sqlite.SQLiteStatement;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.util.Log;
 
 import org.osmdroid.api.IMapView;
 import org.osmdroid.config.Configuration;
 import org.osmdroid.tileprovider.ExpirableBitmapDrawable;
+import org.osmdroid.tileprovider.modules.SqlTileWriteBehind.PendingTile;
+import org.osmdroid.tileprovider.modules.SqlTileWriteBehind.TileAccess;
 import org.osmdroid.tileprovider.tilesource.ITileSource;
 import org.osmdroid.tileprovider.util.Counters;
 import org.osmdroid.tileprovider.util.StreamUtils;
@@ -24,6 +28,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.osmdroid.tileprovider.modules.DatabaseFileArchive.COLUMN_PROVIDER;
 import static org.osmdroid.tileprovider.modules.DatabaseFileArchive.COLUMN_KEY;
@@ -41,9 +49,20 @@ import static org.osmdroid.tileprovider.modules.DatabaseFileArchive.TABLE;
  * @author Alex O'Ree
  * @since 5.1
  */
-public class SqlTileWriter implements IFilesystemCache {
+public class SqlTileWriter implements IRevalidatingFilesystemCache {
     public static final String DATABASE_FILENAME = "cache.db";
     public static final String COLUMN_EXPIRES ="expires";
+    /**
+     * HTTP validators of the tile, used to revalidate expired tiles
+     * @since 6.0.2
+     */
+    public static final String COLUMN_ETAG ="etag";
+    public static final String COLUMN_LAST_MODIFIED ="lastmodified";
+    /**
+     * Last time the tile was written or read, used for LRU trimming
+     * @since 6.0.2
+     */
+    public static final String COLUMN_LAST_ACCESS ="lastaccess";
 
     private static boolean cleanOnStartup=true;
     /*
@@ -57,16 +76,86 @@ public class SqlTileWriter implements IFilesystemCache {
     public static void setCleanupOnStart(boolean value) {
         cleanOnStartup=value;
     }
+
+    /**
+     * Maximum number of tiles waiting to be written; downloads are blocked beyond that
+     * @since 6.0.2
+     */
+    public static final int WRITE_BEHIND_QUEUE_SIZE = 128;
+
+    /**
+     * Maximum number of tiles written in the same transaction
+     * @since 6.0.2
+     */
+    public static final int WRITE_BEHIND_BATCH_SIZE = 64;
+
+    private static boolean writeBehind=true;
+    /**
+     * If true (default), {@link #saveFile(ITileSource, long, InputStream, Long)} only queues the tile:
+     * a single background thread then writes the queued tiles in batched transactions.
+     * Queued tiles are already visible to the read methods of this writer.
+     * If false, each tile is written by the calling thread in its own transaction.
+     * @since 6.0.2
+     */
+    public static void setWriteBehind(boolean value) {
+        writeBehind=value;
+    }
+
+    /**
+     * Maximum number of tiles deleted at once while trimming, so that the database is never locked for long
+     * @since 6.0.2
+     */
+    public static final int TRIM_CHUNK_SIZE = 200;
+
+    /**
+     * Maximum delay before the access times of the tiles that were read are written
+     * @since 6.0.2
+     */
+    public static final long ACCESS_FLUSH_DELAY = 10000;
+
+    private static boolean trimByLastAccess=false;
+    /**
+     * If true, trimming the cache deletes first the least recently used tiles: the time of each tile read
+     * is then recorded (asynchronously, by batches).
+     * If false (default), trimming deletes first the tiles that expire first.
+     * @since 6.0.2
+     */
+    public static void setTrimByLastAccess(boolean value) {
+        trimByLastAccess=value;
+    }
     protected File db_file;
     protected SQLiteDatabase db;
     protected long lastSizeCheck=0;
 
+    static boolean hasInited=false;
+
     /**
-     * mean tile size computed on first use.
-     * Sizes are quite variable and a significant underestimate will result in too many tiles being purged.
+     * Tiles and tile reads waiting to be written by the writer thread
+     * @since 6.0.2
      */
-    long tileSize=0l;
-    static boolean hasInited=false;
+    private final SqlTileWriteBehind mWriteBehind = new SqlTileWriteBehind(
+            WRITE_BEHIND_QUEUE_SIZE, WRITE_BEHIND_BATCH_SIZE, ACCESS_FLUSH_DELAY) {
+        @Override
+        protected void writeBatch(final List<PendingTile> pBatch, final List<TileAccess> pAccesses) {
+            SqlTileWriter.this.writeBatch(pBatch, pAccesses);
+        }
+
+        @Override
+        protected void onTilesWritten() {
+            trimIfNeeded();
+        }
+    };
+    /**
+     * True while a trim is scheduled or running
+     * @since 6.0.2
+     */
+    private final AtomicBoolean mTrimming = new AtomicBoolean();
+    /**
+     * Trims the cache one chunk at a time, so that the writer thread is never blocked for long
+     * @since 6.0.2
+     */
+    private final ExecutorService mTrimExecutor = Executors.newSingleThreadExecutor(
+            new ConfigurablePriorityThreadFactory(Thread.MIN_PRIORITY, "SqlTileWriter-trim"));
 
     public SqlTileWriter() {
 
@@ -76,7 +165,18 @@ public class SqlTileWriter implements IFilesystemCache {
 
         try {
             db = SQLiteDatabase.openOrCreateDatabase(db_file, null);
-            db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE + " (" + DatabaseFileArchive.COLUMN_KEY + " INTEGER , " + DatabaseFileArchive.COLUMN_PROVIDER + " TEXT, " + DatabaseFileArchive.COLUMN_TILE + " BLOB, " + COLUMN_EXPIRES +" INTEGER, PRIMARY KEY (" + DatabaseFileArchive.COLUMN_KEY + ", " + DatabaseFileArchive.COLUMN_PROVIDER + "));");
+            db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE + " (" + DatabaseFileArchive.COLUMN_KEY + " INTEGER , " + DatabaseFileArchive.COLUMN_PROVIDER + " TEXT, " + DatabaseFileArchive.COLUMN_TILE + " BLOB, " + COLUMN_EXPIRES +" INTEGER, " + COLUMN_ETAG + " TEXT, " + COLUMN_LAST_MODIFIED + " TEXT, " + COLUMN_LAST_ACCESS + " INTEGER, PRIMARY KEY (" + DatabaseFileArchive.COLUMN_KEY + ", " + DatabaseFileArchive.COLUMN_PROVIDER + "));");
+            // databases created by previous versions don't have the validator columns
+            addColumnIfMissing(COLUMN_ETAG, "TEXT");
+            addColumnIfMissing(COLUMN_LAST_MODIFIED, "TEXT");
+            addColumnIfMissing(COLUMN_LAST_ACCESS, "INTEGER");
+            // without these indices each trim is a full table sort
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + TABLE + "_" + COLUMN_EXPIRES + " ON " + TABLE + " (" + COLUMN_EXPIRES + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + TABLE + "_" + COLUMN_LAST_ACCESS + " ON " + TABLE + " (" + COLUMN_LAST_ACCESS + ");");
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                // readers are no longer blocked by the writer, and commits are much cheaper
+                db.enableWriteAheadLogging();
+            }
         } catch (Throwable ex) {
             Log.e(IMapView.LOGTAG, "Unable to start the sqlite tile writer. Check external storage availability.", ex);
         }
@@ -85,14 +185,7 @@ public class SqlTileWriter implements IFilesystemCache {
 
             if (cleanOnStartup) {
                 // do this in the background because it takes a long time
-                final Thread t = new Thread() {
-                    @Override
-                    public void run() {
-                        runCleanupOperation();
-                    }
-                };
-                t.setPriority(Thread.MIN_PRIORITY);
-                t.start();
+                scheduleTrim();
             }
         }
     }
@@ -100,6 +193,14 @@ public class SqlTileWriter implements IFilesystemCache {
     /**
      * this could be a long running operation, don't run on the UI thread unless necessary.
      * This function prunes the database for old or expired tiles.
+     * <p>
+     * If the tiles use more than {@link Configuration#getInstance()#getTileFileSystemCacheMaxBytes()},
+     * they are deleted by small chunks until they use less than
+     * {@link Configuration#getInstance()#getTileFileSystemCacheTrimBytes()}: first the tiles that expire first,
+     * or first the least recently used tiles (see {@link #setTrimByLastAccess(boolean)}).
+     * Both orders are backed by an index, so the cost of a chunk does not depend on the size of the cache.
+     * The writer itself never runs this method: it only signals a low priority trim thread,
+     * that deletes one chunk per pass.
      *
      * @since 5.6
      */
@@ -110,43 +211,33 @@ public class SqlTileWriter implements IFilesystemCache {
             }
             return;
         }
+        if (!mTrimming.compareAndSet(false, true)) {
+            return; // already running
+        }
 
         try {
-            if (db_file.length() > Configuration.getInstance().getTileFileSystemCacheMaxBytes()) {
-                //run the reaper (remove all old expired tiles)
-                //keep if now is < expiration date
-                //delete if now is > expiration date
-                long now = System.currentTimeMillis();
-                //this part will nuke all expired tiles, not super useful if you're offline
-                //int rows = db.delete(TABLE, "expires < ?", new String[]{System.currentTimeMillis() + ""});
-                //Log.d(IMapView.LOGTAG, "Local storage cache purged " + rows + " expired tiles in " + (System.currentTimeMillis() - now) + "ms, cache size is " + db_file.length() + "bytes");
-
-                //attempt to trim the database
-                //note, i considered adding a looping mechanism here but sqlite can behave differently
-                //i.e. there's no guarantee that the database file size shrinks immediately.
-                Log.i(IMapView.LOGTAG, "Local cache is now " + db_file.length() + " max size is " + Configuration.getInstance().getTileFileSystemCacheMaxBytes());
-                long diff = db_file.length() - Configuration.getInstance().getTileFileSystemCacheTrimBytes();
-                if (tileSize == 0l) {
-                    long count = getRowCount(null);
-                    tileSize = count > 0l ? db_file.length() / count : 4000;
-                    if (Configuration.getInstance().isDebugMode()) {
-                        Log.d(IMapView.LOGTAG, "Number of cached tiles is " + count + ", mean size is " + tileSize);
+            long usedBytes = getUsedBytes();
+            if (usedBytes > Configuration.getInstance().getTileFileSystemCacheMaxBytes()) {
+                final long now = System.currentTimeMillis();
+                Log.i(IMapView.LOGTAG, "Local cache is now " + usedBytes + " max size is " + Configuration.getInstance().getTileFileSystemCacheMaxBytes());
+                long deleted = 0;
+                while (usedBytes > Configuration.getInstance().getTileFileSystemCacheTrimBytes()) {
+                    final int rows = deleteTrimChunk();
+                    if (rows <= 0) {
+                        break;
                     }
+                    deleted += rows;
+                    // deleted pages are reused by the next inserts, the file itself does not shrink
+                    usedBytes = getUsedBytes();
                 }
-                long tilesToKill = diff / tileSize;
-                Log.d(IMapView.LOGTAG, "Local cache purging " + tilesToKill + " tiles.");
-                if (tilesToKill > 0)
-                    try {
-                        db.execSQL("DELETE FROM " + TABLE + " WHERE " + COLUMN_KEY + " in (SELECT " + COLUMN_KEY + " FROM " + TABLE + " ORDER BY " + COLUMN_EXPIRES + " ASC LIMIT " + tilesToKill + ")");
-                    } catch (Throwable t) {
-                        Log.e(IMapView.LOGTAG, "error purging tiles from the tile cache", t);
-                    }
-                Log.d(IMapView.LOGTAG, "purge completed in " + (System.currentTimeMillis() - now) + "ms, cache size is " + db_file.length() + " bytes");
+                Log.d(IMapView.LOGTAG, "purge of " + deleted + " tiles completed in " + (System.currentTimeMillis() - now) + "ms, cache size is " + usedBytes + " bytes");
             }
         } catch (Exception ex) {
             if (Configuration.getInstance().isDebugMode()) {
                 Log.d(IMapView.LOGTAG, "SqliteTileWriter init thread crash, db is probably not available", ex);
             }
+        } finally {
+            mTrimming.set(false);
         }
 
         if (Configuration.getInstance().isDebugMode()) {
@@ -154,8 +245,132 @@ public class SqlTileWriter implements IFilesystemCache {
         }
     }
 
+    /**
+     * @return the number of bytes actually used in the database,
+     * which unlike the file size decreases when tiles are deleted
+     * @since 6.0.2
+     */
+    public long getUsedBytes() {
+        return (getPragma("page_count") - getPragma("freelist_count")) * getPragma("page_size");
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    private long getPragma(final String pName) {
+        final Cursor cursor = db.rawQuery("PRAGMA " + pName, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Asks the trim thread to check the size of the cache, at most once every few seconds
+     * @since 6.0.2
+     */
+    private void trimIfNeeded() {
+        if (System.currentTimeMillis() > lastSizeCheck + 5000){
+            lastSizeCheck = System.currentTimeMillis();
+            scheduleTrim();
+        }
+    }
+
+    /**
+     * Asks the trim thread to trim the cache if it uses more than
+     * {@link Configuration#getInstance()#getTileFileSystemCacheMaxBytes()}; never blocks
+     * @since 6.0.2
+     */
+    private void scheduleTrim() {
+        if (!mTrimming.compareAndSet(false, true)) {
+            return; // already scheduled or running
+        }
+        if (!submitTrimPass(true)) {
+            mTrimming.set(false);
+        }
+    }
+
+    /**
+     * @return false if the trim thread is stopped
+     * @since 6.0.2
+     */
+    private boolean submitTrimPass(final boolean pFirst) {
+        try {
+            mTrimExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runTrimPass(pFirst);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Deletes at most one chunk, then lets the writer thread commit its pending batches
+     * before the next pass: the trim starts beyond the maximum size and goes on until the trim size
+     * @since 6.0.2
+     */
+    private void runTrimPass(final boolean pFirst) {
+        boolean again = false;
+        try {
+            if (db == null || !db.isOpen()) {
+                mTrimming.set(false);
+                return;
+            }
+            final long usedBytes = getUsedBytes();
+            final long limit = pFirst
+                    ? Configuration.getInstance().getTileFileSystemCacheMaxBytes()
+                    : Configuration.getInstance().getTileFileSystemCacheTrimBytes();
+            if (usedBytes > limit) {
+                if (pFirst) {
+                    Log.i(IMapView.LOGTAG, "Local cache is now " + usedBytes + " max size is " + limit);
+                }
+                again = deleteTrimChunk() > 0;
+            }
+        } catch (Throwable t) {
+            Log.e(IMapView.LOGTAG, "error trimming the tile cache", t);
+        }
+        if (!again || !submitTrimPass(false)) {
+            mTrimming.set(false);
+        }
+    }
+
+    /**
+     * Deletes the first tiles in trim order, while holding the write lock
+     * so that the writer thread can commit between two chunks
+     * @return the number of deleted tiles, or -1 if the database is not available
+     * @since 6.0.2
+     */
+    private int deleteTrimChunk() {
+        final String order = trimByLastAccess ? COLUMN_LAST_ACCESS : COLUMN_EXPIRES;
+        final String chunk = "rowid IN (SELECT rowid FROM " + TABLE + " ORDER BY " + order + " ASC LIMIT " + TRIM_CHUNK_SIZE + ")";
+        synchronized (mWriteBehind.getWriteLock()) {
+            if (db == null || !db.isOpen()) {
+                return -1;
+            }
+            try {
+                return db.delete(TABLE, chunk, null);
+            } catch (Throwable t) {
+                Log.e(IMapView.LOGTAG, "error purging tiles from the tile cache", t);
+                return -1;
+            }
+        }
+    }
+
     @Override
     public boolean saveFile(final ITileSource pTileSourceInfo, final long pMapTileIndex, final InputStream pStream, final Long pExpirationTime) {
+        return saveFile(pTileSourceInfo, pMapTileIndex, pStream, pExpirationTime, null);
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    @Override
+    public boolean saveFile(final ITileSource pTileSourceInfo, final long pMapTileIndex, final InputStream pStream, final Long pExpirationTime, final TileValidators pValidators) {
         if (db == null || !db.isOpen()) {
             Log.d(IMapView.LOGTAG, "Unable to store cached tile from " + pTileSourceInfo.name() + " " + MapTileIndex.toString(pMapTileIndex) + ", database not available.");
             Counters.fileCacheSaveErrors++;
@@ -174,24 +389,33 @@ public class SqlTileWriter implements IFilesystemCache {
                 bos.write(buffer, 0, l);
             byte[] bits = bos.toByteArray(); // if a variable is required at all
 
+            if (writeBehind) {
+                if (mWriteBehind.enqueue(new PendingTile(pTileSourceInfo.name(), index, bits, pExpirationTime, pValidators))) {
+                    return true;
+                }
+                Log.d(IMapView.LOGTAG, "Unable to store cached tile from " + pTileSourceInfo.name() + " " + MapTileIndex.toString(pMapTileIndex) + ", the writer is being stopped.");
+                Counters.fileCacheSaveErrors++;
+                return false;
+            }
+
             cv.put(DatabaseFileArchive.COLUMN_KEY, index);
             cv.put(DatabaseFileArchive.COLUMN_TILE, bits);
             if (pExpirationTime != null)
                 cv.put(COLUMN_EXPIRES, pExpirationTime);
+            if (pValidators != null) {
+                cv.put(COLUMN_ETAG, pValidators.getETag());
+                cv.put(COLUMN_LAST_MODIFIED, pValidators.getLastModified());
+            }
+            cv.put(COLUMN_LAST_ACCESS, System.currentTimeMillis());
             db.delete(TABLE, primaryKey, getPrimaryKeyParameters(index, pTileSourceInfo));
             db.insert(TABLE, null, cv);
             if (Configuration.getInstance().isDebugMode())
                 Log.d(IMapView.LOGTAG, "tile inserted " + pTileSourceInfo.name() + MapTileIndex.toString(pMapTileIndex));
-            if (System.currentTimeMillis() > lastSizeCheck + 300000){
-                lastSizeCheck = System.currentTimeMillis();
-                if (db_file!=null && db_file.length() > Configuration.getInstance().getTileFileSystemCacheMaxBytes()) {
-                    runCleanupOperation();
-                }
-            }
+            trimIfNeeded();
         } catch (SQLiteFullException ex) {
             //the drive is full! trigger the clean up operation
             //may want to consider reducing the trim size automagically
-            runCleanupOperation();
+            scheduleTrim();
         } catch (Throwable ex) {
             //note, although we check for db null state at the beginning of this method, it's possible for the
             //db to be closed during the execution of this method
@@ -217,6 +441,9 @@ public class SqlTileWriter implements IFilesystemCache {
             Log.d(IMapView.LOGTAG, "Unable to test for tile exists cached tile from " + pTileSource + " " + MapTileIndex.toString(pMapTileIndex) + ", database not available.");
             return false;
         }
+        if (mWriteBehind.get(pTileSource, getIndex(pMapTileIndex)) != null) {
+            return true;
+        }
         boolean returnValue=false;
         Cursor cur=null;
         try {
@@ -251,15 +478,32 @@ public class SqlTileWriter implements IFilesystemCache {
 
     @Override
     public void onDetach() {
-        if (db != null && db.isOpen()) {
-            try {
-                db.close();
-                Log.i(IMapView.LOGTAG, "Database detached");
-            } catch (Exception ex) {
-                Log.e(IMapView.LOGTAG, "Database detach failed",ex);
+        // called on the UI thread: the queued tiles are written in the background,
+        // then the writer thread closes the database
+        mWriteBehind.shutdown(new Runnable() {
+            @Override
+            public void run() {
+                closeDatabase();
             }
+        });
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    private void closeDatabase() {
+        mTrimExecutor.shutdown();
+        synchronized (mWriteBehind.getWriteLock()) { // not during a trim chunk
+            if (db != null && db.isOpen()) {
+                try {
+                    db.close();
+                    Log.i(IMapView.LOGTAG, "Database detached");
+                } catch (Exception ex) {
+                    Log.e(IMapView.LOGTAG, "Database detach failed",ex);
+                }
+            }
+            db = null;
         }
-        db = null;
         db_file = null;
     }
 
@@ -272,7 +516,10 @@ public class SqlTileWriter implements IFilesystemCache {
     public boolean purgeCache() {
         if (db != null && db.isOpen()) {
             try {
-                db.delete(TABLE, null, null);
+                synchronized (mWriteBehind.getWriteLock()) {
+                    mWriteBehind.removeAll(null);
+                    db.delete(TABLE, null, null);
+                }
                 return true;
             } catch (final Throwable e) {
                 Log.w(IMapView.LOGTAG, "Error purging the db", e);
@@ -290,7 +537,10 @@ public class SqlTileWriter implements IFilesystemCache {
     public boolean purgeCache(String mTileSourceName) {
         if (db != null && db.isOpen()) {
             try {
-                db.delete(TABLE, COLUMN_PROVIDER + " = ?", new String[]{mTileSourceName});
+                synchronized (mWriteBehind.getWriteLock()) {
+                    mWriteBehind.removeAll(mTileSourceName);
+                    db.delete(TABLE, COLUMN_PROVIDER + " = ?", new String[]{mTileSourceName});
+                }
                 return true;
             } catch (final Throwable e) {
                 Log.w(IMapView.LOGTAG, "Error purging the db", e);
@@ -331,7 +581,8 @@ public class SqlTileWriter implements IFilesystemCache {
                                                 File[] y = x[xx].listFiles();
                                                 if (x != null)
                                                     for (int yy = 0; yy < y.length; yy++) {
-                                                        if (!y[yy].isHidden() && !y[yy].isDirectory()) {
+                                                        if (!y[yy].isHidden() && !y[yy].isDirectory()
+                                                                && !y[yy].getName().endsWith(TileWriter.VALIDATORS_EXTENSION)) {
 
                                                             try {
                                                                 ContentValues cv = new ContentValues();
@@ -445,7 +696,10 @@ public class SqlTileWriter implements IFilesystemCache {
         }
         try {
             final long index = getIndex(pMapTileIndex);
-            db.delete(DatabaseFileArchive.TABLE, primaryKey, getPrimaryKeyParameters(index, pTileSourceInfo));
+            synchronized (mWriteBehind.getWriteLock()) {
+                mWriteBehind.remove(pTileSourceInfo.name(), index);
+                db.delete(DatabaseFileArchive.TABLE, primaryKey, getPrimaryKeyParameters(index, pTileSourceInfo));
+            }
             return true;
         } catch (Throwable ex) {
             //note, although we check for db null state at the beginning of this method, it's possible for the
@@ -490,6 +744,7 @@ public class SqlTileWriter implements IFilesystemCache {
 
     /**
     * Returns the expiry time of the tile that expires first.
+    * Thanks to the index on the expires column, this does not scan the table.
     */
     public long getFirstExpiry() {
         try {
@@ -528,6 +783,10 @@ public class SqlTileWriter implements IFilesystemCache {
 
     @Override
     public Long getExpirationTimestamp(final ITileSource pTileSource, final long pMapTileIndex) {
+        final PendingTile pending = mWriteBehind.get(pTileSource.name(), getIndex(pMapTileIndex));
+        if (pending != null) {
+            return pending.getExpires();
+        }
         Cursor cursor = null;
         try {
             cursor = getTileCursor(getPrimaryKeyParameters(getIndex(pMapTileIndex), pTileSource), expireQueryColumn);
@@ -544,6 +803,82 @@ public class SqlTileWriter implements IFilesystemCache {
         return null;
     }
 
+    /**
+     * @since 6.0.2
+     */
+    @Override
+    public TileValidators getValidators(final ITileSource pTileSource, final long pMapTileIndex) {
+        final PendingTile pending = mWriteBehind.get(pTileSource.name(), getIndex(pMapTileIndex));
+        if (pending != null) {
+            return pending.mValidators;
+        }
+        if (db == null || !db.isOpen()) {
+            return null;
+        }
+        Cursor cursor = null;
+        try {
+            cursor = getTileCursor(getPrimaryKeyParameters(getIndex(pMapTileIndex), pTileSource), validatorsQueryColumns);
+            if (cursor.moveToFirst()) {
+                return TileValidators.get(cursor.getString(0), cursor.getString(1));
+            }
+        } catch (Throwable t) {
+            Log.e(IMapView.LOGTAG, "error getting validators from the tile cache", t);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    @Override
+    public boolean refreshExpirationTimestamp(final ITileSource pTileSource, final long pMapTileIndex, final Long pExpirationTime) {
+        if (db == null || !db.isOpen()) {
+            Log.d(IMapView.LOGTAG, "Unable to refresh cached tile from " + pTileSource.name() + " " + MapTileIndex.toString(pMapTileIndex) + ", database not available.");
+            return false;
+        }
+        try {
+            final long index = getIndex(pMapTileIndex);
+            synchronized (mWriteBehind.getWriteLock()) {
+                if (mWriteBehind.setExpires(pTileSource.name(), index, pExpirationTime)) {
+                    return true;
+                }
+            }
+            final ContentValues cv = new ContentValues();
+            cv.put(COLUMN_EXPIRES, pExpirationTime);
+            final boolean result = db.update(TABLE, cv, primaryKey, getPrimaryKeyParameters(index, pTileSource)) > 0;
+            if (Configuration.getInstance().isDebugMode())
+                Log.d(IMapView.LOGTAG, "tile refreshed " + pTileSource.name() + MapTileIndex.toString(pMapTileIndex) + ": " + result);
+            return result;
+        } catch (Throwable ex) {
+            Log.e(IMapView.LOGTAG, "Unable to refresh cached tile from " + pTileSource.name() + " " + MapTileIndex.toString(pMapTileIndex), ex);
+            Counters.fileCacheSaveErrors++;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a column to the tile table of a database created by a previous version
+     * @since 6.0.2
+     */
+    private void addColumnIfMissing(final String pColumn, final String pType) {
+        final Cursor cursor = db.rawQuery("PRAGMA table_info(" + TABLE + ")", null);
+        try {
+            final int nameIndex = cursor.getColumnIndex("name");
+            while (cursor.moveToNext()) {
+                if (pColumn.equals(cursor.getString(nameIndex))) {
+                    return;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN " + pColumn + " " + pType);
+    }
+
     /**
      * @since 5.6.5
      */
@@ -598,20 +933,35 @@ public class SqlTileWriter implements IFilesystemCache {
      */
     private static final String[] expireQueryColumn = {SqlTileWriter.COLUMN_EXPIRES};
 
+    /**
+     * For optimization reasons
+     * @since 6.0.2
+     */
+    private static final String[] validatorsQueryColumns = {SqlTileWriter.COLUMN_ETAG, SqlTileWriter.COLUMN_LAST_MODIFIED};
+
     @Override
     public Drawable loadTile(final ITileSource pTileSource, final long pMapTileIndex) throws Exception{
         InputStream inputStream = null;
         try {
             final long index = getIndex(pMapTileIndex);
-            final Cursor cur = getTileCursor(getPrimaryKeyParameters(index, pTileSource), queryColumns);
             byte[] bits=null;
             long expirationTimestamp=0;
 
-            if (cur.moveToFirst()){
-                bits = cur.getBlob(cur.getColumnIndex(DatabaseFileArchive.COLUMN_TILE));
-                expirationTimestamp = cur.getLong(cur.getColumnIndex(SqlTileWriter.COLUMN_EXPIRES));
+            final PendingTile pending = mWriteBehind.get(pTileSource.name(), index);
+            if (pending != null) {
+                bits = pending.mBits;
+                expirationTimestamp = pending.getExpires();
+            } else {
+                final Cursor cur = getTileCursor(getPrimaryKeyParameters(index, pTileSource), queryColumns);
+                if (cur.moveToFirst()) {
+                    bits = cur.getBlob(cur.getColumnIndex(DatabaseFileArchive.COLUMN_TILE));
+                    expirationTimestamp = cur.getLong(cur.getColumnIndex(SqlTileWriter.COLUMN_EXPIRES));
+                }
+                cur.close();
+                if (bits != null && trimByLastAccess) {
+                    mWriteBehind.recordAccess(pTileSource.name(), index);
+                }
             }
-            cur.close();
             if (bits==null) {
                 if (Configuration.getInstance().isDebugMode()) {
                     Log.d(IMapView.LOGTAG,"SqlCache - Tile doesn't exist: " +pTileSource.name() + MapTileIndex.toString(pMapTileIndex));
@@ -637,4 +987,76 @@ public class SqlTileWriter implements IFilesystemCache {
             }
         }
     }
+
+    /**
+     * Writes tiles and access times in a single transaction, with prepared statements
+     * @since 6.0.2
+     */
+    private void writeBatch(final List<PendingTile> pBatch, final List<TileAccess> pAccesses) {
+        if (db == null || !db.isOpen()) {
+            Log.d(IMapView.LOGTAG, "Unable to store " + pBatch.size() + " cached tiles, database not available.");
+            Counters.fileCacheSaveErrors += pBatch.size();
+            return;
+        }
+        try {
+            final SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE + " ("
+                    + DatabaseFileArchive.COLUMN_KEY + ", " + DatabaseFileArchive.COLUMN_PROVIDER + ", "
+                    + DatabaseFileArchive.COLUMN_TILE + ", " + COLUMN_EXPIRES + ", "
+                    + COLUMN_ETAG + ", " + COLUMN_LAST_MODIFIED + ", " + COLUMN_LAST_ACCESS
+                    + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+            final SQLiteStatement update = db.compileStatement("UPDATE " + TABLE + " SET "
+                    + COLUMN_LAST_ACCESS + " = ? WHERE " + primaryKey);
+            final long now = System.currentTimeMillis();
+            db.beginTransaction();
+            try {
+                for (final PendingTile tile : pBatch) {
+                    insert.clearBindings();
+                    insert.bindLong(1, tile.mIndex);
+                    insert.bindString(2, tile.mProvider);
+                    insert.bindBlob(3, tile.mBits);
+                    if (tile.mExpires != null) {
+                        insert.bindLong(4, tile.mExpires);
+                    }
+                    if (tile.mValidators != null && tile.mValidators.getETag() != null) {
+                        insert.bindString(5, tile.mValidators.getETag());
+                    }
+                    if (tile.mValidators != null && tile.mValidators.getLastModified() != null) {
+                        insert.bindString(6, tile.mValidators.getLastModified());
+                    }
+                    insert.bindLong(7, now);
+                    insert.executeInsert();
+                }
+                for (final TileAccess access : pAccesses) {
+                    update.bindLong(1, access.mTime);
+                    update.bindLong(2, access.mIndex);
+                    update.bindString(3, access.mProvider);
+                    update.execute();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insert.close();
+                update.close();
+            }
+            if (Configuration.getInstance().isDebugMode())
+                Log.d(IMapView.LOGTAG, pBatch.size() + " tiles inserted, " + pAccesses.size() + " access times updated");
+        } catch (SQLiteFullException ex) {
+            //the drive is full! trigger the clean up operation
+            Counters.fileCacheSaveErrors += pBatch.size();
+            scheduleTrim();
+        } catch (Throwable ex) {
+            //note, although we check for db null state at the beginning of this method, it's possible for the
+            //db to be closed during the execution of this method
+            Log.e(IMapView.LOGTAG, "Unable to store " + pBatch.size() + " cached tiles, db is " + (db == null ? "null" : "not null"), ex);
+            Counters.fileCacheSaveErrors += pBatch.size();
+        }
+    }
+
+    /**
+     * Waits until all the queued tiles are written
+     * @since 6.0.2
+     */
+    public void flush() throws InterruptedException {
+        mWriteBehind.flush();
+    }
 }
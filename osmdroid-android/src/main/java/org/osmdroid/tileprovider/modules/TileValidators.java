@@ -0,0 +1,45 @@
+package org.osmdroid.tileprovider.modules;
+
+/**
+ * The HTTP validators (ETag and Last-Modified headers) a tile server sent with a tile.
+ * They are stored with the tile by the {@link IRevalidatingFilesystemCache}, so that an expired tile can be
+ * revalidated with a conditional request: if the tile did not change on the server,
+ * the server answers "304 Not Modified" without sending the tile again.
+ * @since 6.0.2
+ */
+public class TileValidators {
+
+	private final String mETag;
+	private final String mLastModified;
+
+	/**
+	 * @param pETag value of the ETag header, or null
+	 * @param pLastModified value of the Last-Modified header as sent by the server, or null
+	 */
+	public TileValidators(final String pETag, final String pLastModified) {
+		mETag = pETag;
+		mLastModified = pLastModified;
+	}
+
+	/**
+	 * @return null if both validators are missing
+	 */
+	public static TileValidators get(final String pETag, final String pLastModified) {
+		if (isEmpty(pETag) && isEmpty(pLastModified)) {
+			return null;
+		}
+		return new TileValidators(isEmpty(pETag) ? null : pETag, isEmpty(pLastModified) ? null : pLastModified);
+	}
+
+	public String getETag() {
+		return mETag;
+	}
+
+	public String getLastModified() {
+		return mLastModified;
+	}
+
+	private static boolean isEmpty(final String pString) {
+		return pString == null || pString.length() == 0;
+	}
+}
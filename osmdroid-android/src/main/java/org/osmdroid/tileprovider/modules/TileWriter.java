@@ -3,13 +3,16 @@ package org.osmdroid.tileprovider.modules;
 import android.graphics.drawable.Drawable;
 import android.util.Log;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -31,12 +34,17 @@ import org.osmdroid.util.MapTileIndex;
  * @see OpenStreetMapTileProviderConstants
  *
  */
-public class TileWriter implements IFilesystemCache {
+public class TileWriter implements IRevalidatingFilesystemCache {
 
 	// ===========================================================
 	// Constants
 	// ===========================================================
 
+	/**
+	 * Extension of the small file stored next to a tile file, containing the tile HTTP validators
+	 * @since 6.0.2
+	 */
+	public static final String VALIDATORS_EXTENSION = ".validators";
 
 	// ===========================================================
 	// Fields
@@ -102,6 +110,17 @@ public class TileWriter implements IFilesystemCache {
 	@Override
 	public boolean saveFile(final ITileSource pTileSource, final long pMapTileIndex,
 			final InputStream pStream, final Long pExpirationTime) {
+		return saveFile(pTileSource, pMapTileIndex, pStream, pExpirationTime, null);
+	}
+
+	/**
+	 * The validators, if any, are stored in a small file next to the tile file.
+	 * The expiration is not stored: the tiles follow the {@link #setMaximumCachedFileAge(long) file age policy}
+	 * @since 6.0.2
+	 */
+	@Override
+	public boolean saveFile(final ITileSource pTileSource, final long pMapTileIndex,
+			final InputStream pStream, final Long pExpirationTime, final TileValidators pValidators) {
 
 		final File file = getFile(pTileSource, pMapTileIndex);
 
@@ -120,6 +139,7 @@ public class TileWriter implements IFilesystemCache {
 			final long length = StreamUtils.copy(pStream, outputStream);
 
 			mUsedCacheSpace += length;
+			saveValidators(getValidatorsFile(file), pValidators);
 			if (mUsedCacheSpace > Configuration.getInstance().getTileFileSystemCacheMaxBytes()) {
 				cutCurrentCache(); // TODO perhaps we should do this in the background
 			}
@@ -150,6 +170,7 @@ public class TileWriter implements IFilesystemCache {
 
 		if (file.exists()) {
 			try {
+				getValidatorsFile(file).delete();
 				return file.delete();
 			}catch (Exception ex){
 				//potential io exception
@@ -173,6 +194,36 @@ public class TileWriter implements IFilesystemCache {
 		return getFile(pTileSource, pMapTileIndex).exists();
 	}
 
+	/**
+	 * @since 6.0.2
+	 */
+	@Override
+	public TileValidators getValidators(final ITileSource pTileSource, final long pMapTileIndex) {
+		final String[] lines = readValidators(pTileSource, pMapTileIndex);
+		if (lines == null) {
+			return null;
+		}
+		return TileValidators.get(lines[0], lines.length > 1 ? lines[1] : null);
+	}
+
+	/**
+	 * Touches the tile file, so that the {@link #setMaximumCachedFileAge(long) file age policy} restarts from now;
+	 * the validators are kept
+	 * @since 6.0.2
+	 */
+	@Override
+	public boolean refreshExpirationTimestamp(final ITileSource pTileSource, final long pMapTileIndex, final Long pExpirationTime) {
+		final File file = getFile(pTileSource, pMapTileIndex);
+		return file.exists() && file.setLastModified(System.currentTimeMillis());
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	public File getValidatorsFile(final File pTileFile) {
+		return new File(pTileFile.getPath() + VALIDATORS_EXTENSION);
+	}
+
 	// ===========================================================
 	// Methods
 	// ===========================================================
@@ -204,6 +255,60 @@ public class TileWriter implements IFilesystemCache {
 		}
 	}
 
+	/**
+	 * Format: one line for the ETag, one for the Last-Modified; each line may be empty.
+	 * Without any validator there is no file at all, so that most tiles are a single file.
+	 * @since 6.0.2
+	 */
+	private void saveValidators(final File pFile, final TileValidators pValidators) throws IOException {
+		if (pValidators == null || (pValidators.getETag() == null && pValidators.getLastModified() == null)) {
+			if (pFile.exists()) {
+				final long length = pFile.length();
+				if (pFile.delete()) {
+					mUsedCacheSpace -= length;
+				}
+			}
+			return;
+		}
+		final String content = (pValidators.getETag() == null ? "" : pValidators.getETag()) + "\n"
+				+ (pValidators.getLastModified() == null ? "" : pValidators.getLastModified());
+		final byte[] bytes = content.getBytes("UTF-8");
+		final long previousLength = pFile.length(); // 0 if there's no such file
+		final FileOutputStream outputStream = new FileOutputStream(pFile);
+		try {
+			outputStream.write(bytes);
+		} finally {
+			StreamUtils.closeStream(outputStream);
+		}
+		mUsedCacheSpace += bytes.length - previousLength;
+	}
+
+	/**
+	 * @return the lines of the validators file, or null if the tile or the file don't exist
+	 * @since 6.0.2
+	 */
+	private String[] readValidators(final ITileSource pTileSource, final long pMapTileIndex) {
+		final File file = getFile(pTileSource, pMapTileIndex);
+		final File validatorsFile = getValidatorsFile(file);
+		if (!file.exists() || !validatorsFile.exists()) {
+			return null;
+		}
+		InputStream inputStream = null;
+		try {
+			inputStream = new FileInputStream(validatorsFile);
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			StreamUtils.copy(inputStream, bytes);
+			return new String(bytes.toByteArray(), "UTF-8").split("\n", -1);
+		} catch (final IOException e) {
+			Log.i(IMapView.LOGTAG, "Unable to read validators of cached tile " + MapTileIndex.toString(pMapTileIndex), e);
+			return null;
+		} finally {
+			if (inputStream != null) {
+				StreamUtils.closeStream(inputStream);
+			}
+		}
+	}
+
 	private void calculateDirectorySize(final File pDirectory) {
 		final File[] z = pDirectory.listFiles();
 		if (z != null) {
@@ -274,6 +379,13 @@ public class TileWriter implements IFilesystemCache {
 						+ Configuration.getInstance().getTileFileSystemCacheTrimBytes());
 
 				final List<File> z = getDirectoryFileList(Configuration.getInstance().getOsmdroidTileCache());
+				// the validators files are deleted with their tile
+				final Iterator<File> iterator = z.iterator();
+				while (iterator.hasNext()) {
+					if (iterator.next().getName().endsWith(VALIDATORS_EXTENSION)) {
+						iterator.remove();
+					}
+				}
 
 				// order list by files day created from old to new
 				final File[] files = z.toArray(new File[0]);
@@ -295,6 +407,11 @@ public class TileWriter implements IFilesystemCache {
 							Log.d(IMapView.LOGTAG,"Cache trim deleting " + file.getAbsolutePath());
 						}
 						mUsedCacheSpace -= length;
+						final File validatorsFile = getValidatorsFile(file);
+						final long validatorsLength = validatorsFile.length(); // 0 if there's no such file
+						if (validatorsLength > 0 && validatorsFile.delete()) {
+							mUsedCacheSpace -= validatorsLength;
+						}
 					}
 				}
 
@@ -112,7 +112,8 @@ public abstract class BitmapTileSourceBase implements ITileSource {
 			// default implementation will load the file as a bitmap and create
 			// a BitmapDrawable from it
 			BitmapFactory.Options bitmapOptions = new BitmapFactory.Options();
-			BitmapPool.getInstance().applyReusableOptions(bitmapOptions);
+			BitmapPool.getInstance().applyReusableOptions(
+					bitmapOptions, mTileSizePixels, mTileSizePixels, Bitmap.Config.ARGB_8888);
 			final Bitmap bitmap;
 			//fix for API 15 see https://github.com/osmdroid/osmdroid/issues/227
 			if (Build.VERSION.SDK_INT == Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
@@ -166,7 +167,8 @@ public abstract class BitmapTileSourceBase implements ITileSource {
 			// default implementation will load the file as a bitmap and create
 			// a BitmapDrawable from it
 			BitmapFactory.Options bitmapOptions = new BitmapFactory.Options();
-			BitmapPool.getInstance().applyReusableOptions(bitmapOptions);
+			BitmapPool.getInstance().applyReusableOptions(
+					bitmapOptions, mTileSizePixels, mTileSizePixels, Bitmap.Config.ARGB_8888);
 			final Bitmap bitmap = BitmapFactory.decodeStream(aFileInputStream, null, bitmapOptions);
 			if (bitmap != null) {
 				return new ReusableBitmapDrawable(bitmap);
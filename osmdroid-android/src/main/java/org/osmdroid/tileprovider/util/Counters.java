@@ -23,6 +23,42 @@ public class Counters {
     public static int fileCacheOOM=0;
     public static int fileCacheHit=0;
 
+    /**
+     * {@link org.osmdroid.tileprovider.BitmapPool} statistics
+     * @since 6.0.2
+     */
+    public static int bitmapPoolHit=0;
+    public static int bitmapPoolMiss=0;
+    public static int bitmapPoolEviction=0;
+
+    /**
+     * expired tiles revalidated by the server (HTTP 304) instead of being downloaded again
+     * @since 6.0.2
+     */
+    public static int tileDownloadNotModified=0;
+
+    /**
+     * background cache rescales on zoom: count, cancelled by a new zoom, total duration in ms
+     * @since 6.0.2
+     */
+    public static int rescaleCount=0;
+    public static int rescaleCancelled=0;
+    public static long rescaleMillis=0;
+
+    /**
+     * tile ready notifications received by {@link SimpleInvalidationHandler}, and how many of them
+     * were merged into an invalidation already scheduled for the next frame
+     * @since 6.0.2
+     */
+    public static int tileInvalidationRequests=0;
+    public static int tileInvalidationMerged=0;
+
+    /**
+     * bulk downloads refused by the server because of the request rate (HTTP 429 or 503)
+     * @since 6.0.2
+     */
+    public static int tileDownloadThrottled=0;
+
     public static void printToLogcat() {
         Log.d(TAG, "countOOM " + countOOM);
         Log.d(TAG, "tileDownloadErrors " + tileDownloadErrors);
@@ -30,6 +66,16 @@ public class Counters {
         Log.d(TAG, "fileCacheMiss " + fileCacheMiss);
         Log.d(TAG, "fileCacheOOM " + fileCacheOOM);
         Log.d(TAG, "fileCacheHit " + fileCacheHit);
+        Log.d(TAG, "bitmapPoolHit " + bitmapPoolHit);
+        Log.d(TAG, "bitmapPoolMiss " + bitmapPoolMiss);
+        Log.d(TAG, "bitmapPoolEviction " + bitmapPoolEviction);
+        Log.d(TAG, "tileDownloadNotModified " + tileDownloadNotModified);
+        Log.d(TAG, "rescaleCount " + rescaleCount);
+        Log.d(TAG, "rescaleCancelled " + rescaleCancelled);
+        Log.d(TAG, "rescaleMillis " + rescaleMillis);
+        Log.d(TAG, "tileInvalidationRequests " + tileInvalidationRequests);
+        Log.d(TAG, "tileInvalidationMerged " + tileInvalidationMerged);
+        Log.d(TAG, "tileDownloadThrottled " + tileDownloadThrottled);
     }
     public static void reset(){
         countOOM =0;
@@ -38,5 +84,15 @@ public class Counters {
         fileCacheMiss=0;
         fileCacheOOM=0;
         fileCacheHit=0;
+        bitmapPoolHit=0;
+        bitmapPoolMiss=0;
+        bitmapPoolEviction=0;
+        tileDownloadNotModified=0;
+        rescaleCount=0;
+        rescaleCancelled=0;
+        rescaleMillis=0;
+        tileInvalidationRequests=0;
+        tileInvalidationMerged=0;
+        tileDownloadThrottled=0;
     }
 }
@@ -0,0 +1,94 @@
+package org.osmdroid.tileprovider.util;
+
+/**
+ * The tile notifications received by a {@link SimpleInvalidationHandler} since its last invalidation,
+ * merged into a single invalidation: either a dirty rectangle or the whole view.
+ * <p>
+ * don't use android classes here, so that the coalescing can be unit tested
+ * @since 6.0.2
+ */
+class InvalidationCoalescer {
+
+	private boolean mScheduled;
+	private boolean mFull;
+	private boolean mEmpty = true;
+	private int mLeft;
+	private int mTop;
+	private int mRight;
+	private int mBottom;
+
+	/**
+	 * To be called after each notification
+	 * @return true if an invalidation must be scheduled, false if the notification is merged
+	 * into the invalidation already scheduled
+	 */
+	boolean schedule() {
+		if (mScheduled) {
+			Counters.tileInvalidationMerged++;
+			return false;
+		}
+		mScheduled = true;
+		return true;
+	}
+
+	/**
+	 * The whole view will be invalidated
+	 */
+	void setFull() {
+		mFull = true;
+	}
+
+	boolean isFull() {
+		return mFull;
+	}
+
+	/**
+	 * Adds a rectangle to the dirty area
+	 */
+	void union(final int pLeft, final int pTop, final int pRight, final int pBottom) {
+		if (pLeft >= pRight || pTop >= pBottom) {
+			return;
+		}
+		if (mEmpty) {
+			mLeft = pLeft;
+			mTop = pTop;
+			mRight = pRight;
+			mBottom = pBottom;
+			mEmpty = false;
+			return;
+		}
+		mLeft = Math.min(mLeft, pLeft);
+		mTop = Math.min(mTop, pTop);
+		mRight = Math.max(mRight, pRight);
+		mBottom = Math.max(mBottom, pBottom);
+	}
+
+	boolean isEmpty() {
+		return mEmpty;
+	}
+
+	int getLeft() {
+		return mLeft;
+	}
+
+	int getTop() {
+		return mTop;
+	}
+
+	int getRight() {
+		return mRight;
+	}
+
+	int getBottom() {
+		return mBottom;
+	}
+
+	/**
+	 * To be called once the scheduled invalidation is done, or cancelled
+	 */
+	void reset() {
+		mScheduled = false;
+		mFull = false;
+		mEmpty = true;
+	}
+}
@@ -0,0 +1,76 @@
+package org.osmdroid.tileprovider.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A {@link ByteArrayOutputStream} meant to be reused for many downloads by the same thread.
+ * The content is read directly into the internal array, and can be read again through
+ * {@link #getInputStream()} without copying the array.
+ * <p>
+ * don't use android classes here, since this class is used outside of android
+ * @since 6.0.2
+ */
+public class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+
+	/**
+	 * Above this size the internal array is released on {@link #reset()},
+	 * so that an unusually big download doesn't keep that memory forever
+	 */
+	private final int mMaxRetainedSize;
+
+	public ReusableByteArrayOutputStream() {
+		this(StreamUtils.IO_BUFFER_SIZE * 4, 1024 * 1024);
+	}
+
+	/**
+	 * @param pInitialSize initial size of the internal array, may be 0
+	 * @param pMaxRetainedSize size above which the internal array is released on {@link #reset()}
+	 */
+	public ReusableByteArrayOutputStream(final int pInitialSize, final int pMaxRetainedSize) {
+		super(pInitialSize);
+		if (pMaxRetainedSize < pInitialSize) {
+			throw new IllegalArgumentException("Max retained size " + pMaxRetainedSize
+					+ " is smaller than initial size " + pInitialSize);
+		}
+		mMaxRetainedSize = pMaxRetainedSize;
+	}
+
+	/**
+	 * Replaces the content with the whole content of an input stream
+	 * @return the number of bytes read
+	 */
+	public int readFrom(final InputStream pInputStream) throws IOException {
+		reset();
+		while (true) {
+			if (count == buf.length) {
+				final byte[] bigger = new byte[Math.max(StreamUtils.IO_BUFFER_SIZE, buf.length * 2)];
+				System.arraycopy(buf, 0, bigger, 0, count);
+				buf = bigger;
+			}
+			final int read = pInputStream.read(buf, count, buf.length - count);
+			if (read == -1) {
+				return count;
+			}
+			count += read;
+		}
+	}
+
+	/**
+	 * @return a stream on the current content, sharing the internal array:
+	 * it's valid until the next {@link #reset()} or write
+	 */
+	public ByteArrayInputStream getInputStream() {
+		return new ByteArrayInputStream(buf, 0, count);
+	}
+
+	@Override
+	public synchronized void reset() {
+		super.reset();
+		if (buf.length > mMaxRetainedSize) {
+			buf = new byte[mMaxRetainedSize];
+		}
+	}
+}
@@ -1,14 +1,45 @@
 package org.osmdroid.tileprovider.util;
 
 import org.osmdroid.tileprovider.MapTileProviderBase;
+import org.osmdroid.util.MapTileIndex;
+import org.osmdroid.util.MyMath;
+import org.osmdroid.util.RectL;
+import org.osmdroid.util.TileSystem;
+import org.osmdroid.views.MapView;
+import org.osmdroid.views.Projection;
 
+import android.annotation.TargetApi;
+import android.graphics.Rect;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Message;
 import android.view.View;
 
+/**
+ * Invalidates the view when tiles are ready.
+ * Since 6.0.2 the notifications are coalesced: there's at most one invalidation per display frame,
+ * limited to the rectangles of the tiles that are ready when the view is a not rotated {@link MapView}.
+ * See {@link Counters#tileInvalidationMerged}.
+ */
 public class SimpleInvalidationHandler extends Handler {
+
+	/**
+	 * Delay between two invalidations before Jelly Bean, where we can't wait for the next frame
+	 */
+	private static final long FRAME_DELAY = 16;
+
 	private View mView;
 
+	private final InvalidationCoalescer mCoalescer = new InvalidationCoalescer();
+	private final Rect mTileRect = new Rect();
+	private final RectL mViewPort = new RectL();
+	private final Runnable mInvalidation = new Runnable() {
+		@Override
+		public void run() {
+			invalidate();
+		}
+	};
+
 	public SimpleInvalidationHandler(final View pView) {
 		super();
 		mView = pView;
@@ -18,8 +49,14 @@ public class SimpleInvalidationHandler extends Handler {
 	public void handleMessage(final Message msg) {
 		switch (msg.what) {
 		case MapTileProviderBase.MAPTILE_SUCCESS_ID:
-			if (mView!=null)
-				mView.invalidate();
+			Counters.tileInvalidationRequests++;
+			if (mView == null) {
+				break;
+			}
+			addDirtyTile(MapTileProviderBase.getMapTileIndex(msg));
+			if (mCoalescer.schedule()) {
+				postInvalidation();
+			}
 			break;
 		}
 	}
@@ -29,6 +66,79 @@ public class SimpleInvalidationHandler extends Handler {
 	 *
 	 */
 	public void destroy(){
+		if (mView != null) {
+			// the invalidation may have been posted on the view's animation callbacks
+			mView.removeCallbacks(mInvalidation);
+		}
+		removeCallbacks(mInvalidation);
 		mView=null;
+		mCoalescer.reset();
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private void postInvalidation() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			mView.postOnAnimation(mInvalidation);
+		} else {
+			postDelayed(mInvalidation, FRAME_DELAY);
+		}
+	}
+
+	private void invalidate() {
+		if (mView != null) {
+			if (mCoalescer.isFull()) {
+				mView.invalidate();
+			} else if (!mCoalescer.isEmpty()) {
+				mView.invalidate(mCoalescer.getLeft(), mCoalescer.getTop(), mCoalescer.getRight(), mCoalescer.getBottom());
+			}
+		}
+		mCoalescer.reset();
+	}
+
+	/**
+	 * Adds the screen rectangles where a tile is displayed to the dirty area,
+	 * or falls back to a full invalidation when that's not simple
+	 */
+	private void addDirtyTile(final long pMapTileIndex) {
+		if (mCoalescer.isFull()) {
+			return;
+		}
+		if (!(mView instanceof MapView)) {
+			mCoalescer.setFull();
+			return;
+		}
+		final MapView mapView = (MapView) mView;
+		final Projection projection = mapView.getProjection();
+		if (mapView.getMapOrientation() != 0 || !projection.getScaleRotateCanvasMatrix().isIdentity()) {
+			mCoalescer.setFull();
+			return;
+		}
+		final int zoom = MapTileIndex.getZoom(pMapTileIndex);
+		if (zoom != TileSystem.getInputTileZoomLevel(projection.getZoomLevel())) {
+			mCoalescer.setFull(); // e.g. a tile drawn while zooming
+			return;
+		}
+		final int x = MapTileIndex.getX(pMapTileIndex);
+		final int y = MapTileIndex.getY(pMapTileIndex);
+		final int mapTileUpperBound = 1 << zoom;
+		projection.getMercatorViewPort(mViewPort);
+		final int left = projection.getTileFromMercator(mViewPort.left);
+		final int top = projection.getTileFromMercator(mViewPort.top);
+		final int right = projection.getTileFromMercator(mViewPort.right);
+		final int bottom = projection.getTileFromMercator(mViewPort.bottom);
+		// the tile may be displayed several times when the map is repeated
+		for (int i = left ; i <= right ; i ++) {
+			if (MyMath.mod(i, mapTileUpperBound) != x) {
+				continue;
+			}
+			for (int j = top ; j <= bottom ; j ++) {
+				if (MyMath.mod(j, mapTileUpperBound) != y) {
+					continue;
+				}
+				projection.getPixelFromTile(i, j, mTileRect);
+				mTileRect.inset(-1, -1); // rounding
+				mCoalescer.union(mTileRect.left, mTileRect.top, mTileRect.right, mTileRect.bottom);
+			}
+		}
 	}
 }
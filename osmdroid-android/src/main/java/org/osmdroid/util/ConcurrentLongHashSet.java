@@ -0,0 +1,146 @@
+package org.osmdroid.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A set of non-negative longs (e.g. map tile indices), without boxing.
+ * {@link #contains(long)} doesn't lock and doesn't allocate, and can run while another thread
+ * modifies the set: it may then miss the modification in progress, but the modifications
+ * themselves are serialized, and {@link #add(long)} is a reliable "add if absent".
+ * @since 6.0.2
+ */
+public class ConcurrentLongHashSet {
+
+	private static final long EMPTY = -1;
+	private static final long REMOVED = -2;
+	private static final int INITIAL_CAPACITY = 64;
+
+	private volatile AtomicLongArray mTable;
+	private volatile int mSize;
+	/** Number of slots that are not EMPTY, guarded by this */
+	private int mUsedSlots;
+
+	public ConcurrentLongHashSet() {
+		mTable = newTable(INITIAL_CAPACITY);
+	}
+
+	public boolean contains(final long pKey) {
+		final AtomicLongArray table = mTable;
+		final int mask = table.length() - 1;
+		int index = hash(pKey) & mask;
+		for (int i = 0 ; i <= mask ; i ++) {
+			final long value = table.get(index);
+			if (value == pKey) {
+				return true;
+			}
+			if (value == EMPTY) {
+				return false;
+			}
+			index = (index + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the key was not in the set yet
+	 */
+	public synchronized boolean add(final long pKey) {
+		if (pKey < 0) {
+			throw new IllegalArgumentException("Negative key: " + pKey);
+		}
+		if (contains(pKey)) {
+			return false;
+		}
+		if ((mUsedSlots + 1) * 2 > mTable.length()) {
+			rehash();
+		}
+		final AtomicLongArray table = mTable;
+		final int mask = table.length() - 1;
+		int index = hash(pKey) & mask;
+		while (true) {
+			final long value = table.get(index);
+			if (value == EMPTY || value == REMOVED) {
+				if (value == EMPTY) {
+					mUsedSlots ++;
+				}
+				table.set(index, pKey);
+				mSize ++;
+				return true;
+			}
+			index = (index + 1) & mask;
+		}
+	}
+
+	/**
+	 * @return true if the key was in the set
+	 */
+	public synchronized boolean remove(final long pKey) {
+		final AtomicLongArray table = mTable;
+		final int mask = table.length() - 1;
+		int index = hash(pKey) & mask;
+		for (int i = 0 ; i <= mask ; i ++) {
+			final long value = table.get(index);
+			if (value == pKey) {
+				// not EMPTY: that would hide the keys stored after this one
+				table.set(index, REMOVED);
+				mSize --;
+				return true;
+			}
+			if (value == EMPTY) {
+				return false;
+			}
+			index = (index + 1) & mask;
+		}
+		return false;
+	}
+
+	public synchronized void clear() {
+		mTable = newTable(INITIAL_CAPACITY);
+		mSize = 0;
+		mUsedSlots = 0;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * Copies the keys into a new table, without the REMOVED markers, and bigger if needed.
+	 * The old table is not modified anymore, so that concurrent readers still get consistent results.
+	 */
+	private void rehash() {
+		final AtomicLongArray oldTable = mTable;
+		int capacity = INITIAL_CAPACITY;
+		while ((mSize + 1) * 4 > capacity) {
+			capacity *= 2;
+		}
+		final AtomicLongArray table = newTable(capacity);
+		final int mask = capacity - 1;
+		for (int i = 0 ; i < oldTable.length() ; i ++) {
+			final long value = oldTable.get(i);
+			if (value < 0) {
+				continue;
+			}
+			int index = hash(value) & mask;
+			while (table.get(index) != EMPTY) {
+				index = (index + 1) & mask;
+			}
+			table.set(index, value);
+		}
+		mUsedSlots = mSize;
+		mTable = table;
+	}
+
+	private static AtomicLongArray newTable(final int pCapacity) {
+		final AtomicLongArray result = new AtomicLongArray(pCapacity);
+		for (int i = 0 ; i < pCapacity ; i ++) {
+			result.set(i, EMPTY);
+		}
+		return result;
+	}
+
+	private static int hash(final long pKey) {
+		final int hash = (int) (pKey ^ (pKey >>> 32)) * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
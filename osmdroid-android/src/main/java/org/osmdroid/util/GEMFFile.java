@@ -1,15 +1,18 @@
 package org.osmdroid.util;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
@@ -42,6 +45,15 @@ public class GEMFFile {
 	private static final int U32_SIZE = 4;
 	private static final int U64_SIZE = 8;
 
+	/**
+	 * Part files are memory-mapped by segments of that size (a single mapping cannot exceed 2GB)...
+	 */
+	private static final long MAPPED_SEGMENT_SIZE = 1L << 30;
+	/**
+	 * ... that overlap by that size, so that a tile never spans two segments
+	 */
+	private static final long MAPPED_SEGMENT_OVERLAP = 1L << 20;
+
 
 	// ===========================================================
 	// Fields
@@ -54,8 +66,23 @@ public class GEMFFile {
 	private final List<RandomAccessFile> mFiles = new ArrayList<RandomAccessFile>();
 	private final List<String> mFileNames = new ArrayList<String>();
 
-	// Tile ranges represented within this archive
-	private final List<GEMFRange> mRangeData = new ArrayList<GEMFRange>();
+	// Channels of the file parts, for lock-free positional reads when a part cannot be mapped
+	private final List<FileChannel> mChannels = new ArrayList<FileChannel>();
+
+	// Memory-mapped segments of each file part, or null if the part could not be mapped
+	private final List<ByteBuffer[]> mMappedSegments = new ArrayList<ByteBuffer[]>();
+
+	// Tile ranges represented within this archive, as flat arrays sorted by zoom level
+	private int[] mRangeZoom;
+	private int[] mRangeXMin;
+	private int[] mRangeXMax;
+	private int[] mRangeYMin;
+	private int[] mRangeYMax;
+	private int[] mRangeSource;
+	private long[] mRangeOffset;
+
+	// For each zoom level, index of its first range in the arrays above (and of the first range of the next zoom)
+	private int[] mZoomRangeStart;
 
 	// File sizes for offset calculation
 	private final List<Long> mFileSizes = new ArrayList<Long>();
@@ -64,8 +91,8 @@ public class GEMFFile {
 	private final LinkedHashMap<Integer, String> mSources = new LinkedHashMap<Integer, String>();
 
 	// Fields to restrict to a single source for reading
-	private boolean mSourceLimited = false;
-	private int mCurrentSource = 0;
+	private volatile boolean mSourceLimited = false;
+	private volatile int mCurrentSource = 0;
 
 
 	// ===========================================================
@@ -418,6 +445,8 @@ public class GEMFFile {
 	 * Close open GEMF file handles.
 	 */
 	public void close() throws IOException {
+		// the mappings themselves are released by the garbage collector
+		mMappedSegments.clear();
 		for (final RandomAccessFile file: mFiles) {
 			file.close();
 		}
@@ -455,9 +484,13 @@ public class GEMFFile {
 	private void readHeader() throws IOException {
 		final RandomAccessFile baseFile = mFiles.get(0);
 
-		// Get file sizes
+		// Get file sizes and map the files
 		for (final RandomAccessFile file : mFiles) {
-			mFileSizes.add(file.length());
+			final long size = file.length();
+			mFileSizes.add(size);
+			final FileChannel channel = file.getChannel();
+			mChannels.add(channel);
+			mMappedSegments.add(map(channel, size));
 		}
 
 		// Version
@@ -487,6 +520,7 @@ public class GEMFFile {
 
 		// Read Ranges
 		final int num_ranges = baseFile.readInt();
+		final List<GEMFRange> ranges = new ArrayList<GEMFRange>(num_ranges);
 		for (int i=0;i<num_ranges;i++) {
 			final GEMFRange rs = new GEMFRange();
 			rs.zoom = baseFile.readInt();
@@ -496,11 +530,108 @@ public class GEMFFile {
 			rs.yMax = baseFile.readInt();
 			rs.sourceIndex = baseFile.readInt();
 			rs.offset = baseFile.readLong();
-			mRangeData.add(rs);
+			ranges.add(rs);
+		}
+		indexRanges(ranges);
+	}
+
+
+	/*
+	 * Store the ranges in flat arrays, grouped by zoom level.
+	 * The sort is stable, so that within a zoom level the first matching range is still
+	 * the first one in the archive.
+	 */
+	private void indexRanges(final List<GEMFRange> pRanges) {
+		final List<GEMFRange> ranges = new ArrayList<GEMFRange>(pRanges);
+		Collections.sort(ranges, new Comparator<GEMFRange>() {
+			@Override
+			public int compare(final GEMFRange pRange1, final GEMFRange pRange2) {
+				return pRange1.zoom.compareTo(pRange2.zoom);
+			}
+		});
+		final int count = ranges.size();
+		mRangeZoom = new int[count];
+		mRangeXMin = new int[count];
+		mRangeXMax = new int[count];
+		mRangeYMin = new int[count];
+		mRangeYMax = new int[count];
+		mRangeSource = new int[count];
+		mRangeOffset = new long[count];
+		int maxZoom = -1;
+		for (int i = 0 ; i < count ; i ++) {
+			final GEMFRange range = ranges.get(i);
+			mRangeZoom[i] = range.zoom;
+			mRangeXMin[i] = range.xMin;
+			mRangeXMax[i] = range.xMax;
+			mRangeYMin[i] = range.yMin;
+			mRangeYMax[i] = range.yMax;
+			mRangeSource[i] = range.sourceIndex;
+			mRangeOffset[i] = range.offset;
+			maxZoom = Math.max(maxZoom, range.zoom);
+		}
+		mZoomRangeStart = new int[maxZoom + 2];
+		int index = 0;
+		for (int zoom = 0 ; zoom <= maxZoom + 1 ; zoom ++) {
+			while (index < count && mRangeZoom[index] < zoom) {
+				index ++;
+			}
+			mZoomRangeStart[zoom] = index;
 		}
 	}
 
 
+	/*
+	 * Map a file read-only, by overlapping segments.
+	 *
+	 * @return the segments, or null if the file could not be mapped (e.g. not enough address space),
+	 * in which case it is read with positional reads on its channel.
+	 */
+	private static ByteBuffer[] map(final FileChannel pChannel, final long pSize) {
+		final int count = (int) Math.max(1, (pSize + MAPPED_SEGMENT_SIZE - 1) / MAPPED_SEGMENT_SIZE);
+		final ByteBuffer[] segments = new ByteBuffer[count];
+		try {
+			for (int i = 0 ; i < count ; i ++) {
+				final long position = i * MAPPED_SEGMENT_SIZE;
+				final long size = Math.min(pSize - position, MAPPED_SEGMENT_SIZE + MAPPED_SEGMENT_OVERLAP);
+				segments[i] = pChannel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			}
+		} catch (final IOException e) {
+			return null;
+		}
+		return segments;
+	}
+
+
+	/*
+	 * Get a block of a file, without changing any shared state: concurrent calls need no lock.
+	 *
+	 * @return a buffer positioned on the block, that shares the mapped memory when possible.
+	 */
+	private ByteBuffer getBlock(final int pFileIndex, final long pOffset, final int pLength) throws IOException {
+		final ByteBuffer[] segments = pFileIndex < mMappedSegments.size() ? mMappedSegments.get(pFileIndex) : null;
+		if (segments != null) {
+			final int segmentIndex = (int) (pOffset / MAPPED_SEGMENT_SIZE);
+			final int position = (int) (pOffset % MAPPED_SEGMENT_SIZE);
+			if (segmentIndex < segments.length && position + (long) pLength <= segments[segmentIndex].capacity()) {
+				final ByteBuffer result = segments[segmentIndex].duplicate();
+				result.limit(position + pLength);
+				result.position(position);
+				return result;
+			}
+		}
+		// not mapped, or a block bigger than the segment overlap
+		final ByteBuffer result = ByteBuffer.allocate(pLength);
+		final FileChannel channel = mChannels.get(pFileIndex);
+		while (result.hasRemaining()) {
+			if (channel.read(result, pOffset + result.position()) == -1) {
+				throw new EOFException("Unexpected end of file " + mFileNames.get(pFileIndex));
+			}
+		}
+		result.flip();
+		return result;
+	}
+
+
 	// ===========================================================
 	// Public Methods
 	// ===========================================================
@@ -544,8 +675,8 @@ public class GEMFFile {
 	public Set<Integer> getZoomLevels() {
 		final Set<Integer> zoomLevels = new TreeSet<Integer>();
 
-		for (final GEMFRange rs: mRangeData) {
-			zoomLevels.add(rs.zoom);
+		for (final int zoom: mRangeZoom) {
+			zoomLevels.add(zoom);
 		}
 
 		return zoomLevels;
@@ -557,105 +688,64 @@ public class GEMFFile {
 	 * @return InputStream of tile data, or null if not found.
 	 */
 	public InputStream getInputStream(final int pX, final int pY, final int pZ) {
-		GEMFRange range = null;
-
-		for (final GEMFRange rs: mRangeData)
-		{
-			if ((pZ == rs.zoom)
-					&& (pX >= rs.xMin)
-					&& (pX <= rs.xMax)
-					&& (pY >= rs.yMin)
-					&& (pY <= rs.yMax)
-					&& (( ! mSourceLimited) || (rs.sourceIndex == mCurrentSource))) {
-				range = rs;
+		if (pZ < 0 || pZ >= mZoomRangeStart.length - 1) {
+			return null;
+		}
+		final boolean sourceLimited = mSourceLimited;
+		final int currentSource = mCurrentSource;
+		int range = -1;
+		for (int i = mZoomRangeStart[pZ] ; i < mZoomRangeStart[pZ + 1] ; i ++) {
+			if ((pX >= mRangeXMin[i])
+					&& (pX <= mRangeXMax[i])
+					&& (pY >= mRangeYMin[i])
+					&& (pY <= mRangeYMax[i])
+					&& (( ! sourceLimited) || (mRangeSource[i] == currentSource))) {
+				range = i;
 				break;
 			}
 		}
 
-		if (range == null)	{
+		if (range == -1)	{
 			return null;
 		}
 
-		long dataOffset;
-		int dataLength;
-		InputStream returnValue=null;
-		GEMFInputStream stream=null;
-		ByteArrayOutputStream byteBuffer=null;
 		try	{
 
 			// Determine offset to requested tile record in the header
-			final int numY = range.yMax + 1 - range.yMin;
-			final int xIndex = pX - range.xMin;
-			final int yIndex = pY - range.yMin;
-			long offset = (xIndex * numY) + yIndex;
+			final int numY = mRangeYMax[range] + 1 - mRangeYMin[range];
+			final int xIndex = pX - mRangeXMin[range];
+			final int yIndex = pY - mRangeYMin[range];
+			long offset = ((long) xIndex * numY) + yIndex;
 			offset *= (U32_SIZE + U64_SIZE);
-			offset += range.offset;
-
+			offset += mRangeOffset[range];
 
 			// Read tile record from header, get offset and size of data record
-			final RandomAccessFile baseFile = mFiles.get(0);
-			baseFile.seek(offset);
-			dataOffset = baseFile.readLong();
-			dataLength = baseFile.readInt();
+			final ByteBuffer record = getBlock(0, offset, U64_SIZE + U32_SIZE);
+			long dataOffset = record.getLong(record.position());
+			final int dataLength = record.getInt(record.position() + U64_SIZE);
+			if (dataLength == 0) {
+				return null; // a tile that could not be downloaded when the archive was created
+			}
 
-			// Seek to correct data file and offset.
-			RandomAccessFile pDataFile = mFiles.get(0);
+			// Find the correct data file and offset.
+			// An offset equal to the size of a part is the first byte of the next part.
 			int index = 0;
-			if (dataOffset > mFileSizes.get(0))	{
+			if (dataOffset >= mFileSizes.get(0))	{
 				final int fileListCount = mFileSizes.size();
 
 				while ((index < (fileListCount - 1)) &&
-						(dataOffset > mFileSizes.get(index))) {
+						(dataOffset >= mFileSizes.get(index))) {
 
 					dataOffset -= mFileSizes.get(index);
 					index += 1;
 				}
-
-				pDataFile = mFiles.get(index);
 			}
 
-			// Read data block into a byte array
-			pDataFile.seek(dataOffset);
-
-			stream= new GEMFInputStream(mFileNames.get(index), dataOffset, dataLength);
-			// this dynamically extends to take the bytes you read
-			byteBuffer = new ByteArrayOutputStream();
-
-			// this is storage overwritten on each iteration with bytes
-			int bufferSize = 1024;
-			byte[] buffer = new byte[bufferSize];
-
-			// we need to know how may bytes were read to write them to the byteBuffer
-			int len = 0;
-			while (stream.available()>0)
-			{
-				len = stream.read(buffer);
-				if (len>0)
-					byteBuffer.write(buffer, 0, len);
-			}
-
-			// and then we can return your byte array.
-			byte[] bits = byteBuffer.toByteArray();
-			returnValue= new ByteArrayInputStream(bits);
-
+			return new ByteBufferInputStream(getBlock(index, dataOffset, dataLength));
 		} catch (final java.io.IOException e) {
 			e.printStackTrace();
-		} finally {
-			if (byteBuffer!=null)
-				try {
-					byteBuffer.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-			if (stream!=null)
-				try {
-					stream.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-
 		}
-		return returnValue;
+		return null;
 	}
 
 
@@ -681,57 +771,66 @@ public class GEMFFile {
 		}
 	}
 
-	// InputStream class to hand to the tile loader system. It wants an InputStream, and it is more
-	// efficient to create a new open file handle pointed to the right place, than to buffer the file
-	// in memory.
-	class GEMFInputStream extends InputStream {
-
-		RandomAccessFile raf;
-		int remainingBytes;
+	// InputStream class to hand to the tile loader system: it reads directly from the mapped
+	// file, and as it works on its own view of the buffer concurrent readers need no lock.
+	private static class ByteBufferInputStream extends InputStream {
 
-		GEMFInputStream(final String filePath, final long offset, final int length) throws IOException {
-			this.raf = new RandomAccessFile(filePath, "r");
-			raf.seek(offset);
+		private final ByteBuffer mBuffer;
 
-			this.remainingBytes = length;
+		ByteBufferInputStream(final ByteBuffer pBuffer) {
+			mBuffer = pBuffer;
 		}
 
 		@Override
 		public int available() {
-			return remainingBytes;
+			return mBuffer.remaining();
 		}
 
 		@Override
-		public void close() throws IOException {
-			raf.close();
+		public boolean markSupported() {
+			return true;
 		}
 
 		@Override
-		public boolean markSupported() {
-			return false;
+		public synchronized void mark(final int readLimit) {
+			mBuffer.mark();
 		}
 
 		@Override
-		public int read(final byte[] buffer, final int offset, final int length) throws IOException {
-			final int read = raf.read(buffer, offset, length > remainingBytes ? remainingBytes : length);
+		public synchronized void reset() throws IOException {
+			try {
+				mBuffer.reset();
+			} catch (final InvalidMarkException e) {
+				throw new IOException("Mark not set");
+			}
+		}
 
-			remainingBytes -= read;
+		@Override
+		public int read(final byte[] buffer, final int offset, final int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!mBuffer.hasRemaining()) {
+				return -1;
+			}
+			final int read = Math.min(length, mBuffer.remaining());
+			mBuffer.get(buffer, offset, read);
 			return read;
 		}
 
 		@Override
-		public int read() throws IOException {
-			if (remainingBytes > 0) {
-				remainingBytes--;
-				return raf.read();
-			} else {
-				throw new IOException("End of stream");
+		public int read() {
+			if (!mBuffer.hasRemaining()) {
+				return -1;
 			}
+			return mBuffer.get() & 0xFF;
 		}
 
 		@Override
 		public long skip(final long byteCount) {
-			return 0;
+			final int skipped = (int) Math.max(0, Math.min(byteCount, mBuffer.remaining()));
+			mBuffer.position(mBuffer.position() + skipped);
+			return skipped;
 		}
 	}
 }
@@ -0,0 +1,27 @@
+package org.osmdroid.util;
+
+/**
+ * A set of map tiles, typically covering an area over a range of zoom levels,
+ * that is enumerated lazily instead of being stored in memory:
+ * that matters for a large area at high zoom levels, e.g. tens of millions of tiles.
+ * @since 6.0.2
+ */
+
+public interface MapTileCoverage {
+
+    /**
+     * @return the number of tiles, computed without enumerating them when possible
+     */
+    long getSize();
+
+    /**
+     * @return a new iterator over the tiles, sorted by ascending zoom level
+     */
+    MapTileIndexIterator iterator();
+
+    /**
+     * @return an identifier of the tiles, computed from the parameters that define them
+     * (e.g. bounding box, zoom levels) rather than by enumerating the tiles
+     */
+    String getSignature();
+}
@@ -0,0 +1,17 @@
+package org.osmdroid.util;
+
+/**
+ * An iterator over map tile indices, without boxing
+ * @since 6.0.2
+ */
+
+public interface MapTileIndexIterator {
+
+    boolean hasNext();
+
+    /**
+     * @return the next map tile index
+     * @see MapTileIndex
+     */
+    long next();
+}
@@ -1,6 +1,12 @@
 package org.osmdroid.util;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 /** Reduces the number of points in a shape using the Douglas-Peucker algorithm. <br>
  *
  * From: http://www.phpriot.com/articles/reducing-map-path-douglas-peucker-algorithm/4<br>
@@ -12,6 +18,12 @@ import java.util.ArrayList;
  */
 public class PointReducer {
 
+    /**
+     * Below this number of points, a segment is not worth a parallel task
+     * @since 6.0.2
+     */
+    public static final int PARALLEL_MIN_SIZE = 16384;
+
     /**
      * Reduce the number of points in a shape using the Douglas-Peucker algorithm
      * Suggested usage
@@ -44,24 +56,17 @@ public class PointReducer {
             return shape;
         }
 
-        boolean [] marked = new boolean[n]; //vertex indexes to keep will be marked as "true"
-        for (int i=1; i<n-1; i++)
-            marked[i] = false;
-        // automatically add the first and last point to the returned shape
-        marked[0] = marked[n-1] = true;
-
-        // the first and last points in the original shape are
-        // used as the entry point to the algorithm.
-        douglasPeuckerReduction(
-            shape,             // original shape
-            marked,          // reduced shape
-            tolerance,         // tolerance
-            0,                  // index of first point
-            n-1  // index of last point
-        );
+        final double[] xy = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            final GeoPoint point = shape.get(i);
+            xy[2 * i] = point.getLatitude();
+            xy[2 * i + 1] = point.getLongitude();
+        }
+        final boolean[] marked = new boolean[n]; //vertex indexes to keep will be marked as "true"
+        final int count = reduce(xy, n, tolerance, marked);
 
         // all done, return the reduced shape
-        ArrayList<GeoPoint> newShape = new ArrayList<GeoPoint>(n); // the new shape to return
+        ArrayList<GeoPoint> newShape = new ArrayList<GeoPoint>(count); // the new shape to return
         for (int i=0; i<n; i++){
             if (marked[i])
                 newShape.add(shape.get(i));
@@ -70,56 +75,146 @@ public class PointReducer {
     }
 
     /**
-     * Reduce the points in shape between the specified first and last
-     * index. Mark the points to keep in marked[]
-     *
-     * @param   shape	The original shape
-     * @param   marked	The points to keep (marked as true)
-     * @param   tolerance  The tolerance to determine if a point is kept
-     * @param   firstIdx   The index in original shape's point of
-     *                              the starting point for this line segment
-     * @param   lastIdx    The index in original shape's point of
-     *                     the ending point for this line segment
+     * Douglas-Peucker reduction on a primitive array, with the same results as
+     * {@link #reduceWithTolerance(ArrayList, double)} but without allocating objects per point,
+     * without square roots, and iterative (with an explicit stack) so that very long shapes
+     * cannot overflow the thread's stack.
+     * @param pXY the points, as x/y pairs (e.g. latitude/longitude)
+     * @param pCount the number of points
+     * @param pTolerance the tolerance to decide whether or not to keep a point,
+     *                   in the coordinate system of the points
+     * @param pKept output: the points to keep are marked as true
+     * @return the number of points to keep
+     * @since 6.0.2
      */
-    private static void douglasPeuckerReduction(ArrayList<GeoPoint> shape, boolean[] marked, double tolerance, int firstIdx, int lastIdx)
-    {
-        if (lastIdx <= firstIdx + 1) {
-            // overlapping indexes, just return
-            return;
+    public static int reduce(final double[] pXY, final int pCount, final double pTolerance, final boolean[] pKept) {
+        if (!initKept(pCount, pTolerance, pKept)) {
+            return pCount;
         }
+        reduce(pXY, 0, pCount - 1, pTolerance * pTolerance, pKept, 0, null);
+        return countKept(pKept, pCount);
+    }
 
-        // loop over the points between the first and last points
-        // and find the point that is the farthest away
-
-        double maxDistance = 0.0;
-        int indexFarthest = 0;
-
-        GeoPoint firstPoint = shape.get(firstIdx);
-        GeoPoint lastPoint = shape.get(lastIdx);
-
-        for (int idx = firstIdx + 1; idx < lastIdx; idx++) {
-            GeoPoint point = shape.get(idx);
-
-            double distance = orthogonalDistance(point, firstPoint, lastPoint);
-
-            // keep the point with the greatest distance
-            if (distance > maxDistance) {
-                maxDistance = distance;
-                indexFarthest = idx;
+    /**
+     * Same as {@link #reduce(double[], int, double, boolean[])}, for very large shapes:
+     * as the two halves of a split segment are reduced independently, the segments that get
+     * smaller than {@link #PARALLEL_MIN_SIZE} points are reduced in parallel by the executor.
+     * The calling thread waits for the end of all the tasks.
+     * @since 6.0.2
+     */
+    public static int reduce(final double[] pXY, final int pCount, final double pTolerance, final boolean[] pKept,
+                             final ExecutorService pExecutor) {
+        if (!initKept(pCount, pTolerance, pKept)) {
+            return pCount;
+        }
+        final double squaredTolerance = pTolerance * pTolerance;
+        final List<int[]> deferred = new ArrayList<>();
+        reduce(pXY, 0, pCount - 1, squaredTolerance, pKept, PARALLEL_MIN_SIZE, deferred);
+        final List<Callable<Void>> tasks = new ArrayList<>(deferred.size());
+        for (final int[] range : deferred) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    reduce(pXY, range[0], range[1], squaredTolerance, pKept, 0, null);
+                    return null;
+                }
+            });
+        }
+        try {
+            for (final Future<Void> future : pExecutor.invokeAll(tasks)) {
+                future.get();
             }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
         }
+        return countKept(pKept, pCount);
+    }
 
-        if (maxDistance > tolerance) {
-            //The farthest point is outside the tolerance: it is marked and the algorithm continues.
-            marked[indexFarthest] = true;
+    /**
+     * @return false if there's nothing to reduce, in which case all the points are kept
+     * @since 6.0.2
+     */
+    private static boolean initKept(final int pCount, final double pTolerance, final boolean[] pKept) {
+        final boolean reduce = pTolerance > 0 && pCount >= 3;
+        for (int i = 0; i < pCount; i++) {
+            pKept[i] = !reduce;
+        }
+        if (reduce) {
+            // automatically add the first and last point to the returned shape
+            pKept[0] = pKept[pCount - 1] = true;
+        }
+        return reduce;
+    }
 
-            // reduce the shape between the starting point to newly found point
-            douglasPeuckerReduction(shape, marked, tolerance, firstIdx, indexFarthest);
+    /**
+     * @since 6.0.2
+     */
+    private static int countKept(final boolean[] pKept, final int pCount) {
+        int result = 0;
+        for (int i = 0; i < pCount; i++) {
+            if (pKept[i]) {
+                result++;
+            }
+        }
+        return result;
+    }
 
-            // reduce the shape between the newly found point and the finishing point
-            douglasPeuckerReduction(shape, marked, tolerance, indexFarthest, lastIdx);
+    /**
+     * Reduce the points between the specified first and last index, with an explicit stack.
+     * Mark the points to keep in pKept
+     * @param pMinSize if pDeferred is not null, segments with fewer points are not reduced
+     *                 but added to pDeferred as [first index, last index]
+     * @since 6.0.2
+     */
+    private static void reduce(final double[] pXY, final int pFirstIdx, final int pLastIdx,
+                               final double pSquaredTolerance, final boolean[] pKept,
+                               final int pMinSize, final List<int[]> pDeferred) {
+        // pending segments are disjoint, hence the stack size
+        final int[] stack = new int[2 * (pLastIdx - pFirstIdx + 1)];
+        int top = 0;
+        stack[top++] = pFirstIdx;
+        stack[top++] = pLastIdx;
+        while (top > 0) {
+            final int lastIdx = stack[--top];
+            final int firstIdx = stack[--top];
+            if (lastIdx <= firstIdx + 1) {
+                // overlapping indexes, nothing to reduce
+                continue;
+            }
+            if (pDeferred != null && lastIdx - firstIdx + 1 < pMinSize) {
+                pDeferred.add(new int[]{firstIdx, lastIdx});
+                continue;
+            }
+            // loop over the points between the first and last points
+            // and find the point that is the farthest away
+            final double firstX = pXY[2 * firstIdx];
+            final double firstY = pXY[2 * firstIdx + 1];
+            final double lastX = pXY[2 * lastIdx];
+            final double lastY = pXY[2 * lastIdx + 1];
+            double maxDistance = 0;
+            int indexFarthest = 0;
+            for (int idx = firstIdx + 1; idx < lastIdx; idx++) {
+                final double distance = Distance.getSquaredDistanceToLine(
+                        pXY[2 * idx], pXY[2 * idx + 1], firstX, firstY, lastX, lastY);
+                // keep the point with the greatest distance
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    indexFarthest = idx;
+                }
+            }
+            if (maxDistance > pSquaredTolerance) {
+                //The farthest point is outside the tolerance: it is marked and the algorithm continues.
+                pKept[indexFarthest] = true;
+                stack[top++] = indexFarthest;
+                stack[top++] = lastIdx;
+                stack[top++] = firstIdx;
+                stack[top++] = indexFarthest;
+            }
+            //else: the farthest point is within the tolerance, the whole segment is discarded.
         }
-        //else: the farthest point is within the tolerance, the whole segment is discarded.
     }
 
     /**
@@ -151,4 +246,67 @@ public class PointReducer {
 
         return(area / bottom * 2.0);
     }
-}
\ No newline at end of file
+
+    /**
+     * Computes for each point the largest tolerance for which the Douglas-Peucker algorithm keeps it.
+     * Then the shape can be reduced for any tolerance without running the algorithm again:
+     * the points to keep for a tolerance t are the points whose value is greater than t * t.
+     * The first and last points get +infinity.
+     * A point never gets a bigger value than the point that split its segment, so that the result
+     * for a given tolerance is exactly what the algorithm would keep, measuring the distance
+     * to the segment (and not to the line as {@link #reduce(double[], int, double, boolean[])}).
+     * Iterative, with an explicit stack, on a primitive array.
+     * @param pXY the points, as x/y pairs
+     * @param pCount the number of points
+     * @param pResult the squared tolerances, one per point
+     * @since 6.0.2
+     */
+    public static void computeSquaredTolerances(final long[] pXY, final int pCount, final double[] pResult) {
+        if (pCount == 0) {
+            return;
+        }
+        pResult[0] = Double.POSITIVE_INFINITY;
+        pResult[pCount - 1] = Double.POSITIVE_INFINITY;
+        // each pending segment: first index, last index, and the value of the point that created it
+        final int[] segments = new int[2 * pCount];
+        final double[] bounds = new double[pCount];
+        int top = 0;
+        segments[0] = 0;
+        segments[1] = pCount - 1;
+        bounds[0] = Double.POSITIVE_INFINITY;
+        top++;
+        while (top > 0) {
+            top--;
+            final int firstIdx = segments[2 * top];
+            final int lastIdx = segments[2 * top + 1];
+            final double bound = bounds[top];
+            if (lastIdx <= firstIdx + 1) {
+                continue;
+            }
+            final double firstX = pXY[2 * firstIdx];
+            final double firstY = pXY[2 * firstIdx + 1];
+            final double lastX = pXY[2 * lastIdx];
+            final double lastY = pXY[2 * lastIdx + 1];
+            double maxDistance = -1;
+            int indexFarthest = firstIdx + 1;
+            for (int idx = firstIdx + 1; idx < lastIdx; idx++) {
+                final double distance = Distance.getSquaredDistanceToSegment(
+                        pXY[2 * idx], pXY[2 * idx + 1], firstX, firstY, lastX, lastY);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    indexFarthest = idx;
+                }
+            }
+            final double value = Math.min(maxDistance, bound);
+            pResult[indexFarthest] = value;
+            segments[2 * top] = firstIdx;
+            segments[2 * top + 1] = indexFarthest;
+            bounds[top] = value;
+            top++;
+            segments[2 * top] = indexFarthest;
+            segments[2 * top + 1] = lastIdx;
+            bounds[top] = value;
+            top++;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package org.osmdroid.util;
+
+import java.util.Arrays;
+
+/**
+ * A static R-tree of geo rectangles (points are rectangles too), packed with the
+ * "Sort-Tile-Recursive" algorithm, for queries in O(log(n) + k) instead of looping on all the items.
+ * <p>
+ * Usage: {@link #clear()}, {@link #add(double, double, double, double)} each item (whose id is its
+ * rank of addition), then {@link #search(double, double, double, double, Result)} as many times as
+ * needed. The tree is packed lazily on the first search after a modification.
+ * Rectangles and queries are in degrees; a query that crosses the antimeridian (west &gt; east, or
+ * longitudes beyond -180/180) is split accordingly.
+ * Not thread-safe.
+ * @since 6.0.2
+ */
+public class SpatialIndex {
+
+	private static final int NODE_CAPACITY = 16;
+	private static final int NORTH = 0;
+	private static final int EAST = 1;
+	private static final int SOUTH = 2;
+	private static final int WEST = 3;
+
+	/** The rectangles of the items, in the order of addition */
+	private double[] mItems = new double[4 * NODE_CAPACITY];
+	private int mSize;
+
+	/** The rectangles of the nodes: first the items in their packed order, then each level up to the root */
+	private double[] mNodes;
+	/** For the items: their id; for the upper nodes: the index of their first child */
+	private int[] mFirstChild;
+	/** For the upper nodes: the index after their last child */
+	private int[] mLastChild;
+	private int mNodeCount;
+	private int[] mStack;
+	private boolean mPacked;
+
+	public void clear() {
+		mSize = 0;
+		mPacked = false;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * @return the id of the item, that {@link #search(double, double, double, double, Result)} will return
+	 */
+	public int add(final double pNorth, final double pEast, final double pSouth, final double pWest) {
+		if (mItems.length < 4 * (mSize + 1)) {
+			final double[] items = new double[mItems.length * 2];
+			System.arraycopy(mItems, 0, items, 0, 4 * mSize);
+			mItems = items;
+		}
+		final int offset = 4 * mSize;
+		mItems[offset + NORTH] = pNorth;
+		mItems[offset + EAST] = pEast;
+		mItems[offset + SOUTH] = pSouth;
+		mItems[offset + WEST] = pWest;
+		mPacked = false;
+		return mSize ++;
+	}
+
+	public int add(final double pLatitude, final double pLongitude) {
+		return add(pLatitude, pLongitude, pLatitude, pLongitude);
+	}
+
+	/**
+	 * Adds to the result the ids of the items that intersect the rectangle (borders included)
+	 */
+	public void search(final double pNorth, final double pEast, final double pSouth, final double pWest,
+					   final Result pResult) {
+		if (mSize == 0) {
+			return;
+		}
+		if (!mPacked) {
+			pack();
+		}
+		if (pEast - pWest >= 360 || (pWest <= TileSystem.MinLongitude && pEast >= TileSystem.MaxLongitude)) {
+			searchNodes(pNorth, TileSystem.MaxLongitude, pSouth, TileSystem.MinLongitude, pResult);
+			return;
+		}
+		double west = pWest;
+		double east = pEast;
+		if (west > east) {
+			east += 360;
+		}
+		while (west < TileSystem.MinLongitude) {
+			west += 360;
+			east += 360;
+		}
+		while (west > TileSystem.MaxLongitude) {
+			west -= 360;
+			east -= 360;
+		}
+		if (east <= TileSystem.MaxLongitude) {
+			searchNodes(pNorth, east, pSouth, west, pResult);
+			return;
+		}
+		searchNodes(pNorth, TileSystem.MaxLongitude, pSouth, west, pResult);
+		searchNodes(pNorth, east - 360, pSouth, TileSystem.MinLongitude, pResult);
+	}
+
+	private void searchNodes(final double pNorth, final double pEast, final double pSouth, final double pWest,
+							 final Result pResult) {
+		int top = 0;
+		mStack[top ++] = mNodeCount - 1;
+		while (top > 0) {
+			final int node = mStack[-- top];
+			final int offset = 4 * node;
+			if (mNodes[offset + SOUTH] > pNorth || mNodes[offset + NORTH] < pSouth
+					|| mNodes[offset + WEST] > pEast || mNodes[offset + EAST] < pWest) {
+				continue;
+			}
+			if (node < mSize) {
+				pResult.add(mFirstChild[node]);
+				continue;
+			}
+			for (int child = mFirstChild[node] ; child < mLastChild[node] ; child ++) {
+				mStack[top ++] = child;
+			}
+		}
+	}
+
+	/**
+	 * Builds the tree bottom-up: at each level the nodes are sorted by longitude, cut into vertical
+	 * slices, sorted by latitude within each slice and grouped by {@link #NODE_CAPACITY}
+	 */
+	private void pack() {
+		int capacity = 0;
+		int levels = 1;
+		for (int count = mSize ; ; count = (count + NODE_CAPACITY - 1) / NODE_CAPACITY) {
+			capacity += count;
+			if (count == 1) {
+				break;
+			}
+			levels ++;
+		}
+		if (mNodes == null || mFirstChild.length < capacity) {
+			mNodes = new double[4 * capacity];
+			mFirstChild = new int[capacity];
+			mLastChild = new int[capacity];
+		}
+		mStack = new int[levels * NODE_CAPACITY + 1];
+
+		System.arraycopy(mItems, 0, mNodes, 0, 4 * mSize);
+		for (int i = 0 ; i < mSize ; i ++) {
+			mFirstChild[i] = i;
+		}
+		int levelStart = 0;
+		int levelEnd = mSize;
+		while (levelEnd - levelStart > 1) {
+			sortLevel(levelStart, levelEnd);
+			int parent = levelEnd;
+			for (int first = levelStart ; first < levelEnd ; first += NODE_CAPACITY) {
+				final int last = Math.min(first + NODE_CAPACITY, levelEnd);
+				final int offset = 4 * parent;
+				mNodes[offset + NORTH] = -Double.MAX_VALUE;
+				mNodes[offset + EAST] = -Double.MAX_VALUE;
+				mNodes[offset + SOUTH] = Double.MAX_VALUE;
+				mNodes[offset + WEST] = Double.MAX_VALUE;
+				for (int child = first ; child < last ; child ++) {
+					final int childOffset = 4 * child;
+					mNodes[offset + NORTH] = Math.max(mNodes[offset + NORTH], mNodes[childOffset + NORTH]);
+					mNodes[offset + EAST] = Math.max(mNodes[offset + EAST], mNodes[childOffset + EAST]);
+					mNodes[offset + SOUTH] = Math.min(mNodes[offset + SOUTH], mNodes[childOffset + SOUTH]);
+					mNodes[offset + WEST] = Math.min(mNodes[offset + WEST], mNodes[childOffset + WEST]);
+				}
+				mFirstChild[parent] = first;
+				mLastChild[parent] = last;
+				parent ++;
+			}
+			levelStart = levelEnd;
+			levelEnd = parent;
+		}
+		mNodeCount = levelEnd;
+		mPacked = true;
+	}
+
+	private void sortLevel(final int pStart, final int pEnd) {
+		final int count = pEnd - pStart;
+		final int groups = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+		final int sliceSize = NODE_CAPACITY * (int) Math.ceil(Math.sqrt(groups));
+		final long[] keys = new long[count];
+		for (int i = 0 ; i < count ; i ++) {
+			final int offset = 4 * (pStart + i);
+			keys[i] = getKey((mNodes[offset + EAST] + mNodes[offset + WEST]) / 2, TileSystem.MinLongitude, TileSystem.MaxLongitude, i);
+		}
+		Arrays.sort(keys);
+		for (int slice = 0 ; slice < count ; slice += sliceSize) {
+			final int end = Math.min(slice + sliceSize, count);
+			for (int i = slice ; i < end ; i ++) {
+				final int offset = 4 * (pStart + (int) keys[i]);
+				keys[i] = getKey((mNodes[offset + NORTH] + mNodes[offset + SOUTH]) / 2, TileSystem.MinLatitude, TileSystem.MaxLatitude, (int) keys[i]);
+			}
+			Arrays.sort(keys, slice, end);
+		}
+
+		final double[] nodes = new double[4 * count];
+		final int[] firstChild = new int[count];
+		final int[] lastChild = new int[count];
+		for (int i = 0 ; i < count ; i ++) {
+			final int from = pStart + (int) keys[i];
+			System.arraycopy(mNodes, 4 * from, nodes, 4 * i, 4);
+			firstChild[i] = mFirstChild[from];
+			lastChild[i] = mLastChild[from];
+		}
+		System.arraycopy(nodes, 0, mNodes, 4 * pStart, 4 * count);
+		System.arraycopy(firstChild, 0, mFirstChild, pStart, count);
+		System.arraycopy(lastChild, 0, mLastChild, pStart, count);
+	}
+
+	/**
+	 * @return a sort key made of a coordinate, on the upper 32 bits, and of an index, on the lower 32 bits
+	 */
+	private static long getKey(final double pValue, final double pMin, final double pMax, final int pIndex) {
+		final double clipped = Math.max(pMin, Math.min(pMax, pValue));
+		final long rank = (long) ((clipped - pMin) / (pMax - pMin) * Integer.MAX_VALUE);
+		return (rank << 32) | pIndex;
+	}
+
+	/**
+	 * A reusable list of item ids
+	 */
+	public static class Result {
+
+		private int[] mIds = new int[16];
+		private int mSize;
+
+		public void clear() {
+			mSize = 0;
+		}
+
+		public int size() {
+			return mSize;
+		}
+
+		public int get(final int pIndex) {
+			return mIds[pIndex];
+		}
+
+		/**
+		 * Sorts the ids in increasing order, e.g. the order of addition
+		 */
+		public void sort() {
+			Arrays.sort(mIds, 0, mSize);
+		}
+
+		private void add(final int pId) {
+			if (mSize == mIds.length) {
+				final int[] ids = new int[mSize * 2];
+				System.arraycopy(mIds, 0, ids, 0, mSize);
+				mIds = ids;
+			}
+			mIds[mSize ++] = pId;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package org.osmdroid.util;
+
+/**
+ * Incremental reduction of a shape that grows point by point, typically a live GPS track.
+ * <p>
+ * The reduced shape is made of committed points, plus a "floating" last point that is the
+ * latest point added. For each new point, we check whether all the points since the last committed
+ * point are within the tolerance of the segment [last committed point, new point]:
+ * if so, the new point replaces the floating last point; if not, the floating point gets committed
+ * and the new point is appended. The cost is proportional to the number of points skipped since
+ * the last committed point, which is capped by the window size.
+ * Suggested usage with a {@link org.osmdroid.views.overlay.Polyline}:
+ * <pre>
+ * {@code
+ * if (reducer.add(latitude, longitude)) {
+ *     polyline.addPoint(latitude, longitude);
+ * } else {
+ *     polyline.setLastPoint(latitude, longitude);
+ * }
+ * }
+ * </pre>
+ * Not thread-safe.
+ * @since 6.0.2
+ */
+public class StreamingPointReducer {
+
+    private final double mSquaredTolerance;
+    private final int mMaxWindow;
+    private double mAnchorX;
+    private double mAnchorY;
+    /** The points since the anchor, as x/y pairs; the last one is the floating point */
+    private final double[] mWindow;
+    private int mWindowSize;
+    private int mCount;
+
+    /**
+     * @param pTolerance the maximum distance between a skipped point and the reduced shape,
+     *                   in the coordinate system of the points
+     * @param pMaxWindow the maximum number of consecutive skipped points, in order to bound the cost
+     */
+    public StreamingPointReducer(final double pTolerance, final int pMaxWindow) {
+        if (pMaxWindow < 1) {
+            throw new IllegalArgumentException("The window size must be positive");
+        }
+        mSquaredTolerance = pTolerance * pTolerance;
+        mMaxWindow = pMaxWindow;
+        mWindow = new double[2 * pMaxWindow];
+    }
+
+    public void clear() {
+        mWindowSize = 0;
+        mCount = 0;
+    }
+
+    /**
+     * @return the number of points of the reduced shape, floating point included
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return true if the point is appended to the reduced shape,
+     * false if it replaces the last point of the reduced shape
+     */
+    public boolean add(final double pX, final double pY) {
+        if (mCount == 0) {
+            mAnchorX = pX;
+            mAnchorY = pY;
+            mCount = 1;
+            return true;
+        }
+        if (mWindowSize > 0 && mWindowSize < mMaxWindow && isWithinTolerance(pX, pY)) {
+            mWindow[2 * mWindowSize] = pX;
+            mWindow[2 * mWindowSize + 1] = pY;
+            mWindowSize++;
+            return false;
+        }
+        if (mWindowSize > 0) { // the floating point gets committed
+            mAnchorX = mWindow[2 * mWindowSize - 2];
+            mAnchorY = mWindow[2 * mWindowSize - 1];
+        }
+        mWindow[0] = pX;
+        mWindow[1] = pY;
+        mWindowSize = 1;
+        mCount++;
+        return true;
+    }
+
+    private boolean isWithinTolerance(final double pX, final double pY) {
+        for (int i = 0; i < mWindowSize; i++) {
+            if (Distance.getSquaredDistanceToSegment(
+                    mWindow[2 * i], mWindow[2 * i + 1], mAnchorX, mAnchorY, pX, pY) > mSquaredTolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,7 +1,11 @@
 package org.osmdroid.views.overlay;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.util.SpatialIndex;
 import org.osmdroid.views.MapView;
 
 import android.annotation.SuppressLint;
@@ -20,6 +24,10 @@ public class FolderOverlay extends Overlay {
 
 	protected OverlayManager mOverlayManager;
 	protected String mName, mDescription;
+	private SpatialIndex mSpatialIndex;
+	/** The components, in the order of the index, or null if the index must be rebuilt */
+	private Overlay[] mIndexedItems;
+	private final SpatialIndex.Result mSpatialResult = new SpatialIndex.Result();
 
 	/** Use {@link #FolderOverlay()} instead */
 	@Deprecated
@@ -59,13 +67,65 @@ public class FolderOverlay extends Overlay {
 	}
 	
 	public boolean add(Overlay item){
+		mIndexedItems = null;
 		return mOverlayManager.add(item);
 	}
 	
 	public boolean remove(Overlay item){
+		mIndexedItems = null;
 		return mOverlayManager.remove(item);
 	}
 
+	/**
+	 * @return the components that may be within the bounding box, in their drawing order:
+	 * the {@link Marker}s whose position is in it, and the other overlays whose {@link Overlay#getBounds()} intersect it.
+	 * Uses a spatial index, rebuilt lazily when components are added or removed through this class.
+	 * Call {@link #invalidateSpatialIndex()} when the list or a marker position is modified otherwise.
+	 * Returns an empty list once the folder is detached.
+	 * @since 6.0.2
+	 */
+	public List<Overlay> getItems(final BoundingBox pBoundingBox){
+		if (mOverlayManager == null) { // detached
+			return new ArrayList<>();
+		}
+		if (mIndexedItems == null || mIndexedItems.length != mOverlayManager.size()) {
+			buildSpatialIndex();
+		}
+		mSpatialResult.clear();
+		mSpatialIndex.search(pBoundingBox.getLatNorth(), pBoundingBox.getLonEast(),
+				pBoundingBox.getLatSouth(), pBoundingBox.getLonWest(), mSpatialResult);
+		mSpatialResult.sort();
+		final List<Overlay> result = new ArrayList<>(mSpatialResult.size());
+		for (int i = 0 ; i < mSpatialResult.size() ; i ++) {
+			result.add(mIndexedItems[mSpatialResult.get(i)]);
+		}
+		return result;
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	public void invalidateSpatialIndex(){
+		mIndexedItems = null;
+	}
+
+	private void buildSpatialIndex(){
+		if (mSpatialIndex == null) {
+			mSpatialIndex = new SpatialIndex();
+		}
+		mSpatialIndex.clear();
+		mIndexedItems = mOverlayManager.toArray(new Overlay[mOverlayManager.size()]);
+		for (final Overlay overlay : mIndexedItems) {
+			if (overlay instanceof Marker) {
+				final GeoPoint position = ((Marker) overlay).getPosition();
+				mSpatialIndex.add(position.getLatitude(), position.getLongitude());
+			} else {
+				final BoundingBox bounds = overlay.getBounds();
+				mSpatialIndex.add(bounds.getLatNorth(), bounds.getLonEast(), bounds.getLatSouth(), bounds.getLonWest());
+			}
+		}
+	}
+
 	@SuppressLint("WrongCall")
 	@Override public void draw(Canvas canvas, MapView osm, boolean shadow) {
 		if (shadow)
@@ -122,6 +182,7 @@ public class FolderOverlay extends Overlay {
 		if (mOverlayManager!=null)
 			mOverlayManager.onDetach(mapView);
 		mOverlayManager=null;
+		mIndexedItems=null;
 	}
 
 }
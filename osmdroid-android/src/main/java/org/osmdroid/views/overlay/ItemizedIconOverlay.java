@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.osmdroid.api.IMapView;
 import org.osmdroid.library.R;
+import org.osmdroid.util.SpatialIndex;
 import org.osmdroid.views.MapView;
 import org.osmdroid.views.Projection;
 
@@ -168,8 +169,12 @@ public class ItemizedIconOverlay<Item extends OverlayItem> extends ItemizedOverl
 		final Projection pj = mapView.getProjection();
 		final int eventX = (int) event.getX();
 		final int eventY = (int) event.getY();
+		final SpatialIndex.Result candidates = isSpatialIndexEnabled() ?
+				getItemsNear(pj, eventX, eventY) : null;
+		final int count = candidates == null ? this.mItemList.size() : candidates.size();
 
-		for (int i = 0; i < this.mItemList.size(); ++i) {
+		for (int j = 0; j < count; ++j) {
+			final int i = candidates == null ? j : candidates.get(j);
 			final Item item = getItem(i);
 			if (item == null) {
 				continue;
@@ -2,8 +2,13 @@
 package org.osmdroid.views.overlay;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.osmdroid.api.IGeoPoint;
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.SpatialIndex;
+import org.osmdroid.util.TileSystem;
 import org.osmdroid.views.MapView;
 import org.osmdroid.views.Projection;
 import org.osmdroid.views.overlay.OverlayItem.HotspotPlace;
@@ -52,6 +57,12 @@ public abstract class ItemizedOverlay<Item extends OverlayItem> extends Overlay
      private final Matrix mMatrix = new Matrix();
      protected float scaleX=1f;
      protected float scaleY=1f;
+	/** null if the spatial index is not enabled */
+	private SpatialIndex mSpatialIndex;
+	private boolean mSpatialIndexUpToDate;
+	/** Largest side of the markers, in pixels */
+	private int mMaxMarkerSize;
+	private final SpatialIndex.Result mSpatialResult = new SpatialIndex.Result();
 
 	// ===========================================================
 	// Abstract methods
@@ -102,6 +113,26 @@ public abstract class ItemizedOverlay<Item extends OverlayItem> extends Overlay
 		this.mDrawnItemsLimit = aLimit;
 	}
 
+	/**
+	 * Enables a spatial index on the item positions, which is rebuilt lazily after each {@link #populate()}.
+	 * Then the drawing and the taps only consider the items around the viewport or the tap,
+	 * instead of projecting all of them: worth it for thousands of items.
+	 * The tap hit test assumes that an item can only be hit within its marker bounds,
+	 * see {@link #hitTest(OverlayItem, Drawable, int, int)}.
+	 * @since 6.0.2
+	 */
+	public void setSpatialIndexEnabled(final boolean pEnabled) {
+		mSpatialIndex = pEnabled ? new SpatialIndex() : null;
+		mSpatialIndexUpToDate = false;
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	public boolean isSpatialIndexEnabled() {
+		return mSpatialIndex != null;
+	}
+
 	// ===========================================================
 	// Methods from SuperClass/Interfaces (and supporting methods)
 	// ===========================================================
@@ -161,6 +192,10 @@ public abstract class ItemizedOverlay<Item extends OverlayItem> extends Overlay
           scaleY = (float) Math.sqrt(mMatrixValues[Matrix.MSCALE_Y]
                * mMatrixValues[Matrix.MSCALE_Y] + mMatrixValues[Matrix.MSKEW_X]
                * mMatrixValues[Matrix.MSKEW_X]);
+		if (isSpatialIndexEnabled()) {
+			drawIndexed(canvas, mapView, size);
+			return;
+		}
 		/* Draw in backward cycle, so the items with the least index are on the front. */
         for (int i = size - 1; i >= 0; i--) {
             final Item item = getItem(i);
@@ -175,6 +210,36 @@ public abstract class ItemizedOverlay<Item extends OverlayItem> extends Overlay
         }
     }
 
+	/**
+	 * Same as the drawing loop, restricted to the items of the viewport thanks to the spatial index
+	 * @since 6.0.2
+	 */
+	private void drawIndexed(final Canvas canvas, final MapView mapView, final int size) {
+		Arrays.fill(mInternalItemDisplayedList, false);
+		final Projection pj = mapView.getProjection();
+		final BoundingBox boundingBox = mapView.getBoundingBox();
+		mSpatialResult.clear();
+		getSpatialIndex().search(boundingBox.getLatNorth(), boundingBox.getLonEast(),
+				boundingBox.getLatSouth(), boundingBox.getLonWest(), mSpatialResult);
+		mSpatialResult.sort();
+		/* Draw in backward cycle, so the items with the least index are on the front. */
+		for (int j = mSpatialResult.size() - 1; j >= 0; j--) {
+			final int i = mSpatialResult.get(j);
+			if (i >= size) {
+				continue;
+			}
+			final Item item = getItem(i);
+			if (item == null) {
+				continue;
+			}
+
+			pj.toPixels(item.getPoint(), mCurScreenCoords);
+
+			if (boundingBox.contains(item.getPoint()))
+				mInternalItemDisplayedList[i] = onDrawItem(canvas,item, mCurScreenCoords, mapView);
+		}
+	}
+
 	// ===========================================================
 	// Methods
 	// ===========================================================
@@ -192,6 +257,56 @@ public abstract class ItemizedOverlay<Item extends OverlayItem> extends Overlay
 			mInternalItemList.add(createItem(a));
 		}
 		mInternalItemDisplayedList = null;
+		mSpatialIndexUpToDate = false;
+	}
+
+	/**
+	 * @return the spatial index, up to date with the items
+	 * @since 6.0.2
+	 */
+	private SpatialIndex getSpatialIndex() {
+		if (!mSpatialIndexUpToDate) {
+			mSpatialIndex.clear();
+			mMaxMarkerSize = Math.max(mDefaultMarker.getIntrinsicWidth(), mDefaultMarker.getIntrinsicHeight());
+			for (final Item item : mInternalItemList) {
+				final IGeoPoint point = item == null ? null : item.getPoint();
+				if (point == null) {
+					mSpatialIndex.add(Double.NEGATIVE_INFINITY, 0); // never found, but keeps the positions
+					continue;
+				}
+				mSpatialIndex.add(point.getLatitude(), point.getLongitude());
+				final Drawable marker = item.getMarker(0);
+				if (marker != null) {
+					mMaxMarkerSize = Math.max(mMaxMarkerSize,
+							Math.max(marker.getIntrinsicWidth(), marker.getIntrinsicHeight()));
+				}
+			}
+			mSpatialIndexUpToDate = true;
+		}
+		return mSpatialIndex;
+	}
+
+	/**
+	 * Gets the items whose marker may contain the given pixel, thanks to the spatial index
+	 * @param pPixelX pixel coordinates as in {@link Projection#toPixels(IGeoPoint, Point)}
+	 * @return the positions of the candidate items, in increasing order
+	 * @since 6.0.2
+	 */
+	protected SpatialIndex.Result getItemsNear(final Projection pProjection, final int pPixelX, final int pPixelY) {
+		final SpatialIndex spatialIndex = getSpatialIndex();
+		final IGeoPoint center = pProjection.fromPixels(pPixelX, pPixelY);
+		// the markers are drawn unrotated, hence the diagonal
+		final double margin = mMaxMarkerSize * 1.5 / TileSystem.MapSize(pProjection.getZoomLevel());
+		final double y01 = TileSystem.getY01FromLatitude(center.getLatitude(), true);
+		mSpatialResult.clear();
+		spatialIndex.search(
+				TileSystem.getLatitudeFromY01(y01 - margin, false),
+				center.getLongitude() + 360 * margin,
+				TileSystem.getLatitudeFromY01(y01 + margin, false),
+				center.getLongitude() - 360 * margin,
+				mSpatialResult);
+		mSpatialResult.sort();
+		return mSpatialResult;
 	}
 
 	/**
@@ -313,8 +428,15 @@ public abstract class ItemizedOverlay<Item extends OverlayItem> extends Overlay
 		final Projection pj = mapView.getProjection();
 		final Rect screenRect = pj.getIntrinsicScreenRect();
 		final int size = this.size();
-
-		for (int i = 0; i < size; i++) {
+		final SpatialIndex.Result candidates = isSpatialIndexEnabled() ?
+				getItemsNear(pj, screenRect.left + (int) e.getX(), screenRect.top + (int) e.getY()) : null;
+		final int count = candidates == null ? size : candidates.size();
+
+		for (int j = 0; j < count; j++) {
+			final int i = candidates == null ? j : candidates.get(j);
+			if (i >= size) {
+				break;
+			}
 			final Item item = getItem(i);
 			if (item == null) {
 				continue;
@@ -4,6 +4,7 @@ import android.graphics.Path;
 import android.graphics.Point;
 import android.graphics.Rect;
 
+import org.osmdroid.util.BoundingBox;
 import org.osmdroid.util.Distance;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.util.LineBuilder;
@@ -11,6 +12,7 @@ import org.osmdroid.util.ListPointL;
 import org.osmdroid.util.PathBuilder;
 import org.osmdroid.util.PointAccepter;
 import org.osmdroid.util.PointL;
+import org.osmdroid.util.PointReducer;
 import org.osmdroid.util.SegmentClipper;
 import org.osmdroid.util.TileSystem;
 import org.osmdroid.views.MapView;
@@ -45,13 +47,59 @@ class LinearRing{
 	 * from the current MapView's characteristics (width, height, scale, orientation)
 	 */
 
-	private final ArrayList<GeoPoint> mOriginalPoints = new ArrayList<>();
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Maximum deviation in pixels between the drawn shape and the actual shape,
+	 * when vertices are skipped for the current zoom level
+	 * @since 6.0.2
+	 */
+	private static final double LEVEL_OF_DETAIL_TOLERANCE = .5;
+
+	/**
+	 * The points as set, packed as latitude/longitude pairs
+	 * @since 6.0.2
+	 */
+	private double[] mOriginalPoints = new double[2 * INITIAL_CAPACITY];
+	private int mOriginalSize;
+	/**
+	 * The points to draw, packed as latitude/longitude pairs: the same as the original points,
+	 * or with intermediate points if geodesic
+	 * @since 6.0.2
+	 */
+	private double[] mPoints = mOriginalPoints;
+	private int mSize;
+	/**
+	 * Index of the first drawn point related to the last original point (geodesic intermediate points included)
+	 * @since 6.0.2
+	 */
+	private int mLastPointStart;
 	private double[] mDistances;
 	private long[] mProjectedPoints;
+	/**
+	 * Number of points already projected: the next points are projected incrementally
+	 * @since 6.0.2
+	 */
+	private int mProjectedSize;
+	/**
+	 * For each projected point, the squared projected distance beyond which it can be skipped
+	 * (cf. {@link PointReducer#computeSquaredTolerances(long[], int, double[])}).
+	 * Computed once for all the zoom levels; the points after mSquaredTolerancesSize are always drawn.
+	 * @since 6.0.2
+	 */
+	private double[] mSquaredTolerances;
+	private int mSquaredTolerancesSize;
+	private long mProjectedMinX;
+	private long mProjectedMaxX;
+	private long mProjectedMinY;
+	private long mProjectedMaxY;
 	private final PointL mProjectedCenter = new PointL();
+	private final PointL mProjectedPrevious = new PointL();
+	private final PointL mProjectedCurrent = new PointL();
+	private final GeoPoint mPreviousGeo = new GeoPoint(0., 0);
+	private final GeoPoint mCurrentGeo = new GeoPoint(0., 0);
 	private final SegmentClipper mSegmentClipper = new SegmentClipper();
 	private final Path mPath;
-	private boolean mPrecomputed;
 	private boolean isHorizontalRepeating = true;
 	private boolean isVerticalRepeating  = true;
 	private final ListPointL mPointsForMilestones = new ListPointL();
@@ -76,27 +124,107 @@ class LinearRing{
 	}
 
 	void clearPath() {
-		mOriginalPoints.clear();
-		mProjectedPoints = null;
-		mDistances = null;
-		mPrecomputed = false;
+		mOriginalSize = 0;
+		mSize = 0;
+		mProjectedSize = 0;
+		mSquaredTolerancesSize = 0;
 		mPointAccepter.init();
 	}
 
 	protected void addPoint(final GeoPoint pGeoPoint) {
-		mOriginalPoints.add(pGeoPoint);
-		//mPrecomputed = false;
+		addPoint(pGeoPoint.getLatitude(), pGeoPoint.getLongitude());
+	}
+
+	/**
+	 * Appends a point; only the new points will be projected at the next drawing
+	 * @since 6.0.2
+	 */
+	void addPoint(final double pLatitude, final double pLongitude) {
+		mLastPointStart = mSize;
+		mOriginalPoints = append(mOriginalPoints, mOriginalSize++, pLatitude, pLongitude);
+		if (!mGeodesic) {
+			mPoints = mOriginalPoints;
+			mSize = mOriginalSize;
+			return;
+		}
+		if (mPoints == mOriginalPoints) { // not shared anymore
+			mPoints = new double[mOriginalPoints.length];
+			System.arraycopy(mOriginalPoints, 0, mPoints, 0, 2 * mSize);
+		}
+		if (mSize > 0) {
+			//add potential intermediate points:
+			mPreviousGeo.setCoords(mPoints[2 * mSize - 2], mPoints[2 * mSize - 1]);
+			mCurrentGeo.setCoords(pLatitude, pLongitude);
+			final int greatCircleLength = (int) mPreviousGeo.distanceToAsDouble(mCurrentGeo);
+			//add one point for every 100kms of the great circle path
+			final int numberOfPoints = greatCircleLength / 100000;
+			addGreatCircle(mPreviousGeo.getLatitude(), mPreviousGeo.getLongitude(), pLatitude, pLongitude, numberOfPoints);
+		}
+		addDrawnPoint(pLatitude, pLongitude);
+	}
+
+	/**
+	 * Replaces the last point, e.g. the latest position of a track reduced on the fly.
+	 * The previous points don't need to be projected again.
+	 * @since 6.0.2
+	 */
+	void setLastPoint(final double pLatitude, final double pLongitude) {
+		if (mOriginalSize == 0) {
+			addPoint(pLatitude, pLongitude);
+			return;
+		}
+		mOriginalSize--;
+		mSize = mLastPointStart;
+		if (mProjectedSize > mSize) {
+			mProjectedSize = mSize;
+		}
+		if (mSquaredTolerancesSize > mSize) {
+			mSquaredTolerancesSize = 0;
+		}
+		addPoint(pLatitude, pLongitude);
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	private void addDrawnPoint(final double pLatitude, final double pLongitude) {
+		mPoints = append(mPoints, mSize++, pLatitude, pLongitude);
+	}
+
+	/**
+	 * @return the array, or a bigger copy if needed, with the point at the given position
+	 * @since 6.0.2
+	 */
+	private static double[] append(final double[] pArray, final int pPosition,
+								   final double pLatitude, final double pLongitude) {
+		double[] result = pArray;
+		if (2 * pPosition + 2 > result.length) {
+			result = new double[Math.max(2 * pPosition + 2, result.length * 2)];
+			System.arraycopy(pArray, 0, result, 0, 2 * pPosition);
+		}
+		result[2 * pPosition] = pLatitude;
+		result[2 * pPosition + 1] = pLongitude;
+		return result;
 	}
 
 	protected void addGreatCircle(final GeoPoint startPoint, final GeoPoint endPoint, final int numberOfPoints) {
+		addGreatCircle(startPoint.getLatitude(), startPoint.getLongitude(),
+				endPoint.getLatitude(), endPoint.getLongitude(), numberOfPoints);
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	private void addGreatCircle(final double pStartLatitude, final double pStartLongitude,
+								final double pEndLatitude, final double pEndLongitude, final int numberOfPoints) {
 		//	adapted from page http://compastic.blogspot.co.uk/2011/07/how-to-draw-great-circle-on-map-in.html
 		//	which was adapted from page http://maps.forum.nu/gm_flight_path.html
 
 		// convert to radians
-		final double lat1 = startPoint.getLatitude() * MathConstants.DEG2RAD;
-		final double lon1 = startPoint.getLongitude() * MathConstants.DEG2RAD;
-		final double lat2 = endPoint.getLatitude() * MathConstants.DEG2RAD;
-		final double lon2 = endPoint.getLongitude() * MathConstants.DEG2RAD;
+		final double lat1 = pStartLatitude * MathConstants.DEG2RAD;
+		final double lon1 = pStartLongitude * MathConstants.DEG2RAD;
+		final double lat2 = pEndLatitude * MathConstants.DEG2RAD;
+		final double lon2 = pEndLongitude * MathConstants.DEG2RAD;
 
 		final double d = 2 * Math.asin(Math.sqrt(Math.pow(Math.sin((lat1 - lat2) / 2), 2) + Math.cos(lat1) * Math.cos(lat2)
 				* Math.pow(Math.sin((lon1 - lon2) / 2), 2)));
@@ -115,12 +243,61 @@ class LinearRing{
 
 			final double latN = Math.atan2(z, Math.sqrt(Math.pow(x, 2) + Math.pow(y, 2)));
 			final double lonN = Math.atan2(y, x);
-			addPoint(new GeoPoint(latN * MathConstants.RAD2DEG, lonN * MathConstants.RAD2DEG));
+			addDrawnPoint(latN * MathConstants.RAD2DEG, lonN * MathConstants.RAD2DEG);
 		}
 	}
 
+	/**
+	 * @return a new list with the points as set (without the geodesic intermediate points)
+	 */
 	ArrayList<GeoPoint> getPoints(){
-		return mOriginalPoints;
+		final ArrayList<GeoPoint> result = new ArrayList<>(mOriginalSize);
+		for (int i = 0 ; i < mOriginalSize ; i ++) {
+			result.add(new GeoPoint(mOriginalPoints[2 * i], mOriginalPoints[2 * i + 1]));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of points as set (without the geodesic intermediate points)
+	 * @since 6.0.2
+	 */
+	int getPointCount() {
+		return mOriginalSize;
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	double getLatitude(final int pIndex) {
+		return mOriginalPoints[2 * pIndex];
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	double getLongitude(final int pIndex) {
+		return mOriginalPoints[2 * pIndex + 1];
+	}
+
+	/**
+	 * Same as {@link BoundingBox#fromGeoPoints(List)} on the points as set, without creating them
+	 * @since 6.0.2
+	 */
+	BoundingBox getBounds() {
+		double minLat = Double.MAX_VALUE;
+		double minLon = Double.MAX_VALUE;
+		double maxLat = -Double.MAX_VALUE;
+		double maxLon = -Double.MAX_VALUE;
+		for (int i = 0 ; i < mOriginalSize ; i ++) {
+			final double latitude = mOriginalPoints[2 * i];
+			final double longitude = mOriginalPoints[2 * i + 1];
+			minLat = Math.min(minLat, latitude);
+			minLon = Math.min(minLon, longitude);
+			maxLat = Math.max(maxLat, latitude);
+			maxLon = Math.max(maxLon, longitude);
+		}
+		return new BoundingBox(maxLat, maxLon, minLat, minLon);
 	}
 
 	double[] getDistances(){
@@ -129,28 +306,36 @@ class LinearRing{
 
 	void setPoints(final List<GeoPoint> points) {
 		clearPath();
-		int size = points.size();
+		final int size = points.size();
 		for (int i = 0; i < size; i++) {
-			GeoPoint p = points.get(i);
-			mOriginalPoints.add(p);
-			if (!mGeodesic) {
-				addPoint(p);
-			} else {
-				if (i > 0) {
-					//add potential intermediate points:
-					GeoPoint prev = points.get(i - 1);
-					final int greatCircleLength = (int) prev.distanceToAsDouble(p);
-					//add one point for every 100kms of the great circle path
-					final int numberOfPoints = greatCircleLength / 100000;
-					addGreatCircle(prev, p, numberOfPoints);
-				}
-				addPoint(p);
-			}
+			final GeoPoint p = points.get(i);
+			addPoint(p.getLatitude(), p.getLongitude());
 		}
 	}
 
 	public void setGeodesic(boolean geodesic) {
+		if (mGeodesic == geodesic) {
+			return;
+		}
 		mGeodesic = geodesic;
+		rebuildDrawnPoints();
+	}
+
+	/**
+	 * Computes again the points to draw from the points as set, e.g. when the geodesic mode changes:
+	 * the points already projected are not the points to draw anymore.
+	 * @since 6.0.2
+	 */
+	private void rebuildDrawnPoints() {
+		final int size = mOriginalSize;
+		mOriginalSize = 0;
+		mSize = 0;
+		mProjectedSize = 0;
+		mSquaredTolerancesSize = 0;
+		mPoints = mOriginalPoints;
+		for (int i = 0 ; i < size ; i ++) {
+			addPoint(mOriginalPoints[2 * i], mOriginalPoints[2 * i + 1]);
+		}
 	}
 	public boolean isGeodesic() { return mGeodesic; }
 
@@ -169,14 +354,10 @@ class LinearRing{
 	PointL buildPathPortion(final Projection pProjection,
 							final PointL pOffset,
 							final boolean pStorePoints){
-		final int size = mOriginalPoints.size();
-		if (size < 2) { // nothing to paint
+		if (mSize < 2) { // nothing to paint
 			return pOffset;
 		}
-		if (!mPrecomputed){
-			computeProjectedAndDistances(pProjection);
-			mPrecomputed = true;
-		}
+		computeProjectedAndDistances(pProjection);
 		final PointL offset;
 		if (pOffset != null) {
 			offset = pOffset;
@@ -197,14 +378,10 @@ class LinearRing{
 	 */
 	void buildLinePortion(final Projection pProjection,
 						  final boolean pStorePoints){
-		final int size = mOriginalPoints.size();
-		if (size < 2) { // nothing to paint
+		if (mSize < 2) { // nothing to paint
 			return;
 		}
-		if (!mPrecomputed){
-			computeProjectedAndDistances(pProjection);
-			mPrecomputed = true;
-		}
+		computeProjectedAndDistances(pProjection);
 		final PointL offset = new PointL();
 		getBestOffset(pProjection, offset);
 		mSegmentClipper.init();
@@ -291,50 +468,95 @@ class LinearRing{
 		return i - 1;
 	}
 
+	/**
+	 * Projects the points that are not projected yet.
+	 * The projection doesn't depend on the current zoom, so appended points don't require
+	 * to project the previous ones again.
+	 */
 	private void computeProjectedAndDistances(final Projection pProjection) {
-		if (mProjectedPoints == null || mProjectedPoints.length != mOriginalPoints.size() * 2) {
-			mProjectedPoints = new long[mOriginalPoints.size() * 2];
-		}
-		if (mDistances == null || mDistances.length != mOriginalPoints.size()) {
-			mDistances = new double[mOriginalPoints.size()];
-		}
-		long minX = 0;
-		long maxX = 0;
-		long minY = 0;
-		long maxY = 0;
-		int index = 0;
-		final PointL previous = new PointL();
-		final PointL current = new PointL();
-		final GeoPoint previousGeo = new GeoPoint(0., 0);
-		for (final GeoPoint currentGeo : mOriginalPoints) {
-			pProjection.toProjectedPixels(currentGeo.getLatitude(), currentGeo.getLongitude(), false, current);
+		computeProjectedAndDistances(pProjection.mProjectedMapSize);
+	}
+
+	/**
+	 * Same as {@link #computeProjectedAndDistances(Projection)}, as only the projected map size matters
+	 * @since 6.0.2
+	 */
+	void computeProjectedAndDistances(final double pProjectedMapSize) {
+		if (mProjectedSize == mSize) {
+			return;
+		}
+		if (mProjectedPoints == null || mProjectedPoints.length < mSize * 2) {
+			final int capacity = Math.max(mSize, mProjectedSize * 2);
+			final long[] projectedPoints = new long[capacity * 2];
+			final double[] distances = new double[capacity];
+			if (mProjectedSize > 0) {
+				System.arraycopy(mProjectedPoints, 0, projectedPoints, 0, mProjectedSize * 2);
+				System.arraycopy(mDistances, 0, distances, 0, mProjectedSize);
+			}
+			mProjectedPoints = projectedPoints;
+			mDistances = distances;
+		}
+		final PointL previous = mProjectedPrevious;
+		final PointL current = mProjectedCurrent;
+		final GeoPoint previousGeo = mPreviousGeo;
+		final GeoPoint currentGeo = mCurrentGeo;
+		if (mProjectedSize > 0) {
+			final int index = mProjectedSize - 1;
+			previous.set(mProjectedPoints[2 * index], mProjectedPoints[2 * index + 1]);
+			previousGeo.setCoords(mPoints[2 * index], mPoints[2 * index + 1]);
+		}
+		for (int index = mProjectedSize ; index < mSize ; index ++) {
+			currentGeo.setCoords(mPoints[2 * index], mPoints[2 * index + 1]);
+			TileSystem.getMercatorFromGeo(currentGeo.getLatitude(), currentGeo.getLongitude(), pProjectedMapSize, current, false);
 			if (index == 0) {
 				mDistances[index] = 0;
-				minX = maxX = current.x;
-				minY = maxY = current.y;
+				mProjectedMinX = mProjectedMaxX = current.x;
+				mProjectedMinY = mProjectedMaxY = current.y;
 			} else {
 				mDistances[index] = currentGeo.distanceToAsDouble(previousGeo);
-				setCloserPoint(previous, current, pProjection.mProjectedMapSize);
-				if (minX > current.x) {
-					minX = current.x;
+				setCloserPoint(previous, current, pProjectedMapSize);
+				if (mProjectedMinX > current.x) {
+					mProjectedMinX = current.x;
 				}
-				if (maxX < current.x) {
-					maxX = current.x;
+				if (mProjectedMaxX < current.x) {
+					mProjectedMaxX = current.x;
 				}
-				if (minY > current.y) {
-					minY = current.y;
+				if (mProjectedMinY > current.y) {
+					mProjectedMinY = current.y;
 				}
-				if (maxY < current.y) {
-					maxY = current.y;
+				if (mProjectedMaxY < current.y) {
+					mProjectedMaxY = current.y;
 				}
 			}
 			mProjectedPoints[2 * index] = current.x;
 			mProjectedPoints[2 * index + 1] = current.y;
 			previousGeo.setCoords(currentGeo.getLatitude(), currentGeo.getLongitude());
 			previous.set(current.x, current.y);
-			index ++;
 		}
-		mProjectedCenter.set((minX + maxX) / 2, (minY + maxY) / 2);
+		mProjectedSize = mSize;
+		mProjectedCenter.set((mProjectedMinX + mProjectedMaxX) / 2, (mProjectedMinY + mProjectedMaxY) / 2);
+	}
+
+	/**
+	 * Computes the level of detail of each projected point, unless few points were appended
+	 * since the last computation: they are then just drawn without simplification,
+	 * which spares a full computation at each {@link #addPoint(double, double)}.
+	 * The last point is excluded, as it's the one that {@link #setLastPoint(double, double)} replaces.
+	 * @since 6.0.2
+	 */
+	private void computeLevelOfDetail() {
+		final int size = mProjectedSize - 1;
+		if (mSquaredTolerancesSize == size) {
+			return;
+		}
+		if (mSquaredTolerancesSize > 0 && size - mSquaredTolerancesSize < mSquaredTolerancesSize / 8) {
+			return;
+		}
+		if (mSquaredTolerances == null || mSquaredTolerances.length < size) {
+			mSquaredTolerances = new double[mProjectedPoints.length / 2];
+		}
+		PointReducer.computeSquaredTolerances(mProjectedPoints, size, mSquaredTolerances);
+		mSquaredTolerancesSize = size;
 	}
 
 	/**
@@ -349,7 +571,20 @@ class LinearRing{
 		final PointL projected = new PointL();
 		final PointL point = new PointL();
 		final PointL first = new PointL();
-		for (int i = 0 ; i < mProjectedPoints.length ; i += 2) {
+		// the milestones need all the points, as they are indexed like the distances
+		final boolean levelOfDetail = !pStorePoints && pSegmentClipper != null;
+		if (levelOfDetail) {
+			computeLevelOfDetail();
+		}
+		final double tolerance = LEVEL_OF_DETAIL_TOLERANCE * powerDifference;
+		final double squaredTolerance = tolerance * tolerance;
+		final int lastIndex = mProjectedSize - 1;
+		for (int i = 0 ; i < mProjectedSize * 2 ; i += 2) {
+			final int index = i / 2;
+			if (levelOfDetail && index < mSquaredTolerancesSize && index != lastIndex
+					&& mSquaredTolerances[index] <= squaredTolerance) {
+				continue;
+			}
 			projected.set(mProjectedPoints[i], mProjectedPoints[i + 1]);
 			pProjection.getLongPixelsFromProjected(projected, powerDifference, false, point);
 			final long x = point.x + pOffset.x;
@@ -401,10 +636,7 @@ class LinearRing{
 	 */
 	boolean isCloseTo(final GeoPoint pPoint, final double tolerance,
 					  final Projection pProjection, final boolean pClosePath) {
-		if (!mPrecomputed){
-			computeProjectedAndDistances(pProjection);
-			mPrecomputed = true;
-		}
+		computeProjectedAndDistances(pProjection);
 		final Point pixel = pProjection.toPixels(pPoint, null);
 		final PointL offset = new PointL();
 		getBestOffset(pProjection, offset);
@@ -118,12 +118,31 @@ public class Polygon extends OverlayWithIW {
 	 * @return a copy of the list of polygon's vertices. 
 	 */
 	public List<GeoPoint> getPoints(){
-		//TODO This is completely wrong:
-		// - this is not a copy, but a direct handler to the list itself.
-		// - if geodesic, the outline points are not identical to original points.
 		return mOutline.getPoints();
 	}
 
+	/**
+	 * @return the number of vertices, without creating them as {@link GeoPoint}s
+	 * @since 6.0.2
+	 */
+	public int getPointCount(){
+		return mOutline.getPointCount();
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	public double getLatitude(final int pIndex){
+		return mOutline.getLatitude(pIndex);
+	}
+
+	/**
+	 * @since 6.0.2
+	 */
+	public double getLongitude(final int pIndex){
+		return mOutline.getLongitude(pIndex);
+	}
+
 	public boolean isVisible(){
 		return isEnabled();
 	}
@@ -185,9 +204,6 @@ public class Polygon extends OverlayWithIW {
 		List<List<GeoPoint>> result = new ArrayList<List<GeoPoint>>(mHoles.size());
 		for (LinearRing hole:mHoles){
 			result.add(hole.getPoints());
-			//TODO: completely wrong:
-			// hole.getPoints() doesn't return a copy but a direct handler to the internal list.
-			// - if geodesic, this is not the same points as the original list.
 		}
 		return result;
 	}
@@ -337,12 +353,12 @@ public class Polygon extends OverlayWithIW {
 	 * Currently, set the position on the center of the polygon bounding box.
 	 */
 	protected void setDefaultInfoWindowLocation() {
-		int s = mOutline.getPoints().size();
+		int s = mOutline.getPointCount();
 		if (s == 0){
 			mInfoWindowLocation = new GeoPoint(0.0, 0.0);
 			return;
 		}
-		BoundingBox bb = BoundingBox.fromGeoPoints(mOutline.getPoints());
+		BoundingBox bb = mOutline.getBounds();
 		//TODO: as soon as the polygon bounding box will be a class member, don't compute it again here.
 		mInfoWindowLocation = bb.getCenterWithDateLine();
 	}
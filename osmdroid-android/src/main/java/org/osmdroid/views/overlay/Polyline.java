@@ -39,7 +39,6 @@ public class Polyline extends OverlayWithIW {
     protected OnClickListener mOnClickListener;
     private GeoPoint mInfoWindowLocation;
     private float mDensity = 1.0f;
-    private ArrayList<GeoPoint> mOriginalPoints = new ArrayList<>();
 
     /**
      * If MapView is not provided, infowindow popup will not function unless you set it yourself.
@@ -76,10 +75,29 @@ public class Polyline extends OverlayWithIW {
      * @return a copy of the points.
      */
     public ArrayList<GeoPoint> getPoints() {
-        ArrayList<GeoPoint> result = new ArrayList(mOriginalPoints.size());
-        for (GeoPoint p:mOriginalPoints)
-            result.add(p);
-        return result;
+        return mOutline.getPoints();
+    }
+
+    /**
+     * @return the number of points, without creating them as {@link GeoPoint}s
+     * @since 6.0.2
+     */
+    public int getPointCount() {
+        return mOutline.getPointCount();
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    public double getLatitude(final int pIndex) {
+        return mOutline.getLatitude(pIndex);
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    public double getLongitude(final int pIndex) {
+        return mOutline.getLongitude(pIndex);
     }
 
     public int getColor() {
@@ -132,19 +150,42 @@ public class Polyline extends OverlayWithIW {
     /**
      * Set the points.
      * Note that a later change in the original points List will have no effect.
-     * To add/remove/change points, you must call setPoints again.
+     * To remove/change points, you must call setPoints again; to add points, see {@link #addPoint(double, double)}.
      * If geodesic mode has been set, the long segments will follow the earth "great circle".
      */
     public void setPoints(List<GeoPoint> points) {
         clearPath();
-        mOriginalPoints = new ArrayList<>(points.size());
-        for (GeoPoint p:points) {
-            mOriginalPoints.add(p);
-        }
         mOutline.setPoints(points);
         setDefaultInfoWindowLocation();
     }
 
+    /**
+     * Adds a point at the end of the line, e.g. for a GPS track that is being recorded.
+     * The points are stored as primitive coordinates, and only the new points are projected again.
+     * @since 6.0.2
+     */
+    public void addPoint(final double pLatitude, final double pLongitude) {
+        mOutline.addPoint(pLatitude, pLongitude);
+        mInfoWindowLocation = null; // computed when needed
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    public void addPoint(final GeoPoint pGeoPoint) {
+        addPoint(pGeoPoint.getLatitude(), pGeoPoint.getLongitude());
+    }
+
+    /**
+     * Replaces the last point, or adds it if the line is empty,
+     * e.g. for a GPS track reduced on the fly by a {@link org.osmdroid.util.StreamingPointReducer}
+     * @since 6.0.2
+     */
+    public void setLastPoint(final double pLatitude, final double pLongitude) {
+        mOutline.setLastPoint(pLatitude, pLongitude);
+        mInfoWindowLocation = null; // computed when needed
+    }
+
     @Override
     public void draw(final Canvas canvas, final MapView mapView, final boolean shadow) {
 
@@ -208,6 +249,8 @@ public class Polyline extends OverlayWithIW {
      * Note that you can manually set this location with: setInfoWindowLocation
      */
     public void showInfoWindow() {
+        if (mInfoWindowLocation == null)
+            setDefaultInfoWindowLocation();
         if (mInfoWindow != null && mInfoWindowLocation != null)
             mInfoWindow.open(this, mInfoWindowLocation, 0, 0);
     }
@@ -234,6 +277,8 @@ public class Polyline extends OverlayWithIW {
      * @since 6.0.0
      */
     public GeoPoint getInfoWindowLocation() {
+        if (mInfoWindowLocation == null)
+            setDefaultInfoWindowLocation();
         return mInfoWindowLocation;
     }
 
@@ -242,9 +287,9 @@ public class Polyline extends OverlayWithIW {
      * Currently, set the position on the "middle" point of the polyline.
      */
     protected void setDefaultInfoWindowLocation(){
-        int s = mOriginalPoints.size();
+        int s = mOutline.getPointCount();
         if (s > 0)
-            mInfoWindowLocation = mOriginalPoints.get(s/2);
+            mInfoWindowLocation = new GeoPoint(mOutline.getLatitude(s/2), mOutline.getLongitude(s/2));
         else
             mInfoWindowLocation = new GeoPoint(0.0, 0.0);
     }
@@ -278,7 +323,6 @@ public class Polyline extends OverlayWithIW {
         mOutline = null;
         mOnClickListener = null;
         mMilestoneManagers.clear();
-        mOriginalPoints = null;
         onDestroy();
     }
 
@@ -285,6 +285,8 @@ public class TilesOverlay extends Overlay implements IOverlayMenuProvider {
 		@Override
 		public void initialiseLoop() {
 			getTileCache().getMapTileList().clear();
+			mTileProvider.getTileRequestScheduler().setViewport(
+					mTileZoomLevel, mTiles.left, mTiles.top, mTiles.right, mTiles.bottom);
 		}
 
 		@Override
@@ -0,0 +1,410 @@
+package org.osmdroid.views.overlay.simplefastpoint;
+
+import org.osmdroid.api.IGeoPoint;
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.TileSystem;
+
+/**
+ * Hierarchical clustering of a {@link SimpleFastPointOverlay.PointAdapter}, for the
+ * {@link SimpleFastPointOverlayOptions.RenderingAlgorithm#CLUSTERING} algorithm.
+ * Built once (slow: call it off the UI thread), then each viewport query costs O(log(n) + k).
+ * <p>
+ * For each integer zoom level, from the most detailed one down, the points / clusters of the level
+ * above that are within a pixel radius of each other are merged into a cluster located at their
+ * weighted center, like "supercluster" does. Each level is stored as a static KD-tree: parallel
+ * arrays sorted recursively around the median, alternately along X and Y.
+ * Coordinates are in "X01/Y01" (see {@link TileSystem#getX01FromLongitude(double, boolean)}).
+ * Immutable once built, hence thread-safe.
+ * @since 6.0.2
+ */
+public class PointClusterIndex {
+
+    private static final int NODE_SIZE = 64;
+
+    private final int mMinZoom;
+    private final int mMaxZoom;
+    private final double mRadius;
+    private final int mPointCount;
+    /** Level i is for zoom mMinZoom + i; the last level has all the points, unclustered */
+    private final Level[] mLevels;
+
+    /**
+     * @param pMinZoom the lowest zoom level with clusters
+     * @param pMaxZoom the highest zoom level with clusters; above, all the points are displayed
+     * @param pRadius the cluster radius, in pixels
+     */
+    public PointClusterIndex(final SimpleFastPointOverlay.PointAdapter pPoints, final int pMinZoom,
+                             final int pMaxZoom, final double pRadius) {
+        mMinZoom = pMinZoom;
+        mMaxZoom = pMaxZoom;
+        mRadius = pRadius;
+        mLevels = new Level[pMaxZoom - pMinZoom + 2];
+
+        final int size = pPoints.size();
+        mPointCount = size;
+        Level level = new Level(size);
+        for (int i = 0; i < size; i++) {
+            final IGeoPoint point = pPoints.get(i);
+            if (point == null) continue;
+            level.add(TileSystem.getX01FromLongitude(point.getLongitude(), true),
+                    TileSystem.getY01FromLatitude(point.getLatitude(), true), 1, i);
+        }
+        level.sort(0, level.mSize - 1, 0);
+        mLevels[mLevels.length - 1] = level;
+
+        final IntList neighbors = new IntList();
+        for (int zoom = pMaxZoom; zoom >= pMinZoom; zoom--) {
+            level = cluster(level, pRadius / TileSystem.MapSize((double) zoom), neighbors);
+            mLevels[zoom - pMinZoom] = level;
+        }
+    }
+
+    public int getMinZoom() {
+        return mMinZoom;
+    }
+
+    public int getMaxZoom() {
+        return mMaxZoom;
+    }
+
+    public double getRadius() {
+        return mRadius;
+    }
+
+    /**
+     * @return the size of the point list the index was built from
+     */
+    public int getPointCount() {
+        return mPointCount;
+    }
+
+    /**
+     * Gets the clusters and the single points of a viewport
+     * @param pZoomLevel the current zoom level of the map
+     * @param pResult reused, cleared first
+     */
+    public void getClusters(final BoundingBox pBoundingBox, final double pZoomLevel, final Result pResult) {
+        pResult.clear();
+        final Level level = getLevel(pZoomLevel);
+        final double minY = TileSystem.getY01FromLatitude(pBoundingBox.getLatNorth(), true);
+        final double maxY = TileSystem.getY01FromLatitude(pBoundingBox.getLatSouth(), true);
+        final double west = pBoundingBox.getLonWest();
+        final double east = pBoundingBox.getLonEast();
+        if (east - west >= 360) {
+            level.range(0, minY, 1, maxY, pResult);
+        } else if (west <= east) {
+            level.range(TileSystem.getX01FromLongitude(west, true), minY,
+                    TileSystem.getX01FromLongitude(east, true), maxY, pResult);
+        } else { // across the antimeridian
+            level.range(TileSystem.getX01FromLongitude(west, true), minY, 1, maxY, pResult);
+            level.range(0, minY, TileSystem.getX01FromLongitude(east, true), maxY, pResult);
+        }
+    }
+
+    /**
+     * @return the index of the point nearest to the given position, within a pixel distance, at the most
+     * detailed level, or -1 if none
+     */
+    public int getNearestPoint(final double pLatitude, final double pLongitude, final double pZoomLevel,
+                               final double pMaxPixelDistance) {
+        final Level level = mLevels[mLevels.length - 1];
+        final double x = TileSystem.getX01FromLongitude(pLongitude, true);
+        final double y = TileSystem.getY01FromLatitude(pLatitude, true);
+        final double radius = pMaxPixelDistance / TileSystem.MapSize(pZoomLevel);
+        final IntList candidates = new IntList();
+        level.within(x, y, radius, candidates);
+        int result = -1;
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < candidates.mSize; i++) {
+            final int candidate = candidates.mValues[i];
+            final double dx = level.mX[candidate] - x;
+            final double dy = level.mY[candidate] - y;
+            final double distance = dx * dx + dy * dy;
+            if (distance < best) {
+                best = distance;
+                result = level.mPointIndex[candidate];
+            }
+        }
+        return result;
+    }
+
+    private Level getLevel(final double pZoomLevel) {
+        final int zoom = (int) Math.floor(pZoomLevel);
+        if (zoom <= mMinZoom) return mLevels[0];
+        if (zoom > mMaxZoom) return mLevels[mLevels.length - 1];
+        return mLevels[zoom - mMinZoom];
+    }
+
+    /**
+     * Greedy clustering of a level, in its KD-tree order
+     * @param pRadius the cluster radius, in X01/Y01 units
+     */
+    private static Level cluster(final Level pLevel, final double pRadius, final IntList pNeighbors) {
+        final Level result = new Level(pLevel.mSize);
+        final boolean[] done = new boolean[pLevel.mSize];
+        for (int i = 0; i < pLevel.mSize; i++) {
+            if (done[i]) continue;
+            done[i] = true;
+            pNeighbors.clear();
+            pLevel.within(pLevel.mX[i], pLevel.mY[i], pRadius, pNeighbors);
+            int count = pLevel.mCount[i];
+            double x = pLevel.mX[i] * count;
+            double y = pLevel.mY[i] * count;
+            for (int j = 0; j < pNeighbors.mSize; j++) {
+                final int neighbor = pNeighbors.mValues[j];
+                if (done[neighbor]) continue;
+                done[neighbor] = true;
+                final int neighborCount = pLevel.mCount[neighbor];
+                x += pLevel.mX[neighbor] * neighborCount;
+                y += pLevel.mY[neighbor] * neighborCount;
+                count += neighborCount;
+            }
+            result.add(x / count, y / count, count, pLevel.mPointIndex[i]);
+        }
+        final Level trimmed = result.trim();
+        trimmed.sort(0, trimmed.mSize - 1, 0);
+        return trimmed;
+    }
+
+    /**
+     * The clusters and points of a viewport, as parallel arrays, reused from a query to another
+     */
+    public static class Result {
+
+        private final IntList mIndices = new IntList();
+        private Level mLevel;
+
+        private void clear() {
+            mIndices.clear();
+            mLevel = null;
+        }
+
+        public int size() {
+            return mIndices.mSize;
+        }
+
+        public double getLatitude(final int pIndex) {
+            return TileSystem.getLatitudeFromY01(mLevel.mY[mIndices.mValues[pIndex]], true);
+        }
+
+        public double getLongitude(final int pIndex) {
+            return TileSystem.getLongitudeFromX01(mLevel.mX[mIndices.mValues[pIndex]], true);
+        }
+
+        /**
+         * @return the number of points, 1 for a single point
+         */
+        public int getCount(final int pIndex) {
+            return mLevel.mCount[mIndices.mValues[pIndex]];
+        }
+
+        /**
+         * @return the index in the {@link SimpleFastPointOverlay.PointAdapter} of the point,
+         * or of one of the points of the cluster
+         */
+        public int getPointIndex(final int pIndex) {
+            return mLevel.mPointIndex[mIndices.mValues[pIndex]];
+        }
+    }
+
+    /**
+     * A zoom level, as a static KD-tree
+     */
+    private static class Level {
+
+        private final double[] mX;
+        private final double[] mY;
+        private final int[] mCount;
+        private final int[] mPointIndex;
+        private int mSize;
+
+        private Level(final int pCapacity) {
+            mX = new double[pCapacity];
+            mY = new double[pCapacity];
+            mCount = new int[pCapacity];
+            mPointIndex = new int[pCapacity];
+        }
+
+        private void add(final double pX, final double pY, final int pCount, final int pPointIndex) {
+            mX[mSize] = pX;
+            mY[mSize] = pY;
+            mCount[mSize] = pCount;
+            mPointIndex[mSize] = pPointIndex;
+            mSize++;
+        }
+
+        /**
+         * @return a copy without the unused capacity
+         */
+        private Level trim() {
+            final Level result = new Level(mSize);
+            System.arraycopy(mX, 0, result.mX, 0, mSize);
+            System.arraycopy(mY, 0, result.mY, 0, mSize);
+            System.arraycopy(mCount, 0, result.mCount, 0, mSize);
+            System.arraycopy(mPointIndex, 0, result.mPointIndex, 0, mSize);
+            result.mSize = mSize;
+            return result;
+        }
+
+        private void range(final double pMinX, final double pMinY, final double pMaxX, final double pMaxY,
+                           final Result pResult) {
+            pResult.mLevel = this;
+            final IntList stack = new IntList();
+            stack.add(0);
+            stack.add(mSize - 1);
+            stack.add(0);
+            while (stack.mSize > 0) {
+                final int axis = stack.pop();
+                final int right = stack.pop();
+                final int left = stack.pop();
+                if (right - left <= NODE_SIZE) {
+                    for (int i = left; i <= right; i++) {
+                        if (mX[i] >= pMinX && mX[i] <= pMaxX && mY[i] >= pMinY && mY[i] <= pMaxY) {
+                            pResult.mIndices.add(i);
+                        }
+                    }
+                    continue;
+                }
+                final int middle = (left + right) >> 1;
+                final double x = mX[middle];
+                final double y = mY[middle];
+                if (x >= pMinX && x <= pMaxX && y >= pMinY && y <= pMaxY) {
+                    pResult.mIndices.add(middle);
+                }
+                final double value = axis == 0 ? x : y;
+                if (value >= (axis == 0 ? pMinX : pMinY)) {
+                    stack.add(left);
+                    stack.add(middle - 1);
+                    stack.add(1 - axis);
+                }
+                if (value <= (axis == 0 ? pMaxX : pMaxY)) {
+                    stack.add(middle + 1);
+                    stack.add(right);
+                    stack.add(1 - axis);
+                }
+            }
+        }
+
+        private void within(final double pX, final double pY, final double pRadius, final IntList pResult) {
+            final double radius2 = pRadius * pRadius;
+            final IntList stack = new IntList();
+            stack.add(0);
+            stack.add(mSize - 1);
+            stack.add(0);
+            while (stack.mSize > 0) {
+                final int axis = stack.pop();
+                final int right = stack.pop();
+                final int left = stack.pop();
+                if (right - left <= NODE_SIZE) {
+                    for (int i = left; i <= right; i++) {
+                        if (getSquaredDistance(i, pX, pY) <= radius2) {
+                            pResult.add(i);
+                        }
+                    }
+                    continue;
+                }
+                final int middle = (left + right) >> 1;
+                if (getSquaredDistance(middle, pX, pY) <= radius2) {
+                    pResult.add(middle);
+                }
+                final double value = axis == 0 ? mX[middle] : mY[middle];
+                final double center = axis == 0 ? pX : pY;
+                if (center - pRadius <= value) {
+                    stack.add(left);
+                    stack.add(middle - 1);
+                    stack.add(1 - axis);
+                }
+                if (center + pRadius >= value) {
+                    stack.add(middle + 1);
+                    stack.add(right);
+                    stack.add(1 - axis);
+                }
+            }
+        }
+
+        private double getSquaredDistance(final int pIndex, final double pX, final double pY) {
+            final double dx = mX[pIndex] - pX;
+            final double dy = mY[pIndex] - pY;
+            return dx * dx + dy * dy;
+        }
+
+        /**
+         * Sorts the range so that its median (along the axis) is in the middle, recursively
+         */
+        private void sort(final int pLeft, final int pRight, final int pAxis) {
+            if (pRight - pLeft <= NODE_SIZE) return;
+            final int middle = (pLeft + pRight) >> 1;
+            select(middle, pLeft, pRight, pAxis);
+            sort(pLeft, middle - 1, 1 - pAxis);
+            sort(middle + 1, pRight, 1 - pAxis);
+        }
+
+        /**
+         * Quickselect: moves the k-th smallest value (along the axis) to position k,
+         * with the smaller ones before and the bigger ones after
+         */
+        private void select(final int pK, int pLeft, int pRight, final int pAxis) {
+            final double[] values = pAxis == 0 ? mX : mY;
+            while (pRight > pLeft) {
+                final double pivot = values[(pLeft + pRight) >> 1];
+                int i = pLeft;
+                int j = pRight;
+                while (i <= j) {
+                    while (values[i] < pivot) i++;
+                    while (values[j] > pivot) j--;
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                if (pK <= j) {
+                    pRight = j;
+                } else if (pK >= i) {
+                    pLeft = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void swap(final int pI, final int pJ) {
+            final double x = mX[pI];
+            mX[pI] = mX[pJ];
+            mX[pJ] = x;
+            final double y = mY[pI];
+            mY[pI] = mY[pJ];
+            mY[pJ] = y;
+            final int count = mCount[pI];
+            mCount[pI] = mCount[pJ];
+            mCount[pJ] = count;
+            final int pointIndex = mPointIndex[pI];
+            mPointIndex[pI] = mPointIndex[pJ];
+            mPointIndex[pJ] = pointIndex;
+        }
+    }
+
+    /**
+     * A growable list of ints
+     */
+    private static class IntList {
+
+        private int[] mValues = new int[64];
+        private int mSize;
+
+        private void clear() {
+            mSize = 0;
+        }
+
+        private void add(final int pValue) {
+            if (mSize == mValues.length) {
+                final int[] values = new int[mSize * 2];
+                System.arraycopy(mValues, 0, values, 0, mSize);
+                mValues = values;
+            }
+            mValues[mSize++] = pValue;
+        }
+
+        private int pop() {
+            return mValues[--mSize];
+        }
+    }
+}
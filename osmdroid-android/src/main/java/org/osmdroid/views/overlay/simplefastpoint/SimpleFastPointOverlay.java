@@ -6,6 +6,7 @@ import android.graphics.Point;
 import android.view.MotionEvent;
 
 import org.osmdroid.api.IGeoPoint;
+import org.osmdroid.tileprovider.modules.ConfigurablePriorityThreadFactory;
 import org.osmdroid.util.BoundingBox;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
@@ -15,6 +16,8 @@ import org.osmdroid.views.overlay.Overlay;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Overlay to draw a layer of clickable simple points, optimized for rendering speed. Nice
@@ -26,6 +29,8 @@ import java.util.List;
  *     event and only draws one point per grid cell.
  * MAXIMUM_OPTIMIZATION: for >10k points, only recalculates the grid on touch up, hence much faster.
  *     Performs well for 100k points.
+ * CLUSTERING: for millions of points, draws clusters from a {@link PointClusterIndex} built once in
+ *     the background.
  *
  * TODO: support for rotated maps!
  * TODO: a quadtree index would improve rendering speed!
@@ -47,6 +52,16 @@ public class SimpleFastPointOverlay extends Overlay {
     private BoundingBox startBoundingBox;
     private Projection startProjection;
     private BoundingBox prevBoundingBox = new BoundingBox(0, 0, 0, 0);
+    private volatile PointClusterIndex mClusterIndex;
+    /** Incremented by each build request, so that a superseded build is dropped */
+    private volatile int mClusterIndexVersion;
+    private boolean mClusterIndexRequested;
+    private int mRequestedPointCount;
+    private int mRequestedMaxClusteringZoom;
+    private float mRequestedClusterRadius;
+    private ExecutorService mClusterExecutor;
+    private final PointClusterIndex.Result mClusters = new PointClusterIndex.Result();
+    private final GeoPoint mClusterPosition = new GeoPoint(0., 0.);
 
     /**
      * Just a light internal class for storing point data
@@ -180,6 +195,84 @@ public class SimpleFastPointOverlay extends Overlay {
         }
     }
 
+    /**
+     * @return the cluster index, or null if it's still being built in the background.
+     * The index is built again when the number of points or the cluster options change.
+     * @since 6.0.2
+     */
+    private PointClusterIndex getClusterIndex(final MapView pMapView) {
+        final int pointCount = mPointList.size();
+        if (!mClusterIndexRequested || mRequestedPointCount != pointCount
+                || mRequestedMaxClusteringZoom != mStyle.mMaxClusteringZoom
+                || mRequestedClusterRadius != mStyle.mClusterRadius) {
+            buildClusterIndex(pMapView, pointCount, mStyle.mMaxClusteringZoom, mStyle.mClusterRadius);
+        }
+        return getBuiltClusterIndex();
+    }
+
+    /**
+     * @return the last cluster index built, or null if it doesn't match the points any more
+     * @since 6.0.2
+     */
+    private PointClusterIndex getBuiltClusterIndex() {
+        final PointClusterIndex index = mClusterIndex;
+        if (index == null || index.getPointCount() != mPointList.size()) {
+            return null; // its point indices would be wrong
+        }
+        return index;
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    private void buildClusterIndex(final MapView pMapView, final int pPointCount,
+                                   final int pMaxClusteringZoom, final float pClusterRadius) {
+        mClusterIndexRequested = true;
+        mRequestedPointCount = pPointCount;
+        mRequestedMaxClusteringZoom = pMaxClusteringZoom;
+        mRequestedClusterRadius = pClusterRadius;
+        final int version = ++mClusterIndexVersion;
+        if (mClusterExecutor == null) {
+            mClusterExecutor = Executors.newSingleThreadExecutor(new ConfigurablePriorityThreadFactory(
+                    Thread.MIN_PRIORITY, "SimpleFastPointOverlay clustering"));
+        }
+        mClusterExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (version != mClusterIndexVersion) {
+                    return; // superseded by a newer request
+                }
+                final PointClusterIndex index = new PointClusterIndex(mPointList, 0, pMaxClusteringZoom,
+                        pClusterRadius);
+                if (version != mClusterIndexVersion) {
+                    return;
+                }
+                mClusterIndex = index;
+                pMapView.postInvalidate();
+            }
+        });
+    }
+
+    /**
+     * To be called when the points are modified without changing their number:
+     * the cluster index of the CLUSTERING algorithm is built again.
+     * @since 6.0.2
+     */
+    public void invalidateClusterIndex() {
+        mClusterIndexRequested = false;
+    }
+
+    @Override
+    public void onDetach(final MapView mapView) {
+        if (mClusterExecutor != null) {
+            mClusterExecutor.shutdownNow();
+            mClusterExecutor = null;
+        }
+        mClusterIndexVersion++;
+        mClusterIndexRequested = false;
+        super.onDetach(mapView);
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event, final MapView mapView) {
         if(mStyle.mAlgorithm !=
@@ -216,6 +309,20 @@ public class SimpleFastPointOverlay extends Overlay {
         Point tmp = new Point();
         Projection pj = mapView.getProjection();
 
+        final PointClusterIndex clusterIndex = getBuiltClusterIndex();
+        if(mStyle.mAlgorithm == SimpleFastPointOverlayOptions.RenderingAlgorithm.CLUSTERING
+                && clusterIndex != null) {
+            // no loop on all the points
+            final IGeoPoint position = pj.fromPixels((int) event.getX(), (int) event.getY());
+            closest = clusterIndex.getNearestPoint(position.getLatitude(), position.getLongitude()
+                    , mapView.getZoomLevelDouble(), 50);
+            if(closest == -1) return false;
+            setSelectedPoint(closest);
+            mapView.invalidate();
+            if(clickListener != null) clickListener.onClick(mPointList, closest);
+            return true;
+        }
+
         for(int i = 0; i < mPointList.size(); i++) {
             if(mPointList.get(i) == null) continue;
             // TODO avoid projecting coordinates, do a test before calling next line
@@ -370,6 +477,31 @@ public class SimpleFastPointOverlay extends Overlay {
                         }
                     }
                     break;
+
+                case CLUSTERING:
+                    // draw the visible clusters of the current zoom level
+                    final PointClusterIndex clusterIndex = getClusterIndex(mapView);
+                    if (clusterIndex == null) break;
+                    showLabels = (mStyle.mLabelPolicy == SimpleFastPointOverlayOptions.LabelPolicy.ZOOM_THRESHOLD
+                            && mapView.getZoomLevelDouble() >= mStyle.mMinZoomShowLabels);
+                    clusterIndex.getClusters(mapView.getBoundingBox(), mapView.getZoomLevelDouble(), mClusters);
+                    for (int i = 0; i < mClusters.size(); i++) {
+                        mClusterPosition.setCoords(mClusters.getLatitude(i), mClusters.getLongitude(i));
+                        pj.toPixels(mClusterPosition, mPositionPixels);
+                        final int count = mClusters.getCount(i);
+                        if (count > 1) {
+                            drawClusterAt(canvas, mPositionPixels.x, mPositionPixels.y, count);
+                            continue;
+                        }
+                        final IGeoPoint pt1 = mPointList.get(mClusters.getPointIndex(i));
+                        drawPointAt(canvas, mPositionPixels.x, mPositionPixels.y, mPointList.isLabelled() && showLabels
+                                , mPointList.isLabelled() ? ((LabelledGeoPoint) pt1).getLabel() : null
+                                , (mPointList.isStyled() && ((StyledLabelledGeoPoint) pt1).getPointStyle() != null)
+                                        ? ((StyledLabelledGeoPoint) pt1).getPointStyle() : mStyle.mPointStyle
+                                , (mPointList.isStyled() && (textStyle = ((StyledLabelledGeoPoint) pt1).getTextStyle()) != null)
+                                        ? textStyle : mStyle.mTextStyle);
+                    }
+                    break;
             }
         }
 
@@ -401,4 +533,21 @@ public class SimpleFastPointOverlay extends Overlay {
             canvas.drawText(label, x, y - mStyle.mCircleRadius - 5, textStyle);
 
     }
+
+    /**
+     * Draws a cluster: a symbol that grows with the number of points, and that number.
+     * @since 6.0.2
+     */
+    protected void drawClusterAt(Canvas canvas, float x, float y, int count) {
+        final float radius = mStyle.mCircleRadius * 2 + (float) Math.log10(count) * mStyle.mCircleRadius;
+        if(mStyle.mSymbol == SimpleFastPointOverlayOptions.Shape.CIRCLE)
+            canvas.drawCircle(x, y, radius, mStyle.mClusterPointStyle);
+        else
+            canvas.drawRect(x - radius, y - radius, x + radius, y + radius, mStyle.mClusterPointStyle);
+
+        if(mStyle.mClusterTextStyle != null)
+            canvas.drawText(String.valueOf(count), x
+                    , y - (mStyle.mClusterTextStyle.ascent() + mStyle.mClusterTextStyle.descent()) / 2
+                    , mStyle.mClusterTextStyle);
+    }
 }
@@ -9,7 +9,9 @@ import android.graphics.Paint;
  */
 
 public class SimpleFastPointOverlayOptions {
-    public enum RenderingAlgorithm {NO_OPTIMIZATION, MEDIUM_OPTIMIZATION, MAXIMUM_OPTIMIZATION}
+    public enum RenderingAlgorithm {NO_OPTIMIZATION, MEDIUM_OPTIMIZATION, MAXIMUM_OPTIMIZATION
+        /** @since 6.0.2 */
+        , CLUSTERING}
     public enum Shape {CIRCLE, SQUARE}
     public enum LabelPolicy {ZOOM_THRESHOLD, DENSITY_THRESHOLD}
     protected Paint mPointStyle;
@@ -24,6 +26,10 @@ public class SimpleFastPointOverlayOptions {
     protected LabelPolicy mLabelPolicy = LabelPolicy.ZOOM_THRESHOLD;
     protected int mMaxNShownLabels = 250;
     protected int mMinZoomShowLabels = 11;
+    protected Paint mClusterPointStyle;
+    protected Paint mClusterTextStyle;
+    protected float mClusterRadius = 40;  // in pixels
+    protected int mMaxClusteringZoom = 16;
 
     public SimpleFastPointOverlayOptions() {
         mPointStyle = new Paint();
@@ -40,6 +46,16 @@ public class SimpleFastPointOverlayOptions {
         mTextStyle.setColor(Color.parseColor("#ffff00"));
         mTextStyle.setTextAlign(Paint.Align.CENTER);
         mTextStyle.setTextSize(24);
+
+        mClusterPointStyle = new Paint();
+        mClusterPointStyle.setStyle(Paint.Style.FILL);
+        mClusterPointStyle.setColor(Color.parseColor("#cc5500"));
+
+        mClusterTextStyle = new Paint();
+        mClusterTextStyle.setStyle(Paint.Style.FILL);
+        mClusterTextStyle.setColor(Color.WHITE);
+        mClusterTextStyle.setTextAlign(Paint.Align.CENTER);
+        mClusterTextStyle.setTextSize(24);
     }
 
     /**
@@ -120,6 +136,9 @@ public class SimpleFastPointOverlayOptions {
      *          Not recommended for >10k points. Better UX, but may be choppier.
      * MAXIMUM_OPTIMIZATION: Fastest. Only recalculates the grid on touch up and animation end
      *          , hence much faster display on move. Recommended for >10k points.
+     * CLUSTERING: For millions of points. Nearby points are grouped into clusters that display
+     *          their number of points, depending on the zoom level. The clusters are computed once
+     *          in the background, then each draw only reads the visible ones.
      * @param algorithm A {@link RenderingAlgorithm}.
      * @return The updated {@link SimpleFastPointOverlayOptions}
      */
@@ -185,4 +204,41 @@ public class SimpleFastPointOverlayOptions {
         mLabelPolicy = labelPolicy;
         return this;
     }
+
+    /**
+     * Sets the styles of the clusters, for the CLUSTERING algorithm.
+     * @param pointStyle The style of the cluster symbol.
+     * @param textStyle The style of the number of points, drawn in the middle of the symbol.
+     * @return The updated {@link SimpleFastPointOverlayOptions}
+     * @since 6.0.2
+     */
+    public SimpleFastPointOverlayOptions setClusterStyle(Paint pointStyle, Paint textStyle) {
+        mClusterPointStyle = pointStyle;
+        mClusterTextStyle = textStyle;
+        return this;
+    }
+
+    /**
+     * Sets the radius within which points are grouped into a cluster, for the CLUSTERING algorithm.
+     * The clusters are computed again when it changes.
+     * @param radius The radius in pixels. Default is 40.
+     * @return The updated {@link SimpleFastPointOverlayOptions}
+     * @since 6.0.2
+     */
+    public SimpleFastPointOverlayOptions setClusterRadius(float radius) {
+        mClusterRadius = radius;
+        return this;
+    }
+
+    /**
+     * Sets the maximum zoom level with clusters, for the CLUSTERING algorithm: beyond, all the
+     * points are drawn. The clusters are computed again when it changes.
+     * @param maxClusteringZoom The zoom level. Default is 16.
+     * @return The updated {@link SimpleFastPointOverlayOptions}
+     * @since 6.0.2
+     */
+    public SimpleFastPointOverlayOptions setMaxClusteringZoom(int maxClusteringZoom) {
+        mMaxClusteringZoom = maxClusteringZoom;
+        return this;
+    }
 }
@@ -0,0 +1,81 @@
+package org.osmdroid.tileprovider;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.osmdroid.util.MapTileIndex;
+
+/**
+ * Unit tests related to {@link MapTileRequestScheduler}
+ * @since 6.0.2
+ */
+
+public class MapTileRequestSchedulerTest {
+
+    private static final int ZOOM = 10;
+
+    @Test
+    public void testNoViewport() {
+        final MapTileRequestScheduler scheduler = new MapTileRequestScheduler();
+        Assert.assertFalse(scheduler.hasViewport());
+        Assert.assertEquals(0, scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, 0, 0)));
+        Assert.assertEquals(0, scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM + 5, 100, 100)));
+    }
+
+    @Test
+    public void testDistanceToCenter() {
+        final MapTileRequestScheduler scheduler = new MapTileRequestScheduler();
+        scheduler.setViewport(ZOOM, 10, 20, 14, 24); // center tile is (12, 22)
+        Assert.assertTrue(scheduler.hasViewport());
+
+        final long center = scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, 12, 22));
+        final long side = scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, 13, 22));
+        final long corner = scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, 14, 24));
+        final long margin = scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, 15, 22));
+        final long farAway = scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, 16, 22));
+        Assert.assertTrue(center < side);
+        Assert.assertTrue(side < corner);
+        Assert.assertTrue(corner < margin);
+        Assert.assertTrue(margin < MapTileRequestScheduler.STALE);
+        Assert.assertEquals(MapTileRequestScheduler.STALE, farAway);
+    }
+
+    @Test
+    public void testZoomLevels() {
+        final MapTileRequestScheduler scheduler = new MapTileRequestScheduler();
+        scheduler.setViewport(ZOOM, 10, 20, 14, 24);
+
+        final long visibleCorner = scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, 14, 24));
+        final long marginTile = scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, 15, 22));
+        final long lowerZoom = scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM - 1, 6, 11));
+        final long upperZoom = scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM + 1, 24, 44));
+        Assert.assertTrue(visibleCorner < marginTile);
+        Assert.assertTrue(marginTile < lowerZoom);
+        Assert.assertTrue(marginTile < upperZoom);
+        Assert.assertTrue(lowerZoom < MapTileRequestScheduler.STALE);
+        Assert.assertTrue(upperZoom < MapTileRequestScheduler.STALE);
+        Assert.assertEquals(MapTileRequestScheduler.STALE,
+                scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM - 2, 3, 5)));
+        Assert.assertEquals(MapTileRequestScheduler.STALE,
+                scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM + 2, 48, 88)));
+
+        // the user zoomed in: the previous zoom level is now stale
+        scheduler.setViewport(ZOOM + 2, 40, 80, 56, 96);
+        Assert.assertEquals(MapTileRequestScheduler.STALE,
+                scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, 12, 22)));
+    }
+
+    @Test
+    public void testWorldWrap() {
+        final MapTileRequestScheduler scheduler = new MapTileRequestScheduler();
+        final int worldSize = 1 << ZOOM;
+        scheduler.setViewport(ZOOM, -2, 20, 2, 24); // around the antimeridian
+        Assert.assertTrue(scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, worldSize - 1, 22))
+                < MapTileRequestScheduler.STALE);
+        Assert.assertEquals(
+                scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, 1, 22)),
+                scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, worldSize - 1, 22)));
+        Assert.assertEquals(MapTileRequestScheduler.STALE,
+                scheduler.getPriority(MapTileIndex.getTileIndex(ZOOM, worldSize / 2, 22)));
+    }
+}
@@ -0,0 +1,150 @@
+package org.osmdroid.tileprovider;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.drawable.Drawable;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.osmdroid.util.MapTileIndex;
+import org.osmdroid.util.MapTileList;
+
+/**
+ * Unit tests related to {@link StripedLRUMapTileCache}
+ * @since 6.0.2
+ */
+
+public class StripedLRUMapTileCacheTest {
+
+    private static final int TILE_SIZE = 16;
+    private static final int TILE_BYTES = TILE_SIZE * TILE_SIZE * 4;
+
+    @Test
+    public void testByteCapacity() {
+        final int capacity = 50;
+        final int extra = 4;
+        final StripedLRUMapTileCache mapTileCache = new StripedLRUMapTileCache(capacity * TILE_BYTES);
+        final MapTileList mapTileList = mapTileCache.getMapTileList();
+
+        // init: the cache is empty
+        Assert.assertEquals(0, mapTileCache.getSize());
+        Assert.assertEquals(0, mapTileCache.getBytes());
+
+        // inserting items: the sizes should match
+        for (int i = 0 ; i < capacity + extra ; i ++) {
+            mapTileCache.putTile(getMapTileIndex(i), getDrawable(TILE_SIZE));
+        }
+        Assert.assertEquals(capacity + extra, mapTileCache.getSize());
+        Assert.assertEquals((capacity + extra) * TILE_BYTES, mapTileCache.getBytes());
+
+        // same keys: the size is not supposed to grow
+        for (int i = 0 ; i < capacity + extra ; i ++) {
+            mapTileCache.putTile(getMapTileIndex(i), getDrawable(TILE_SIZE));
+        }
+        Assert.assertEquals(capacity + extra, mapTileCache.getSize());
+        Assert.assertEquals((capacity + extra) * TILE_BYTES, mapTileCache.getBytes());
+
+        // garbage collection with all protected tiles: no tiles are removed
+        mapTileList.clear();
+        for (int i = 0 ; i < capacity + extra ; i ++) {
+            mapTileList.put(getMapTileIndex(i));
+        }
+        mapTileCache.garbageCollection();
+        Assert.assertEquals(capacity + extra, mapTileCache.getSize());
+
+        // garbage collection without protected tiles: the least recently used tiles are removed
+        mapTileList.clear();
+        for (int i = 0 ; i < extra ; i ++) {
+            Assert.assertNotNull(mapTileCache.getMapTile(getMapTileIndex(i)));
+        }
+        mapTileCache.garbageCollection();
+        Assert.assertEquals(capacity, mapTileCache.getSize());
+        Assert.assertEquals(capacity * TILE_BYTES, mapTileCache.getBytes());
+        for (int i = 0 ; i < capacity + extra ; i ++) {
+            final boolean expected = i < extra || i >= 2 * extra;
+            Assert.assertEquals(expected, mapTileCache.containsTile(getMapTileIndex(i)));
+        }
+
+        // clear: the cache is now empty
+        mapTileCache.clear();
+        Assert.assertEquals(0, mapTileCache.getSize());
+        Assert.assertEquals(0, mapTileCache.getBytes());
+    }
+
+    @Test
+    public void testBigTiles() {
+        final int capacity = 10;
+        final StripedLRUMapTileCache mapTileCache = new StripedLRUMapTileCache(capacity * TILE_BYTES);
+
+        // one tile 4 times as big as the others: only 6 normal tiles remain
+        mapTileCache.putTile(getMapTileIndex(0), getDrawable(TILE_SIZE * 2));
+        for (int i = 1 ; i <= capacity ; i ++) {
+            mapTileCache.putTile(getMapTileIndex(i), getDrawable(TILE_SIZE));
+        }
+        mapTileCache.garbageCollection();
+        Assert.assertFalse(mapTileCache.containsTile(getMapTileIndex(0)));
+        Assert.assertEquals(capacity, mapTileCache.getSize());
+
+        mapTileCache.putTile(getMapTileIndex(0), getDrawable(TILE_SIZE * 2));
+        mapTileCache.garbageCollection();
+        Assert.assertTrue(mapTileCache.containsTile(getMapTileIndex(0)));
+        Assert.assertEquals(capacity - 4 + 1, mapTileCache.getSize());
+        Assert.assertEquals(capacity * TILE_BYTES, mapTileCache.getBytes());
+    }
+
+    @Test
+    public void testRemove() {
+        final int size = 1000;
+        final StripedLRUMapTileCache mapTileCache = new StripedLRUMapTileCache(Long.MAX_VALUE);
+        for (int i = 0 ; i < size ; i ++) {
+            mapTileCache.putTile(getMapTileIndex(i), getDrawable(TILE_SIZE));
+        }
+        for (int i = 0 ; i < size ; i += 2) {
+            mapTileCache.remove(getMapTileIndex(i));
+        }
+        Assert.assertEquals(size / 2, mapTileCache.getSize());
+        for (int i = 0 ; i < size ; i ++) {
+            Assert.assertEquals(i % 2 == 1, mapTileCache.containsTile(getMapTileIndex(i)));
+        }
+    }
+
+    private long getMapTileIndex(final int pIndex) {
+        final int zoom = 10;
+        return MapTileIndex.getTileIndex(zoom, pIndex, pIndex);
+    }
+
+    private Drawable getDrawable(final int pSize) {
+        return new Drawable() {
+            @Override
+            public void draw(Canvas canvas) {
+
+            }
+
+            @Override
+            public void setAlpha(int alpha) {
+
+            }
+
+            @Override
+            public void setColorFilter(ColorFilter colorFilter) {
+
+            }
+
+            @Override
+            public int getOpacity() {
+                return 0;
+            }
+
+            @Override
+            public int getIntrinsicWidth() {
+                return pSize;
+            }
+
+            @Override
+            public int getIntrinsicHeight() {
+                return pSize;
+            }
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Unit tests related to {@link CacheManagerProgress} and {@link HostThrottle}
+ * @since 6.0.2
+ */
+
+public class CacheManagerProgressTest {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        final String signature = "test/0-18/1000/" + random.nextLong();
+        final CacheManagerProgress progress = new CacheManagerProgress(signature);
+        final boolean[][] expected = new boolean[19][1000];
+        int count = 0;
+        for (int i = 0 ; i < 5000 ; i ++) {
+            final int zoom = random.nextInt(expected.length);
+            final int rank = random.nextInt(expected[zoom].length);
+            progress.setDone(zoom, rank);
+            if (!expected[zoom][rank]) {
+                expected[zoom][rank] = true;
+                count ++;
+            }
+        }
+        Assert.assertEquals(count, progress.getDoneCount());
+
+        final File file = File.createTempFile("progress", ".bin");
+        try {
+            progress.save(file);
+            Assert.assertNull(CacheManagerProgress.load(file, signature + "x"));
+            final CacheManagerProgress loaded = CacheManagerProgress.load(file, signature);
+            Assert.assertNotNull(loaded);
+            Assert.assertEquals(count, loaded.getDoneCount());
+            for (int zoom = 0 ; zoom < expected.length ; zoom ++) {
+                for (int rank = 0 ; rank < expected[zoom].length ; rank ++) {
+                    Assert.assertEquals(expected[zoom][rank], loaded.isDone(zoom, rank));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+        Assert.assertNull(CacheManagerProgress.load(file, signature));
+    }
+
+    @Test
+    public void testHostThrottle() throws InterruptedException {
+        final int max = 8;
+        final HostThrottle throttle = new HostThrottle(max);
+        Assert.assertEquals(max, throttle.getConcurrency());
+
+        // throttled: the concurrency is halved, and we are paused
+        throttle.acquire();
+        final long before = System.currentTimeMillis();
+        throttle.onThrottled(100);
+        Assert.assertEquals(max / 2, throttle.getConcurrency());
+        Assert.assertTrue(throttle.getPausedUntil() >= before + 100);
+
+        // never under 1
+        for (int i = 0 ; i < 10 ; i ++) {
+            throttle.acquire();
+            throttle.onThrottled(0);
+        }
+        Assert.assertEquals(1, throttle.getConcurrency());
+
+        // back to the maximum after enough successes
+        for (int i = 0 ; i < (max - 1) * HostThrottle.SUCCESSES_BEFORE_INCREASE ; i ++) {
+            throttle.acquire();
+            throttle.onSuccess();
+        }
+        Assert.assertEquals(max, throttle.getConcurrency());
+    }
+}
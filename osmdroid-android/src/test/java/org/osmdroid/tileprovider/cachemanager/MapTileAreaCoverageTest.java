@@ -0,0 +1,109 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.MapTileIndex;
+import org.osmdroid.util.MyMath;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Unit tests related to {@link MapTileAreaCoverage}
+ * @since 6.0.2
+ */
+
+public class MapTileAreaCoverageTest {
+
+    private static final Random random = new Random();
+
+    /**
+     * Random boxes within the Mercator limits: same tiles as the former enumeration
+     */
+    @Test
+    public void testInRange() {
+        for (int iteration = 0 ; iteration < 20 ; iteration ++) {
+            final double north = -80 + 160 * random.nextDouble();
+            final double south = north - (north + 80) * random.nextDouble();
+            final double west = -179 + 358 * random.nextDouble();
+            final double east = west + (179 - west) * random.nextDouble();
+            check(new BoundingBox(north, east, south, west), 0, 10);
+        }
+    }
+
+    /**
+     * Boxes across the antimeridian
+     */
+    @Test
+    public void testAntimeridian() {
+        check(new BoundingBox(10, -170, -10, 170), 0, 12);
+        for (int iteration = 0 ; iteration < 20 ; iteration ++) {
+            final double north = -80 + 160 * random.nextDouble();
+            final double south = north - (north + 80) * random.nextDouble();
+            final double west = 179 * random.nextDouble();
+            final double east = -179 * random.nextDouble();
+            check(new BoundingBox(north, east, south, west), 0, 10);
+        }
+    }
+
+    @Test
+    public void testSignature() {
+        final BoundingBox boundingBox = new BoundingBox(50, 10, 40, 0);
+        Assert.assertEquals(new MapTileAreaCoverage(boundingBox, 3, 10).getSignature(),
+                new MapTileAreaCoverage(boundingBox, 3, 10).getSignature());
+        Assert.assertFalse(new MapTileAreaCoverage(boundingBox, 3, 10).getSignature().equals(
+                new MapTileAreaCoverage(boundingBox, 3, 11).getSignature()));
+        Assert.assertFalse(new MapTileAreaCoverage(boundingBox, 3, 10).getSignature().equals(
+                new MapTileAreaCoverage(new BoundingBox(50, 11, 40, 0), 3, 10).getSignature()));
+    }
+
+    private void check(final BoundingBox pBoundingBox, final int pZoomMin, final int pZoomMax) {
+        final MapTileAreaCoverage coverage = new MapTileAreaCoverage(pBoundingBox, pZoomMin, pZoomMax);
+        final Set<Long> tiles = MapTileCoverageTestUtil.getTiles(coverage);
+        Assert.assertEquals(coverage.getSize(), tiles.size());
+        final Set<Long> expected = new HashSet<>();
+        for (int zoom = pZoomMin ; zoom <= pZoomMax ; zoom ++) {
+            expected.addAll(getFormerTilesCoverage(pBoundingBox, zoom));
+        }
+        Assert.assertEquals(expected, tiles);
+    }
+
+    /**
+     * The enumeration used before {@link MapTileAreaCoverage}, without android.graphics.Point
+     */
+    private Set<Long> getFormerTilesCoverage(final BoundingBox pBB, final int pZoomLevel) {
+        final Set<Long> result = new HashSet<>();
+        final int mapTileUpperBound = 1 << pZoomLevel;
+        final int lowerRightX = getTileX(pBB.getLonEast(), pZoomLevel);
+        final int lowerRightY = getTileY(pBB.getLatSouth(), pZoomLevel);
+        final int upperLeftX = getTileX(pBB.getLonWest(), pZoomLevel);
+        final int upperLeftY = getTileY(pBB.getLatNorth(), pZoomLevel);
+        int width = lowerRightX - upperLeftX + 1;
+        if (width <= 0) {
+            width += mapTileUpperBound;
+        }
+        int height = lowerRightY - upperLeftY + 1;
+        if (height <= 0) {
+            height += mapTileUpperBound;
+        }
+        for (int i = 0 ; i < width ; i ++) {
+            for (int j = 0 ; j < height ; j ++) {
+                final int x = MyMath.mod(upperLeftX + i, mapTileUpperBound);
+                final int y = MyMath.mod(upperLeftY + j, mapTileUpperBound);
+                result.add(MapTileIndex.getTileIndex(pZoomLevel, x, y));
+            }
+        }
+        return result;
+    }
+
+    private int getTileX(final double pLongitude, final int pZoom) {
+        return (int) Math.floor((pLongitude + 180) / 360 * (1 << pZoom));
+    }
+
+    private int getTileY(final double pLatitude, final int pZoom) {
+        return (int) Math.floor((1 - Math.log(Math.tan(pLatitude * Math.PI / 180) + 1 / Math.cos(pLatitude * Math.PI / 180)) / Math.PI) / 2 * (1 << pZoom));
+    }
+}
@@ -0,0 +1,39 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+import junit.framework.Assert;
+
+import org.osmdroid.util.MapTileCoverage;
+import org.osmdroid.util.MapTileIndex;
+import org.osmdroid.util.MapTileIndexIterator;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Helpers shared by the unit tests of the {@link MapTileCoverage}s
+ * @since 6.0.2
+ */
+
+class MapTileCoverageTestUtil {
+
+    /**
+     * @return the tiles of the coverage, checking that they are distinct, sorted by ascending zoom level
+     * and that their count is the size of the coverage
+     */
+    static Set<Long> getTiles(final MapTileCoverage pCoverage) {
+        final Set<Long> result = new HashSet<>();
+        final MapTileIndexIterator iterator = pCoverage.iterator();
+        int count = 0;
+        int previousZoom = -1;
+        while (iterator.hasNext()) {
+            final long tile = iterator.next();
+            final int zoom = MapTileIndex.getZoom(tile);
+            Assert.assertTrue(zoom >= previousZoom);
+            previousZoom = zoom;
+            Assert.assertTrue(result.add(tile));
+            count ++;
+        }
+        Assert.assertEquals(count, pCoverage.getSize());
+        return result;
+    }
+}
@@ -0,0 +1,115 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.util.MapTileIndex;
+import org.osmdroid.util.TileSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Unit tests related to {@link MapTilePolygonCoverage}
+ * @since 6.0.2
+ */
+
+public class MapTilePolygonCoverageTest {
+
+    private static final Random random = new Random();
+
+    /**
+     * A rectangle covers the same tiles as its bounding box
+     */
+    @Test
+    public void testRectangle() {
+        final int zoomMin = 3;
+        final int zoomMax = 12;
+        for (int iteration = 0 ; iteration < 20 ; iteration ++) {
+            final double north = 60 * random.nextDouble();
+            final double south = north - 30 * random.nextDouble();
+            final double west = -170 + 170 * random.nextDouble();
+            final double east = west + 170 * random.nextDouble();
+            final List<GeoPoint> polygon = new ArrayList<>();
+            polygon.add(new GeoPoint(north, west));
+            polygon.add(new GeoPoint(north, east));
+            polygon.add(new GeoPoint(south, east));
+            polygon.add(new GeoPoint(south, west));
+            final MapTilePolygonCoverage coverage = new MapTilePolygonCoverage(polygon, zoomMin, zoomMax);
+            final Set<Long> tiles = MapTileCoverageTestUtil.getTiles(coverage);
+            long expected = 0;
+            for (int zoom = zoomMin ; zoom <= zoomMax ; zoom ++) {
+                final int left = getTile(TileSystem.getX01FromLongitude(west, true), zoom);
+                final int right = getTile(TileSystem.getX01FromLongitude(east, true), zoom);
+                final int top = getTile(TileSystem.getY01FromLatitude(north, true), zoom);
+                final int bottom = getTile(TileSystem.getY01FromLatitude(south, true), zoom);
+                expected += (long) (right - left + 1) * (bottom - top + 1);
+                Assert.assertTrue(tiles.contains(MapTileIndex.getTileIndex(zoom, left, top)));
+                Assert.assertTrue(tiles.contains(MapTileIndex.getTileIndex(zoom, right, bottom)));
+            }
+            Assert.assertEquals(expected, tiles.size());
+        }
+    }
+
+    /**
+     * Random triangles: every tile whose center is inside the triangle, and every tile containing a vertex,
+     * is covered; the size is consistent with the iterator; no tile is enumerated twice
+     */
+    @Test
+    public void testTriangle() {
+        final int zoomMin = 0;
+        final int zoomMax = 10;
+        for (int iteration = 0 ; iteration < 20 ; iteration ++) {
+            final List<GeoPoint> polygon = new ArrayList<>();
+            for (int i = 0 ; i < 3 ; i ++) {
+                polygon.add(new GeoPoint(-60 + 120 * random.nextDouble(), -170 + 340 * random.nextDouble()));
+            }
+            final MapTilePolygonCoverage coverage = new MapTilePolygonCoverage(polygon, zoomMin, zoomMax);
+            final Set<Long> tiles = MapTileCoverageTestUtil.getTiles(coverage);
+            for (int zoom = zoomMin ; zoom <= zoomMax ; zoom ++) {
+                final int size = 1 << zoom;
+                for (final GeoPoint geoPoint : polygon) {
+                    final int x = getTile(TileSystem.getX01FromLongitude(geoPoint.getLongitude(), true), zoom);
+                    final int y = getTile(TileSystem.getY01FromLatitude(geoPoint.getLatitude(), true), zoom);
+                    Assert.assertTrue(tiles.contains(MapTileIndex.getTileIndex(zoom, x, y)));
+                }
+                if (zoom > 7) {
+                    continue;
+                }
+                for (int x = 0 ; x < size ; x ++) {
+                    for (int y = 0 ; y < size ; y ++) {
+                        if (isInside(polygon, (x + .5) / size, (y + .5) / size)) {
+                            Assert.assertTrue(tiles.contains(MapTileIndex.getTileIndex(zoom, x, y)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int getTile(final double pXY01, final int pZoom) {
+        return Math.min((1 << pZoom) - 1, (int) Math.floor(pXY01 * (1 << pZoom)));
+    }
+
+    private boolean isInside(final List<GeoPoint> pPolygon, final double pX01, final double pY01) {
+        boolean result = false;
+        final int size = pPolygon.size();
+        for (int i = 0 ; i < size ; i ++) {
+            final GeoPoint a = pPolygon.get(i);
+            final GeoPoint b = pPolygon.get((i + 1) % size);
+            final double xa = TileSystem.getX01FromLongitude(a.getLongitude(), true);
+            final double ya = TileSystem.getY01FromLatitude(a.getLatitude(), true);
+            final double xb = TileSystem.getX01FromLongitude(b.getLongitude(), true);
+            final double yb = TileSystem.getY01FromLatitude(b.getLatitude(), true);
+            if ((ya <= pY01 && pY01 < yb) || (yb <= pY01 && pY01 < ya)) {
+                if (pX01 < xa + (pY01 - ya) * (xb - xa) / (yb - ya)) {
+                    result = !result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+package org.osmdroid.tileprovider.cachemanager;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.util.MapTileIndex;
+import org.osmdroid.util.TileSystem;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Unit tests related to {@link MapTileRouteCoverage}
+ * @since 6.0.2
+ */
+
+public class MapTileRouteCoverageTest {
+
+    private static final Random random = new Random();
+
+    /**
+     * Without buffer: the tiles are exactly the tiles touched by the route
+     */
+    @Test
+    public void testSupercover() {
+        final int zoomMin = 0;
+        final int zoomMax = 9;
+        for (int iteration = 0 ; iteration < 20 ; iteration ++) {
+            final List<GeoPoint> route = getRandomRoute(2 + random.nextInt(5));
+            final MapTileRouteCoverage coverage = new MapTileRouteCoverage(route, zoomMin, zoomMax);
+            final Set<Long> tiles = MapTileCoverageTestUtil.getTiles(coverage);
+            final Set<Long> expected = new HashSet<>();
+            for (int zoom = zoomMin ; zoom <= zoomMax ; zoom ++) {
+                final int size = 1 << zoom;
+                for (int i = 1 ; i < route.size() ; i ++) {
+                    final double x0 = getX(route.get(i - 1)) * size;
+                    final double y0 = getY(route.get(i - 1)) * size;
+                    final double x1 = getX(route.get(i)) * size;
+                    final double y1 = getY(route.get(i)) * size;
+                    final int left = (int) Math.floor(Math.min(x0, x1));
+                    final int right = (int) Math.floor(Math.max(x0, x1));
+                    final int top = (int) Math.floor(Math.min(y0, y1));
+                    final int bottom = (int) Math.floor(Math.max(y0, y1));
+                    for (int x = left ; x <= right ; x ++) {
+                        for (int y = top ; y <= bottom ; y ++) {
+                            if (intersects(x0, y0, x1, y1, x, y)) {
+                                expected.add(MapTileIndex.getTileIndex(zoom, x, y));
+                            }
+                        }
+                    }
+                }
+            }
+            Assert.assertEquals(expected, tiles);
+        }
+    }
+
+    /**
+     * With a buffer: the tiles are the tiles without buffer, extended in all directions
+     */
+    @Test
+    public void testBuffer() {
+        final int zoomMin = 2;
+        final int zoomMax = 8;
+        final int buffer = 2;
+        for (int iteration = 0 ; iteration < 20 ; iteration ++) {
+            final List<GeoPoint> route = getRandomRoute(2 + random.nextInt(5));
+            final Set<Long> tiles = MapTileCoverageTestUtil.getTiles(new MapTileRouteCoverage(route, zoomMin, zoomMax));
+            final MapTileRouteCoverage coverage = new MapTileRouteCoverage(route, zoomMin, zoomMax);
+            coverage.setBufferTiles(buffer);
+            final Set<Long> buffered = MapTileCoverageTestUtil.getTiles(coverage);
+            final Set<Long> expected = new HashSet<>();
+            for (final long tile : tiles) {
+                final int zoom = MapTileIndex.getZoom(tile);
+                final int size = 1 << zoom;
+                for (int i = -buffer ; i <= buffer ; i ++) {
+                    for (int j = -buffer ; j <= buffer ; j ++) {
+                        final int y = MapTileIndex.getY(tile) + j;
+                        if (y < 0 || y >= size) {
+                            continue;
+                        }
+                        final int x = (MapTileIndex.getX(tile) + i + size) % size;
+                        expected.add(MapTileIndex.getTileIndex(zoom, x, y));
+                    }
+                }
+            }
+            Assert.assertEquals(expected, buffered);
+        }
+    }
+
+    /**
+     * A buffer larger than the map covers the whole map, without overflow
+     */
+    @Test
+    public void testHugeBuffer() {
+        final int zoomMin = 0;
+        final int zoomMax = 6;
+        final List<GeoPoint> route = getRandomRoute(3);
+        final MapTileRouteCoverage coverage = new MapTileRouteCoverage(route, zoomMin, zoomMax);
+        coverage.setBufferTiles(Integer.MAX_VALUE);
+        Assert.assertEquals(1 << zoomMax, coverage.getBufferTiles(zoomMax));
+        long expected = 0;
+        for (int zoom = zoomMin ; zoom <= zoomMax ; zoom ++) {
+            expected += 1L << (2 * zoom);
+        }
+        Assert.assertEquals(expected, MapTileCoverageTestUtil.getTiles(coverage).size());
+        coverage.setBufferMeters(Double.MAX_VALUE);
+        Assert.assertEquals(1 << zoomMax, coverage.getBufferTiles(zoomMax));
+        Assert.assertEquals(expected, MapTileCoverageTestUtil.getTiles(coverage).size());
+    }
+
+    @Test
+    public void testAntimeridian() {
+        final List<GeoPoint> route = new ArrayList<>();
+        route.add(new GeoPoint(1., 179.));
+        route.add(new GeoPoint(1., -179.));
+        final int zoom = 4;
+        final Set<Long> tiles = MapTileCoverageTestUtil.getTiles(new MapTileRouteCoverage(route, zoom, zoom));
+        Assert.assertEquals(2, tiles.size());
+        Assert.assertTrue(tiles.contains(MapTileIndex.getTileIndex(zoom, 0, 7)));
+        Assert.assertTrue(tiles.contains(MapTileIndex.getTileIndex(zoom, 15, 7)));
+    }
+
+    @Test
+    public void testBufferMeters() {
+        final List<GeoPoint> route = new ArrayList<>();
+        route.add(new GeoPoint(45., 5.));
+        final MapTileRouteCoverage coverage = new MapTileRouteCoverage(route, 10, 15);
+        coverage.setBufferMeters(1000);
+        for (int zoom = 10 ; zoom <= 15 ; zoom ++) {
+            final double tileMeters = TileSystem.GroundResolution(45., zoom) * TileSystem.getTileSize();
+            final int buffer = coverage.getBufferTiles(zoom);
+            Assert.assertTrue(buffer * tileMeters >= 1000);
+            Assert.assertTrue((buffer - 1) * tileMeters < 1000);
+        }
+    }
+
+    private List<GeoPoint> getRandomRoute(final int pSize) {
+        final List<GeoPoint> result = new ArrayList<>();
+        for (int i = 0 ; i < pSize ; i ++) {
+            result.add(new GeoPoint(-60 + 120 * random.nextDouble(), -80 + 160 * random.nextDouble()));
+        }
+        return result;
+    }
+
+    private double getX(final GeoPoint pGeoPoint) {
+        return TileSystem.getX01FromLongitude(pGeoPoint.getLongitude(), true);
+    }
+
+    private double getY(final GeoPoint pGeoPoint) {
+        return TileSystem.getY01FromLatitude(pGeoPoint.getLatitude(), true);
+    }
+
+    /**
+     * @return true if the segment intersects the closed tile square (Liang-Barsky clipping)
+     */
+    private boolean intersects(final double pX0, final double pY0, final double pX1, final double pY1,
+                               final int pTileX, final int pTileY) {
+        final double dx = pX1 - pX0;
+        final double dy = pY1 - pY0;
+        final double[] p = {-dx, dx, -dy, dy};
+        final double[] q = {pX0 - pTileX, pTileX + 1 - pX0, pY0 - pTileY, pTileY + 1 - pY0};
+        double t0 = 0;
+        double t1 = 1;
+        for (int i = 0 ; i < 4 ; i ++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+                continue;
+            }
+            final double t = q[i] / p[i];
+            if (p[i] < 0) {
+                t0 = Math.max(t0, t);
+            } else {
+                t1 = Math.min(t1, t);
+            }
+        }
+        return t0 <= t1;
+    }
+}
@@ -0,0 +1,182 @@
+package org.osmdroid.tileprovider.modules;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unit tests related to {@link SqlTileWriteBehind}
+ * @since 6.0.2
+ */
+
+public class SqlTileWriteBehindTest {
+
+    private static final Random random = new Random();
+
+    /**
+     * The tiles are written in the order they were queued
+     */
+    @Test
+    public void testOrder() throws InterruptedException {
+        final RecordingWriteBehind writeBehind = new RecordingWriteBehind(16, 4);
+        final int count = 200;
+        for (int i = 0 ; i < count ; i ++) {
+            Assert.assertTrue(writeBehind.enqueue(getTile("a", i, i)));
+        }
+        writeBehind.stop();
+        Assert.assertEquals(count, writeBehind.mWritten.size());
+        for (int i = 0 ; i < count ; i ++) {
+            Assert.assertEquals(i, writeBehind.mWritten.get(i).mIndex);
+        }
+        Assert.assertTrue(writeBehind.mMaxBatchSize <= 4);
+    }
+
+    /**
+     * The last queued version of a tile is the one that is eventually written,
+     * and the queued version is visible until then
+     */
+    @Test
+    public void testLastVersion() throws InterruptedException {
+        final RecordingWriteBehind writeBehind = new RecordingWriteBehind(8, 3);
+        final Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0 ; i < 500 ; i ++) {
+            final long index = random.nextInt(20);
+            Assert.assertTrue(writeBehind.enqueue(getTile("a", index, i)));
+            expected.put(index, i);
+            final SqlTileWriteBehind.PendingTile pending = writeBehind.get("a", index);
+            if (pending != null) { // may have been written in the meantime
+                Assert.assertEquals(i, pending.mBits[0] & 0xFF | (pending.mBits[1] & 0xFF) << 8);
+            }
+        }
+        writeBehind.stop();
+        final Map<Long, Integer> actual = new HashMap<>();
+        for (final SqlTileWriteBehind.PendingTile tile : writeBehind.mWritten) {
+            actual.put(tile.mIndex, tile.mBits[0] & 0xFF | (tile.mBits[1] & 0xFF) << 8);
+        }
+        Assert.assertEquals(expected, actual);
+        Assert.assertNull(writeBehind.get("a", 0));
+    }
+
+    /**
+     * Stopping writes all the queued tiles first; tiles queued afterwards start a new writer
+     */
+    @Test
+    public void testStop() throws InterruptedException {
+        final RecordingWriteBehind writeBehind = new RecordingWriteBehind(32, 8);
+        writeBehind.stop(); // no writer yet
+        for (int round = 1 ; round <= 3 ; round ++) {
+            for (int i = 0 ; i < 100 ; i ++) {
+                Assert.assertTrue(writeBehind.enqueue(getTile("round" + round, i, i)));
+            }
+            writeBehind.stop();
+            Assert.assertEquals(round * 100, writeBehind.mWritten.size());
+            Assert.assertTrue(writeBehind.mTrimCount > 0);
+            Assert.assertNull(writeBehind.get("round" + round, 99));
+        }
+    }
+
+    @Test
+    public void testRemove() throws InterruptedException {
+        final RecordingWriteBehind writeBehind = new RecordingWriteBehind(1000, 1000);
+        synchronized (writeBehind.getWriteLock()) { // the writer cannot write anything meanwhile
+            for (int i = 0 ; i < 10 ; i ++) {
+                Assert.assertTrue(writeBehind.enqueue(getTile(i % 2 == 0 ? "even" : "odd", i, i)));
+            }
+            writeBehind.remove("even", 0);
+            Assert.assertNull(writeBehind.get("even", 0));
+            writeBehind.removeAll("odd");
+            Assert.assertNull(writeBehind.get("odd", 1));
+            Assert.assertTrue(writeBehind.setExpires("even", 2, 1234L));
+            Assert.assertFalse(writeBehind.setExpires("odd", 3, 1234L));
+        }
+        writeBehind.stop();
+        Assert.assertEquals(4, writeBehind.mWritten.size());
+        for (final SqlTileWriteBehind.PendingTile tile : writeBehind.mWritten) {
+            Assert.assertEquals("even", tile.mProvider);
+            Assert.assertEquals(tile.mIndex == 2 ? 1234 : 0, tile.getExpires());
+        }
+    }
+
+    /**
+     * Shutting down doesn't wait: the writer thread writes the queued tiles, then runs the callback
+     */
+    @Test
+    public void testShutdown() throws InterruptedException {
+        final RecordingWriteBehind writeBehind = new RecordingWriteBehind(1000, 10);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Thread> callbackThread = new AtomicReference<>();
+        final AtomicInteger writtenBeforeCallback = new AtomicInteger();
+        synchronized (writeBehind.getWriteLock()) { // the writer cannot write anything meanwhile
+            for (int i = 0 ; i < 100 ; i ++) {
+                Assert.assertTrue(writeBehind.enqueue(getTile("a", i, i)));
+            }
+            writeBehind.shutdown(new Runnable() {
+                @Override
+                public void run() {
+                    callbackThread.set(Thread.currentThread());
+                    writtenBeforeCallback.set(writeBehind.mWritten.size());
+                    latch.countDown();
+                }
+            });
+            Assert.assertEquals(1, latch.getCount());
+            Assert.assertFalse(writeBehind.enqueue(getTile("a", 1000, 0)));
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(100, writtenBeforeCallback.get());
+        Assert.assertNotSame(Thread.currentThread(), callbackThread.get());
+        Assert.assertFalse(writeBehind.enqueue(getTile("a", 1000, 0)));
+
+        // no writer thread: the callback is run at once
+        final RecordingWriteBehind idle = new RecordingWriteBehind(10, 10);
+        final AtomicReference<Thread> idleThread = new AtomicReference<>();
+        idle.shutdown(new Runnable() {
+            @Override
+            public void run() {
+                idleThread.set(Thread.currentThread());
+            }
+        });
+        Assert.assertSame(Thread.currentThread(), idleThread.get());
+    }
+
+    private SqlTileWriteBehind.PendingTile getTile(final String pProvider, final long pIndex, final int pVersion) {
+        return new SqlTileWriteBehind.PendingTile(pProvider, pIndex,
+                new byte[] {(byte) pVersion, (byte) (pVersion >> 8)}, null, null);
+    }
+
+    private static class RecordingWriteBehind extends SqlTileWriteBehind {
+
+        private final List<PendingTile> mWritten = new ArrayList<>();
+        private int mMaxBatchSize;
+        private int mTrimCount;
+
+        private RecordingWriteBehind(final int pQueueSize, final int pBatchSize) {
+            super(pQueueSize, pBatchSize, 100);
+        }
+
+        @Override
+        protected void writeBatch(final List<PendingTile> pBatch, final List<TileAccess> pAccesses) {
+            mWritten.addAll(pBatch);
+            mMaxBatchSize = Math.max(mMaxBatchSize, pBatch.size());
+            try {
+                Thread.sleep(1); // a slow database
+            } catch (InterruptedException e) {
+                //
+            }
+        }
+
+        @Override
+        protected void onTilesWritten() {
+            mTrimCount ++;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.osmdroid.tileprovider.modules;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osmdroid.config.Configuration;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.tilesource.XYTileSource;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit tests related to {@link IRevalidatingFilesystemCache} and its {@link TileWriter} implementation
+ * @since 6.0.2
+ */
+
+public class TileRevalidationTest {
+
+    private static final Random random = new Random();
+
+    private final ITileSource mTileSource = new XYTileSource(
+            "revalidation", 0, 19, 256, ".png", new String[]{"http://localhost/"});
+
+    private File mTileCache;
+
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        mTileCache = File.createTempFile("tiles", "");
+        mTileCache.delete();
+        mTileCache.mkdirs();
+        Configuration.getInstance().setOsmdroidTileCache(mTileCache);
+        final TileWriter writer = new TileWriter();
+        if (writer.initThread != null) { // the first one computes the size of the cache
+            writer.initThread.join();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        delete(mTileCache);
+    }
+
+    /**
+     * "304 Not Modified": the tile and its validators are kept, the file age policy restarts from now
+     */
+    @Test
+    public void testNotModified() throws IOException {
+        final TileWriter writer = new TileWriter();
+        final long index = getRandomIndex();
+        final byte[] tile = getRandomBytes();
+        final TileValidators validators = new TileValidators("\"etag-1\"", "Mon, 01 Jan 2018 00:00:00 GMT");
+        final long expiration = System.currentTimeMillis() - 1000;
+
+        Assert.assertFalse(writer.refreshExpirationTimestamp(mTileSource, index, expiration));
+        Assert.assertTrue(writer.saveFile(mTileSource, index, new ByteArrayInputStream(tile), expiration, validators));
+        Assert.assertNull(writer.getExpirationTimestamp(mTileSource, index)); // the file age policy
+        checkValidators(validators, writer.getValidators(mTileSource, index));
+        Assert.assertEquals(validators.getETag(), MapTileDownloader.getConditionalRequestProperties(
+                MapTileDownloader.getValidators(writer, mTileSource, index)).get("If-None-Match"));
+
+        final File file = writer.getFile(mTileSource, index);
+        Assert.assertTrue(file.setLastModified(System.currentTimeMillis() - 1000000));
+        Assert.assertTrue(writer.refreshExpirationTimestamp(mTileSource, index, System.currentTimeMillis() + 100000));
+        Assert.assertTrue(file.lastModified() > System.currentTimeMillis() - 100000);
+        checkValidators(validators, writer.getValidators(mTileSource, index));
+        Assert.assertTrue(Arrays.equals(tile, read(file)));
+    }
+
+    /**
+     * "200 OK": the tile, its validators and its expiration are overwritten
+     */
+    @Test
+    public void testModified() throws IOException {
+        final TileWriter writer = new TileWriter();
+        final long index = getRandomIndex();
+        final TileValidators validators = new TileValidators("\"etag-1\"", null);
+        Assert.assertTrue(writer.saveFile(mTileSource, index, new ByteArrayInputStream(getRandomBytes()),
+                System.currentTimeMillis(), validators));
+
+        final byte[] tile = getRandomBytes();
+        final TileValidators newValidators = new TileValidators(null, "Tue, 02 Jan 2018 00:00:00 GMT");
+        final long newExpiration = System.currentTimeMillis() + 100000;
+        Assert.assertTrue(MapTileDownloader.saveFile(writer, mTileSource, index,
+                new ByteArrayInputStream(tile), newExpiration, newValidators));
+        Assert.assertTrue(Arrays.equals(tile, read(writer.getFile(mTileSource, index))));
+        checkValidators(newValidators, writer.getValidators(mTileSource, index));
+
+        // no validators any more: nothing is stored next to the tile, whatever the expiration
+        Assert.assertTrue(writer.saveFile(mTileSource, index, new ByteArrayInputStream(tile), newExpiration,
+                new TileValidators(null, null)));
+        Assert.assertNull(writer.getValidators(mTileSource, index));
+        Assert.assertNull(writer.getExpirationTimestamp(mTileSource, index));
+        Assert.assertFalse(writer.getValidatorsFile(writer.getFile(mTileSource, index)).exists());
+
+        Assert.assertTrue(writer.remove(mTileSource, index));
+        Assert.assertNull(writer.getValidators(mTileSource, index));
+    }
+
+    /**
+     * Trimming the cache deletes each validators file with its tile, in the order of the tiles
+     */
+    @Test
+    public void testTrim() throws IOException {
+        final long maxBytes = Configuration.getInstance().getTileFileSystemCacheMaxBytes();
+        final long trimBytes = Configuration.getInstance().getTileFileSystemCacheTrimBytes();
+        try {
+            final TileWriter writer = new TileWriter();
+            final long[] indexes = new long[20];
+            final long now = System.currentTimeMillis();
+            for (int i = 0 ; i < indexes.length ; i ++) {
+                indexes[i] = MapTileIndex.getTileIndex(10, i, i);
+                final TileValidators validators = i % 2 == 0 ? new TileValidators("\"etag-" + i + "\"", null) : null;
+                Assert.assertTrue(writer.saveFile(mTileSource, indexes[i], new ByteArrayInputStream(new byte[1000]), null, validators));
+                final File file = writer.getFile(mTileSource, indexes[i]);
+                Assert.assertEquals(validators != null, writer.getValidatorsFile(file).exists());
+                // the oldest tiles first, their validators files being younger
+                Assert.assertTrue(file.setLastModified(now - 1000000 + i * 10000));
+                if (validators != null) {
+                    Assert.assertTrue(writer.getValidatorsFile(file).setLastModified(now));
+                }
+            }
+            final long usedBytes = TileWriter.getUsedCacheSpace();
+            Configuration.getInstance().setTileFileSystemCacheMaxBytes(usedBytes + 500);
+            Configuration.getInstance().setTileFileSystemCacheTrimBytes(usedBytes - 5500);
+            Assert.assertTrue(writer.saveFile(mTileSource, MapTileIndex.getTileIndex(10, 100, 100),
+                    new ByteArrayInputStream(new byte[1000]), null));
+            Assert.assertTrue(TileWriter.getUsedCacheSpace() <= usedBytes - 5500);
+            int deleted = 0;
+            for (int i = 0 ; i < indexes.length ; i ++) {
+                final File file = writer.getFile(mTileSource, indexes[i]);
+                if (!file.exists()) {
+                    Assert.assertEquals(i, deleted ++); // the oldest ones
+                }
+                Assert.assertEquals(file.exists() && i % 2 == 0, writer.getValidatorsFile(file).exists());
+            }
+            Assert.assertTrue(deleted >= 5);
+        } finally {
+            Configuration.getInstance().setTileFileSystemCacheMaxBytes(maxBytes);
+            Configuration.getInstance().setTileFileSystemCacheTrimBytes(trimBytes);
+        }
+    }
+
+    /**
+     * A cache that does not store validators: plain requests, plain saves
+     */
+    @Test
+    public void testNotRevalidating() {
+        final long index = getRandomIndex();
+        final byte[] tile = getRandomBytes();
+        final SqliteArchiveTileWriterStub cache = new SqliteArchiveTileWriterStub();
+        Assert.assertNull(MapTileDownloader.getValidators(cache, mTileSource, index));
+        Assert.assertNull(MapTileDownloader.getConditionalRequestProperties(null));
+        Assert.assertTrue(MapTileDownloader.saveFile(cache, mTileSource, index,
+                new ByteArrayInputStream(tile), null, new TileValidators("\"etag\"", null)));
+        Assert.assertEquals(index, cache.mSavedIndex);
+    }
+
+    private long getRandomIndex() {
+        final int zoom = random.nextInt(20);
+        return MapTileIndex.getTileIndex(zoom, random.nextInt(1 << zoom), random.nextInt(1 << zoom));
+    }
+
+    private byte[] getRandomBytes() {
+        final byte[] result = new byte[1 + random.nextInt(1000)];
+        random.nextBytes(result);
+        return result;
+    }
+
+    private void checkValidators(final TileValidators pExpected, final TileValidators pActual) {
+        Assert.assertNotNull(pActual);
+        Assert.assertEquals(pExpected.getETag(), pActual.getETag());
+        Assert.assertEquals(pExpected.getLastModified(), pActual.getLastModified());
+    }
+
+    private byte[] read(final File pFile) throws IOException {
+        final InputStream inputStream = new FileInputStream(pFile);
+        try {
+            final byte[] result = new byte[(int) pFile.length()];
+            int offset = 0;
+            while (offset < result.length) {
+                final int read = inputStream.read(result, offset, result.length - offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+            return result;
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private void delete(final File pFile) {
+        final File[] files = pFile.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                delete(file);
+            }
+        }
+        pFile.delete();
+    }
+
+    /**
+     * Only implements {@link IFilesystemCache}, like the archive writers
+     */
+    private static class SqliteArchiveTileWriterStub implements IFilesystemCache {
+
+        private long mSavedIndex = -1;
+
+        @Override
+        public boolean saveFile(ITileSource pTileSourceInfo, long pMapTileIndex, InputStream pStream, Long pExpirationTime) {
+            mSavedIndex = pMapTileIndex;
+            return true;
+        }
+
+        @Override
+        public boolean exists(ITileSource pTileSourceInfo, long pMapTileIndex) {
+            return mSavedIndex == pMapTileIndex;
+        }
+
+        @Override
+        public void onDetach() {
+        }
+
+        @Override
+        public boolean remove(ITileSource tileSource, long pMapTileIndex) {
+            return false;
+        }
+
+        @Override
+        public Long getExpirationTimestamp(ITileSource pTileSource, long pMapTileIndex) {
+            return null;
+        }
+
+        @Override
+        public android.graphics.drawable.Drawable loadTile(ITileSource pTileSource, long pMapTileIndex) {
+            return null;
+        }
+    }
+}
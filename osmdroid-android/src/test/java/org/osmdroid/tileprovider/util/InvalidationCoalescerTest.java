@@ -0,0 +1,91 @@
+package org.osmdroid.tileprovider.util;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Unit tests related to {@link InvalidationCoalescer}
+ * @since 6.0.2
+ */
+
+public class InvalidationCoalescerTest {
+
+    private static final Random random = new Random();
+
+    /**
+     * Only the first notification of a frame schedules an invalidation
+     */
+    @Test
+    public void testSchedule() {
+        final InvalidationCoalescer coalescer = new InvalidationCoalescer();
+        final int merged = Counters.tileInvalidationMerged;
+        for (int frame = 0 ; frame < 10 ; frame ++) {
+            final int notifications = 1 + random.nextInt(20);
+            int scheduled = 0;
+            for (int i = 0 ; i < notifications ; i ++) {
+                if (coalescer.schedule()) {
+                    scheduled ++;
+                }
+            }
+            Assert.assertEquals(1, scheduled);
+            coalescer.reset();
+        }
+        Assert.assertTrue(Counters.tileInvalidationMerged > merged);
+    }
+
+    /**
+     * The dirty area is the union of the tile rectangles of the frame
+     */
+    @Test
+    public void testUnion() {
+        final InvalidationCoalescer coalescer = new InvalidationCoalescer();
+        for (int frame = 0 ; frame < 100 ; frame ++) {
+            Assert.assertTrue(coalescer.isEmpty());
+            Assert.assertFalse(coalescer.isFull());
+            int left = Integer.MAX_VALUE;
+            int top = Integer.MAX_VALUE;
+            int right = Integer.MIN_VALUE;
+            int bottom = Integer.MIN_VALUE;
+            final int tiles = 1 + random.nextInt(10);
+            for (int i = 0 ; i < tiles ; i ++) {
+                final int tileLeft = random.nextInt(2000) - 1000;
+                final int tileTop = random.nextInt(2000) - 1000;
+                final int size = 1 + random.nextInt(512);
+                coalescer.union(tileLeft, tileTop, tileLeft + size, tileTop + size);
+                left = Math.min(left, tileLeft);
+                top = Math.min(top, tileTop);
+                right = Math.max(right, tileLeft + size);
+                bottom = Math.max(bottom, tileTop + size);
+            }
+            coalescer.union(5, 5, 5, 10); // empty rectangles are ignored
+            Assert.assertFalse(coalescer.isEmpty());
+            Assert.assertEquals(left, coalescer.getLeft());
+            Assert.assertEquals(top, coalescer.getTop());
+            Assert.assertEquals(right, coalescer.getRight());
+            Assert.assertEquals(bottom, coalescer.getBottom());
+            if (random.nextBoolean()) {
+                coalescer.setFull();
+                Assert.assertTrue(coalescer.isFull());
+            }
+            coalescer.reset();
+        }
+    }
+
+    /**
+     * A reset (e.g. on destroy) cancels the scheduled invalidation
+     */
+    @Test
+    public void testReset() {
+        final InvalidationCoalescer coalescer = new InvalidationCoalescer();
+        Assert.assertTrue(coalescer.schedule());
+        coalescer.setFull();
+        coalescer.union(0, 0, 10, 10);
+        coalescer.reset();
+        Assert.assertFalse(coalescer.isFull());
+        Assert.assertTrue(coalescer.isEmpty());
+        Assert.assertTrue(coalescer.schedule());
+    }
+}
@@ -0,0 +1,70 @@
+package org.osmdroid.tileprovider.util;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Unit tests related to {@link ReusableByteArrayOutputStream}
+ * @since 6.0.2
+ */
+
+public class ReusableByteArrayOutputStreamTest {
+
+    @Test
+    public void testReadFrom() throws Exception {
+        final ReusableByteArrayOutputStream buffer = new ReusableByteArrayOutputStream(16, 1024);
+        for (final int size : new int[] {0, 10, 16, 100, 5000, 3}) {
+            final byte[] data = getData(size);
+            Assert.assertEquals(size, buffer.readFrom(new ByteArrayInputStream(data)));
+            Assert.assertEquals(size, buffer.size());
+
+            // the same content can be read twice, as the cache and the decoder do
+            final ByteArrayInputStream inputStream = buffer.getInputStream();
+            check(data, inputStream);
+            inputStream.reset();
+            check(data, inputStream);
+        }
+    }
+
+    @Test
+    public void testEmptyInitialSize() throws Exception {
+        final ReusableByteArrayOutputStream buffer = new ReusableByteArrayOutputStream(0, 0);
+        for (final int size : new int[] {0, 1, 5000}) {
+            final byte[] data = getData(size);
+            Assert.assertEquals(size, buffer.readFrom(new ByteArrayInputStream(data)));
+            check(data, buffer.getInputStream());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalSizes() {
+        new ReusableByteArrayOutputStream(1024, 16);
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        final ReusableByteArrayOutputStream buffer = new ReusableByteArrayOutputStream(16, 1024);
+        buffer.readFrom(new ByteArrayInputStream(getData(5000)));
+        buffer.reset();
+        Assert.assertEquals(0, buffer.size());
+        Assert.assertEquals(-1, buffer.getInputStream().read());
+    }
+
+    private byte[] getData(final int pSize) {
+        final byte[] result = new byte[pSize];
+        for (int i = 0 ; i < pSize ; i ++) {
+            result[i] = (byte) (i * 31);
+        }
+        return result;
+    }
+
+    private void check(final byte[] pExpected, final ByteArrayInputStream pInputStream) {
+        for (final byte expected : pExpected) {
+            Assert.assertEquals(expected, (byte) pInputStream.read());
+        }
+        Assert.assertEquals(-1, pInputStream.read());
+    }
+}
@@ -0,0 +1,76 @@
+package org.osmdroid.util;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Unit tests related to {@link ConcurrentLongHashSet}
+ * @since 6.0.2
+ */
+
+public class ConcurrentLongHashSetTest {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void testAddRemove() {
+        final ConcurrentLongHashSet set = new ConcurrentLongHashSet();
+        Assert.assertEquals(0, set.size());
+        Assert.assertFalse(set.contains(0));
+        Assert.assertTrue(set.add(0));
+        Assert.assertFalse(set.add(0));
+        Assert.assertTrue(set.contains(0));
+        Assert.assertEquals(1, set.size());
+        Assert.assertTrue(set.remove(0));
+        Assert.assertFalse(set.remove(0));
+        Assert.assertFalse(set.contains(0));
+        Assert.assertEquals(0, set.size());
+    }
+
+    /**
+     * Compares random operations on tile indices with a {@link HashSet}, across several rehashes
+     */
+    @Test
+    public void testRandomOperations() {
+        final int iterations = 20;
+        final int operations = 10000;
+        for (int i = 0 ; i < iterations ; i ++) {
+            final ConcurrentLongHashSet set = new ConcurrentLongHashSet();
+            final Set<Long> expected = new HashSet<>();
+            final int zoom = random.nextInt(MapTileIndex.mMaxZoomLevel + 1);
+            final int range = Math.min(1 << zoom, 40);
+            for (int j = 0 ; j < operations ; j ++) {
+                final long index = MapTileIndex.getTileIndex(zoom, random.nextInt(range), random.nextInt(range));
+                switch (random.nextInt(3)) {
+                    case 0:
+                        Assert.assertEquals(expected.add(index), set.add(index));
+                        break;
+                    case 1:
+                        Assert.assertEquals(expected.remove(index), set.remove(index));
+                        break;
+                    default:
+                        Assert.assertEquals(expected.contains(index), set.contains(index));
+                }
+                Assert.assertEquals(expected.size(), set.size());
+            }
+            for (final long index : expected) {
+                Assert.assertTrue(set.contains(index));
+            }
+            set.clear();
+            Assert.assertEquals(0, set.size());
+            for (final long index : expected) {
+                Assert.assertFalse(set.contains(index));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegative() {
+        new ConcurrentLongHashSet().add(-1);
+    }
+}
@@ -0,0 +1,108 @@
+package org.osmdroid.util;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests related to {@link GEMFFile}
+ * @since 6.0.2
+ */
+
+public class GEMFFileTest {
+
+    @Test
+    public void testReadWrite() throws Exception {
+        final File directory = createTempDirectory();
+        try {
+            final File source = new File(directory, "source");
+            for (int zoom = 0 ; zoom <= 3 ; zoom ++) {
+                final int max = 1 << zoom;
+                for (int x = 0 ; x < max ; x ++) {
+                    for (int y = 0 ; y < max ; y ++) {
+                        writeTile(source, zoom, x, y);
+                    }
+                }
+            }
+            final List<File> sources = new ArrayList<>();
+            sources.add(source);
+            final String path = new File(directory, "test.gemf").getAbsolutePath();
+            new GEMFFile(path, sources).close();
+
+            final GEMFFile gemfFile = new GEMFFile(path);
+            try {
+                Assert.assertEquals(4, gemfFile.getZoomLevels().size());
+                for (int zoom = 0 ; zoom <= 3 ; zoom ++) {
+                    final int max = 1 << zoom;
+                    for (int x = 0 ; x < max ; x ++) {
+                        for (int y = 0 ; y < max ; y ++) {
+                            final InputStream inputStream = gemfFile.getInputStream(x, y, zoom);
+                            final byte[] expected = getData(zoom, x, y);
+                            Assert.assertEquals(expected.length, inputStream.available());
+                            inputStream.mark(expected.length);
+                            check(expected, inputStream);
+                            inputStream.reset();
+                            check(expected, inputStream);
+                        }
+                    }
+                }
+                Assert.assertNull(gemfFile.getInputStream(0, 0, 4));
+                Assert.assertNull(gemfFile.getInputStream(8, 0, 3));
+            } finally {
+                gemfFile.close();
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private byte[] getData(final int pZoom, final int pX, final int pY) {
+        final byte[] result = new byte[100 + pZoom * 10 + pX + pY];
+        for (int i = 0 ; i < result.length ; i ++) {
+            result[i] = (byte) (i + pZoom * 31 + pX * 7 + pY * 3);
+        }
+        return result;
+    }
+
+    private void writeTile(final File pSource, final int pZoom, final int pX, final int pY) throws IOException {
+        final File folder = new File(pSource, pZoom + File.separator + pX);
+        Assert.assertTrue(folder.isDirectory() || folder.mkdirs());
+        final FileOutputStream outputStream = new FileOutputStream(new File(folder, pY + ".png"));
+        try {
+            outputStream.write(getData(pZoom, pX, pY));
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void check(final byte[] pExpected, final InputStream pInputStream) throws IOException {
+        for (final byte expected : pExpected) {
+            Assert.assertEquals(expected, (byte) pInputStream.read());
+        }
+        Assert.assertEquals(-1, pInputStream.read());
+    }
+
+    private File createTempDirectory() throws IOException {
+        final File file = File.createTempFile("gemf", "");
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(file.mkdirs());
+        return file;
+    }
+
+    private void delete(final File pFile) {
+        final File[] children = pFile.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        pFile.delete();
+    }
+}
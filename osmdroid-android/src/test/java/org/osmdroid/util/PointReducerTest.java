@@ -0,0 +1,145 @@
+package org.osmdroid.util;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Unit tests related to {@link PointReducer}
+ * @since 6.0.2
+ */
+
+public class PointReducerTest {
+
+    private static final Random random = new Random();
+
+    /**
+     * For random tolerances, the points whose squared tolerance is bigger are exactly the points
+     * kept by a recursive Douglas-Peucker
+     */
+    @Test
+    public void testComputeSquaredTolerances() {
+        final int iterations = 100;
+        for (int i = 0 ; i < iterations ; i ++) {
+            final int count = 2 + random.nextInt(500);
+            final long[] xy = new long[2 * count];
+            for (int j = 0 ; j < 2 * count ; j ++) {
+                xy[j] = random.nextInt(1000);
+            }
+            final double[] squaredTolerances = new double[count];
+            PointReducer.computeSquaredTolerances(xy, count, squaredTolerances);
+            Assert.assertEquals(Double.POSITIVE_INFINITY, squaredTolerances[0]);
+            Assert.assertEquals(Double.POSITIVE_INFINITY, squaredTolerances[count - 1]);
+            for (int j = 0 ; j < 10 ; j ++) {
+                final double tolerance = random.nextDouble() * 300;
+                final boolean[] expected = new boolean[count];
+                expected[0] = expected[count - 1] = true;
+                douglasPeucker(xy, 0, count - 1, tolerance * tolerance, expected);
+                for (int k = 0 ; k < count ; k ++) {
+                    Assert.assertEquals(expected[k], squaredTolerances[k] > tolerance * tolerance);
+                }
+            }
+        }
+    }
+
+    /**
+     * The primitive reduction, sequential or parallel, keeps the same points as the legacy API
+     */
+    @Test
+    public void testReduce() {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0 ; i < 10 ; i ++) {
+                final int count = 3 + random.nextInt(3 * PointReducer.PARALLEL_MIN_SIZE);
+                final double[] xy = new double[2 * count];
+                final ArrayList<GeoPoint> points = new ArrayList<>(count);
+                double latitude = 0;
+                double longitude = 0;
+                for (int j = 0 ; j < count ; j ++) {
+                    latitude += random.nextDouble() - .5;
+                    longitude += random.nextDouble() - .5;
+                    xy[2 * j] = latitude;
+                    xy[2 * j + 1] = longitude;
+                    points.add(new GeoPoint(latitude, longitude));
+                }
+                final double tolerance = random.nextDouble() * 3;
+                final boolean[] kept = new boolean[count];
+                final int keptCount = PointReducer.reduce(xy, count, tolerance, kept);
+                final boolean[] keptParallel = new boolean[count];
+                Assert.assertEquals(keptCount, PointReducer.reduce(xy, count, tolerance, keptParallel, executor));
+                final List<GeoPoint> reduced = PointReducer.reduceWithTolerance(points, tolerance);
+                Assert.assertEquals(keptCount, reduced.size());
+                int index = 0;
+                for (int j = 0 ; j < count ; j ++) {
+                    Assert.assertEquals(kept[j], keptParallel[j]);
+                    if (kept[j]) {
+                        Assert.assertSame(points.get(j), reduced.get(index ++));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Each point fed to the streaming reducer is within the tolerance of the resulting shape
+     */
+    @Test
+    public void testStreaming() {
+        final double tolerance = 1;
+        final StreamingPointReducer reducer = new StreamingPointReducer(tolerance, 50);
+        final int count = 10000;
+        final double[] input = new double[2 * count];
+        final List<double[]> output = new ArrayList<>();
+        double x = 0;
+        double y = 0;
+        for (int i = 0 ; i < count ; i ++) {
+            x += random.nextDouble();
+            y += random.nextDouble() - .5;
+            input[2 * i] = x;
+            input[2 * i + 1] = y;
+            if (reducer.add(x, y)) {
+                output.add(new double[]{x, y});
+            } else {
+                output.set(output.size() - 1, new double[]{x, y});
+            }
+        }
+        Assert.assertEquals(output.size(), reducer.getCount());
+        Assert.assertTrue(output.size() < count);
+        for (int i = 0 ; i < count ; i ++) {
+            double min = Double.MAX_VALUE;
+            for (int j = 1 ; j < output.size() ; j ++) {
+                min = Math.min(min, Distance.getSquaredDistanceToSegment(input[2 * i], input[2 * i + 1],
+                        output.get(j - 1)[0], output.get(j - 1)[1], output.get(j)[0], output.get(j)[1]));
+            }
+            Assert.assertTrue(min <= tolerance * tolerance);
+        }
+    }
+
+    private void douglasPeucker(final long[] pXY, final int pFirst, final int pLast,
+                                final double pSquaredTolerance, final boolean[] pKept) {
+        double maxDistance = -1;
+        int farthest = -1;
+        for (int i = pFirst + 1 ; i < pLast ; i ++) {
+            final double distance = Distance.getSquaredDistanceToSegment(
+                    pXY[2 * i], pXY[2 * i + 1], pXY[2 * pFirst], pXY[2 * pFirst + 1], pXY[2 * pLast], pXY[2 * pLast + 1]);
+            if (distance > maxDistance) {
+                maxDistance = distance;
+                farthest = i;
+            }
+        }
+        if (farthest == -1 || maxDistance <= pSquaredTolerance) {
+            return;
+        }
+        pKept[farthest] = true;
+        douglasPeucker(pXY, pFirst, farthest, pSquaredTolerance, pKept);
+        douglasPeucker(pXY, farthest, pLast, pSquaredTolerance, pKept);
+    }
+}
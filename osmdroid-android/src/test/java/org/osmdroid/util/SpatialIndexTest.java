@@ -0,0 +1,99 @@
+package org.osmdroid.util;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests related to {@link SpatialIndex}
+ * @since 6.0.2
+ */
+
+public class SpatialIndexTest {
+
+    private static final Random random = new Random();
+
+    /**
+     * Compares the search results with a linear check, for random points and rectangles
+     */
+    @Test
+    public void testSearch() {
+        final int iterations = 20;
+        final int queries = 100;
+        for (int i = 0 ; i < iterations ; i ++) {
+            final int size = random.nextInt(5000);
+            final double[] items = new double[4 * size];
+            final SpatialIndex index = new SpatialIndex();
+            for (int j = 0 ; j < size ; j ++) {
+                final double north = getRandomLatitude();
+                final double west = getRandomLongitude();
+                final boolean point = random.nextBoolean();
+                final double south = point ? north : Math.max(TileSystem.MinLatitude, north - random.nextDouble() * 10);
+                final double east = point ? west : Math.min(TileSystem.MaxLongitude, west + random.nextDouble() * 10);
+                items[4 * j] = north;
+                items[4 * j + 1] = east;
+                items[4 * j + 2] = south;
+                items[4 * j + 3] = west;
+                Assert.assertEquals(j, index.add(north, east, south, west));
+            }
+            final SpatialIndex.Result result = new SpatialIndex.Result();
+            for (int j = 0 ; j < queries ; j ++) {
+                final double north = getRandomLatitude();
+                final double south = Math.max(TileSystem.MinLatitude, north - random.nextDouble() * 60);
+                final double west = getRandomLongitude();
+                final double east = Math.min(TileSystem.MaxLongitude, west + random.nextDouble() * 90);
+                result.clear();
+                index.search(north, east, south, west, result);
+                result.sort();
+                final List<Integer> expected = new ArrayList<>();
+                for (int k = 0 ; k < size ; k ++) {
+                    if (items[4 * k + 2] <= north && items[4 * k] >= south
+                            && items[4 * k + 3] <= east && items[4 * k + 1] >= west) {
+                        expected.add(k);
+                    }
+                }
+                Assert.assertEquals(expected.size(), result.size());
+                for (int k = 0 ; k < expected.size() ; k ++) {
+                    Assert.assertEquals((int) expected.get(k), result.get(k));
+                }
+            }
+        }
+    }
+
+    /**
+     * A query across the antimeridian, expressed as west &gt; east or as longitudes beyond 180
+     */
+    @Test
+    public void testAntimeridian() {
+        final SpatialIndex index = new SpatialIndex();
+        index.add(10, 179);
+        index.add(10, -179);
+        index.add(10, 0);
+        final SpatialIndex.Result result = new SpatialIndex.Result();
+        index.search(20, -178, 0, 178, result);
+        result.sort();
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(0, result.get(0));
+        Assert.assertEquals(1, result.get(1));
+
+        result.clear();
+        index.search(20, 182, 0, 178, result);
+        Assert.assertEquals(2, result.size());
+
+        result.clear();
+        index.search(20, 540, 0, 0, result);
+        Assert.assertEquals(3, result.size());
+    }
+
+    private double getRandomLatitude() {
+        return TileSystem.getRandomLatitude(random.nextDouble(), TileSystem.MinLatitude);
+    }
+
+    private double getRandomLongitude() {
+        return TileSystem.getRandomLongitude(random.nextDouble());
+    }
+}
@@ -0,0 +1,130 @@
+package org.osmdroid.views.overlay;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.osmdroid.util.LineBuilder;
+import org.osmdroid.util.TileSystem;
+
+import java.util.Random;
+
+/**
+ * Unit tests related to {@link LinearRing}
+ * @since 6.0.2
+ */
+
+public class LinearRingTest {
+
+    private static final Random random = new Random();
+
+    private static final double mProjectedMapSize =
+            TileSystem.MapSize((double) microsoft.mappoint.TileSystem.projectionZoomLevel);
+    private static final double mDelta = 1E-6;
+
+    /**
+     * Points appended between two projections: same as all the points projected at once
+     */
+    @Test
+    public void testIncrementalProjection() {
+        for (final boolean geodesic : new boolean[] {false, true}) {
+            final double[] points = getRandomPoints(50);
+            final LinearRing linearRing = newLinearRing(geodesic);
+            for (int i = 0 ; i < points.length ; i += 2) {
+                linearRing.addPoint(points[i], points[i + 1]);
+                if (random.nextInt(3) == 0) {
+                    linearRing.computeProjectedAndDistances(mProjectedMapSize);
+                }
+            }
+            check(linearRing, points, geodesic);
+        }
+    }
+
+    /**
+     * The last point replaced between two projections: same as the final points projected at once
+     */
+    @Test
+    public void testSetLastPoint() {
+        for (final boolean geodesic : new boolean[] {false, true}) {
+            final double[] points = getRandomPoints(30);
+            final LinearRing linearRing = newLinearRing(geodesic);
+            for (int i = 0 ; i < points.length ; i += 2) {
+                linearRing.addPoint(points[i], points[i + 1]);
+                linearRing.computeProjectedAndDistances(mProjectedMapSize);
+                for (int j = 0 ; j < 3 ; j ++) { // intermediate positions, replaced later
+                    final double[] point = getRandomPoints(1);
+                    linearRing.setLastPoint(point[0], point[1]);
+                    linearRing.computeProjectedAndDistances(mProjectedMapSize);
+                }
+                linearRing.setLastPoint(points[i], points[i + 1]);
+            }
+            check(linearRing, points, geodesic);
+        }
+    }
+
+    /**
+     * Geodesic mode switched after projecting: the intermediate points are added or removed
+     */
+    @Test
+    public void testSetGeodesic() {
+        for (final boolean geodesic : new boolean[] {false, true}) {
+            final double[] points = getRandomPoints(20);
+            final LinearRing linearRing = newLinearRing(!geodesic);
+            for (int i = 0 ; i < points.length / 2 ; i += 2) {
+                linearRing.addPoint(points[i], points[i + 1]);
+            }
+            linearRing.computeProjectedAndDistances(mProjectedMapSize);
+            linearRing.setGeodesic(geodesic);
+            for (int i = points.length / 2 ; i < points.length ; i += 2) {
+                linearRing.addPoint(points[i], points[i + 1]);
+            }
+            check(linearRing, points, geodesic);
+        }
+    }
+
+    /**
+     * Compares with the same points projected at once by a new {@link LinearRing}
+     */
+    private void check(final LinearRing pLinearRing, final double[] pPoints, final boolean pGeodesic) {
+        final LinearRing expected = newLinearRing(pGeodesic);
+        for (int i = 0 ; i < pPoints.length ; i += 2) {
+            expected.addPoint(pPoints[i], pPoints[i + 1]);
+        }
+        expected.computeProjectedAndDistances(mProjectedMapSize);
+        pLinearRing.computeProjectedAndDistances(mProjectedMapSize);
+        Assert.assertEquals(pPoints.length / 2, pLinearRing.getPointCount());
+        for (int i = 0 ; i < pPoints.length / 2 ; i ++) {
+            Assert.assertEquals(pPoints[2 * i], pLinearRing.getLatitude(i), mDelta);
+            Assert.assertEquals(pPoints[2 * i + 1], pLinearRing.getLongitude(i), mDelta);
+        }
+        final double[] expectedDistances = expected.getDistances(); // as long as the drawn points
+        final double[] distances = pLinearRing.getDistances();
+        Assert.assertTrue(distances.length >= expectedDistances.length);
+        if (!pGeodesic) {
+            Assert.assertEquals(pPoints.length / 2, expectedDistances.length);
+        }
+        for (int i = 0 ; i < expectedDistances.length ; i ++) {
+            Assert.assertEquals(expectedDistances[i], distances[i], mDelta);
+        }
+    }
+
+    /**
+     * @return latitude/longitude pairs, far enough from each other to have geodesic intermediate points
+     */
+    private double[] getRandomPoints(final int pCount) {
+        final double[] result = new double[pCount * 2];
+        for (int i = 0 ; i < pCount ; i ++) {
+            result[2 * i] = -80 + 160 * random.nextDouble();
+            result[2 * i + 1] = -180 + 360 * random.nextDouble();
+        }
+        return result;
+    }
+
+    private LinearRing newLinearRing(final boolean pGeodesic) {
+        final LinearRing result = new LinearRing(new LineBuilder(256) {
+            @Override
+            public void flush() {}
+        });
+        result.setGeodesic(pGeodesic);
+        return result;
+    }
+}
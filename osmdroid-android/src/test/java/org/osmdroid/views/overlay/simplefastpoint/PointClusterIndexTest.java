@@ -0,0 +1,107 @@
+package org.osmdroid.views.overlay.simplefastpoint;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.osmdroid.api.IGeoPoint;
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.util.TileSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests related to {@link PointClusterIndex}
+ * @since 6.0.2
+ */
+
+public class PointClusterIndexTest {
+
+    private static final Random random = new Random();
+    private static final int MAX_ZOOM = 16;
+    private static final BoundingBox WORLD = new BoundingBox(
+            TileSystem.MaxLatitude, TileSystem.MaxLongitude, TileSystem.MinLatitude, TileSystem.MinLongitude);
+
+    /**
+     * At each zoom level, the clusters of the whole world contain all the points, once
+     */
+    @Test
+    public void testCounts() {
+        final List<IGeoPoint> points = getRandomPoints(20000);
+        final PointClusterIndex index = new PointClusterIndex(new SimplePointTheme(points, false), 0, MAX_ZOOM, 40);
+        final PointClusterIndex.Result result = new PointClusterIndex.Result();
+        int previous = 0;
+        for (int zoom = 0; zoom <= MAX_ZOOM + 1; zoom++) {
+            index.getClusters(WORLD, zoom, result);
+            final boolean[] seen = new boolean[points.size()];
+            int total = 0;
+            for (int i = 0; i < result.size(); i++) {
+                total += result.getCount(i);
+                final int pointIndex = result.getPointIndex(i);
+                Assert.assertFalse(seen[pointIndex]);
+                seen[pointIndex] = true;
+                if (result.getCount(i) == 1) {
+                    Assert.assertEquals(points.get(pointIndex).getLatitude(), result.getLatitude(i), 1E-6);
+                    Assert.assertEquals(points.get(pointIndex).getLongitude(), result.getLongitude(i), 1E-6);
+                }
+            }
+            Assert.assertEquals(points.size(), total);
+            Assert.assertTrue(result.size() >= previous);
+            previous = result.size();
+        }
+        Assert.assertEquals(points.size(), previous);
+    }
+
+    /**
+     * At the most detailed level, a viewport query returns exactly the points inside
+     */
+    @Test
+    public void testViewport() {
+        final List<IGeoPoint> points = getRandomPoints(10000);
+        final PointClusterIndex index = new PointClusterIndex(new SimplePointTheme(points, false), 0, MAX_ZOOM, 40);
+        final PointClusterIndex.Result result = new PointClusterIndex.Result();
+        for (int i = 0; i < 100; i++) {
+            final double north = TileSystem.getRandomLatitude(random.nextDouble(), TileSystem.MinLatitude);
+            final double south = Math.max(TileSystem.MinLatitude, north - random.nextDouble() * 40);
+            final double west = TileSystem.getRandomLongitude(random.nextDouble());
+            final double east = Math.min(TileSystem.MaxLongitude, west + random.nextDouble() * 60);
+            index.getClusters(new BoundingBox(north, east, south, west), MAX_ZOOM + 1, result);
+            final boolean[] found = new boolean[points.size()];
+            for (int j = 0; j < result.size(); j++) {
+                found[result.getPointIndex(j)] = true;
+            }
+            for (int j = 0; j < points.size(); j++) {
+                final IGeoPoint point = points.get(j);
+                final boolean expected = point.getLatitude() > south + 1E-9 && point.getLatitude() < north - 1E-9
+                        && point.getLongitude() > west + 1E-9 && point.getLongitude() < east - 1E-9;
+                if (expected) {
+                    Assert.assertTrue(found[j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNearestPoint() {
+        final List<IGeoPoint> points = new ArrayList<>();
+        points.add(new GeoPoint(10., 10.));
+        points.add(null);
+        points.add(new GeoPoint(10.001, 10.001));
+        final PointClusterIndex index = new PointClusterIndex(new SimplePointTheme(points, false), 0, MAX_ZOOM, 40);
+        Assert.assertEquals(2, index.getNearestPoint(10.0009, 10.0009, 18, 50));
+        Assert.assertEquals(0, index.getNearestPoint(10.0001, 10.0001, 18, 50));
+        Assert.assertEquals(-1, index.getNearestPoint(-10, -10, 18, 50));
+    }
+
+    private List<IGeoPoint> getRandomPoints(final int pCount) {
+        final List<IGeoPoint> result = new ArrayList<>(pCount);
+        for (int i = 0; i < pCount; i++) {
+            result.add(new GeoPoint(
+                    TileSystem.getRandomLatitude(random.nextDouble(), TileSystem.MinLatitude),
+                    TileSystem.getRandomLongitude(random.nextDouble())));
+        }
+        return result;
+    }
+}
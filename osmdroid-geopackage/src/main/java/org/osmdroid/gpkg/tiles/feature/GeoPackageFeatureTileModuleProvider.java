@@ -0,0 +1,223 @@
+package org.osmdroid.gpkg.tiles.feature;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+
+import org.osmdroid.api.IMapView;
+import org.osmdroid.config.Configuration;
+import org.osmdroid.tileprovider.ExpirableBitmapDrawable;
+import org.osmdroid.tileprovider.modules.IFilesystemCache;
+import org.osmdroid.tileprovider.modules.MapTileModuleProviderBase;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.tilesource.XYTileSource;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+
+import mil.nga.geopackage.core.contents.Contents;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.tiles.features.FeatureTiles;
+
+/**
+ * Renders GeoPackage feature tiles on a pool of worker threads, instead of the UI thread.
+ * {@link FeatureTiles} is not thread safe: the tiles are drawn one at a time, while the cache lookups,
+ * the PNG compression and the cache writes run in parallel.
+ * The rendered tiles can optionally be persisted in the {@link IFilesystemCache}, under a tile source
+ * name that includes the version of the feature table (last change and feature count), so that
+ * renders of a previous version are never used again.
+ *
+ * @since 6.0.2
+ */
+public class GeoPackageFeatureTileModuleProvider extends MapTileModuleProviderBase {
+
+    protected final IFilesystemCache tileWriter;
+    protected volatile ITileSource tileSource;
+    protected volatile FeatureTiles featureTiles;
+    protected volatile int minzoom = 0;
+    protected volatile boolean persistTiles = false;
+    /**
+     * Incremented when the feature tiles or the tile source change
+     */
+    private volatile int generation;
+    /**
+     * The feature tiles and their cache key, computed by a worker thread, or null
+     */
+    private volatile Renderer renderer;
+
+    public GeoPackageFeatureTileModuleProvider(final ITileSource pTileSource, final IFilesystemCache cache) {
+        super(Configuration.getInstance().getTileFileSystemThreads(), Configuration.getInstance().getTileFileSystemMaxQueueSize());
+        tileSource = pTileSource;
+        tileWriter = cache;
+    }
+
+    public void set(final int minZoom, final FeatureTiles pFeatureTiles) {
+        minzoom = minZoom;
+        featureTiles = pFeatureTiles;
+        generation++;
+    }
+
+    /**
+     * @param pPersistTiles true if the rendered tiles should be stored in the tile writer
+     */
+    public void setPersistTiles(final boolean pPersistTiles) {
+        persistTiles = pPersistTiles;
+    }
+
+    public boolean isPersistTiles() {
+        return persistTiles;
+    }
+
+    /**
+     * @return the current feature tiles and their cache key, or null if there are no feature tiles.
+     * Called by the worker threads, as computing the cache key queries the feature table.
+     */
+    private Renderer getRenderer() {
+        Renderer result = renderer;
+        if (result != null && result.generation == generation) {
+            return result;
+        }
+        synchronized (this) { // the feature table version is queried once
+            result = renderer;
+            final int currentGeneration = generation;
+            if (result != null && result.generation == currentGeneration) {
+                return result;
+            }
+            final ITileSource source = tileSource;
+            final FeatureTiles tiles = featureTiles;
+            if (tiles == null) {
+                return null;
+            }
+            final String version = source == null ? null : getVersion(tiles);
+            final ITileSource cacheSource = version == null ? null : new XYTileSource(source.name() + "#" + version,
+                minzoom, getMaximumZoomLevel(), source.getTileSizePixels(), ".png", new String[0]);
+            result = new Renderer(currentGeneration, tiles, cacheSource);
+            renderer = result;
+            return result;
+        }
+    }
+
+    /**
+     * @return a version of the feature table, that changes when the features are modified,
+     * or null if it cannot be computed
+     */
+    protected String getVersion(final FeatureTiles pFeatureTiles) {
+        try {
+            final FeatureDao featureDao = pFeatureTiles.getFeatureDao();
+            final Contents contents = featureDao.getGeometryColumns().getContents();
+            final Date lastChange = contents.getLastChange();
+            return (lastChange == null ? 0 : lastChange.getTime()) + "-" + featureDao.count();
+        } catch (final Exception e) {
+            Log.w(IMapView.LOGTAG, "Unable to get the version of the feature table, rendered tiles won't be persisted", e);
+            return null;
+        }
+    }
+
+    public Drawable getMapTile(final long pMapTileIndex) throws Exception {
+        final Renderer current = getRenderer();
+        if (current == null) {
+            return null;
+        }
+        final ITileSource cacheSource = persistTiles && tileWriter != null ? current.cacheTileSource : null;
+        if (cacheSource != null) {
+            final Drawable cached = tileWriter.loadTile(cacheSource, pMapTileIndex);
+            if (cached != null) {
+                // rendered tiles only get stale when the features change, not with time
+                ExpirableBitmapDrawable.setState(cached, ExpirableBitmapDrawable.UP_TO_DATE);
+                return cached;
+            }
+        }
+        final Bitmap tile;
+        synchronized (current.featureTiles) {
+            tile = current.featureTiles.drawTile(MapTileIndex.getX(pMapTileIndex), MapTileIndex.getY(pMapTileIndex), MapTileIndex.getZoom(pMapTileIndex));
+        }
+        if (tile == null) {
+            return null;
+        }
+        if (cacheSource != null) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            if (tile.compress(Bitmap.CompressFormat.PNG, 100, bytes)) {
+                tileWriter.saveFile(cacheSource, pMapTileIndex, new ByteArrayInputStream(bytes.toByteArray()), Long.MAX_VALUE);
+            }
+        }
+        return new BitmapDrawable(tile);
+    }
+
+    /**
+     * Feature tiles and the tile source used as their cache key
+     */
+    private static class Renderer {
+        private final int generation;
+        private final FeatureTiles featureTiles;
+        /**
+         * null if the feature table version is unknown
+         */
+        private final ITileSource cacheTileSource;
+
+        private Renderer(final int pGeneration, final FeatureTiles pFeatureTiles, final ITileSource pCacheTileSource) {
+            generation = pGeneration;
+            featureTiles = pFeatureTiles;
+            cacheTileSource = pCacheTileSource;
+        }
+    }
+
+    protected class TileLoader extends MapTileModuleProviderBase.TileLoader {
+
+        @Override
+        public Drawable loadTile(final long pMapTileIndex) {
+            try {
+                return getMapTile(pMapTileIndex);
+            } catch (final Throwable e) {
+                Log.e(IMapView.LOGTAG, "Error rendering feature tile", e);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    protected String getName() {
+        return "Geopackage Features";
+    }
+
+    @Override
+    protected String getThreadGroupName() {
+        return "geopackagefeatures";
+    }
+
+    @Override
+    public TileLoader getTileLoader() {
+        return new TileLoader();
+    }
+
+    @Override
+    public boolean getUsesDataConnection() {
+        return false;
+    }
+
+    @Override
+    public int getMinimumZoomLevel() {
+        return minzoom;
+    }
+
+    @Override
+    public int getMaximumZoomLevel() {
+        return 22;
+    }
+
+    @Override
+    public void setTileSource(final ITileSource pTileSource) {
+        tileSource = pTileSource;
+        generation++;
+    }
+
+    @Override
+    public void detach() {
+        super.detach();
+        featureTiles = null;
+        renderer = null;
+        generation++;
+    }
+}
@@ -1,35 +1,37 @@
 package org.osmdroid.gpkg.tiles.feature;
 
-import android.graphics.Bitmap;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.util.Log;
 
 import org.osmdroid.api.IMapView;
-import org.osmdroid.tileprovider.MapTileProviderBase;
+import org.osmdroid.tileprovider.MapTileProviderArray;
 import org.osmdroid.tileprovider.modules.IFilesystemCache;
 import org.osmdroid.tileprovider.modules.SqlTileWriter;
 import org.osmdroid.tileprovider.modules.TileWriter;
 import org.osmdroid.tileprovider.tilesource.ITileSource;
-import org.osmdroid.util.MapTileIndex;
 
 import mil.nga.geopackage.tiles.features.FeatureTiles;
 
 /**
  * created on 8/19/2017.
+ * The feature tiles are rendered asynchronously by a {@link GeoPackageFeatureTileModuleProvider}
+ * and kept in the in-memory tile cache, like any other tile.
  *
  * @author Alex O'Ree
  */
 
-public class GeoPackageFeatureTileProvider extends MapTileProviderBase {
+public class GeoPackageFeatureTileProvider extends MapTileProviderArray {
 
     protected IFilesystemCache tileWriter;
     protected int minzoom = 0;
     protected FeatureTiles featureTiles = null;
+    /**
+     * @since 6.0.2
+     */
+    protected GeoPackageFeatureTileModuleProvider featureTileModuleProvider;
 
     public GeoPackageFeatureTileProvider(ITileSource pTileSource) {
-        super(pTileSource);
+        super(pTileSource, null);
 
         Log.i(IMapView.LOGTAG, "Geopackage support is BETA. Please report any issues");
         if (Build.VERSION.SDK_INT < 10) {
@@ -37,20 +39,8 @@ public class GeoPackageFeatureTileProvider extends MapTileProviderBase {
         } else {
             tileWriter = new SqlTileWriter();
         }
-    }
-
-
-    @Override
-    public Drawable getMapTile(final long pMapTileIndex) {
-        if (featureTiles != null) {
-            Bitmap tile = featureTiles.drawTile(MapTileIndex.getX(pMapTileIndex), MapTileIndex.getY(pMapTileIndex), MapTileIndex.getZoom(pMapTileIndex));
-            if (tile != null) {
-                Drawable d = new BitmapDrawable(tile);
-                return d;
-            }
-        }
-        return null;
-
+        featureTileModuleProvider = new GeoPackageFeatureTileModuleProvider(pTileSource, tileWriter);
+        mTileProviderList.add(featureTileModuleProvider);
     }
 
     @Override
@@ -68,20 +58,36 @@ public class GeoPackageFeatureTileProvider extends MapTileProviderBase {
         return tileWriter;
     }
 
-    @Override
-    public long getQueueSize() {
-        return 0;
-    }
-
     public void set(int minZoom, FeatureTiles featureTiles) {
         this.featureTiles = featureTiles;
         minzoom = minZoom;
+        featureTileModuleProvider.set(minZoom, featureTiles);
+        // tiles rendered from the previous features are stale
+        clearTileCache();
     }
 
+    /**
+     * Stores the rendered tiles in the tile writer, so that they don't need to be rendered again
+     * as long as the feature table doesn't change. Off by default.
+     * @since 6.0.2
+     */
+    public void setPersistTiles(final boolean pPersistTiles) {
+        featureTileModuleProvider.setPersistTiles(pPersistTiles);
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    public GeoPackageFeatureTileModuleProvider getFeatureTileModuleProvider() {
+        return featureTileModuleProvider;
+    }
 
     @Override
     public void detach() {
         super.detach();
+        if (tileWriter != null)
+            tileWriter.onDetach();
+        tileWriter = null;
         featureTiles = null;
     }
-}
\ No newline at end of file
+}
@@ -11,16 +11,20 @@ import org.osmdroid.api.IMapView;
 import org.osmdroid.config.Configuration;
 import org.osmdroid.tileprovider.modules.IFilesystemCache;
 import org.osmdroid.tileprovider.modules.MapTileModuleProviderBase;
+import org.osmdroid.tileprovider.tilesource.BitmapTileSourceBase;
 import org.osmdroid.tileprovider.tilesource.ITileSource;
 import org.osmdroid.util.BoundingBox;
 import org.osmdroid.util.MapTileIndex;
 import org.osmdroid.util.TileSystem;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import mil.nga.geopackage.GeoPackage;
@@ -44,6 +48,20 @@ public class GeoPackageMapTileModuleProvider extends MapTileModuleProviderBase {
 
     protected GeopackageRasterTileSource currentTileSource;
     protected Set<GeoPackage> tileSources = new HashSet<>();
+    /**
+     * @since 6.0.2
+     */
+    protected final Map<String, TileDao> tileDaos = new HashMap<>();
+    /**
+     * The retrievers are confined to the worker thread that created them
+     * @since 6.0.2
+     */
+    private final ThreadLocal<Map<String, GeoPackageTileRetriever>> tileRetrievers = new ThreadLocal<Map<String, GeoPackageTileRetriever>>() {
+        @Override
+        protected Map<String, GeoPackageTileRetriever> initialValue() {
+            return new HashMap<>();
+        }
+    };
 
     public GeoPackageMapTileModuleProvider(File[] pFile,
                                            final Context context, IFilesystemCache cache) {
@@ -76,36 +94,98 @@ public class GeoPackageMapTileModuleProvider extends MapTileModuleProviderBase {
 
 
     public Drawable getMapTile(final long pMapTileIndex) {
-        Drawable tile = null;
-
-        String database = currentTileSource.getDatabase();
-        String table = currentTileSource.getTableDao();
-        GeoPackage next = manager.open(database);
-
-        TileDao tileDao = next.getTileDao(table);
-        GeoPackageTileRetriever retriever = new GeoPackageTileRetriever(tileDao);
+        final GeopackageRasterTileSource tileSource = currentTileSource;
+        if (tileSource == null) {
+            return null;
+        }
+        final GeoPackageTileRetriever retriever = getTileRetriever(tileSource.getDatabase(), tileSource.getTableDao());
+        if (retriever == null) {
+            return null;
+        }
 
         int zoom = MapTileIndex.getZoom(pMapTileIndex);
         int x = MapTileIndex.getX(pMapTileIndex);
         int y = MapTileIndex.getY(pMapTileIndex);
 
-
         GeoPackageTile geoPackageTile = retriever.getTile(x, y, zoom);
-        if (geoPackageTile != null && geoPackageTile.data != null) {
-            byte[] image = geoPackageTile.data;
-            if (image != null) {
-                BitmapFactory.Options opt = new BitmapFactory.Options();
-                opt.outHeight = 256; //360
-                opt.outWidth = 256;//248
-                Bitmap imageBitmap = BitmapFactory.decodeByteArray(image, 0, image.length, opt);
-                tile = new BitmapDrawable(imageBitmap);
+        if (geoPackageTile == null || geoPackageTile.data == null) {
+            return null;
+        }
+        final byte[] image = geoPackageTile.data;
+        try {
+            // same reusable bitmap path as the other tile sources
+            final Drawable tile = tileSource.getDrawable(new ByteArrayInputStream(image));
+            if (tile != null) {
+                return tile;
+            }
+        } catch (final BitmapTileSourceBase.LowMemoryException e) {
+            Log.w(IMapView.LOGTAG, "LowMemoryException decoding geopackage tile", e);
+            return null;
+        }
+        // e.g. a tile that doesn't fit the pooled bitmaps
+        Bitmap imageBitmap = BitmapFactory.decodeByteArray(image, 0, image.length);
+        return imageBitmap == null ? null : new BitmapDrawable(imageBitmap);
+    }
 
+    /**
+     * @return a retriever dedicated to the current thread, sharing the tile dao and its tile matrices
+     * with the other threads, or null if the database is not available
+     * @since 6.0.2
+     */
+    protected GeoPackageTileRetriever getTileRetriever(final String database, final String table) {
+        final String key = database + ":" + table;
+        final Map<String, GeoPackageTileRetriever> retrievers = tileRetrievers.get();
+        GeoPackageTileRetriever retriever = retrievers.get(key);
+        if (retriever == null) {
+            final TileDao tileDao = getTileDao(database, table);
+            if (tileDao == null) {
+                return null;
             }
+            retriever = new GeoPackageTileRetriever(tileDao);
+            retrievers.put(key, retriever);
         }
-        next.close();
+        return retriever;
+    }
 
-        return tile;
+    /**
+     * @return the tile dao of the table, created once with its tile matrix metadata,
+     * or null if the database is not available
+     * @since 6.0.2
+     */
+    protected TileDao getTileDao(final String database, final String table) {
+        final String key = database + ":" + table;
+        synchronized (tileDaos) {
+            TileDao tileDao = tileDaos.get(key);
+            if (tileDao == null) {
+                final GeoPackage geoPackage = getGeoPackage(database);
+                if (geoPackage == null) {
+                    return null;
+                }
+                tileDao = geoPackage.getTileDao(table);
+                tileDaos.put(key, tileDao);
+            }
+            return tileDao;
+        }
+    }
 
+    /**
+     * @return the database, kept open until {@link #detach()}, or null if detached
+     * @since 6.0.2
+     */
+    protected GeoPackage getGeoPackage(final String database) {
+        synchronized (tileSources) {
+            for (final GeoPackage geoPackage : tileSources) {
+                if (geoPackage.getName().equalsIgnoreCase(database)) {
+                    return geoPackage;
+                }
+            }
+            if (manager == null) {
+                return null;
+            }
+            final GeoPackage geoPackage = manager.open(database);
+            tileSources.add(geoPackage);
+            return geoPackage;
+        }
     }
 
 
@@ -171,16 +251,20 @@ public class GeoPackageMapTileModuleProvider extends MapTileModuleProviderBase {
 
     @Override
     public void detach() {
-
-
+        super.detach();
+        synchronized (tileDaos) {
+            tileDaos.clear();
+        }
         if (tileSources != null) {
-            Iterator<GeoPackage> iterator = tileSources.iterator();
-            while (iterator.hasNext()) {
-                iterator.next().close();
+            synchronized (tileSources) {
+                Iterator<GeoPackage> iterator = tileSources.iterator();
+                while (iterator.hasNext()) {
+                    iterator.next().close();
+                }
+                tileSources.clear();
+                manager = null;
             }
-            tileSources.clear();
         }
-        manager = null;
     }
 
 
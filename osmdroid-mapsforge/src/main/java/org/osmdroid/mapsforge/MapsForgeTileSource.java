@@ -28,6 +28,8 @@ import org.osmdroid.tileprovider.tilesource.BitmapTileSourceBase;
 import org.osmdroid.util.MapTileIndex;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Adapted from code from here: https://github.com/MKergall/osmbonuspack, which is LGPL
@@ -51,6 +53,20 @@ public class MapsForgeTileSource extends BitmapTileSourceBase {
 
     private MultiMapDataStore mapDatabase;
 
+    private final File[] files;
+    private final MultiMapDataStore.DataPolicy dataPolicy;
+    /**
+     * Whether each rendering thread uses its own map readers and renderer
+     * @since 6.0.2
+     */
+    private volatile boolean parallelRendering = false;
+    /**
+     * The idle renderers for the parallel rendering, with their own map readers
+     * @since 6.0.2
+     */
+    private final List<RenderingContext> renderingContexts = new ArrayList<>();
+    private boolean disposed = false;
+
     /**
      * The reason this constructor is protected is because all parameters,
      * except file should be determined from the archive file. Therefore a
@@ -66,9 +82,10 @@ public class MapsForgeTileSource extends BitmapTileSourceBase {
     protected MapsForgeTileSource(String cacheTileSourceName, int minZoom, int maxZoom, int tileSizePixels, File[] file, XmlRenderTheme xmlRenderTheme, MultiMapDataStore.DataPolicy dataPolicy, HillsRenderConfig hillsRenderConfig) {
         super(cacheTileSourceName, minZoom, maxZoom, tileSizePixels, ".png","© OpenStreetMap contributors");
 
-        mapDatabase = new MultiMapDataStore(dataPolicy);
-        for (int i = 0; i < file.length; i++)
-            mapDatabase.addMapDataStore(new MapFile(file[i]), false, false);
+        this.files = file;
+        this.dataPolicy = dataPolicy;
+        this.hillsRenderConfig = hillsRenderConfig;
+        mapDatabase = createMapDataStore();
 
         if (AndroidGraphicFactory.INSTANCE==null) {
             throw new RuntimeException("Must call MapsForgeTileSource.createInstance(context.getApplication()); once before MapsForgeTileSource.createFromFiles().");
@@ -81,9 +98,7 @@ public class MapsForgeTileSource extends BitmapTileSourceBase {
         //renderer = new DatabaseRenderer(mapDatabase, AndroidGraphicFactory.INSTANCE, tileCache,
         //        new TileBasedLabelStore(tileCache.getCapacityFirstLevel()), true, true);
         // mapsforge0.8.0
-        InMemoryTileCache tileCache = new InMemoryTileCache(2);
-        renderer = new DatabaseRenderer(mapDatabase, AndroidGraphicFactory.INSTANCE, tileCache,
-                new TileBasedLabelStore(tileCache.getCapacityFirstLevel()), true, true, hillsRenderConfig);
+        renderer = createRenderer(mapDatabase);
 
         minZoom = MIN_ZOOM;
         maxZoom = renderer.getZoomLevelMax();
@@ -174,10 +189,34 @@ public class MapsForgeTileSource extends BitmapTileSourceBase {
     }
 
 
-    //The synchronized here is VERY important.  If missing, the mapDatabase read gets corrupted by multiple threads reading the file at once.
-    public synchronized Drawable renderTile(final long pMapTileIndex) {
+    /**
+     * By default, the tiles are rendered one at a time, whatever the number of threads of the
+     * {@link MapsForgeTileModuleProvider}, as the map readers are not thread-safe.
+     * With parallel rendering, each rendering thread uses its own map readers and renderer,
+     * and they all share the same read-only render theme: rendering scales with the number of threads,
+     * at the cost of more memory and open files.
+     * @since 6.0.2
+     */
+    public void setParallelRendering(final boolean pParallelRendering) {
+        parallelRendering = pParallelRendering;
+    }
 
-        Tile tile = new Tile(MapTileIndex.getX(pMapTileIndex), MapTileIndex.getY(pMapTileIndex), (byte) MapTileIndex.getZoom(pMapTileIndex), 256);
+    /**
+     * @since 6.0.2
+     */
+    public boolean isParallelRendering() {
+        return parallelRendering;
+    }
+
+    public Drawable renderTile(final long pMapTileIndex) {
+        if (parallelRendering) {
+            return renderTileParallel(pMapTileIndex);
+        }
+        return renderTileSerial(pMapTileIndex);
+    }
+
+    //The synchronized here is VERY important.  If missing, the mapDatabase read gets corrupted by multiple threads reading the file at once.
+    private synchronized Drawable renderTileSerial(final long pMapTileIndex) {
         model.setFixedTileSize(256);
 
         //You could try something like this to load a custom theme
@@ -191,10 +230,33 @@ public class MapsForgeTileSource extends BitmapTileSourceBase {
 
         if (mapDatabase==null)
             return null;
+        return renderTile(pMapTileIndex, mapDatabase, renderer);
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    private Drawable renderTileParallel(final long pMapTileIndex) {
+        final RenderingContext context = obtainRenderingContext();
+        if (context == null)
+            return null;
+        try {
+            return renderTile(pMapTileIndex, context.mapDataStore, context.renderer);
+        } finally {
+            releaseRenderingContext(context);
+        }
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    private Drawable renderTile(final long pMapTileIndex,
+                                final MultiMapDataStore pMapDataStore, final DatabaseRenderer pRenderer) {
+        Tile tile = new Tile(MapTileIndex.getX(pMapTileIndex), MapTileIndex.getY(pMapTileIndex), (byte) MapTileIndex.getZoom(pMapTileIndex), 256);
         try {
             //Draw the tile
-            RendererJob mapGeneratorJob = new RendererJob(tile, mapDatabase, theme, model, scale, false, false);
-            AndroidTileBitmap bmp = (AndroidTileBitmap) renderer.executeJob(mapGeneratorJob);
+            RendererJob mapGeneratorJob = new RendererJob(tile, pMapDataStore, theme, model, scale, false, false);
+            AndroidTileBitmap bmp = (AndroidTileBitmap) pRenderer.executeJob(mapGeneratorJob);
             if (bmp != null)
                 return new BitmapDrawable(AndroidGraphicFactory.getBitmap(bmp));
         } catch (Exception ex) {
@@ -206,6 +268,69 @@ public class MapsForgeTileSource extends BitmapTileSourceBase {
         return new BitmapDrawable(bitmap);
     }
 
+    /**
+     * @return an idle rendering context, or a new one, or null if disposed
+     * @since 6.0.2
+     */
+    private RenderingContext obtainRenderingContext() {
+        synchronized (renderingContexts) {
+            if (disposed)
+                return null;
+            if (!renderingContexts.isEmpty())
+                return renderingContexts.remove(renderingContexts.size() - 1);
+        }
+        // the tile size of the shared model is set once and for all before any parallel rendering
+        model.setFixedTileSize(256);
+        final MultiMapDataStore mapDataStore = createMapDataStore();
+        return new RenderingContext(mapDataStore, createRenderer(mapDataStore));
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    private void releaseRenderingContext(final RenderingContext pContext) {
+        synchronized (renderingContexts) {
+            if (!disposed) {
+                renderingContexts.add(pContext);
+                return;
+            }
+        }
+        pContext.mapDataStore.close();
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    private MultiMapDataStore createMapDataStore() {
+        final MultiMapDataStore result = new MultiMapDataStore(dataPolicy);
+        for (int i = 0; i < files.length; i++)
+            result.addMapDataStore(new MapFile(files[i]), false, false);
+        return result;
+    }
+
+    /**
+     * @since 6.0.2
+     */
+    private DatabaseRenderer createRenderer(final MultiMapDataStore pMapDataStore) {
+        InMemoryTileCache tileCache = new InMemoryTileCache(2);
+        return new DatabaseRenderer(pMapDataStore, AndroidGraphicFactory.INSTANCE, tileCache,
+                new TileBasedLabelStore(tileCache.getCapacityFirstLevel()), true, true, hillsRenderConfig);
+    }
+
+    /**
+     * A map reader and its renderer, used by one thread at a time
+     * @since 6.0.2
+     */
+    private static class RenderingContext {
+        private final MultiMapDataStore mapDataStore;
+        private final DatabaseRenderer renderer;
+
+        private RenderingContext(final MultiMapDataStore pMapDataStore, final DatabaseRenderer pRenderer) {
+            mapDataStore = pMapDataStore;
+            renderer = pRenderer;
+        }
+    }
+
     public static void createInstance(Application app) {
         AndroidGraphicFactory.createInstance(app);
 
@@ -215,6 +340,12 @@ public class MapsForgeTileSource extends BitmapTileSourceBase {
 
 
     public void dispose() {
+        synchronized (renderingContexts) {
+            disposed = true;
+            for (final RenderingContext context : renderingContexts)
+                context.mapDataStore.close();
+            renderingContexts.clear();
+        }
         theme.decrementRefCount();
         theme=null;
         renderer=null;
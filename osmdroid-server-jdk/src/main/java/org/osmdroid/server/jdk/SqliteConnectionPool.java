@@ -0,0 +1,190 @@
+package org.osmdroid.server.jdk;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A thread-safe pool of connections to a tile database. Each connection keeps its prepared tile query,
+ * so that a request only binds the tile key and runs the query.
+ * The connections are created on demand, up to the pool size.
+ */
+class SqliteConnectionPool {
+
+     private static final Log log = LogFactory.getLog(SqliteConnectionPool.class);
+     static final String TILE_QUERY = "Select tile from tiles where key=?;";
+     private static final long ACQUIRE_TIMEOUT_MILLIS = 30 * 1000;
+     /**
+      * a connection released as broken frees capacity without going back to the idle queue,
+      * so the waiting threads check regularly whether they can create a new one
+      */
+     private static final long RETRY_MILLIS = 100;
+
+     private final String url;
+     private final int maxSize;
+     private final long acquireTimeoutMillis;
+     private final BlockingQueue<PooledConnection> idle = new LinkedBlockingQueue<PooledConnection>();
+     private final AtomicInteger size = new AtomicInteger();
+     private volatile boolean closed;
+
+     SqliteConnectionPool(String filename, int maxSize) {
+          this(filename, maxSize, ACQUIRE_TIMEOUT_MILLIS);
+     }
+
+     SqliteConnectionPool(String filename, int maxSize, long acquireTimeoutMillis) {
+          this.url = "jdbc:sqlite:" + filename;
+          this.maxSize = Math.max(1, maxSize);
+          this.acquireTimeoutMillis = acquireTimeoutMillis;
+     }
+
+     /**
+      * @return the tile, or null if there's no such tile in the database
+      */
+     byte[] getTile(long key) throws SQLException {
+          PooledConnection connection = acquire();
+          boolean broken = true;
+          try {
+               byte[] result = connection.getTile(key);
+               broken = false;
+               return result;
+          } finally {
+               release(connection, broken);
+          }
+     }
+
+     /**
+      * @return an idle connection, or a new one if the pool is not full;
+      * otherwise waits until a connection is released, up to the timeout
+      */
+     PooledConnection acquire() throws SQLException {
+          long deadline = System.currentTimeMillis() + acquireTimeoutMillis;
+          while (true) {
+               if (closed) {
+                    throw new SQLException("the pool of " + url + " is closed");
+               }
+               PooledConnection result = idle.poll();
+               if (result != null) {
+                    return result;
+               }
+               if (size.incrementAndGet() <= maxSize) {
+                    try {
+                         return createConnection();
+                    } catch (SQLException e) {
+                         size.decrementAndGet();
+                         throw e;
+                    }
+               }
+               size.decrementAndGet();
+               long remaining = deadline - System.currentTimeMillis();
+               if (remaining <= 0) {
+                    throw new SQLException("timeout while waiting for a connection to " + url);
+               }
+               try {
+                    result = idle.poll(Math.min(remaining, RETRY_MILLIS), TimeUnit.MILLISECONDS);
+               } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("interrupted while waiting for a connection to " + url, e);
+               }
+               if (result != null) {
+                    return result;
+               }
+          }
+     }
+
+     PooledConnection createConnection() throws SQLException {
+          return new PooledConnection(DriverManager.getConnection(url));
+     }
+
+     /**
+      * @return the number of connections, idle or in use
+      */
+     int size() {
+          return size.get();
+     }
+
+     /**
+      * @param broken true if the connection failed and should not be used again
+      */
+     void release(PooledConnection connection, boolean broken) {
+          if (broken || closed) {
+               size.decrementAndGet();
+               connection.close();
+               return;
+          }
+          idle.offer(connection);
+          if (closed && idle.remove(connection)) { // closed meanwhile
+               size.decrementAndGet();
+               connection.close();
+          }
+     }
+
+     /**
+      * Closes the idle connections; the connections in use are closed when released
+      */
+     void close() {
+          closed = true;
+          PooledConnection connection;
+          while ((connection = idle.poll()) != null) {
+               size.decrementAndGet();
+               connection.close();
+          }
+     }
+
+     /**
+      * A connection with its prepared tile query
+      */
+     static class PooledConnection {
+
+          private final Connection connection;
+          private final PreparedStatement tileStatement;
+
+          PooledConnection(Connection connection) throws SQLException {
+               this.connection = connection;
+               try {
+                    this.tileStatement = connection.prepareStatement(TILE_QUERY);
+               } catch (SQLException e) {
+                    connection.close();
+                    throw e;
+               }
+          }
+
+          Connection getConnection() {
+               return connection;
+          }
+
+          byte[] getTile(long key) throws SQLException {
+               tileStatement.setLong(1, key);
+               ResultSet resultSet = tileStatement.executeQuery();
+               try {
+                    if (resultSet.next()) {
+                         return resultSet.getBytes(1);
+                    }
+                    return null;
+               } finally {
+                    resultSet.close();
+               }
+          }
+
+          void close() {
+               try {
+                    tileStatement.close();
+               } catch (SQLException e) {
+                    log.warn("unable to close the statement", e);
+               }
+               try {
+                    connection.close();
+               } catch (SQLException e) {
+                    log.warn("unable to close the connection", e);
+               }
+          }
+     }
+}
@@ -0,0 +1,53 @@
+package org.osmdroid.server.jdk;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe in-memory LRU cache of the most requested tiles, bounded by the total size of the tiles
+ */
+class TileCache {
+
+     private final long maxBytes;
+     private final long maxTileBytes;
+     private long bytes;
+     private final LinkedHashMap<String, byte[]> tiles = new LinkedHashMap<String, byte[]>(1024, 0.75f, true);
+
+     /**
+      * @param maxBytes the maximum total size of the cached tiles, 0 for no cache
+      */
+     TileCache(long maxBytes) {
+          this.maxBytes = Math.max(0, maxBytes);
+          // a single huge tile should not evict everything else
+          this.maxTileBytes = this.maxBytes / 16;
+     }
+
+     synchronized byte[] get(String key) {
+          return tiles.get(key);
+     }
+
+     synchronized void put(String key, byte[] tile) {
+          if (tile.length > maxTileBytes) {
+               return;
+          }
+          byte[] previous = tiles.put(key, tile);
+          if (previous != null) {
+               bytes -= previous.length;
+          }
+          bytes += tile.length;
+          Iterator<Map.Entry<String, byte[]>> iterator = tiles.entrySet().iterator();
+          while (bytes > maxBytes && iterator.hasNext()) {
+               bytes -= iterator.next().getValue().length;
+               iterator.remove();
+          }
+     }
+
+     synchronized long getBytes() {
+          return bytes;
+     }
+
+     synchronized int size() {
+          return tiles.size();
+     }
+}
@@ -10,10 +10,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashMap;
@@ -22,6 +20,12 @@ import java.util.Map;
 import java.util.Properties;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -42,7 +46,18 @@ public class TileFetcher {
 
      private static final Log log = LogFactory.getLog(TileFetcher.class);
      static ObjectMapper om = new ObjectMapper();
-     HashMap<String, Connection> connections = new HashMap<String, Connection>();
+     /**
+      * connections per tile source, read-only once initialized
+      */
+     HashMap<String, SqliteConnectionPool> connections = new HashMap<String, SqliteConnectionPool>();
+     HashMap<String, File> files = new HashMap<String, File>();
+     /**
+      * the tuning can be overridden with system properties, e.g. -Dosmdroid.server.poolSize=16
+      */
+     static final int POOL_SIZE = Integer.getInteger("osmdroid.server.poolSize", 8);
+     static final long CACHE_BYTES = Long.getLong("osmdroid.server.cacheBytes", 64L * 1024 * 1024);
+     static final int MAX_AGE_SECONDS = Integer.getInteger("osmdroid.server.maxAge", 24 * 60 * 60);
+     final TileCache cache = new TileCache(CACHE_BYTES);
 
      public TileFetcher() throws Exception {
 
@@ -67,15 +82,24 @@ public class TileFetcher {
                if (!db.exists()) {
                     throw new FileNotFoundException("can't find the db " + filename + " current dir is " + new File(".").getAbsolutePath());
                }
+               SqliteConnectionPool pool = new SqliteConnectionPool(filename, POOL_SIZE);
                try {
-                    Connection conn1 = DriverManager.getConnection("jdbc:sqlite:" + filename);
-                    Statement stat = conn1.createStatement();
-                    stat.executeUpdate("CREATE TABLE IF NOT EXISTS tiles (key INTEGER PRIMARY KEY, provider TEXT, tile BLOB)");
-                    stat.close();
-                    System.out.println("adding " + source + " from file " + filename);
-                    connections.put(source, conn1);
+                    SqliteConnectionPool.PooledConnection conn1 = pool.acquire();
+                    boolean broken = true;
+                    try {
+                         Statement stat = conn1.getConnection().createStatement();
+                         stat.executeUpdate("CREATE TABLE IF NOT EXISTS tiles (key INTEGER PRIMARY KEY, provider TEXT, tile BLOB)");
+                         stat.close();
+                         broken = false;
+                    } finally {
+                         pool.release(conn1, broken);
+                    }
+                    log.info("adding " + source + " from file " + filename);
+                    connections.put(source, pool);
+                    files.put(source, db);
                } catch (SQLException e) {
-                    e.printStackTrace();
+                    log.error("unable to initialize db " + filename, e);
+                    pool.close();
                     //throw new Exception("unable to initialize db", e);
                }
 
@@ -87,7 +111,7 @@ public class TileFetcher {
      @Produces("application/json")
      @org.apache.cxf.jaxrs.model.wadl.Description("Returns a JSON string array of all available map sources")
      public String getSourceList() throws WebApplicationException, JsonProcessingException {
-          System.out.println("getSourceList");
+          log.debug("getSourceList");
           return om.writeValueAsString(connections.keySet());
      }
 
@@ -98,39 +122,93 @@ public class TileFetcher {
      @Path("/{source}/{z}/{x}/{y}.png")
      @Produces("image/png")
      @org.apache.cxf.jaxrs.model.wadl.Description("Returns png of the specific map tile from the database")
-     public byte[] getImage(@PathParam("source") String id,
+     public Response getImage(@PathParam("source") String id,
              @PathParam("z") int z,
              @PathParam("x") int x,
-             @PathParam("y") int y) throws WebApplicationException {
+             @PathParam("y") int y,
+             @Context Request request) throws WebApplicationException {
 
-          Connection c = connections.get(id);
-          if (c == null) {
-               System.err.println(id + " isn't registered");
+          SqliteConnectionPool pool = connections.get(id);
+          if (pool == null) {
+               log.warn(id + " isn't registered");
                throw new WebApplicationException(new Exception(id + " is not a valid tile source"), 400);
           }
-          try {
-
-               PreparedStatement prep = c.prepareStatement("Select tile from tiles where key=?;");
-
-               long index = (((z << z) + x) << z) + y;
-               System.out.println("Fetching tile " + id + z + "/" + x + "/" + y + " as " + index);
-               prep.setLong(1, index);
-               ResultSet executeQuery = prep.executeQuery();
-               if (executeQuery.next()) {
-                    //Blob b= executeQuery.getBlob(1);
-                    //byte[] image=b.getBytes(0, (int)b.length());
-                    byte[] image2 = executeQuery.getBytes(1);
-                    //return image;
-                    return image2;
+          long index = ((((long) z << z) + x) << z) + y;
+          // the tiles only change when the database changes
+          String version = Long.toHexString(getVersion(files.get(id)));
+          EntityTag etag = new EntityTag(version + "-" + Long.toHexString(index));
+          CacheControl cacheControl = new CacheControl();
+          cacheControl.setMaxAge(MAX_AGE_SECONDS);
+
+          // If-None-Match: no need to read the tile
+          Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+          if (notModified != null) {
+               return notModified.cacheControl(cacheControl).build();
+          }
+
+          String key = id + "/" + version + "/" + index;
+          byte[] image = cache.get(key);
+          if (image == null) {
+               try {
+                    if (log.isDebugEnabled()) {
+                         log.debug("Fetching tile " + id + z + "/" + x + "/" + y + " as " + index);
+                    }
+                    image = pool.getTile(index);
+               } catch (SQLException ex) {
+                    log.error("unable to fetch tile " + id + z + "/" + x + "/" + y, ex);
+                    throw new WebApplicationException(ex, 500);
                }
-               System.out.println(id + "Tile not found " + z + "/" + x + "/" + y + " as " + index);
-          } catch (Exception ex) {
-               ex.printStackTrace();
-          } finally {
+               if (image == null) {
+                    if (log.isDebugEnabled()) {
+                         log.debug(id + "Tile not found " + z + "/" + x + "/" + y + " as " + index);
+                    }
+                    throw new WebApplicationException(404);
+               }
+               cache.put(key, image);
+          }
+          return Response.ok(new TileOutput(image), "image/png")
+                  .tag(etag)
+                  .cacheControl(cacheControl)
+                  .header("Content-Length", image.length)
+                  .build();
+     }
 
+     /**
+      * In WAL mode the changes are written to the "-wal" file first, and only later
+      * checkpointed into the database file, so the newer of both modification times is used.
+      * @return the last modification time of the database, including its write-ahead log
+      */
+     static long getVersion(File db) {
+          File wal = new File(db.getPath() + "-wal");
+          return Math.max(db.lastModified(), wal.lastModified()); // 0 if there's no wal file
+     }
+
+     /**
+      * Writes the tile bytes to the response stream in a single call.
+      * The array is the one read from the database and kept in the cache,
+      * so a cached tile is written without being read or copied again.
+      */
+     private static class TileOutput implements StreamingOutput {
+
+          private final byte[] tile;
+
+          TileOutput(byte[] tile) {
+               this.tile = tile;
           }
-          throw new WebApplicationException(404);
 
+          @Override
+          public void write(OutputStream output) throws IOException {
+               output.write(tile);
+          }
+     }
+
+     /**
+      * Closes the connections to the tile databases
+      */
+     public void close() {
+          for (SqliteConnectionPool pool : connections.values()) {
+               pool.close();
+          }
      }
      
      @GET
@@ -179,8 +257,7 @@ public class TileFetcher {
             }
             r.close();
         }catch (Exception ex){
-            ex.printStackTrace();
-            System.err.println("Current dir is " + new File(".").getAbsolutePath());
+            log.error("unable to read " + f + ", current dir is " + new File(".").getAbsolutePath(), ex);
         }
         return sb.toString();
     }
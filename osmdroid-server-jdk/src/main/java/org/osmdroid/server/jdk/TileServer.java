@@ -33,6 +33,13 @@ public class TileServer {
           
           System.out.println("Attempting to bind to " + ENDPOINT_ADDRESS);
           startServer();
+          // Ctrl-C or kill: the databases must be closed too
+          Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+               @Override
+               public void run() {
+                    stopServer();
+               }
+          }, "TileServer shutdown"));
 
 
           if (System.console()!=null) {
@@ -44,8 +51,7 @@ public class TileServer {
                     Thread.sleep(5000);
                }
           }
-          server.stop();
-          server.destroy();
+          stopServer();
 
      }
 
@@ -66,11 +72,27 @@ public class TileServer {
           providers.add(new org.apache.cxf.jaxrs.provider.json.JSONProvider());
           sf.setProviders(providers);
 
+          instance = new TileFetcher();
           sf.setResourceProvider(TileFetcher.class,
-                  new SingletonResourceProvider(new TileFetcher(), true));
+                  new SingletonResourceProvider(instance, true));
           sf.setAddress(ENDPOINT_ADDRESS);
 
           server = sf.create();
 
      }
+
+     /**
+      * Stops the server and closes the tile databases, once
+      */
+     private static synchronized void stopServer() {
+          if (server != null) {
+               server.stop();
+               server.destroy();
+               server = null;
+          }
+          if (instance != null) {
+               instance.close();
+               instance = null;
+          }
+     }
 }
@@ -0,0 +1,135 @@
+package org.osmdroid.server.jdk;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests related to {@link SqliteConnectionPool}, with fake connections instead of a database
+ */
+public class SqliteConnectionPoolTest {
+
+     @Test
+     public void testReuse() throws SQLException {
+          FakePool pool = new FakePool(2, 1000);
+          SqliteConnectionPool.PooledConnection connection = pool.acquire();
+          pool.release(connection, false);
+          Assert.assertSame(connection, pool.acquire());
+          Assert.assertEquals(1, pool.created.get());
+     }
+
+     /**
+      * No more connections than the pool size: the next request times out
+      */
+     @Test
+     public void testExhaustion() throws SQLException {
+          FakePool pool = new FakePool(2, 300);
+          pool.acquire();
+          pool.acquire();
+          long start = System.currentTimeMillis();
+          try {
+               pool.acquire();
+               Assert.fail("the pool is exhausted");
+          } catch (SQLException e) {
+               // expected
+          }
+          Assert.assertTrue(System.currentTimeMillis() - start >= 300);
+          Assert.assertEquals(2, pool.created.get());
+          Assert.assertEquals(2, pool.size());
+     }
+
+     /**
+      * A waiting request gets a new connection as soon as a broken one is released
+      */
+     @Test
+     public void testBrokenReleaseFreesCapacity() throws Exception {
+          final FakePool pool = new FakePool(1, 30 * 1000);
+          SqliteConnectionPool.PooledConnection connection = pool.acquire();
+          final AtomicReference<Object> result = new AtomicReference<Object>();
+          Thread waiter = new Thread(new Runnable() {
+               @Override
+               public void run() {
+                    try {
+                         result.set(pool.acquire());
+                    } catch (SQLException e) {
+                         result.set(e);
+                    }
+               }
+          });
+          waiter.start();
+          Thread.sleep(200);
+          long start = System.currentTimeMillis();
+          pool.release(connection, true);
+          waiter.join(10 * 1000);
+          Assert.assertTrue(System.currentTimeMillis() - start < 5 * 1000);
+          Assert.assertTrue(result.get() instanceof SqliteConnectionPool.PooledConnection);
+          Assert.assertNotSame(connection, result.get());
+          Assert.assertEquals(2, pool.created.get());
+          Assert.assertEquals(1, pool.size());
+     }
+
+     @Test
+     public void testClose() throws SQLException {
+          FakePool pool = new FakePool(2, 1000);
+          SqliteConnectionPool.PooledConnection inUse = pool.acquire();
+          pool.release(pool.acquire(), false);
+          pool.close();
+          Assert.assertEquals(1, pool.size());
+          pool.release(inUse, false);
+          Assert.assertEquals(0, pool.size());
+          try {
+               pool.acquire();
+               Assert.fail("the pool is closed");
+          } catch (SQLException e) {
+               // expected
+          }
+     }
+
+     private static class FakePool extends SqliteConnectionPool {
+
+          private final AtomicInteger created = new AtomicInteger();
+
+          FakePool(int maxSize, long acquireTimeoutMillis) {
+               super("fake", maxSize, acquireTimeoutMillis);
+          }
+
+          @Override
+          PooledConnection createConnection() throws SQLException {
+               created.incrementAndGet();
+               PreparedStatement statement = fake(PreparedStatement.class);
+               return new PooledConnection(fake(Connection.class, statement));
+          }
+     }
+
+     /**
+      * @return an object whose methods do nothing, except returning the first matching result
+      */
+     private static <T> T fake(Class<T> type, final Object... results) {
+          return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                  new InvocationHandler() {
+                       @Override
+                       public Object invoke(Object proxy, Method method, Object[] args) {
+                            for (Object result : results) {
+                                 if (method.getReturnType().isInstance(result)) {
+                                      return result;
+                                 }
+                            }
+                            if (method.getReturnType() == boolean.class) {
+                                 return Boolean.FALSE;
+                            }
+                            if (method.getReturnType() == int.class) {
+                                 return 0;
+                            }
+                            return null;
+                       }
+                  }));
+     }
+}
@@ -0,0 +1,63 @@
+package org.osmdroid.server.jdk;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests related to {@link TileCache}
+ */
+public class TileCacheTest {
+
+     @Test
+     public void testByteAccounting() {
+          TileCache cache = new TileCache(1600);
+          cache.put("a", new byte[10]);
+          cache.put("b", new byte[20]);
+          Assert.assertEquals(30, cache.getBytes());
+          Assert.assertEquals(2, cache.size());
+          cache.put("a", new byte[40]); // replaced
+          Assert.assertEquals(60, cache.getBytes());
+          Assert.assertEquals(2, cache.size());
+          Assert.assertEquals(40, cache.get("a").length);
+     }
+
+     /**
+      * The least recently used tiles are evicted first, until the total size fits
+      */
+     @Test
+     public void testEviction() {
+          TileCache cache = new TileCache(1600); // at most 100 bytes per tile
+          for (int i = 0; i < 16; i++) {
+               cache.put("" + i, new byte[100]);
+          }
+          Assert.assertEquals(1600, cache.getBytes());
+          Assert.assertNotNull(cache.get("0")); // now the most recently used
+          cache.put("new", new byte[50]);
+          Assert.assertNull(cache.get("1"));
+          Assert.assertNotNull(cache.get("0"));
+          Assert.assertNotNull(cache.get("2"));
+          Assert.assertEquals(1550, cache.getBytes());
+          Assert.assertEquals(16, cache.size());
+     }
+
+     /**
+      * A tile too large for the cache is not cached and evicts nothing
+      */
+     @Test
+     public void testLargeTile() {
+          TileCache cache = new TileCache(1600);
+          cache.put("a", new byte[100]);
+          cache.put("huge", new byte[101]);
+          Assert.assertNull(cache.get("huge"));
+          Assert.assertNotNull(cache.get("a"));
+          Assert.assertEquals(100, cache.getBytes());
+     }
+
+     @Test
+     public void testNoCache() {
+          TileCache cache = new TileCache(0);
+          cache.put("a", new byte[1]);
+          Assert.assertNull(cache.get("a"));
+          Assert.assertEquals(0, cache.getBytes());
+     }
+}
@@ -0,0 +1,37 @@
+package org.osmdroid.server.jdk;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests related to {@link TileFetcher}
+ */
+public class TileFetcherTest {
+
+     /**
+      * A change only written to the write-ahead log changes the version
+      */
+     @Test
+     public void testVersion() throws IOException {
+          File db = File.createTempFile("tiles", ".sqlite");
+          File wal = new File(db.getPath() + "-wal");
+          try {
+               long time = db.lastModified() - 60000;
+               Assert.assertTrue(db.setLastModified(time));
+               Assert.assertEquals(time, TileFetcher.getVersion(db)); // no wal file
+
+               Assert.assertTrue(wal.createNewFile());
+               Assert.assertTrue(wal.setLastModified(time + 10000));
+               Assert.assertEquals(time + 10000, TileFetcher.getVersion(db));
+
+               Assert.assertTrue(db.setLastModified(time + 20000)); // checkpoint
+               Assert.assertEquals(time + 20000, TileFetcher.getVersion(db));
+          } finally {
+               wal.delete();
+               db.delete();
+          }
+     }
+}